@@ -0,0 +1,128 @@
+package org.spruce.compiler.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.ast.ASTReader;
+import org.spruce.compiler.ast.ASTWriter;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Measures writing the parsed statements in the binary AST format with an
+ * <code>ASTWriter</code>, reading them back with an <code>ASTReader</code>,
+ * and printing them with <code>ASTNode.print()</code>, the only text form,
+ * to a stream that discards the text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ASTSerializationBenchmark
+{
+    /**
+     * The number of copies of the statements resource to parse.
+     */
+    @Param({"1", "100"})
+    public int copies;
+
+    private TokenBuffer myTokens;
+    private List<ASTNode> myStatements;
+    private byte[] myBytes;
+
+    /**
+     * Parses the statements and writes them once for reading.
+     * @throws IOException If there is a problem writing.
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        myTokens = new TokenBuffer(Sources.statements(copies));
+        Parser parser = new Parser(myTokens.stream());
+        myStatements = new ArrayList<>();
+        while (!parser.isAtEnd())
+        {
+            myStatements.add(parser.parseStatement());
+        }
+        myBytes = write();
+    }
+
+    /**
+     * Writes the statements to a byte array.
+     * @return The bytes.
+     * @throws IOException If there is a problem writing.
+     */
+    @Benchmark
+    public byte[] write() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(myBytes != null ? myBytes.length : 8192);
+        try (ASTWriter writer = new ASTWriter(bytes, myTokens.getSource()))
+        {
+            for (ASTNode stmt : myStatements)
+            {
+                writer.write(stmt);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the written statements.
+     * @return The statements.
+     */
+    @Benchmark
+    public List<ASTNode> read()
+    {
+        return new ASTReader(ByteBuffer.wrap(myBytes), myTokens.getSource()).readAll();
+    }
+
+    /**
+     * Prints the statements, to compare against <code>write</code>.
+     * @return The number of statements printed.
+     */
+    @Benchmark
+    public int print()
+    {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream()
+        {
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        }));
+        try
+        {
+            for (ASTNode stmt : myStatements)
+            {
+                stmt.print();
+            }
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        return myStatements.size();
+    }
+}
@@ -0,0 +1,131 @@
+package org.spruce.compiler.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Counts the bytes allocated while scanning the realistic statements, and the
+ * same statements indented and commented, with <code>Scanner.next()</code>
+ * and into a <code>TokenBuffer</code>.  The <code>allocatedBytes</code> and
+ * <code>tokens</code> counters are summed over the same operations, so their
+ * ratio is the bytes allocated per significant token; whitespace and
+ * comments should add nothing to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark
+{
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Whether to scan the commented statements instead of the plain ones.
+     */
+    @Param({"false", "true"})
+    public boolean commented;
+
+    /**
+     * The number of copies of the statements resource to scan.
+     */
+    @Param({"100"})
+    public int copies;
+
+    private SourceText mySource;
+
+    /**
+     * The allocation counters, summed over each iteration's operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters
+    {
+        /**
+         * The bytes allocated by the operations.
+         */
+        public long allocatedBytes;
+
+        /**
+         * The significant tokens scanned by the operations.
+         */
+        public long tokens;
+
+        /**
+         * Clears the counters before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            allocatedBytes = 0;
+            tokens = 0;
+        }
+    }
+
+    /**
+     * Builds the source.
+     */
+    @Setup
+    public void setUp()
+    {
+        mySource = new SourceText("<statements>",
+                commented ? Sources.commentedStatements(copies) : Sources.statements(copies));
+    }
+
+    /**
+     * Scans the source with <code>Scanner.next()</code>, creating each
+     * significant <code>Token</code>.
+     * @param counters The <code>Counters</code>.
+     * @param bh The <code>Blackhole</code>.
+     */
+    @Benchmark
+    public void scannerNext(Counters counters, Blackhole bh)
+    {
+        long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        Scanner scanner = new Scanner(mySource);
+        int count = 0;
+        while (scanner.next())
+        {
+            bh.consume(scanner.getCurrToken());
+            count++;
+        }
+        counters.allocatedBytes += THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        counters.tokens += count;
+    }
+
+    /**
+     * Lexes the source into a <code>TokenBuffer</code>.
+     * @param counters The <code>Counters</code>.
+     * @param bh The <code>Blackhole</code>.
+     */
+    @Benchmark
+    public void tokenBuffer(Counters counters, Blackhole bh)
+    {
+        long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        TokenBuffer tokens = new TokenBuffer(mySource);
+        counters.allocatedBytes += THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        // Not counting the EOF token.
+        counters.tokens += tokens.size() - 1;
+        bh.consume(tokens);
+    }
+}
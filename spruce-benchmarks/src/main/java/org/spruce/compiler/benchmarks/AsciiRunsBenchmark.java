@@ -0,0 +1,108 @@
+package org.spruce.compiler.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Measures lexing large generated sources from a <code>char[]</code>, where
+ * runs of identifier characters, digits, and whitespace are found one
+ * character at a time, against lexing them from a memory-mapped ASCII file,
+ * where they are found eight bytes at a time.  The sources are the realistic
+ * statements, the statements with indentation and comments, and long runs of
+ * one class of character.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsciiRunsBenchmark
+{
+    /**
+     * The generated source to lex.
+     */
+    @Param({"statements", "commented", "longRuns"})
+    public String source;
+
+    private Path myFile;
+    private SourceText myChars;
+    private SourceText myMapped;
+
+    /**
+     * Generates the source, about 2 to 5 million characters, and writes and
+     * maps it.
+     * @throws IOException If there is a problem writing or mapping the file.
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        String contents;
+        switch(source)
+        {
+        case "statements":
+            contents = Sources.statements(2000);
+            break;
+        case "commented":
+            contents = Sources.commentedStatements(2000);
+            break;
+        case "longRuns":
+            contents = Sources.longRuns(100000);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown source " + source);
+        }
+        myChars = new SourceText("<" + source + ">", contents);
+        myFile = Files.createTempFile(source, ".spruce");
+        Files.write(myFile, contents.getBytes(StandardCharsets.US_ASCII));
+        myMapped = SourceText.map(myFile, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes the file.
+     * @throws IOException If there is a problem deleting the file.
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(myFile);
+    }
+
+    /**
+     * Lexes the source from a <code>char[]</code>.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer lexChars()
+    {
+        return new TokenBuffer(myChars);
+    }
+
+    /**
+     * Lexes the source from the mapped ASCII file.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer lexMapped()
+    {
+        return new TokenBuffer(myMapped);
+    }
+}
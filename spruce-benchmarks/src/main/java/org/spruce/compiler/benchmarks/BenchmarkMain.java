@@ -0,0 +1,43 @@
+package org.spruce.compiler.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with the JMH command line, writing the results as JSON
+ * so that runs from different releases can be compared.  Unless the arguments
+ * say otherwise, with <code>-rf</code> or <code>-rff</code>, the results go to
+ * <code>jmh-result.json</code> in the current directory.
+ */
+public class BenchmarkMain
+{
+    /**
+     * The default file that results are written to.
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {}
+
+    /**
+     * Runs JMH with the given arguments, defaulting the result format to JSON
+     * and the result file to <code>DEFAULT_RESULT_FILE</code>.
+     * @param args JMH command line arguments.
+     * @throws Exception If JMH fails.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf"))
+        {
+            jmhArgs.add(0, "-rf");
+            jmhArgs.add(1, "json");
+        }
+        if (!jmhArgs.contains("-rff"))
+        {
+            jmhArgs.add(0, "-rff");
+            jmhArgs.add(1, DEFAULT_RESULT_FILE);
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,85 @@
+package org.spruce.compiler.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spruce.compiler.driver.CompilationDriver;
+import org.spruce.compiler.driver.FileResult;
+
+/**
+ * Measures compiling one realistic source file from disk: mapping it, lexing
+ * it, and parsing every statement, as <code>CompilationDriver.compileFile</code>
+ * does.  The parser doesn't parse class declarations yet, so the file is the
+ * statements resource, which resembles the body of
+ * <code>src-spruce/Tokens.spruce</code>; <code>ScannerBenchmark</code> scans
+ * <code>Tokens.spruce</code> itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndToEndBenchmark
+{
+    /**
+     * The number of copies of the statements resource in the file.
+     */
+    @Param({"1", "100"})
+    public int copies;
+
+    private Path myFile;
+    private CompilationDriver myDriver;
+
+    /**
+     * Writes the file to compile.
+     * @throws IOException If there is a problem writing the file.
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        myFile = Files.createTempFile("statements", CompilationDriver.SOURCE_EXTENSION);
+        Files.write(myFile, Sources.statements(copies).getBytes(StandardCharsets.UTF_8));
+        myDriver = new CompilationDriver();
+    }
+
+    /**
+     * Deletes the file.
+     * @throws IOException If there is a problem deleting the file.
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(myFile);
+    }
+
+    /**
+     * Maps, lexes, and parses the file.
+     * @return The <code>FileResult</code>.
+     */
+    @Benchmark
+    public FileResult compileFile()
+    {
+        FileResult result = myDriver.compileFile(myFile);
+        if (!result.isSuccessful())
+        {
+            throw new IllegalStateException(result.getErrors().get(0));
+        }
+        return result;
+    }
+}
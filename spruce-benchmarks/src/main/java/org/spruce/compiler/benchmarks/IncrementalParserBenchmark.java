@@ -0,0 +1,76 @@
+package org.spruce.compiler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spruce.compiler.parser.IncrementalParser;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Measures an <code>IncrementalParser</code> reparsing after a one-character
+ * edit in the middle of the statements, against parsing them all from
+ * scratch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalParserBenchmark
+{
+    /**
+     * The number of copies of the statements resource to parse.
+     */
+    @Param({"1", "100"})
+    public int copies;
+
+    private SourceText myStatements;
+    private IncrementalParser myParser;
+
+    /**
+     * Builds the statements source and parses it.
+     */
+    @Setup
+    public void setUp()
+    {
+        myStatements = new SourceText("<statements>", Sources.statements(copies));
+        myParser = new IncrementalParser(new TokenBuffer(myStatements));
+    }
+
+    /**
+     * Inserts a space in the middle of the statements and removes it again,
+     * reparsing after each edit.
+     * @return The parser.
+     */
+    @Benchmark
+    public IncrementalParser editAndUndo()
+    {
+        int offset = myStatements.length() / 2;
+        myParser.edit(offset, 0, " ");
+        myParser.edit(offset, 1, "");
+        return myParser;
+    }
+
+    /**
+     * Lexes and parses all of the statements, to compare against
+     * <code>editAndUndo</code>.
+     * @return The parser.
+     */
+    @Benchmark
+    public IncrementalParser parseAll()
+    {
+        return new IncrementalParser(new TokenBuffer(myStatements));
+    }
+}
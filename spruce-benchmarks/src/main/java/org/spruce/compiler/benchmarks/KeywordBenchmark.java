@@ -0,0 +1,129 @@
+package org.spruce.compiler.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spruce.compiler.scanner.Keywords;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenBuffer;
+import org.spruce.compiler.scanner.TokenType;
+
+/**
+ * Measures identifier/keyword throughput: the old way of building a
+ * <code>String</code> and looking it up with
+ * <code>TokenType.forRepresentation</code>, against <code>Keywords.lookup</code>
+ * over the source range, and against lexing the whole source.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordBenchmark
+{
+    private static final int WORDS = 10000;
+    private static final String[] IDENTIFIERS = {
+            "x", "i", "count", "value", "myList", "result", "index", "buffer",
+            "TokenType", "getValue", "interfaceName", "doIt", "format", "iffy"
+    };
+
+    private SourceText mySource;
+    private int[] myStarts;
+    private int[] myLengths;
+
+    /**
+     * Builds a source of words, about one third of them keywords, and notes
+     * where each word starts and how long it is.
+     */
+    @Setup
+    public void setUp()
+    {
+        TokenType[] types = TokenType.values();
+        Random random = new Random(42);
+        StringBuilder buf = new StringBuilder();
+        myStarts = new int[WORDS];
+        myLengths = new int[WORDS];
+        for (int i = 0; i < WORDS; i++)
+        {
+            String word;
+            if (random.nextInt(3) == 0)
+            {
+                TokenType t;
+                do
+                {
+                    t = types[random.nextInt(types.length)];
+                }
+                while (!Keywords.isKeyword(t));
+                word = t.getRepresentation();
+            }
+            else
+            {
+                word = IDENTIFIERS[random.nextInt(IDENTIFIERS.length)];
+            }
+            myStarts[i] = buf.length();
+            myLengths[i] = word.length();
+            buf.append(word).append(i % 8 == 7 ? '\n' : ' ');
+        }
+        mySource = new SourceText("<benchmark>", buf.toString());
+    }
+
+    /**
+     * Looks up each word by building a <code>String</code> and calling
+     * <code>TokenType.forRepresentation</code>, as the scanner used to.
+     * @param bh The <code>Blackhole</code>.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void forRepresentation(Blackhole bh)
+    {
+        for (int i = 0; i < WORDS; i++)
+        {
+            StringBuilder word = new StringBuilder();
+            int start = myStarts[i];
+            for (int j = 0; j < myLengths[i]; j++)
+            {
+                word.append(mySource.charAt(start + j));
+            }
+            bh.consume(TokenType.forRepresentation(word.toString()));
+        }
+    }
+
+    /**
+     * Looks up each word with <code>Keywords.lookup</code>, straight from the
+     * source.
+     * @param bh The <code>Blackhole</code>.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void keywordsLookup(Blackhole bh)
+    {
+        for (int i = 0; i < WORDS; i++)
+        {
+            bh.consume(Keywords.lookup(mySource, myStarts[i], myLengths[i]));
+        }
+    }
+
+    /**
+     * Lexes the whole source into a <code>TokenBuffer</code>.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public TokenBuffer lex()
+    {
+        return new TokenBuffer(mySource);
+    }
+}
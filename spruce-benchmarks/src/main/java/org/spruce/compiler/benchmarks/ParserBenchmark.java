@@ -0,0 +1,169 @@
+package org.spruce.compiler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spruce.compiler.ast.ASTExpression;
+import org.spruce.compiler.ast.ASTStatement;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Measures <code>Parser.parseExpression()</code> and
+ * <code>Parser.parseStatement()</code> on deep and wide expressions, and
+ * <code>ASTParentNode.collapse()</code> on the trees they produce, against
+ * <code>Parser.parseCollapsedExpression()</code>, which builds the collapsed
+ * tree directly by precedence climbing.  The sources are lexed into
+ * <code>TokenBuffer</code>s up front, so only parsing is measured.  Run with
+ * <code>-prof gc</code> to compare bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark
+{
+    /**
+     * The shape of the expression: <code>deep</code> nests parenthesized
+     * additions <code>size</code> levels deep, and <code>wide</code> chains
+     * <code>size</code> operands with operators of several precedences.
+     */
+    @Param({"deep", "wide"})
+    public String shape;
+
+    /**
+     * The depth or width of the expression.
+     */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private TokenBuffer myExpression;
+    private TokenBuffer myStatement;
+    private TokenBuffer myBrokenStatement;
+
+    /**
+     * Builds and lexes the expression, a statement that assigns it, and a
+     * statement that assigns it with a missing last operand.
+     */
+    @Setup
+    public void setUp()
+    {
+        String expr = "deep".equals(shape) ? Sources.deepExpression(size) : Sources.wideExpression(size);
+        myExpression = new TokenBuffer(expr);
+        myStatement = new TokenBuffer("x := " + expr + ";");
+        myBrokenStatement = new TokenBuffer("x := " + expr + " * ;");
+    }
+
+    /**
+     * Parses the expression.
+     * @return The parsed expression.
+     */
+    @Benchmark
+    public ASTExpression parseExpression()
+    {
+        return new Parser(myExpression.stream()).parseExpression();
+    }
+
+    /**
+     * Parses the statement that assigns the expression.
+     * @return The parsed statement.
+     */
+    @Benchmark
+    public ASTStatement parseStatement()
+    {
+        return new Parser(myStatement.stream()).parseStatement();
+    }
+
+    /**
+     * Parses the statement with a collapsing parser, to compare against
+     * <code>parseStatement</code>.
+     * @return The collapsed statement.
+     */
+    @Benchmark
+    public ASTStatement parseCollapsingStatement()
+    {
+        return new Parser(myStatement.stream(), true).parseStatement();
+    }
+
+    /**
+     * Parses the statement with a missing last operand, recovering from the
+     * syntax error, which is thrown from the innermost operand.
+     * @return The statement holding the error.
+     */
+    @Benchmark
+    public ASTStatement parseRecoveringStatement()
+    {
+        Parser parser = new Parser(myBrokenStatement.stream());
+        parser.setRecovering(true);
+        return parser.parseStatement();
+    }
+
+    /**
+     * Parses the expression and collapses it, to compare against
+     * <code>parseExpression</code>.
+     * @return The collapsed expression.
+     */
+    @Benchmark
+    public ASTExpression parseAndCollapse()
+    {
+        ASTExpression expr = new Parser(myExpression.stream()).parseExpression();
+        expr.collapse();
+        return expr;
+    }
+
+    /**
+     * Parses the expression collapsed by precedence climbing, for the same
+     * tree as <code>parseAndCollapse</code>.
+     * @return The collapsed expression.
+     */
+    @Benchmark
+    public ASTExpression parseCollapsedExpression()
+    {
+        return new Parser(myExpression.stream()).parseCollapsedExpression();
+    }
+
+    /**
+     * Collapses a freshly parsed expression.  <code>collapse()</code> changes
+     * the tree, so each invocation gets a new one.
+     * @param tree The tree to collapse.
+     * @return The collapsed expression.
+     */
+    @Benchmark
+    public ASTExpression collapse(Tree tree)
+    {
+        tree.myExpression.collapse();
+        return tree.myExpression;
+    }
+
+    /**
+     * An uncollapsed expression, parsed again before each invocation.
+     */
+    @State(Scope.Thread)
+    public static class Tree
+    {
+        private ASTExpression myExpression;
+
+        /**
+         * Parses the benchmark's expression.
+         * @param benchmark The benchmark state.
+         */
+        @Setup(Level.Invocation)
+        public void parse(ParserBenchmark benchmark)
+        {
+            myExpression = new Parser(benchmark.myExpression.stream()).parseExpression();
+        }
+    }
+}
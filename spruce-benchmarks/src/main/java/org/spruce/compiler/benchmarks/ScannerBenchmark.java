@@ -0,0 +1,155 @@
+package org.spruce.compiler.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * Measures how fast <code>Scanner.next()</code> and lexing into a
+ * <code>TokenBuffer</code> get through realistic statements and a source
+ * file, with and without keeping trivia, and a one-character
+ * <code>TokenBuffer.edit</code> in the middle of the statements.  Scores are
+ * whole sources scanned or lexed, or edits made, per second.  One copy of the
+ * statements resource is about 240 tokens, so a statements score times 240
+ * times <code>copies</code> is tokens per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark
+{
+    /**
+     * The number of copies of the statements resource to scan.
+     */
+    @Param({"1", "100"})
+    public int copies;
+
+    /**
+     * A source file to scan, relative to the directory the benchmarks are run
+     * from.
+     */
+    @Param({"../spruce-initial-compiler/src-spruce/Tokens.spruce"})
+    public String file;
+
+    private SourceText myStatements;
+    private SourceText myFile;
+    private TokenBuffer myStatementsBuffer;
+
+    /**
+     * Builds the statements source and loads the file.
+     * @throws IOException If there is a problem reading the file.
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        myStatements = new SourceText("<statements>", Sources.statements(copies));
+        myFile = SourceText.map(Paths.get(file), StandardCharsets.UTF_8);
+        myStatementsBuffer = new TokenBuffer(myStatements);
+    }
+
+    /**
+     * Scans the statements with <code>Scanner.next()</code>, creating each
+     * <code>Token</code>.
+     * @param bh The <code>Blackhole</code>.
+     * @return The number of tokens.
+     */
+    @Benchmark
+    public int scannerNextStatements(Blackhole bh)
+    {
+        return scan(myStatements, bh);
+    }
+
+    /**
+     * Scans the file with <code>Scanner.next()</code>, creating each
+     * <code>Token</code>.
+     * @param bh The <code>Blackhole</code>.
+     * @return The number of tokens.
+     */
+    @Benchmark
+    public int scannerNextFile(Blackhole bh)
+    {
+        return scan(myFile, bh);
+    }
+
+    /**
+     * Lexes the statements into a <code>TokenBuffer</code>.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer tokenBufferStatements()
+    {
+        return new TokenBuffer(myStatements);
+    }
+
+    /**
+     * Lexes the statements into a <code>TokenBuffer</code> that keeps their
+     * whitespace and comments, to compare against
+     * <code>tokenBufferStatements</code>.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer tokenBufferKeepingTriviaStatements()
+    {
+        return new TokenBuffer(myStatements, new SymbolTable(), true);
+    }
+
+    /**
+     * Lexes the file into a <code>TokenBuffer</code>.
+     * @return The <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer tokenBufferFile()
+    {
+        return new TokenBuffer(myFile);
+    }
+
+    /**
+     * Inserts a space in the middle of the lexed statements, re-lexing only
+     * around it, to compare against <code>tokenBufferStatements</code>.
+     * @return The edited <code>TokenBuffer</code>.
+     */
+    @Benchmark
+    public TokenBuffer editStatements()
+    {
+        return myStatementsBuffer.edit(myStatements.length() / 2, 0, " ");
+    }
+
+    /**
+     * Scans all tokens of the given source with a new <code>Scanner</code>.
+     * @param source The <code>SourceText</code>.
+     * @param bh The <code>Blackhole</code>.
+     * @return The number of tokens.
+     */
+    private static int scan(SourceText source, Blackhole bh)
+    {
+        Scanner scanner = new Scanner(source);
+        int count = 0;
+        while (scanner.next())
+        {
+            bh.consume(scanner.getCurrToken());
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,161 @@
+package org.spruce.compiler.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the Spruce sources that the benchmarks scan and parse.  No benchmark
+ * entry points.
+ */
+final class Sources
+{
+    /**
+     * The classpath resource of realistic statements.
+     */
+    static final String STATEMENTS_RESOURCE = "/statements.spruce";
+
+    private Sources() {}
+
+    /**
+     * Builds a right-nested expression, <code>a0 + (a1 + (a2 + ...))</code>.
+     * @param depth The number of nested parenthesized expressions.
+     * @return The expression.
+     */
+    static String deepExpression(int depth)
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append('a').append(i).append(" + (");
+        }
+        buf.append('a').append(depth);
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append(')');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Builds a flat, left-associative expression that mixes operators of
+     * several precedence levels, <code>a0 + a1 * a2 - a3 &lt;&lt; a4 ...</code>.
+     * @param width The number of operands.
+     * @return The expression.
+     */
+    static String wideExpression(int width)
+    {
+        String[] operators = {" + ", " * ", " - ", " << ", " & ", " / ", " | ", " % "};
+        StringBuilder buf = new StringBuilder("a0");
+        for (int i = 1; i < width; i++)
+        {
+            buf.append(operators[i % operators.length]).append('a').append(i);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Reads the realistic statements resource, repeated the given number of
+     * times.
+     * @param copies The number of copies.
+     * @return The statements.
+     */
+    static String statements(int copies)
+    {
+        String statements = readResource(STATEMENTS_RESOURCE);
+        StringBuilder buf = new StringBuilder(statements.length() * copies);
+        for (int i = 0; i < copies; i++)
+        {
+            buf.append(statements);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Builds the realistic statements, repeated the given number of times,
+     * heavy with trivia the way a documented method body is: each line
+     * indented, each statement followed by an end-of-line comment, and a
+     * traditional comment before every few statements.
+     * @param copies The number of copies.
+     * @return The commented statements.
+     */
+    static String commentedStatements(int copies)
+    {
+        String[] lines = statements(1).split("\n");
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < copies; i++)
+        {
+            boolean inComment = false;
+            for (int j = 0; j < lines.length; j++)
+            {
+                if (lines[j].trim().startsWith("/*"))
+                {
+                    inComment = true;
+                }
+                if (j % 4 == 0 && !inComment)
+                {
+                    buf.append("        /*\n         * Statement ").append(j)
+                            .append(" and the lines after it.\n         */\n");
+                }
+                buf.append("        ").append(lines[j]);
+                if (lines[j].endsWith(";"))
+                {
+                    buf.append("    // statement ").append(j);
+                }
+                buf.append('\n');
+                if (lines[j].contains("*/"))
+                {
+                    inComment = false;
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Builds deeply indented assignments of long identifiers and numbers, so
+     * that most characters are in long runs of one class.
+     * @param lines The number of assignments.
+     * @return The assignments.
+     */
+    static String longRuns(int lines)
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+        {
+            buf.append("                veryLongIdentifierName").append(i)
+                    .append(" := anotherLongIdentifier_").append(i * 7919L).append(";\n");
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Reads a UTF-8 classpath resource.
+     * @param name The name of the resource.
+     * @return The contents of the resource.
+     */
+    private static String readResource(String name)
+    {
+        try (InputStream in = Sources.class.getResourceAsStream(name))
+        {
+            if (in == null)
+            {
+                throw new IllegalStateException("Missing resource " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ( (n = in.read(chunk)) != -1)
+            {
+                out.write(chunk, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
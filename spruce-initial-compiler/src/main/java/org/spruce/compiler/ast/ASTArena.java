@@ -0,0 +1,471 @@
+package org.spruce.compiler.ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenType;
+
+/**
+ * <p>An <code>ASTArena</code> holds a whole abstract syntax tree in parallel
+ * primitive arrays instead of <code>ASTNode</code> objects.  Each node is an
+ * <code>int</code> index; the arrays hold its <code>ASTKind</code>, its
+ * operation, its parent, the end of its subtree, the offset of its
+ * <code>Location</code> in the <code>SourceText</code>, and, for a value
+ * node, its value.  Dropping the arena drops the whole tree at once.</p>
+ *
+ * <p>Nodes are stored in pre-order, with the root at index <code>0</code>,
+ * so a node's subtree is the range from its index up to its end.  A node's
+ * first child is the next index, and its next sibling is the end of its
+ * subtree, if those are still inside its parent's subtree.</p>
+ *
+ * <p>Nodes can be read by index, through a <code>Cursor</code>, or as
+ * <code>ASTNode</code>s created on demand by <code>toNode</code>.</p>
+ */
+public class ASTArena
+{
+    private static final TokenType[] OPERATIONS = TokenType.values();
+    private static final int NO_OPERATION = 0xFF;
+
+    static
+    {
+        // Kinds and operations are stored in unsigned bytes, and
+        // NO_OPERATION isn't an operation.
+        if (ASTKind.values().length > 256 || OPERATIONS.length > NO_OPERATION)
+        {
+            throw new IllegalStateException("Too many kinds or operations for a byte.");
+        }
+    }
+
+    private SourceText mySource;
+    private byte[] myKinds;
+    private byte[] myOperations;
+    private int[] myParents;
+    private int[] myEnds;
+    private int[] myOffsets;
+    private String[] myValues;
+    // Locations that weren't created from mySource; null if there are none.
+    private Location[] myLocations;
+    private int mySize;
+
+    /**
+     * Constructs an <code>ASTArena</code> with room for the given number of
+     * nodes.
+     * @param source The <code>SourceText</code> of the nodes' locations.
+     * @param capacity The number of nodes.
+     */
+    private ASTArena(SourceText source, int capacity)
+    {
+        mySource = source;
+        myKinds = new byte[capacity];
+        myOperations = new byte[capacity];
+        myParents = new int[capacity];
+        myEnds = new int[capacity];
+        myOffsets = new int[capacity];
+        myValues = new String[capacity];
+    }
+
+    /**
+     * Copies the tree rooted at the given node into a new
+     * <code>ASTArena</code>.  The tree may be dropped afterwards; it can be
+     * created again from the arena.
+     * @param root The root of the tree.
+     * @return A new <code>ASTArena</code>.
+     * @throws IllegalArgumentException If a node's class has no
+     *     <code>ASTKind</code>.
+     */
+    public static ASTArena of(ASTNode root)
+    {
+        int[] count = new int[1];
+        ASTTraversal.preOrder(root, node -> count[0]++);
+        Location rootLoc = root.getLocation();
+        ASTArena arena = new ASTArena((rootLoc != null) ? rootLoc.getSource() : null, count[0]);
+
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        Deque<Integer> parents = new ArrayDeque<>();
+        pending.push(root);
+        parents.push(-1);
+        while (!pending.isEmpty())
+        {
+            ASTNode node = pending.pop();
+            int parent = parents.pop();
+            // Every node before this one that isn't an ancestor has ended.
+            for (int ancestor = arena.mySize - 1; ancestor != parent; ancestor = arena.myParents[ancestor])
+            {
+                arena.myEnds[ancestor] = arena.mySize;
+            }
+            int index = arena.add(node, parent);
+            if (node instanceof ASTParentNode)
+            {
+                List<ASTNode> children = ((ASTParentNode) node).getChildren();
+                // Pushed last to first, so that they are popped first to last.
+                for (int i = children.size() - 1; i >= 0; i--)
+                {
+                    pending.push(children.get(i));
+                    parents.push(index);
+                }
+            }
+        }
+        for (int ancestor = arena.mySize - 1; ancestor != -1; ancestor = arena.myParents[ancestor])
+        {
+            arena.myEnds[ancestor] = arena.mySize;
+        }
+        return arena;
+    }
+
+    /**
+     * Stores the given node after the others, except for the end of its
+     * subtree.
+     * @param node The node.
+     * @param parent The index of its parent, or <code>-1</code> for the root.
+     * @return The index of the node.
+     */
+    private int add(ASTNode node, int parent)
+    {
+        int index = mySize++;
+        myKinds[index] = (byte) ASTKind.of(node).ordinal();
+        myParents[index] = parent;
+        Location loc = node.getLocation();
+        if (loc != null && loc.getSource() == mySource && mySource != null)
+        {
+            myOffsets[index] = loc.getOffset();
+        }
+        else
+        {
+            myOffsets[index] = -1;
+            if (myLocations == null)
+            {
+                myLocations = new Location[myKinds.length];
+            }
+            myLocations[index] = loc;
+        }
+        if (node instanceof ASTParentNode)
+        {
+            TokenType operation = ((ASTParentNode) node).getOperation();
+            myOperations[index] = (byte) (operation != null ? operation.ordinal() : NO_OPERATION);
+        }
+        else
+        {
+            myOperations[index] = (byte) NO_OPERATION;
+            myValues[index] = ((ASTValueNode) node).getValue();
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return The number of nodes.
+     */
+    public int size()
+    {
+        return mySize;
+    }
+
+    /**
+     * Returns the <code>SourceText</code> of the nodes' locations.
+     * @return The <code>SourceText</code>, or <code>null</code> if the root
+     *     has no <code>Location</code> or it wasn't created from one.
+     */
+    public SourceText getSource()
+    {
+        return mySource;
+    }
+
+    /**
+     * Returns the kind of the given node.
+     * @param index The index of the node.
+     * @return The <code>ASTKind</code>.
+     */
+    public ASTKind getKind(int index)
+    {
+        return ASTKind.ofOrdinal(myKinds[index] & 0xFF);
+    }
+
+    /**
+     * Returns the operation of the given node.
+     * @param index The index of the node.
+     * @return The <code>TokenType</code> of the operation, or
+     *     <code>null</code> if there is none.
+     */
+    public TokenType getOperation(int index)
+    {
+        int operation = myOperations[index] & 0xFF;
+        return operation != NO_OPERATION ? OPERATIONS[operation] : null;
+    }
+
+    /**
+     * Returns the value of the given node.
+     * @param index The index of the node.
+     * @return The value, or <code>null</code> if it's a parent node.
+     */
+    public String getValue(int index)
+    {
+        return myValues[index];
+    }
+
+    /**
+     * Returns the offset of the given node's <code>Location</code> in the
+     * <code>SourceText</code>.
+     * @param index The index of the node.
+     * @return The 0-based offset, or <code>-1</code> if its
+     *     <code>Location</code> wasn't created from the
+     *     <code>SourceText</code>.
+     */
+    public int getOffset(int index)
+    {
+        return myOffsets[index];
+    }
+
+    /**
+     * Returns the <code>Location</code> of the given node.  A
+     * <code>Location</code> in the <code>SourceText</code> is created anew on
+     * each call.
+     * @param index The index of the node.
+     * @return The <code>Location</code>.
+     */
+    public Location getLocation(int index)
+    {
+        int offset = myOffsets[index];
+        return offset >= 0 ? new Location(mySource, offset) : myLocations[index];
+    }
+
+    /**
+     * Returns the parent of the given node.
+     * @param index The index of the node.
+     * @return The index of the parent, or <code>-1</code> for the root.
+     */
+    public int getParent(int index)
+    {
+        return myParents[index];
+    }
+
+    /**
+     * Returns the first child of the given node.
+     * @param index The index of the node.
+     * @return The index of the first child, or <code>-1</code> if there are
+     *     no children.
+     */
+    public int getFirstChild(int index)
+    {
+        return index + 1 < myEnds[index] ? index + 1 : -1;
+    }
+
+    /**
+     * Returns the next sibling of the given node.
+     * @param index The index of the node.
+     * @return The index of the next sibling, or <code>-1</code> if it's the
+     *     last child or the root.
+     */
+    public int getNextSibling(int index)
+    {
+        int parent = myParents[index];
+        int next = myEnds[index];
+        return parent >= 0 && next < myEnds[parent] ? next : -1;
+    }
+
+    /**
+     * Returns the end of the given node's subtree.
+     * @param index The index of the node.
+     * @return The index after the last node in the subtree.
+     */
+    public int getSubtreeEnd(int index)
+    {
+        return myEnds[index];
+    }
+
+    /**
+     * Returns the number of children of the given node.
+     * @param index The index of the node.
+     * @return The number of children.
+     */
+    public int getChildCount(int index)
+    {
+        int count = 0;
+        for (int child = getFirstChild(index); child != -1; child = getNextSibling(child))
+        {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a <code>Cursor</code> at the root.
+     * @return A new <code>Cursor</code>.
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    /**
+     * Creates the whole tree as <code>ASTNode</code>s.
+     * @return The root.
+     */
+    public ASTNode toNode()
+    {
+        return toNode(0);
+    }
+
+    /**
+     * Creates the subtree of the given node as <code>ASTNode</code>s.  Nodes
+     * are created from the end of the subtree backwards, so that each node's
+     * children exist before it does, without recursion.
+     * @param index The index of the node.
+     * @return The node.
+     */
+    public ASTNode toNode(int index)
+    {
+        int end = myEnds[index];
+        ASTNode[] nodes = new ASTNode[end - index];
+        // Nodes built at the same token are next to each other; they share
+        // a Location, as they did when parsed.
+        Location loc = null;
+        int locOffset = -1;
+        for (int i = end - 1; i >= index; i--)
+        {
+            ASTKind kind = getKind(i);
+            if (myOffsets[i] < 0 || myOffsets[i] != locOffset)
+            {
+                loc = getLocation(i);
+                locOffset = myOffsets[i];
+            }
+            ASTNode node;
+            if (kind.isValue())
+            {
+                node = kind.create(loc, null, myValues[i]);
+            }
+            else
+            {
+                List<ASTNode> children = new ArrayList<>(2);
+                for (int child = getFirstChild(i); child != -1; child = getNextSibling(child))
+                {
+                    children.add(nodes[child - index]);
+                    // Only its parent refers to it from here on.
+                    nodes[child - index] = null;
+                }
+                ASTParentNode parent = (ASTParentNode) kind.create(loc, children, null);
+                parent.setOperation(getOperation(i));
+                node = parent;
+            }
+            nodes[i - index] = node;
+        }
+        return nodes[0];
+    }
+
+    /**
+     * A <code>Cursor</code> moves around the nodes of an
+     * <code>ASTArena</code> without creating any objects.
+     */
+    public class Cursor
+    {
+        private int myIndex;
+
+        /**
+         * Constructs a <code>Cursor</code> at the root.
+         */
+        private Cursor()
+        {
+            myIndex = 0;
+        }
+
+        /**
+         * Returns the index of the current node.
+         * @return The index of the current node.
+         */
+        public int getIndex()
+        {
+            return myIndex;
+        }
+
+        /**
+         * Returns the kind of the current node.
+         * @return The <code>ASTKind</code>.
+         */
+        public ASTKind getKind()
+        {
+            return ASTArena.this.getKind(myIndex);
+        }
+
+        /**
+         * Returns the operation of the current node.
+         * @return The <code>TokenType</code> of the operation, or
+         *     <code>null</code> if there is none.
+         */
+        public TokenType getOperation()
+        {
+            return ASTArena.this.getOperation(myIndex);
+        }
+
+        /**
+         * Returns the value of the current node.
+         * @return The value, or <code>null</code> if it's a parent node.
+         */
+        public String getValue()
+        {
+            return ASTArena.this.getValue(myIndex);
+        }
+
+        /**
+         * Returns the <code>Location</code> of the current node.
+         * @return The <code>Location</code>.
+         */
+        public Location getLocation()
+        {
+            return ASTArena.this.getLocation(myIndex);
+        }
+
+        /**
+         * Moves to the first child of the current node, if it has one.
+         * @return Whether the cursor moved.
+         */
+        public boolean toFirstChild()
+        {
+            return moveTo(getFirstChild(myIndex));
+        }
+
+        /**
+         * Moves to the next sibling of the current node, if it has one.
+         * @return Whether the cursor moved.
+         */
+        public boolean toNextSibling()
+        {
+            return moveTo(getNextSibling(myIndex));
+        }
+
+        /**
+         * Moves to the parent of the current node, unless it's the root.
+         * @return Whether the cursor moved.
+         */
+        public boolean toParent()
+        {
+            return moveTo(getParent(myIndex));
+        }
+
+        /**
+         * Creates the subtree of the current node as <code>ASTNode</code>s.
+         * @return The node.
+         */
+        public ASTNode toNode()
+        {
+            return ASTArena.this.toNode(myIndex);
+        }
+
+        /**
+         * Moves to the given node, unless it's <code>-1</code>.
+         * @param index The index of the node.
+         * @return Whether the cursor moved.
+         */
+        private boolean moveTo(int index)
+        {
+            if (index == -1)
+            {
+                return false;
+            }
+            myIndex = index;
+            return true;
+        }
+    }
+}
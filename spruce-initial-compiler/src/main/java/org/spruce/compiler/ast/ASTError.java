@@ -0,0 +1,23 @@
+package org.spruce.compiler.ast;
+
+import org.spruce.compiler.scanner.Location;
+
+/**
+ * <p>An <code>ASTError</code> stands in for a statement that couldn't be
+ * parsed, when the <code>Parser</code> is recovering from syntax errors.  Its
+ * value is the error message, and its <code>Location</code> is where the
+ * error was found.</p>
+ */
+public class ASTError extends ASTValueNode
+{
+    /**
+     * Constructs an <code>ASTError</code> given the <code>Location</code>
+     * and the error message.
+     * @param location The <code>Location</code>.
+     * @param message The error message.
+     */
+    public ASTError(Location location, String message)
+    {
+        super(location, message);
+    }
+}
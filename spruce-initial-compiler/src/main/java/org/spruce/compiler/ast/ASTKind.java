@@ -0,0 +1,211 @@
+package org.spruce.compiler.ast;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.spruce.compiler.scanner.Location;
+
+/**
+ * <p>The kinds of <code>ASTNode</code>, one per concrete node class, with a
+ * way to create a node of each kind.  An <code>ASTArena</code> stores a
+ * node's kind instead of the node, and creates the node from it on demand.</p>
+ *
+ * <p>The ordinals are stored, so new kinds are added at the end.</p>
+ */
+public enum ASTKind
+{
+    ADDITIVE_EXPRESSION(ASTAdditiveExpression.class,
+            (loc, children, value) -> new ASTAdditiveExpression(loc, children)),
+    AMBIGUOUS_NAME(ASTAmbiguousName.class, (loc, children, value) -> new ASTAmbiguousName(loc, children)),
+    ARGUMENT_LIST(ASTArgumentList.class, (loc, children, value) -> new ASTArgumentList(loc, children)),
+    ARRAY_CREATION_EXPRESSION(ASTArrayCreationExpression.class,
+            (loc, children, value) -> new ASTArrayCreationExpression(loc, children)),
+    ARRAY_INITIALIZER(ASTArrayInitializer.class, (loc, children, value) -> new ASTArrayInitializer(loc, children)),
+    ARRAY_TYPE(ASTArrayType.class, (loc, children, value) -> new ASTArrayType(loc, children)),
+    ASSERT_STATEMENT(ASTAssertStatement.class, (loc, children, value) -> new ASTAssertStatement(loc, children)),
+    ASSIGNMENT(ASTAssignment.class, (loc, children, value) -> new ASTAssignment(loc, children)),
+    ASSIGNMENT_EXPRESSION(ASTAssignmentExpression.class,
+            (loc, children, value) -> new ASTAssignmentExpression(loc, children)),
+    BITWISE_AND_EXPRESSION(ASTBitwiseAndExpression.class,
+            (loc, children, value) -> new ASTBitwiseAndExpression(loc, children)),
+    BITWISE_OR_EXPRESSION(ASTBitwiseOrExpression.class,
+            (loc, children, value) -> new ASTBitwiseOrExpression(loc, children)),
+    BITWISE_XOR_EXPRESSION(ASTBitwiseXorExpression.class,
+            (loc, children, value) -> new ASTBitwiseXorExpression(loc, children)),
+    BOOLEAN_LITERAL(ASTBooleanLiteral.class, (loc, children, value) -> new ASTBooleanLiteral(loc, value)),
+    BREAK_STATEMENT(ASTBreakStatement.class, (loc, children, value) -> new ASTBreakStatement(loc, children)),
+    CAST_EXPRESSION(ASTCastExpression.class, (loc, children, value) -> new ASTCastExpression(loc, children)),
+    CHARACTER_LITERAL(ASTCharacterLiteral.class, (loc, children, value) -> new ASTCharacterLiteral(loc, value)),
+    CLASS_INSTANCE_CREATION_EXPRESSION(ASTClassInstanceCreationExpression.class,
+            (loc, children, value) -> new ASTClassInstanceCreationExpression(loc, children)),
+    CLASS_LITERAL(ASTClassLiteral.class, (loc, children, value) -> new ASTClassLiteral(loc, children)),
+    COMPARE_EXPRESSION(ASTCompareExpression.class, (loc, children, value) -> new ASTCompareExpression(loc, children)),
+    CONDITIONAL_EXPRESSION(ASTConditionalExpression.class,
+            (loc, children, value) -> new ASTConditionalExpression(loc, children)),
+    CONTINUE_STATEMENT(ASTContinueStatement.class, (loc, children, value) -> new ASTContinueStatement(loc, children)),
+    DATA_TYPE(ASTDataType.class, (loc, children, value) -> new ASTDataType(loc, children)),
+    DATA_TYPE_NO_ARRAY(ASTDataTypeNoArray.class, (loc, children, value) -> new ASTDataTypeNoArray(loc, children)),
+    DIM_EXPR(ASTDimExpr.class, (loc, children, value) -> new ASTDimExpr(loc, children)),
+    DIM_EXPRS(ASTDimExprs.class, (loc, children, value) -> new ASTDimExprs(loc, children)),
+    DIMS(ASTDims.class, (loc, children, value) -> new ASTDims(loc, children)),
+    ELEMENT_ACCESS(ASTElementAccess.class, (loc, children, value) -> new ASTElementAccess(loc, children)),
+    EXPRESSION(ASTExpression.class, (loc, children, value) -> new ASTExpression(loc, children)),
+    EXPRESSION_NAME(ASTExpressionName.class, (loc, children, value) -> new ASTExpressionName(loc, children)),
+    EXPRESSION_NO_INCR_DECR(ASTExpressionNoIncrDecr.class,
+            (loc, children, value) -> new ASTExpressionNoIncrDecr(loc, children)),
+    EXPRESSION_STATEMENT(ASTExpressionStatement.class,
+            (loc, children, value) -> new ASTExpressionStatement(loc, children)),
+    FALLTHROUGH_STATEMENT(ASTFallthroughStatement.class,
+            (loc, children, value) -> new ASTFallthroughStatement(loc, children)),
+    FLOATING_POINT_LITERAL(ASTFloatingPointLiteral.class,
+            (loc, children, value) -> new ASTFloatingPointLiteral(loc, value)),
+    IDENTIFIER(ASTIdentifier.class, (loc, children, value) -> new ASTIdentifier(loc, value)),
+    INTEGER_LITERAL(ASTIntegerLiteral.class, (loc, children, value) -> new ASTIntegerLiteral(loc, value)),
+    INTERSECTION_TYPE(ASTIntersectionType.class, (loc, children, value) -> new ASTIntersectionType(loc, children)),
+    LEFT_HAND_SIDE(ASTLeftHandSide.class, (loc, children, value) -> new ASTLeftHandSide(loc, children)),
+    LITERAL(ASTLiteral.class, (loc, children, value) -> new ASTLiteral(loc, children.get(0))),
+    LOGICAL_AND_EXPRESSION(ASTLogicalAndExpression.class,
+            (loc, children, value) -> new ASTLogicalAndExpression(loc, children)),
+    LOGICAL_OR_EXPRESSION(ASTLogicalOrExpression.class,
+            (loc, children, value) -> new ASTLogicalOrExpression(loc, children)),
+    LOGICAL_XOR_EXPRESSION(ASTLogicalXorExpression.class,
+            (loc, children, value) -> new ASTLogicalXorExpression(loc, children)),
+    METHOD_INVOCATION(ASTMethodInvocation.class, (loc, children, value) -> new ASTMethodInvocation(loc, children)),
+    MULTIPLICATIVE_EXPRESSION(ASTMultiplicativeExpression.class,
+            (loc, children, value) -> new ASTMultiplicativeExpression(loc, children)),
+    NULL_LITERAL(ASTNullLiteral.class, (loc, children, value) -> new ASTNullLiteral(loc, value)),
+    PACKAGE_OR_TYPE_NAME(ASTPackageOrTypeName.class, (loc, children, value) -> new ASTPackageOrTypeName(loc, children)),
+    POSTFIX_EXPRESSION(ASTPostfixExpression.class,
+            (loc, children, value) -> new ASTPostfixExpression(loc, children, null)),
+    PREFIX_EXPRESSION(ASTPrefixExpression.class,
+            (loc, children, value) -> new ASTPrefixExpression(loc, children, null)),
+    PRIMARY(ASTPrimary.class, (loc, children, value) -> new ASTPrimary(loc, children)),
+    PRIMITIVE_TYPE(ASTPrimitiveType.class, (loc, children, value) -> new ASTPrimitiveType(loc, children.get(0))),
+    RELATIONAL_EXPRESSION(ASTRelationalExpression.class,
+            (loc, children, value) -> new ASTRelationalExpression(loc, children)),
+    RETURN_STATEMENT(ASTReturnStatement.class, (loc, children, value) -> new ASTReturnStatement(loc, children)),
+    SHIFT_EXPRESSION(ASTShiftExpression.class, (loc, children, value) -> new ASTShiftExpression(loc, children)),
+    SIMPLE_TYPE(ASTSimpleType.class, (loc, children, value) -> new ASTSimpleType(loc, children)),
+    STATEMENT(ASTStatement.class, (loc, children, value) -> new ASTStatement(loc, children)),
+    STATEMENT_EXPRESSION(ASTStatementExpression.class,
+            (loc, children, value) -> new ASTStatementExpression(loc, children)),
+    STRING_LITERAL(ASTStringLiteral.class, (loc, children, value) -> new ASTStringLiteral(loc, value)),
+    THIS(ASTThis.class, (loc, children, value) -> new ASTThis(loc, value)),
+    THROW_STATEMENT(ASTThrowStatement.class, (loc, children, value) -> new ASTThrowStatement(loc, children)),
+    TYPE_ARGUMENT(ASTTypeArgument.class, (loc, children, value) -> new ASTTypeArgument(loc, children)),
+    TYPE_ARGUMENT_LIST(ASTTypeArgumentList.class, (loc, children, value) -> new ASTTypeArgumentList(loc, children)),
+    TYPE_ARGUMENTS(ASTTypeArguments.class, (loc, children, value) -> new ASTTypeArguments(loc, children)),
+    TYPE_ARGUMENTS_OR_DIAMOND(ASTTypeArgumentsOrDiamond.class,
+            (loc, children, value) -> new ASTTypeArgumentsOrDiamond(loc, children)),
+    TYPE_NAME(ASTTypeName.class, (loc, children, value) -> new ASTTypeName(loc, children)),
+    TYPE_TO_INSTANTIATE(ASTTypeToInstantiate.class, (loc, children, value) -> new ASTTypeToInstantiate(loc, children)),
+    UNARY_EXPRESSION(ASTUnaryExpression.class, (loc, children, value) -> new ASTUnaryExpression(loc, children, null)),
+    UNQUALIFIED_CLASS_INSTANCE_CREATION_EXPRESSION(ASTUnqualifiedClassInstanceCreationExpression.class,
+            (loc, children, value) -> new ASTUnqualifiedClassInstanceCreationExpression(loc, children)),
+    VALUE_NODE(ASTValueNode.class, (loc, children, value) -> new ASTValueNode(loc, value)),
+    VARIABLE_INITIALIZER(ASTVariableInitializer.class,
+            (loc, children, value) -> new ASTVariableInitializer(loc, children)),
+    VARIABLE_INITIALIZER_LIST(ASTVariableInitializerList.class,
+            (loc, children, value) -> new ASTVariableInitializerList(loc, children)),
+    WILDCARD(ASTWildcard.class, (loc, children, value) -> new ASTWildcard(loc, children)),
+    WILDCARD_BOUNDS(ASTWildcardBounds.class, (loc, children, value) -> new ASTWildcardBounds(loc, children)),
+    ERROR(ASTError.class, (loc, children, value) -> new ASTError(loc, value));
+
+    private static final ASTKind[] KINDS = values();
+    private static final Map<Class<? extends ASTNode>, ASTKind> BY_CLASS = new HashMap<>();
+
+    static
+    {
+        for (ASTKind kind : KINDS)
+        {
+            BY_CLASS.put(kind.myNodeClass, kind);
+        }
+    }
+
+    private Class<? extends ASTNode> myNodeClass;
+    private NodeFactory myFactory;
+
+    /**
+     * Constructs an <code>ASTKind</code>.
+     * @param nodeClass The class of node.
+     * @param factory Creates a node of the class.
+     */
+    ASTKind(Class<? extends ASTNode> nodeClass, NodeFactory factory)
+    {
+        myNodeClass = nodeClass;
+        myFactory = factory;
+    }
+
+    /**
+     * Returns the kind of the given node.
+     * @param node An <code>ASTNode</code>.
+     * @return The kind of the node.
+     * @throws IllegalArgumentException If the node's class has no kind.
+     */
+    public static ASTKind of(ASTNode node)
+    {
+        ASTKind kind = BY_CLASS.get(node.getClass());
+        if (kind == null)
+        {
+            throw new IllegalArgumentException("No kind for " + node.getClass().getName());
+        }
+        return kind;
+    }
+
+    /**
+     * Returns the kind with the given ordinal.
+     * @param ordinal The ordinal.
+     * @return The kind.
+     */
+    public static ASTKind ofOrdinal(int ordinal)
+    {
+        return KINDS[ordinal];
+    }
+
+    /**
+     * Returns the class of node of this kind.
+     * @return The class of node.
+     */
+    public Class<? extends ASTNode> getNodeClass()
+    {
+        return myNodeClass;
+    }
+
+    /**
+     * Returns whether nodes of this kind have a value instead of children.
+     * @return Whether nodes of this kind are <code>ASTValueNode</code>s.
+     */
+    public boolean isValue()
+    {
+        return ASTValueNode.class.isAssignableFrom(myNodeClass);
+    }
+
+    /**
+     * Creates a node of this kind.
+     * @param location The <code>Location</code>.
+     * @param children The child nodes, if this kind is a parent node.
+     * @param value The value, if this kind is a value node.
+     * @return The new node.
+     */
+    public ASTNode create(Location location, List<ASTNode> children, String value)
+    {
+        return myFactory.create(location, children, value);
+    }
+
+    /**
+     * Creates a node of one kind.
+     */
+    @FunctionalInterface
+    private interface NodeFactory
+    {
+        /**
+         * Creates a node.
+         * @param location The <code>Location</code>.
+         * @param children The child nodes, if a parent node.
+         * @param value The value, if a value node.
+         * @return The new node.
+         */
+        ASTNode create(Location location, List<ASTNode> children, String value);
+    }
+}
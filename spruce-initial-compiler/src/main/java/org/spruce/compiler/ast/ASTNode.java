@@ -27,6 +27,16 @@ public abstract class ASTNode
         return myLocation;
     }
 
+    /**
+     * Sets the <code>Location</code>, e.g. when the source was edited around
+     * this node.
+     * @param location The <code>Location</code> of the node.
+     */
+    public void setLocation(Location location)
+    {
+        myLocation = location;
+    }
+
     /**
      * Prints this node to the output stream.
      */
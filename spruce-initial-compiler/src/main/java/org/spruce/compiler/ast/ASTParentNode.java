@@ -1,6 +1,8 @@
 package org.spruce.compiler.ast;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.BiFunction;
 
@@ -72,21 +74,35 @@ public abstract class ASTParentNode extends ASTNode
     }
 
     /**
-     * Prints this node and its children to the output stream.
+     * Prints this node and its children to the output stream.  Descendants
+     * that are parent nodes are printed from an explicit stack, so deeply
+     * nested trees don't overflow the call stack.
      * @param prefix A string to indent the printing of this node.
      * @param isTail Whether this node is last in its siblings (or the only child).
      */
     @Override
     protected void print(String prefix, boolean isTail)
     {
-        System.out.println(prefix + (isTail ? "└── " : "├── ") + toString());
-        for (int i = 0; i < myChildren.size() - 1; i++)
+        Deque<PendingPrint> pending = new ArrayDeque<>();
+        pending.push(new PendingPrint(this, prefix, isTail));
+        while (!pending.isEmpty())
         {
-            myChildren.get(i).print(prefix + (isTail ? "    " : "|   "), false);
-        }
-        if (myChildren.size() > 0)
-        {
-            myChildren.get(myChildren.size() - 1).print(prefix + (isTail ? "    " : "│   "), true);
+            PendingPrint curr = pending.pop();
+            if (!(curr.myNode instanceof ASTParentNode))
+            {
+                curr.myNode.print(curr.myPrefix, curr.amTail);
+                continue;
+            }
+            ASTParentNode node = (ASTParentNode) curr.myNode;
+            System.out.println(curr.myPrefix + (curr.amTail ? "└── " : "├── ") + node.toString());
+            List<ASTNode> children = node.getChildren();
+            // Pushed last to first, so that they are popped first to last.
+            for (int i = children.size() - 1; i >= 0; i--)
+            {
+                boolean isLast = (i == children.size() - 1);
+                String childPrefix = curr.myPrefix + (curr.amTail ? "    " : (isLast ? "│   " : "|   "));
+                pending.push(new PendingPrint(children.get(i), childPrefix, isLast));
+            }
         }
     }
 
@@ -107,51 +123,62 @@ public abstract class ASTParentNode extends ASTNode
      * Sometimes a parent node may have only one child, and each child in turn
      * has only one child.  Collapse until we reach a child that is either not
      * a parent node, has more than one child, or refuses to collapse further.
+     * Descendants are collapsed from an explicit stack, so deeply nested trees
+     * don't overflow the call stack.
      */
     public void collapse()
     {
-        List<ASTNode> children = getChildren();
-        if (isCollapsible())
+        Deque<ASTParentNode> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty())
         {
-            // Collapses children recursively.
-            for (int i = 0; i < children.size(); i++)
+            ASTParentNode node = pending.pop();
+            if (node.isCollapsible())
             {
-                ASTNode child = children.get(i);
-                ASTNode descendant = findNonCollapsibleDescendant(child);
-                if (descendant != child)
-                {
-                    children.set(i, descendant);
-                }
-                if (descendant instanceof ASTParentNode)
+                List<ASTNode> children = node.getChildren();
+                for (int i = 0; i < children.size(); i++)
                 {
-                    ((ASTParentNode) descendant).collapse();
+                    ASTNode child = children.get(i);
+                    ASTNode descendant = findNonCollapsibleDescendant(child);
+                    if (descendant != child)
+                    {
+                        children.set(i, descendant);
+                    }
+                    if (descendant instanceof ASTParentNode)
+                    {
+                        pending.push((ASTParentNode) descendant);
+                    }
                 }
             }
         }
     }
 
     /**
-     * Finds the non-collapsible descendant node.
+     * Finds the non-collapsible descendant node, which replaces the given
+     * node when its parent is collapsed.  Only the chain of single children
+     * is followed; the descendant itself isn't collapsed.
      * @param child Starting from the given <code>ASTNode</code>.
      * @return Returns the non-collapsible descendant node.  Could be
      *     <code>child</code> if it's not collapsible.
      */
-    private ASTNode findNonCollapsibleDescendant(ASTNode child)
+    public static ASTNode findNonCollapsibleDescendant(ASTNode child)
     {
-        if (child instanceof ASTParentNode)
+        ASTNode descendant = child;
+        while (descendant instanceof ASTParentNode)
         {
-            ASTParentNode childAsParent = (ASTParentNode) child;
-            List<ASTNode> descendants = childAsParent.getChildren();
-            if (childAsParent.isCollapsible() && descendants.size() == 1 && childAsParent.getOperation() == null)
+            ASTParentNode descendantAsParent = (ASTParentNode) descendant;
+            List<ASTNode> descendants = descendantAsParent.getChildren();
+            if (descendantAsParent.isCollapsible() && descendants.size() == 1
+                    && descendantAsParent.getOperation() == null)
             {
-                return childAsParent.findNonCollapsibleDescendant(descendants.get(0));
+                descendant = descendants.get(0);
             }
             else
             {
-                return childAsParent;
+                break;
             }
         }
-        return child;
+        return descendant;
     }
 
     /**
@@ -198,4 +225,28 @@ public abstract class ASTParentNode extends ASTNode
         }
         throw new CompileException(errorMsg);
     }
+
+    /**
+     * A node waiting on the explicit stack in <code>print</code>, with how it
+     * is to be printed.
+     */
+    private static class PendingPrint
+    {
+        private ASTNode myNode;
+        private String myPrefix;
+        private boolean amTail;
+
+        /**
+         * Constructs a <code>PendingPrint</code>.
+         * @param node The node to print.
+         * @param prefix A string to indent the printing of the node.
+         * @param isTail Whether the node is last in its siblings.
+         */
+        private PendingPrint(ASTNode node, String prefix, boolean isTail)
+        {
+            myNode = node;
+            myPrefix = prefix;
+            amTail = isTail;
+        }
+    }
 }
@@ -0,0 +1,395 @@
+package org.spruce.compiler.ast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenType;
+
+/**
+ * <p>An <code>ASTReader</code> reads trees written by an
+ * <code>ASTWriter</code>, one at a time, directly from a
+ * <code>ByteBuffer</code>, such as a memory-mapped file, without copying the
+ * bytes first.  Nodes written with the same <code>Location</code> share one
+ * again.  A reader can also <code>seek</code> to a standalone tree and read
+ * just that one.</p>
+ *
+ * <p>Trees are built without recursion, so trees nested many thousands of
+ * levels deep can be read.  Bytes that aren't in the format cause an
+ * <code>IllegalArgumentException</code>.</p>
+ */
+public class ASTReader
+{
+    private static final TokenType[] OPERATIONS = TokenType.values();
+    private static final int KIND_COUNT = ASTKind.values().length;
+
+    private ByteBuffer myIn;
+    private int myStart;
+    private SourceText mySource;
+    private SymbolTable mySymbols;
+    private List<String> myStrings;
+    private byte[] myScratch;
+    private Location myLastLocation;
+    private int myLastOffset;
+    // The marker of the next tree, END at the end, or -1 if not read yet.
+    private int myNext;
+
+    /**
+     * Constructs an <code>ASTReader</code> and reads the header.  The
+     * buffer's position is moved past each tree as it is read.
+     * @param in The <code>ByteBuffer</code>.
+     * @param source The <code>SourceText</code> that the trees were written
+     *     with, or <code>null</code> if they were written without one.
+     * @throws IllegalArgumentException If the header isn't in this version of
+     *     the format, or the source isn't the same length as the one the
+     *     trees were written with.
+     */
+    public ASTReader(ByteBuffer in, SourceText source)
+    {
+        this(in, source, null);
+    }
+
+    /**
+     * Constructs an <code>ASTReader</code> that interns the strings it reads,
+     * and reads the header.  The buffer's position is moved past each
+     * tree as it is read.
+     * @param in The <code>ByteBuffer</code>.
+     * @param source The <code>SourceText</code> that the trees were written
+     *     with, or <code>null</code> if they were written without one.
+     * @param symbols The <code>SymbolTable</code> to intern strings in, or
+     *     <code>null</code> not to intern them.
+     * @throws IllegalArgumentException If the header isn't in this version of
+     *     the format, or the source isn't the same length as the one the
+     *     trees were written with.
+     */
+    public ASTReader(ByteBuffer in, SourceText source, SymbolTable symbols)
+    {
+        myIn = in;
+        myStart = in.position();
+        mySource = source;
+        mySymbols = symbols;
+        myStrings = new ArrayList<>();
+        myScratch = new byte[64];
+        myNext = -1;
+        if (in.remaining() < Integer.BYTES || in.getInt(in.position()) != ASTWriter.MAGIC)
+        {
+            throw new IllegalArgumentException("Not an AST stream.");
+        }
+        in.position(in.position() + Integer.BYTES);
+        int version = readVarint();
+        if (version != ASTWriter.FORMAT_VERSION)
+        {
+            throw new IllegalArgumentException("Unsupported AST format version " + version);
+        }
+        if (readVarint() != ASTWriter.SCHEMA)
+        {
+            throw new IllegalArgumentException("AST stream written with other node kinds or token types.");
+        }
+        int sourceLength = readVarint() - 1;
+        if (sourceLength != ((source != null) ? source.length() : -1))
+        {
+            throw new IllegalArgumentException("AST stream written for another source.");
+        }
+    }
+
+    /**
+     * Returns whether there is another tree to read.
+     * @return Whether there is another tree.
+     */
+    public boolean hasNext()
+    {
+        if (myNext < 0)
+        {
+            myNext = myIn.hasRemaining() ? readVarint() : ASTWriter.END;
+            if (myNext > ASTWriter.STANDALONE_TREE)
+            {
+                throw new IllegalArgumentException("Bad tree marker " + myNext);
+            }
+        }
+        return myNext != ASTWriter.END;
+    }
+
+    /**
+     * Moves to the standalone tree at the given position, so that
+     * <code>next</code> reads it.
+     * @param position The position of the tree, as returned by
+     *     <code>ASTWriter.writeStandalone</code>.
+     * @throws IllegalArgumentException If there is no standalone tree at the
+     *     position.
+     */
+    public void seek(long position)
+    {
+        if (position < 0 || position >= myIn.limit() - myStart)
+        {
+            throw new IllegalArgumentException("Bad tree position " + position);
+        }
+        myIn.position(myStart + (int) position);
+        myNext = -1;
+        if (!hasNext() || myNext != ASTWriter.STANDALONE_TREE)
+        {
+            throw new IllegalArgumentException("No standalone tree at " + position);
+        }
+    }
+
+    /**
+     * Reads the next tree.
+     * @return The root of the tree.
+     * @throws NoSuchElementException If there are no more trees.
+     */
+    public ASTNode next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        if (myNext == ASTWriter.STANDALONE_TREE)
+        {
+            myStrings.clear();
+            myLastLocation = null;
+            myLastOffset = 0;
+        }
+        myNext = -1;
+
+        // The parents whose children are being read, with their children so
+        // far and how many there will be.
+        ASTKind[] kinds = new ASTKind[16];
+        Location[] locs = new Location[16];
+        TokenType[] operations = new TokenType[16];
+        List<ASTNode>[] children = newChildren(16);
+        int[] counts = new int[16];
+        int depth = 0;
+        while (true)
+        {
+            int tag = readVarint();
+            int ordinal = tag >>> ASTWriter.LOCATION_BITS;
+            if (ordinal >= KIND_COUNT)
+            {
+                throw new IllegalArgumentException("Bad node kind " + ordinal);
+            }
+            ASTKind kind = ASTKind.ofOrdinal(ordinal);
+            Location loc = readLocation(tag & ((1 << ASTWriter.LOCATION_BITS) - 1));
+            ASTNode node;
+            if (kind.isValue())
+            {
+                node = kind.create(loc, null, readString());
+            }
+            else
+            {
+                int shape = readVarint();
+                int operation = shape >>> ASTWriter.CHILD_COUNT_BITS;
+                int count = shape & ((1 << ASTWriter.CHILD_COUNT_BITS) - 1);
+                if (count == ASTWriter.MANY_CHILDREN)
+                {
+                    count += readVarint();
+                }
+                if (operation < 0 || operation > OPERATIONS.length || count < 0 || count > myIn.remaining())
+                {
+                    throw new IllegalArgumentException("Bad parent node " + kind);
+                }
+                TokenType type = (operation > 0) ? OPERATIONS[operation - 1] : null;
+                if (count > 0)
+                {
+                    if (depth == kinds.length)
+                    {
+                        int capacity = depth * 2;
+                        kinds = Arrays.copyOf(kinds, capacity);
+                        locs = Arrays.copyOf(locs, capacity);
+                        operations = Arrays.copyOf(operations, capacity);
+                        children = Arrays.copyOf(children, capacity);
+                        counts = Arrays.copyOf(counts, capacity);
+                    }
+                    kinds[depth] = kind;
+                    locs[depth] = loc;
+                    operations[depth] = type;
+                    children[depth] = new ArrayList<>(count);
+                    counts[depth] = count;
+                    depth++;
+                    continue;
+                }
+                node = createParent(kind, loc, new ArrayList<>(0), type);
+            }
+            // Add the node to its parent, and any parent that it completes to
+            // its own parent.
+            while (true)
+            {
+                if (depth == 0)
+                {
+                    return node;
+                }
+                List<ASTNode> siblings = children[depth - 1];
+                siblings.add(node);
+                if (siblings.size() < counts[depth - 1])
+                {
+                    break;
+                }
+                depth--;
+                node = createParent(kinds[depth], locs[depth], siblings, operations[depth]);
+                children[depth] = null;
+                locs[depth] = null;
+            }
+        }
+    }
+
+    /**
+     * Reads all of the remaining trees.
+     * @return The roots of the trees, in order.
+     */
+    public List<ASTNode> readAll()
+    {
+        List<ASTNode> roots = new ArrayList<>();
+        while (hasNext())
+        {
+            roots.add(next());
+        }
+        return roots;
+    }
+
+    /**
+     * Creates an array of lists of children.
+     * @param length The length of the array.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<ASTNode>[] newChildren(int length)
+    {
+        return (List<ASTNode>[]) new List<?>[length];
+    }
+
+    /**
+     * Creates a parent node.
+     * @param kind The <code>ASTKind</code>.
+     * @param loc The <code>Location</code>.
+     * @param children The children.
+     * @param operation The operation, or <code>null</code>.
+     * @return The parent node.
+     */
+    private static ASTNode createParent(ASTKind kind, Location loc, List<ASTNode> children, TokenType operation)
+    {
+        ASTParentNode parent = (ASTParentNode) kind.create(loc, children, null);
+        parent.setOperation(operation);
+        return parent;
+    }
+
+    /**
+     * Reads a node's <code>Location</code>.
+     * @param form How the location was written.
+     * @return The <code>Location</code>, or <code>null</code>.
+     */
+    private Location readLocation(int form)
+    {
+        Location loc;
+        switch(form)
+        {
+        case ASTWriter.SAME_LOCATION:
+            return myLastLocation;
+        case ASTWriter.OFFSET_LOCATION:
+            int offset = myLastOffset + readSigned();
+            if (mySource == null || offset < 0 || offset > mySource.length())
+            {
+                throw new IllegalArgumentException("Bad offset " + offset);
+            }
+            myLastOffset = offset;
+            loc = mySource.getLocation(offset);
+            break;
+        case ASTWriter.DETACHED_LOCATION:
+            String filename = readString();
+            int lineNbr = readVarint();
+            int charPos = readVarint();
+            loc = new Location(filename, lineNbr - 1, charPos - 1, readString());
+            break;
+        default:
+            loc = null;
+            break;
+        }
+        myLastLocation = loc;
+        return loc;
+    }
+
+    /**
+     * Reads a string, or a reference to one read before.
+     * @return The string, or <code>null</code>.
+     */
+    private String readString()
+    {
+        int ref = readVarint();
+        if (ref == ASTWriter.NULL_STRING)
+        {
+            return null;
+        }
+        if (ref != ASTWriter.NEW_STRING)
+        {
+            int idx = ref - ASTWriter.FIRST_STRING_REF;
+            if (idx < 0 || idx >= myStrings.size())
+            {
+                throw new IllegalArgumentException("Bad string reference " + ref);
+            }
+            return myStrings.get(idx);
+        }
+        int length = readVarint();
+        if (length < 0 || length > myIn.remaining())
+        {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        String value;
+        if (myIn.hasArray())
+        {
+            int pos = myIn.position();
+            value = new String(myIn.array(), myIn.arrayOffset() + pos, length, StandardCharsets.UTF_8);
+            myIn.position(pos + length);
+        }
+        else
+        {
+            if (length > myScratch.length)
+            {
+                myScratch = new byte[Math.max(length, myScratch.length * 2)];
+            }
+            myIn.get(myScratch, 0, length);
+            value = new String(myScratch, 0, length, StandardCharsets.UTF_8);
+        }
+        if (mySymbols != null)
+        {
+            value = mySymbols.intern(value);
+        }
+        myStrings.add(value);
+        return value;
+    }
+
+    /**
+     * Reads a zigzag encoded signed number.
+     * @return The number.
+     */
+    private int readSigned()
+    {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an unsigned varint as the bits of an <code>int</code>.
+     * @return The number.
+     */
+    private int readVarint()
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            if (!myIn.hasRemaining())
+            {
+                throw new IllegalArgumentException("AST stream ends early.");
+            }
+            byte b = myIn.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+            {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long.");
+    }
+}
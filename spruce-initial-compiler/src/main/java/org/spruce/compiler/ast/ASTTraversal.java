@@ -0,0 +1,115 @@
+package org.spruce.compiler.ast;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p>Visits every node of an abstract syntax tree, using an explicit stack
+ * instead of recursion, so that trees nested many thousands of levels deep
+ * don't overflow the call stack.</p>
+ *
+ * <p>Children are visited in order.  A pre-order visitor may replace the
+ * children of the node it is visiting; the new children are the ones that are
+ * visited.</p>
+ */
+public final class ASTTraversal
+{
+    private ASTTraversal() {}
+
+    /**
+     * Visits the given node, then its descendants, each node before its
+     * children.
+     * @param root The root of the tree.
+     * @param visitor Called with each node.
+     */
+    public static void preOrder(ASTNode root, Consumer<? super ASTNode> visitor)
+    {
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty())
+        {
+            ASTNode node = pending.pop();
+            visitor.accept(node);
+            if (node instanceof ASTParentNode)
+            {
+                List<ASTNode> children = ((ASTParentNode) node).getChildren();
+                // Pushed last to first, so that they are popped first to last.
+                for (int i = children.size() - 1; i >= 0; i--)
+                {
+                    pending.push(children.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the descendants of the given node, then the node, each node
+     * after its children.
+     * @param root The root of the tree.
+     * @param visitor Called with each node.
+     */
+    public static void postOrder(ASTNode root, Consumer<? super ASTNode> visitor)
+    {
+        // The path from the root to the current node, and for each parent on
+        // it, the index of the next child to visit.
+        ASTNode[] path = new ASTNode[16];
+        int[] nextChild = new int[16];
+        int size = 1;
+        path[0] = root;
+        while (size > 0)
+        {
+            ASTNode node = path[size - 1];
+            List<ASTNode> children = (node instanceof ASTParentNode) ? ((ASTParentNode) node).getChildren() : null;
+            if (children != null && nextChild[size - 1] < children.size())
+            {
+                ASTNode child = children.get(nextChild[size - 1]++);
+                if (size == path.length)
+                {
+                    path = Arrays.copyOf(path, size * 2);
+                    nextChild = Arrays.copyOf(nextChild, size * 2);
+                }
+                path[size] = child;
+                nextChild[size] = 0;
+                size++;
+            }
+            else
+            {
+                visitor.accept(node);
+                path[--size] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes on the longest path from the given node to
+     * a leaf, counting both.
+     * @param root The root of the tree.
+     * @return The depth of the tree.
+     */
+    public static int depth(ASTNode root)
+    {
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        pending.push(root);
+        depths.push(1);
+        int maxDepth = 0;
+        while (!pending.isEmpty())
+        {
+            ASTNode node = pending.pop();
+            int depth = depths.pop();
+            maxDepth = Math.max(maxDepth, depth);
+            if (node instanceof ASTParentNode)
+            {
+                for (ASTNode child : ((ASTParentNode) node).getChildren())
+                {
+                    pending.push(child);
+                    depths.push(depth + 1);
+                }
+            }
+        }
+        return maxDepth;
+    }
+}
@@ -8,8 +8,8 @@ import org.spruce.compiler.scanner.TokenType;
 /**
  * <p>An <code>ASTTypeArgumentsOrDiamond</code> is a TypeArguments or "&lt;&gt;".
  *
- * <p>To distinguish otherwise ambiguous parsings, parsing of this node will
- * turn on the type context in the Scanner for the duration of this parsing.</p>
+ * <p>The scanner always supplies each "&gt;" as its own token, so nested
+ * type arguments can end with what would otherwise be a shift.</p>
  *
  * <em>
  * TypeArgumentsOrDiamond:<br>
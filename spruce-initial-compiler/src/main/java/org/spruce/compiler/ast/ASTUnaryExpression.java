@@ -1,6 +1,7 @@
 package org.spruce.compiler.ast;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.spruce.compiler.scanner.Location;
 import org.spruce.compiler.scanner.TokenType;
@@ -43,6 +44,19 @@ public class ASTUnaryExpression extends ASTParentNode
         super(location, Arrays.asList(operand), operator);
     }
 
+    /**
+     * Constructs an <code>ASTUnaryExpression</code> at the given <code>Location</code>
+     * and with an operator, represented by the given <code>TokenType</code>,
+     * and the given child nodes.  The operand may already be collapsed.
+     * @param location The <code>Location</code>.
+     * @param children The child nodes.
+     * @param operator The token type of the operator for this unary expression.
+     */
+    public ASTUnaryExpression(Location location, List<ASTNode> children, TokenType operator)
+    {
+        super(location, children, operator);
+    }
+
     /**
      * This node is collapsible.
      * @return <code>true</code>.
@@ -0,0 +1,376 @@
+package org.spruce.compiler.ast;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenType;
+
+/**
+ * <p>An <code>ASTWriter</code> writes trees to an <code>OutputStream</code>
+ * in the compact binary AST format, one tree at a time, so that trees can be
+ * stored or sent as they are parsed.  An <code>ASTReader</code> reads them
+ * back.</p>
+ *
+ * <p>Unsigned numbers are varints: 7 bits per byte, low bits first, with the
+ * high bit set on every byte but the last.  Signed numbers are zigzag
+ * encoded first.  The stream is:</p>
+ * <ul>
+ * <li>the 4 bytes <code>SAST</code>, then the format version, a hash of the
+ * names of the <code>ASTKind</code>s and <code>TokenType</code>s, and one
+ * more than the length of the <code>SourceText</code> the locations are in,
+ * or <code>0</code> if there is none;</li>
+ * <li>for each tree, a <code>1</code>, or a <code>2</code> if it is
+ * standalone, then its nodes in pre-order;</li>
+ * <li>a <code>0</code>.</li>
+ * </ul>
+ *
+ * <p>A standalone tree refers to no strings or offsets written before it,
+ * so that a reader can start at it, given its position from
+ * <code>writeStandalone</code>.</p>
+ *
+ * <p>A node starts with its <code>ASTKind</code>'s ordinal shifted left two
+ * bits, or'd with how its <code>Location</code> is written: <code>0</code>
+ * if it is the previous node's, <code>1</code> if its signed offset from the
+ * previous offset in the source follows, <code>2</code> if it isn't in the
+ * source and its filename, line number, character position, and line
+ * follow, or <code>3</code> if it is <code>null</code>.  A parent node then
+ * has one more than its operation's ordinal, or <code>0</code> for none,
+ * shifted left two bits, or'd with its number of children if less than
+ * <code>3</code>; otherwise with <code>3</code>, followed by the number of
+ * children less <code>3</code>.  A value node has its value instead.</p>
+ *
+ * <p>Strings are interned: <code>0</code> is <code>null</code>,
+ * <code>1</code> is followed by the length and UTF-8 bytes of a string not
+ * written before, and any other number <code>n</code> is the string that was
+ * <code>n - 2</code>th to be written.</p>
+ */
+public class ASTWriter implements Closeable, Flushable
+{
+    /**
+     * The version of the format.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    /**
+     * A hash of the names of the <code>ASTKind</code>s and
+     * <code>TokenType</code>s, in order, which changes if a kind or token
+     * type is added, removed, or reordered.  Anything that stores their
+     * ordinals can check it.
+     */
+    public static final int SCHEMA = schema(ASTKind.values()) * 31 + schema(TokenType.values());
+
+    static final int MAGIC = 0x53415354;
+
+    static final int END = 0;
+    static final int TREE = 1;
+    static final int STANDALONE_TREE = 2;
+
+    static final int SAME_LOCATION = 0;
+    static final int OFFSET_LOCATION = 1;
+    static final int DETACHED_LOCATION = 2;
+    static final int NO_LOCATION = 3;
+    static final int LOCATION_BITS = 2;
+    static final int CHILD_COUNT_BITS = 2;
+    static final int MANY_CHILDREN = 3;
+
+    static final int NULL_STRING = 0;
+    static final int NEW_STRING = 1;
+    static final int FIRST_STRING_REF = 2;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private OutputStream myOut;
+    private SourceText mySource;
+    private byte[] myBuffer;
+    private int myCount;
+    // The number of bytes written to the stream before the buffer.
+    private long myFlushed;
+    private Map<String, Integer> myStrings;
+    private Location myLastLocation;
+    // The offset of the last location that was in the source.
+    private int myLastOffset;
+    private boolean amClosed;
+
+    /**
+     * Constructs an <code>ASTWriter</code> and writes the header.
+     * @param out The <code>OutputStream</code>.
+     * @param source The <code>SourceText</code> that locations are written
+     *     as offsets in, or <code>null</code> to write every location in
+     *     full.
+     * @throws IOException If there is a problem writing.
+     */
+    public ASTWriter(OutputStream out, SourceText source) throws IOException
+    {
+        myOut = Objects.requireNonNull(out);
+        mySource = source;
+        myBuffer = new byte[BUFFER_SIZE];
+        myStrings = new HashMap<>();
+        writeInt(MAGIC);
+        writeVarint(FORMAT_VERSION);
+        writeVarint(SCHEMA);
+        writeVarint((source != null) ? source.length() + 1 : 0);
+    }
+
+    /**
+     * Returns a hash of the names of the given constants, in order.
+     * @param constants The constants of an enum.
+     * @return The hash.
+     */
+    private static int schema(Enum<?>[] constants)
+    {
+        int hash = 1;
+        for (Enum<?> constant : constants)
+        {
+            hash = hash * 31 + constant.name().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the tree rooted at the given node.
+     * @param root The root of the tree.
+     * @throws IOException If there is a problem writing.
+     * @throws IllegalArgumentException If a node's class has no
+     *     <code>ASTKind</code>.
+     * @throws IllegalStateException If this writer is closed.
+     */
+    public void write(ASTNode root) throws IOException
+    {
+        writeTree(TREE, root);
+    }
+
+    /**
+     * Writes the tree rooted at the given node so that it can be read on its
+     * own, by seeking an <code>ASTReader</code> to the returned position.
+     * @param root The root of the tree.
+     * @return The position of the tree, in bytes from the start of the
+     *     stream.
+     * @throws IOException If there is a problem writing.
+     * @throws IllegalArgumentException If a node's class has no
+     *     <code>ASTKind</code>.
+     * @throws IllegalStateException If this writer is closed.
+     */
+    public long writeStandalone(ASTNode root) throws IOException
+    {
+        long position = myFlushed + myCount;
+        myStrings.clear();
+        myLastLocation = null;
+        myLastOffset = 0;
+        writeTree(STANDALONE_TREE, root);
+        return position;
+    }
+
+    /**
+     * Writes the tree rooted at the given node, after the given marker.
+     * @param marker <code>TREE</code> or <code>STANDALONE_TREE</code>.
+     * @param root The root of the tree.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeTree(int marker, ASTNode root) throws IOException
+    {
+        if (amClosed)
+        {
+            throw new IllegalStateException("Closed.");
+        }
+        writeVarint(marker);
+        // The visitor can't throw IOException, so it's carried out of it.
+        IOException[] thrown = new IOException[1];
+        ASTTraversal.preOrder(root, node -> {
+            if (thrown[0] == null)
+            {
+                try
+                {
+                    writeNode(node);
+                }
+                catch (IOException e)
+                {
+                    thrown[0] = e;
+                }
+            }
+        });
+        if (thrown[0] != null)
+        {
+            throw thrown[0];
+        }
+    }
+
+    /**
+     * Writes one node, without its children.
+     * @param node The node.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeNode(ASTNode node) throws IOException
+    {
+        int kind = ASTKind.of(node).ordinal() << LOCATION_BITS;
+        Location loc = node.getLocation();
+        if (loc == null)
+        {
+            writeVarint(kind | NO_LOCATION);
+        }
+        else if (loc == myLastLocation || (mySource != null && loc.getSource() == mySource &&
+                myLastLocation != null && myLastLocation.getSource() == mySource && loc.getOffset() == myLastOffset))
+        {
+            writeVarint(kind | SAME_LOCATION);
+        }
+        else if (mySource != null && loc.getSource() == mySource)
+        {
+            writeVarint(kind | OFFSET_LOCATION);
+            writeSigned(loc.getOffset() - myLastOffset);
+            myLastOffset = loc.getOffset();
+        }
+        else
+        {
+            writeVarint(kind | DETACHED_LOCATION);
+            writeString(loc.getFilename());
+            writeVarint(loc.getLineNbr());
+            writeVarint(loc.getCharPos());
+            writeString(loc.getLine());
+        }
+        myLastLocation = loc;
+
+        if (node instanceof ASTParentNode)
+        {
+            ASTParentNode parent = (ASTParentNode) node;
+            TokenType operation = parent.getOperation();
+            int count = parent.getChildren().size();
+            int shape = (operation != null) ? operation.ordinal() + 1 : 0;
+            writeVarint((shape << CHILD_COUNT_BITS) | Math.min(count, MANY_CHILDREN));
+            if (count >= MANY_CHILDREN)
+            {
+                writeVarint(count - MANY_CHILDREN);
+            }
+        }
+        else
+        {
+            writeString(((ASTValueNode) node).getValue());
+        }
+    }
+
+    /**
+     * Writes a string, or a reference to it if it was written before.
+     * @param value The string, or <code>null</code>.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeString(String value) throws IOException
+    {
+        if (value == null)
+        {
+            writeVarint(NULL_STRING);
+            return;
+        }
+        Integer ref = myStrings.get(value);
+        if (ref != null)
+        {
+            writeVarint(ref);
+            return;
+        }
+        myStrings.put(value, FIRST_STRING_REF + myStrings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(NEW_STRING);
+        writeVarint(bytes.length);
+        if (myCount + bytes.length > myBuffer.length)
+        {
+            flushBuffer();
+        }
+        if (bytes.length > myBuffer.length)
+        {
+            myOut.write(bytes);
+            myFlushed += bytes.length;
+        }
+        else
+        {
+            System.arraycopy(bytes, 0, myBuffer, myCount, bytes.length);
+            myCount += bytes.length;
+        }
+    }
+
+    /**
+     * Writes a signed number, zigzag encoded so that small negative numbers
+     * are short too.
+     * @param value The number.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeSigned(int value) throws IOException
+    {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes the bits of a number as an unsigned varint.
+     * @param value The number.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeVarint(int value) throws IOException
+    {
+        // A varint of an int is at most 5 bytes.
+        if (myCount + 5 > myBuffer.length)
+        {
+            flushBuffer();
+        }
+        while ((value & ~0x7F) != 0)
+        {
+            myBuffer[myCount++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        myBuffer[myCount++] = (byte) value;
+    }
+
+    /**
+     * Writes a number as 4 bytes, high byte first.
+     * @param value The number.
+     * @throws IOException If there is a problem writing.
+     */
+    private void writeInt(int value) throws IOException
+    {
+        for (int shift = 24; shift >= 0; shift -= 8)
+        {
+            myBuffer[myCount++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     * @throws IOException If there is a problem writing.
+     */
+    private void flushBuffer() throws IOException
+    {
+        myOut.write(myBuffer, 0, myCount);
+        myFlushed += myCount;
+        myCount = 0;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream, and flushes it.
+     * @throws IOException If there is a problem writing.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        myOut.flush();
+    }
+
+    /**
+     * Writes the end of the trees, and closes the stream.
+     * @throws IOException If there is a problem writing.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (!amClosed)
+        {
+            amClosed = true;
+            writeVarint(END);
+            flushBuffer();
+            myOut.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.spruce.compiler.diagnostic;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import org.spruce.compiler.scanner.Location;
+
+/**
+ * <p>A <code>Diagnostic</code> is a problem found in Spruce source code: its
+ * <code>Severity</code>, a short code naming the kind of problem, the span of
+ * source code it covers, and a message.  Diagnostics are sent to a
+ * <code>DiagnosticSink</code>.</p>
+ *
+ * <p>The span starts at the <code>Location</code> and covers
+ * <code>length</code> characters.  Either may be unknown.</p>
+ */
+public final class Diagnostic
+{
+    /**
+     * The code of an error found while lexing, such as an unterminated
+     * string.
+     */
+    public static final String LEXICAL_ERROR = "lexical";
+
+    /**
+     * The code of an error found while parsing.
+     */
+    public static final String SYNTAX_ERROR = "syntax";
+
+    /**
+     * The code of an error reading a source file.
+     */
+    public static final String READ_ERROR = "read";
+
+    /**
+     * The code of an unexpected failure while compiling a source file.
+     */
+    public static final String INTERNAL_ERROR = "internal";
+
+    private final Severity mySeverity;
+    private final String myCode;
+    private final Location myLocation;
+    private final int myLength;
+    private final String myMessage;
+
+    /**
+     * Constructs a <code>Diagnostic</code>.
+     * @param severity The <code>Severity</code>.
+     * @param code The code naming the kind of problem.
+     * @param location The <code>Location</code> of the start of the span, or
+     *     <code>null</code> if it isn't known.
+     * @param length The number of characters in the span, or <code>0</code>
+     *     if it isn't known.
+     * @param message The message.
+     */
+    public Diagnostic(Severity severity, String code, Location location, int length, String message)
+    {
+        mySeverity = Objects.requireNonNull(severity);
+        myCode = Objects.requireNonNull(code);
+        myLocation = location;
+        myLength = length;
+        myMessage = message;
+    }
+
+    /**
+     * Constructs an error <code>Diagnostic</code>.
+     * @param code The code naming the kind of problem.
+     * @param location The <code>Location</code> of the start of the span, or
+     *     <code>null</code> if it isn't known.
+     * @param length The number of characters in the span, or <code>0</code>
+     *     if it isn't known.
+     * @param message The message.
+     * @return A new <code>Diagnostic</code>.
+     */
+    public static Diagnostic error(String code, Location location, int length, String message)
+    {
+        return new Diagnostic(Severity.ERROR, code, location, length, message);
+    }
+
+    /**
+     * Returns the <code>Severity</code>.
+     * @return The <code>Severity</code>.
+     */
+    public Severity getSeverity()
+    {
+        return mySeverity;
+    }
+
+    /**
+     * Returns the code naming the kind of problem.
+     * @return The code.
+     */
+    public String getCode()
+    {
+        return myCode;
+    }
+
+    /**
+     * Returns the <code>Location</code> of the start of the span.
+     * @return The <code>Location</code>, or <code>null</code> if it isn't
+     *     known.
+     */
+    public Location getLocation()
+    {
+        return myLocation;
+    }
+
+    /**
+     * Returns the number of characters in the span.
+     * @return The number of characters, or <code>0</code> if it isn't known.
+     */
+    public int getLength()
+    {
+        return myLength;
+    }
+
+    /**
+     * Returns the message.
+     * @return The message.
+     */
+    public String getMessage()
+    {
+        return myMessage;
+    }
+
+    /**
+     * Returns a string of the format "filename:lineNbr:pos: severity[code]:
+     * message", without the location if it isn't known.
+     * @return A string representation of this <code>Diagnostic</code>.
+     */
+    @Override
+    public String toString()
+    {
+        String where = (myLocation != null) ? myLocation.getFileAndLineNbr() + ":" + myLocation.getCharPos() + ": " : "";
+        return where + mySeverity.name().toLowerCase(Locale.ROOT) + "[" + myCode + "]: " + myMessage;
+    }
+
+    /**
+     * How serious a <code>Diagnostic</code> is.
+     */
+    public enum Severity
+    {
+        /**
+         * The source code can't be compiled.
+         */
+        ERROR,
+        /**
+         * The source code can be compiled, but is probably wrong.
+         */
+        WARNING,
+        /**
+         * Information about the source code, often about another
+         * <code>Diagnostic</code>.
+         */
+        NOTE
+    }
+}
@@ -0,0 +1,47 @@
+package org.spruce.compiler.diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A <code>DiagnosticCollector</code> is a <code>DiagnosticSink</code> that
+ * keeps every <code>Diagnostic</code> it receives, in order.  It may receive
+ * them from many threads at once.
+ */
+public class DiagnosticCollector implements DiagnosticSink
+{
+    private final List<Diagnostic> myDiagnostics = new ArrayList<>();
+    private int myErrorCount;
+
+    /**
+     * Keeps the given <code>Diagnostic</code>.
+     * @param diagnostic The <code>Diagnostic</code>.
+     */
+    @Override
+    public synchronized void report(Diagnostic diagnostic)
+    {
+        myDiagnostics.add(diagnostic);
+        if (diagnostic.getSeverity() == Diagnostic.Severity.ERROR)
+        {
+            myErrorCount++;
+        }
+    }
+
+    /**
+     * Returns the diagnostics received so far, in order.
+     * @return A copy of the diagnostics.
+     */
+    public synchronized List<Diagnostic> getDiagnostics()
+    {
+        return new ArrayList<>(myDiagnostics);
+    }
+
+    /**
+     * Returns the number of errors received so far.
+     * @return The number of errors.
+     */
+    public synchronized int getErrorCount()
+    {
+        return myErrorCount;
+    }
+}
@@ -0,0 +1,28 @@
+package org.spruce.compiler.diagnostic;
+
+import java.io.PrintStream;
+
+/**
+ * A <code>DiagnosticSink</code> receives the <code>Diagnostic</code>s found
+ * while compiling, as they are found.
+ */
+@FunctionalInterface
+public interface DiagnosticSink
+{
+    /**
+     * Receives a <code>Diagnostic</code>.
+     * @param diagnostic The <code>Diagnostic</code>.
+     */
+    void report(Diagnostic diagnostic);
+
+    /**
+     * Returns a <code>DiagnosticSink</code> that prints each
+     * <code>Diagnostic</code> on its own line.
+     * @param out Where to print.
+     * @return A new <code>DiagnosticSink</code>.
+     */
+    static DiagnosticSink printingTo(PrintStream out)
+    {
+        return out::println;
+    }
+}
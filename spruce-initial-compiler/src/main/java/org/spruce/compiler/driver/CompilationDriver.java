@@ -0,0 +1,595 @@
+package org.spruce.compiler.driver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.diagnostic.DiagnosticSink;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * <p>A <code>CompilationDriver</code> scans and parses many source files in
+ * parallel on a <code>ForkJoinPool</code>.  Each file is memory-mapped, lexed
+ * into a <code>TokenBuffer</code>, and parsed by its own <code>Parser</code>,
+ * all on one worker thread; only the <code>SymbolTable</code> is shared.
+ * For large trees on slow disks, <code>compilePipelined</code> reads files on
+ * separate threads while others parse.</p>
+ *
+ * <p>Each file is parsed by applying the parse entry point repeatedly until
+ * the end of the file.  The default entry point parses a statement.  The
+ * parser recovers from syntax errors in statements, so that every one of them
+ * in a file is reported; any other error stops parsing the file.  Each
+ * file's errors are also sent to the <code>DiagnosticSink</code>, if there is
+ * one, once the file is done.</p>
+ *
+ * <p>With a <code>ParseCache</code>, each file is first looked up by the hash
+ * of its contents; a hit is read instead of scanned and parsed, and any other
+ * file is stored once parsed, unless parsing stopped early.</p>
+ */
+public class CompilationDriver
+{
+    /**
+     * The extension of Spruce source files.
+     */
+    public static final String SOURCE_EXTENSION = ".spruce";
+
+    // How long the pipeline waits on its threads between checks that the
+    // parser threads are still alive.
+    private static final long POLL_MILLIS = 10;
+
+    private Charset myCharset;
+    private ForkJoinPool myPool;
+    private Function<Parser, ? extends ASTNode> myEntryPoint;
+    private SymbolTable mySymbols;
+    private DiagnosticSink mySink;
+    private ParseCache myCache;
+
+    /**
+     * Constructs a <code>CompilationDriver</code> that reads UTF-8 files, runs
+     * on the common <code>ForkJoinPool</code>, and parses statements.
+     */
+    public CompilationDriver()
+    {
+        this(StandardCharsets.UTF_8, ForkJoinPool.commonPool(), Parser::parseStatement);
+    }
+
+    /**
+     * Constructs a <code>CompilationDriver</code>.
+     * @param charset The <code>Charset</code> of the source files.
+     * @param pool The <code>ForkJoinPool</code> to run on.
+     * @param entryPoint The parse method to apply repeatedly until the end of
+     *     each file.
+     */
+    public CompilationDriver(Charset charset, ForkJoinPool pool, Function<Parser, ? extends ASTNode> entryPoint)
+    {
+        myCharset = Objects.requireNonNull(charset);
+        myPool = Objects.requireNonNull(pool);
+        myEntryPoint = Objects.requireNonNull(entryPoint);
+        mySymbols = new SymbolTable();
+    }
+
+    /**
+     * Returns the <code>SymbolTable</code> shared by all files this driver
+     * compiles.
+     * @return The <code>SymbolTable</code>.
+     */
+    public SymbolTable getSymbolTable()
+    {
+        return mySymbols;
+    }
+
+    /**
+     * Sets the <code>DiagnosticSink</code> that receives each file's errors
+     * once the file is done.  Files are compiled in parallel, so the sink may
+     * receive diagnostics from many threads at once.
+     * @param sink The <code>DiagnosticSink</code>, or <code>null</code> for
+     *     none.
+     */
+    public void setDiagnosticSink(DiagnosticSink sink)
+    {
+        mySink = sink;
+    }
+
+    /**
+     * Sets the <code>ParseCache</code> that files are looked up in before
+     * they are scanned and parsed.  It must only hold trees from this
+     * driver's entry point.
+     * @param cache The <code>ParseCache</code>, or <code>null</code> for none.
+     */
+    public void setParseCache(ParseCache cache)
+    {
+        myCache = cache;
+    }
+
+    /**
+     * Finds all source files under the given root, sorted by path.  If the
+     * root is a file, then it is the only source file.
+     * @param root A directory or file.
+     * @return A <code>List</code> of source files.
+     * @throws IOException If there is a problem walking the directory.
+     */
+    public static List<Path> findSources(Path root) throws IOException
+    {
+        if (!Files.isDirectory(root))
+        {
+            return Arrays.asList(root);
+        }
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            return paths.filter(p -> p.toString().endsWith(SOURCE_EXTENSION) && Files.isRegularFile(p))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Scans and parses all source files under the given root.
+     * @param root A directory or file.
+     * @return A <code>CompilationReport</code>.
+     * @throws IOException If there is a problem walking the directory.
+     */
+    public CompilationReport compile(Path root) throws IOException
+    {
+        return compile(findSources(root));
+    }
+
+    /**
+     * Scans and parses the given source files in parallel.  Problems with
+     * individual files are reported in their <code>FileResult</code>s.
+     * @param files The source files.
+     * @return A <code>CompilationReport</code>, with results in the same order
+     *     as the files.
+     */
+    public CompilationReport compile(List<Path> files)
+    {
+        Path[] paths = files.toArray(new Path[0]);
+        FileResult[] results = new FileResult[paths.length];
+        long start = System.nanoTime();
+        myPool.invoke(new CompileTask(paths, results, 0, paths.length));
+        long elapsed = System.nanoTime() - start;
+        return new CompilationReport(Arrays.asList(results), elapsed);
+    }
+
+    /**
+     * <p>Scans and parses the given source files in a pipeline: a bounded pool
+     * of reader threads reads and decodes files into a bounded queue, and as
+     * many parser threads as the <code>ForkJoinPool</code>'s parallelism take
+     * files from the queue and scan and parse them.  Reading overlaps with
+     * parsing, and no more than <code>queueDepth</code> read files wait to be
+     * parsed at once, however many files there are.</p>
+     *
+     * <p>The parser threads are a fixed pool of their own, not the
+     * <code>ForkJoinPool</code>, because they block on the queue.  A file
+     * whose parse fails unexpectedly gets the failure as its error.  If a
+     * parser thread dies anyway, the readers are cancelled and the failure is
+     * thrown, instead of the readers waiting on a queue that nothing takes
+     * from.</p>
+     *
+     * <p>Files are read fully onto the heap instead of being memory-mapped, so
+     * that the I/O happens on the reader threads.</p>
+     * @param files The source files.
+     * @param readers The number of reader threads.
+     * @param queueDepth The maximum number of read files waiting to be parsed.
+     * @return A <code>CompilationReport</code>, with results in the same order
+     *     as the files.
+     * @throws CompileException If the calling thread is interrupted, or if a
+     *     parser thread dies.
+     */
+    public CompilationReport compilePipelined(List<Path> files, int readers, int queueDepth)
+    {
+        Path[] paths = files.toArray(new Path[0]);
+        FileResult[] results = new FileResult[paths.length];
+        BlockingQueue<LoadedSource> queue = new ArrayBlockingQueue<>(queueDepth);
+        int workers = myPool.getParallelism();
+        ExecutorService readerPool = Executors.newFixedThreadPool(readers);
+        ExecutorService parserPool = Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        try
+        {
+            List<Future<?>> parsers = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++)
+            {
+                parsers.add(parserPool.submit(() -> parseFromQueue(queue, results)));
+            }
+            for (int i = 0; i < paths.length; i++)
+            {
+                int idx = i;
+                readerPool.execute(() -> {
+                    LoadedSource loaded = load(idx, paths[idx]);
+                    try
+                    {
+                        queue.put(loaded);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            readerPool.shutdown();
+            while (!readerPool.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                checkParsers(parsers);
+            }
+            for (int i = 0; i < workers; i++)
+            {
+                while (!queue.offer(LoadedSource.END, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    checkParsers(parsers);
+                }
+            }
+            for (Future<?> parser : parsers)
+            {
+                parser.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CompileException("Interrupted while compiling.", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new CompileException(e.getCause());
+        }
+        finally
+        {
+            readerPool.shutdownNow();
+            parserPool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new CompilationReport(Arrays.asList(results), elapsed);
+    }
+
+    /**
+     * Throws the failure of any parser thread that has died, so that the
+     * threads feeding them stop waiting.
+     * @param parsers The parser threads' <code>Future</code>s.
+     * @throws ExecutionException If a parser thread has died.
+     * @throws InterruptedException If interrupted.
+     */
+    private static void checkParsers(List<Future<?>> parsers) throws ExecutionException, InterruptedException
+    {
+        for (Future<?> parser : parsers)
+        {
+            if (parser.isDone())
+            {
+                parser.get();
+            }
+        }
+    }
+
+    /**
+     * Takes read files from the queue and scans and parses them, until the end
+     * marker is taken.  An unexpected failure while compiling a file is
+     * recorded as that file's error, so that the other files are still
+     * compiled.
+     * @param queue The queue of read files.
+     * @param results Where to store each file's result.
+     * @return <code>null</code>.
+     * @throws InterruptedException If interrupted while waiting for a file.
+     */
+    private Void parseFromQueue(BlockingQueue<LoadedSource> queue, FileResult[] results) throws InterruptedException
+    {
+        LoadedSource loaded;
+        while ( (loaded = queue.take()) != LoadedSource.END)
+        {
+            if (loaded.myError != null)
+            {
+                results[loaded.myIdx] = reported(new FileResult(loaded.myPath, new ArrayList<>(),
+                        new ArrayList<>(Arrays.asList(loaded.myError)), 0));
+            }
+            else
+            {
+                results[loaded.myIdx] = reported(compileSource(loaded.myPath, loaded.mySource));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads and decodes a file fully onto the heap.
+     * @param idx The index of the file.
+     * @param path The file.
+     * @return The <code>LoadedSource</code>, with either the source or an
+     *     error.
+     */
+    private LoadedSource load(int idx, Path path)
+    {
+        try
+        {
+            byte[] bytes = Files.readAllBytes(path);
+            CharBuffer chars = myCharset.newDecoder().decode(ByteBuffer.wrap(bytes));
+            return new LoadedSource(idx, path, SourceText.of(path.toString(), chars), null);
+        }
+        catch (IOException e)
+        {
+            return new LoadedSource(idx, path, null, readError(path, e));
+        }
+        catch (RuntimeException e)
+        {
+            return new LoadedSource(idx, path, null, readError(path, e));
+        }
+    }
+
+    /**
+     * Scans and parses one source file on the current thread.
+     * @param path The source file.
+     * @return The <code>FileResult</code>.
+     */
+    public FileResult compileFile(Path path)
+    {
+        SourceText source;
+        try
+        {
+            source = SourceText.map(path, myCharset);
+        }
+        catch (IOException e)
+        {
+            return reported(new FileResult(path, new ArrayList<>(),
+                    new ArrayList<>(Arrays.asList(readError(path, e))), 0));
+        }
+        return reported(compileSource(path, source));
+    }
+
+    /**
+     * Scans and parses the source of one file on the current thread.  An
+     * unexpected failure, such as a <code>StackOverflowError</code>, is
+     * recorded as the file's error, so that it doesn't lose the results of the
+     * other files.
+     * @param path The source file.
+     * @param source The <code>SourceText</code> of the file.
+     * @return The <code>FileResult</code>.
+     */
+    private FileResult compileSource(Path path, SourceText source)
+    {
+        try
+        {
+            return parseSource(path, source);
+        }
+        catch (Throwable t)
+        {
+            return new FileResult(path, new ArrayList<>(),
+                    new ArrayList<>(Arrays.asList(internalError(path, t))), 0);
+        }
+    }
+
+    /**
+     * Looks up or scans and parses the source of one file on the current
+     * thread.
+     * @param path The source file.
+     * @param source The <code>SourceText</code> of the file.
+     * @return The <code>FileResult</code>.
+     */
+    private FileResult parseSource(Path path, SourceText source)
+    {
+        ParseCache.Entry entry = null;
+        if (myCache != null)
+        {
+            entry = myCache.load(source, mySymbols);
+            if (entry.getStatus() == ParseCache.Status.HIT)
+            {
+                return new FileResult(path, entry.getNodes(), entry.getErrors(),
+                        entry.getTokens().size() - 1, ParseCache.Status.HIT);
+            }
+        }
+        List<ASTNode> nodes = new ArrayList<>();
+        List<CompileException> errors = new ArrayList<>();
+        int tokenCount = 0;
+        TokenBuffer tokens = null;
+        Parser parser = null;
+        CompileException stopped = null;
+        try
+        {
+            tokens = new TokenBuffer(source, mySymbols);
+            tokenCount = tokens.size() - 1;
+            parser = new Parser(tokens.stream());
+            parser.setRecovering(true);
+            while (!parser.isAtEnd())
+            {
+                nodes.add(myEntryPoint.apply(parser));
+            }
+        }
+        catch (CompileException e)
+        {
+            stopped = e;
+        }
+        if (parser != null)
+        {
+            errors.addAll(parser.getErrors());
+        }
+        if (stopped != null)
+        {
+            errors.add(stopped);
+        }
+        else if (entry != null)
+        {
+            myCache.store(entry, tokens, nodes, errors);
+        }
+        return new FileResult(path, nodes, errors, tokenCount, (entry != null) ? entry.getStatus() : null);
+    }
+
+    /**
+     * Sends the errors of a file to the <code>DiagnosticSink</code>, if there
+     * is one.
+     * @param result The <code>FileResult</code> of the file.
+     * @return The <code>FileResult</code>.
+     */
+    private FileResult reported(FileResult result)
+    {
+        if (mySink != null)
+        {
+            for (CompileException error : result.getErrors())
+            {
+                mySink.report(error.toDiagnostic());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wraps a problem reading a file.
+     * @param path The file.
+     * @param e The problem.
+     * @return A <code>CompileException</code>.
+     */
+    private static CompileException readError(Path path, Exception e)
+    {
+        return new CompileException(Diagnostic.error(Diagnostic.READ_ERROR, null, 0,
+                "Unable to read " + path + ": " + e.getMessage()), e);
+    }
+
+    /**
+     * Creates the error for an unexpected failure while compiling a file.
+     * @param path The file.
+     * @param t The failure.
+     * @return The <code>CompileException</code>.
+     */
+    private static CompileException internalError(Path path, Throwable t)
+    {
+        return new CompileException(Diagnostic.error(Diagnostic.INTERNAL_ERROR, null, 0,
+                "Unable to compile " + path + ": " + t), t);
+    }
+
+    /**
+     * Compiles the source files or directories given as arguments, printing
+     * any errors and the throughput.  <code>--cache dir</code> looks files up
+     * in, and stores them to, a <code>ParseCache</code> in the directory.
+     * @param args Source files and directories, and options.
+     * @throws IOException If there is a problem walking a directory or
+     *     creating the cache directory.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        CompilationDriver driver = new CompilationDriver();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("--cache".equals(args[i]) && i + 1 < args.length)
+            {
+                driver.setParseCache(new ParseCache(Paths.get(args[++i])));
+            }
+            else
+            {
+                files.addAll(findSources(Paths.get(args[i])));
+            }
+        }
+        CompilationReport report = driver.compile(files);
+        for (FileResult result : report.getResults())
+        {
+            for (CompileException error : result.getErrors())
+            {
+                Diagnostic diagnostic = error.toDiagnostic();
+                System.err.println((diagnostic.getLocation() != null) ? diagnostic.toString()
+                        : result.getPath() + ": " + diagnostic);
+            }
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * A file that was read for the pipeline, or the problem reading it.
+     */
+    private static class LoadedSource
+    {
+        /**
+         * Marks the end of the files for one parser thread.
+         */
+        static final LoadedSource END = new LoadedSource(-1, null, null, null);
+
+        private final int myIdx;
+        private final Path myPath;
+        private final SourceText mySource;
+        private final CompileException myError;
+
+        /**
+         * Constructs a <code>LoadedSource</code>.
+         * @param idx The index of the file.
+         * @param path The file.
+         * @param source The <code>SourceText</code>, or <code>null</code> on error.
+         * @param error The problem reading the file, or <code>null</code>.
+         */
+        LoadedSource(int idx, Path path, SourceText source, CompileException error)
+        {
+            myIdx = idx;
+            myPath = path;
+            mySource = source;
+            myError = error;
+        }
+    }
+
+    /**
+     * Compiles a range of the files, splitting the range in half until it's
+     * one file, so that idle workers can steal halves.
+     */
+    private class CompileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path[] myPaths;
+        private FileResult[] myResults;
+        private int myFrom;
+        private int myTo;
+
+        /**
+         * Constructs a <code>CompileTask</code> for a range of files.
+         * @param paths The files.
+         * @param results Where to store each file's result.
+         * @param from The index of the first file, inclusive.
+         * @param to The index of the last file, exclusive.
+         */
+        CompileTask(Path[] paths, FileResult[] results, int from, int to)
+        {
+            myPaths = paths;
+            myResults = results;
+            myFrom = from;
+            myTo = to;
+        }
+
+        /**
+         * Compiles the file, or splits the range.
+         */
+        @Override
+        protected void compute()
+        {
+            if (myTo - myFrom <= 1)
+            {
+                if (myTo > myFrom)
+                {
+                    myResults[myFrom] = compileFile(myPaths[myFrom]);
+                }
+                return;
+            }
+            int mid = (myFrom + myTo) >>> 1;
+            invokeAll(new CompileTask(myPaths, myResults, myFrom, mid),
+                    new CompileTask(myPaths, myResults, mid, myTo));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.spruce.compiler.driver;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A <code>CompilationReport</code> holds the <code>FileResult</code>s of one
+ * run of a <code>CompilationDriver</code>, in the order the files were given,
+ * and how long the run took.  If the driver has a <code>ParseCache</code>,
+ * it also counts the files that were hits, misses, and invalidations.
+ */
+public class CompilationReport
+{
+    private List<FileResult> myResults;
+    private long myElapsedNanos;
+    private long myTokenCount;
+    private int myErrorCount;
+    private int[] myCacheCounts;
+
+    /**
+     * Constructs a <code>CompilationReport</code>.
+     * @param results The results, in the order the files were given.
+     * @param elapsedNanos The wall-clock time of the run, in nanoseconds.
+     */
+    public CompilationReport(List<FileResult> results, long elapsedNanos)
+    {
+        myResults = Collections.unmodifiableList(results);
+        myElapsedNanos = elapsedNanos;
+        myCacheCounts = new int[ParseCache.Status.values().length];
+        for (FileResult result : results)
+        {
+            myTokenCount += result.getTokenCount();
+            myErrorCount += result.getErrors().size();
+            if (result.getCacheStatus() != null)
+            {
+                myCacheCounts[result.getCacheStatus().ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the results, in the order the files were given.
+     * @return An unmodifiable <code>List</code> of results.
+     */
+    public List<FileResult> getResults()
+    {
+        return myResults;
+    }
+
+    /**
+     * Returns the number of files.
+     * @return The number of files.
+     */
+    public int getFileCount()
+    {
+        return myResults.size();
+    }
+
+    /**
+     * Returns the number of tokens in all files.
+     * @return The number of tokens.
+     */
+    public long getTokenCount()
+    {
+        return myTokenCount;
+    }
+
+    /**
+     * Returns the number of errors in all files.
+     * @return The number of errors.
+     */
+    public int getErrorCount()
+    {
+        return myErrorCount;
+    }
+
+    /**
+     * Returns the number of files that were read from the
+     * <code>ParseCache</code>.
+     * @return The number of cache hits.
+     */
+    public int getCacheHits()
+    {
+        return myCacheCounts[ParseCache.Status.HIT.ordinal()];
+    }
+
+    /**
+     * Returns the number of files that weren't in the
+     * <code>ParseCache</code>.
+     * @return The number of cache misses.
+     */
+    public int getCacheMisses()
+    {
+        return myCacheCounts[ParseCache.Status.MISS.ordinal()];
+    }
+
+    /**
+     * Returns the number of files whose <code>ParseCache</code> entries
+     * couldn't be used.
+     * @return The number of cache invalidations.
+     */
+    public int getCacheInvalidations()
+    {
+        return myCacheCounts[ParseCache.Status.INVALIDATED.ordinal()];
+    }
+
+    /**
+     * Returns whether every file was scanned and parsed without errors.
+     * @return Whether there were no errors.
+     */
+    public boolean isSuccessful()
+    {
+        return myErrorCount == 0;
+    }
+
+    /**
+     * Returns the wall-clock time of the run, in nanoseconds.
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return myElapsedNanos;
+    }
+
+    /**
+     * Returns the throughput in files per second.
+     * @return Files per second.
+     */
+    public double getFilesPerSecond()
+    {
+        return perSecond(getFileCount());
+    }
+
+    /**
+     * Returns the throughput in tokens per second.
+     * @return Tokens per second.
+     */
+    public double getTokensPerSecond()
+    {
+        return perSecond(myTokenCount);
+    }
+
+    /**
+     * Returns how many of the given count there were per second of the run.
+     * @param count A count.
+     * @return The count per second.
+     */
+    private double perSecond(long count)
+    {
+        if (myElapsedNanos <= 0)
+        {
+            return 0;
+        }
+        return count * (double) TimeUnit.SECONDS.toNanos(1) / myElapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the counts and throughput, and of the
+     * cache if any file was looked up in one.
+     * @return A string representation.
+     */
+    @Override
+    public String toString()
+    {
+        String summary = String.format(Locale.ROOT,
+                "%d files, %d tokens, %d errors in %.3f ms (%.1f files/s, %.1f tokens/s)",
+                getFileCount(), myTokenCount, myErrorCount, myElapsedNanos / 1e6,
+                getFilesPerSecond(), getTokensPerSecond());
+        if (getCacheHits() + getCacheMisses() + getCacheInvalidations() > 0)
+        {
+            summary += String.format(Locale.ROOT, "; cache: %d hits, %d misses, %d invalidations",
+                    getCacheHits(), getCacheMisses(), getCacheInvalidations());
+        }
+        return summary;
+    }
+}
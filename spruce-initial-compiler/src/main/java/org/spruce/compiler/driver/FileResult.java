@@ -0,0 +1,123 @@
+package org.spruce.compiler.driver;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.exception.CompileException;
+
+/**
+ * A <code>FileResult</code> is the outcome of scanning and parsing one source
+ * file: the trees parsed from it, any errors, how many tokens it had, and
+ * whether it was found in the <code>ParseCache</code>.
+ */
+public class FileResult
+{
+    private Path myPath;
+    private List<ASTNode> myNodes;
+    private List<CompileException> myErrors;
+    private int myTokenCount;
+    private ParseCache.Status myCacheStatus;
+
+    /**
+     * Constructs a <code>FileResult</code>.
+     * @param path The path of the source file.
+     * @param nodes The trees parsed from the file, in order.
+     * @param errors The errors encountered, in order.
+     * @param tokenCount The number of tokens in the file, not counting the end
+     *     of the file.
+     */
+    public FileResult(Path path, List<ASTNode> nodes, List<CompileException> errors, int tokenCount)
+    {
+        this(path, nodes, errors, tokenCount, null);
+    }
+
+    /**
+     * Constructs a <code>FileResult</code> for a file that was looked up in a
+     * <code>ParseCache</code>.
+     * @param path The path of the source file.
+     * @param nodes The trees parsed from the file, in order.
+     * @param errors The errors encountered, in order.
+     * @param tokenCount The number of tokens in the file, not counting the end
+     *     of the file.
+     * @param cacheStatus Whether the file was found in the cache, or
+     *     <code>null</code> if it wasn't looked up.
+     */
+    public FileResult(Path path, List<ASTNode> nodes, List<CompileException> errors, int tokenCount,
+                      ParseCache.Status cacheStatus)
+    {
+        myPath = path;
+        myNodes = Collections.unmodifiableList(nodes);
+        myErrors = Collections.unmodifiableList(errors);
+        myTokenCount = tokenCount;
+        myCacheStatus = cacheStatus;
+    }
+
+    /**
+     * Returns the path of the source file.
+     * @return The path of the source file.
+     */
+    public Path getPath()
+    {
+        return myPath;
+    }
+
+    /**
+     * Returns the trees parsed from the file, in order.
+     * @return An unmodifiable <code>List</code> of trees.
+     */
+    public List<ASTNode> getNodes()
+    {
+        return myNodes;
+    }
+
+    /**
+     * Returns the errors encountered, in order.
+     * @return An unmodifiable <code>List</code> of errors.
+     */
+    public List<CompileException> getErrors()
+    {
+        return myErrors;
+    }
+
+    /**
+     * Returns whether the file was scanned and parsed without errors.
+     * @return Whether there were no errors.
+     */
+    public boolean isSuccessful()
+    {
+        return myErrors.isEmpty();
+    }
+
+    /**
+     * Returns the number of tokens in the file, not counting the end of the
+     * file, or 0 if the file couldn't be scanned.
+     * @return The number of tokens.
+     */
+    public int getTokenCount()
+    {
+        return myTokenCount;
+    }
+
+    /**
+     * Returns whether the file was found in the <code>ParseCache</code>.
+     * @return The <code>ParseCache.Status</code>, or <code>null</code> if the
+     *     file wasn't looked up.
+     */
+    public ParseCache.Status getCacheStatus()
+    {
+        return myCacheStatus;
+    }
+
+    /**
+     * Returns a string with the path, counts, and success of this result.
+     * @return A string representation.
+     */
+    @Override
+    public String toString()
+    {
+        return "FileResult{" + myPath + ", " + myNodes.size() + " nodes, " + myTokenCount + " tokens, " +
+                myErrors.size() + " errors}";
+    }
+}
@@ -0,0 +1,686 @@
+package org.spruce.compiler.driver;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.ast.ASTReader;
+import org.spruce.compiler.ast.ASTWriter;
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+
+/**
+ * <p>A <code>ParseCache</code> stores the tokens, trees, and errors of parsed
+ * sources in a directory, one file per source, named by the SHA-256 hash of
+ * the source's characters.  An entry is used only if it was also written by
+ * the same compiler version, in the same format, with the same
+ * <code>ASTKind</code>s and <code>TokenType</code>s; otherwise it is
+ * invalidated and deleted.  Entries are read with a memory-mapped read, so
+ * an unchanged source is neither scanned nor parsed again.  Trees are stored
+ * in the binary AST format, each standalone, so that each is read with an
+ * <code>ASTReader</code> only when it is first needed.</p>
+ *
+ * <p>An entry holds whatever trees the parse entry point produced, so a
+ * cache directory shouldn't be shared by drivers with different entry
+ * points.  Entries are written to a temporary file and moved into place, so
+ * drivers on many threads, or in many processes, may share a directory.</p>
+ */
+public class ParseCache
+{
+    /**
+     * The version of the format of entries.
+     */
+    public static final int FORMAT_VERSION = 3;
+
+    private static final int MAGIC = 0x53505243;
+    private static final String EXTENSION = ".parse";
+    private static final int DIGEST_LENGTH = 32;
+    private static final Diagnostic.Severity[] SEVERITIES = Diagnostic.Severity.values();
+    // Found once, when the first cache is constructed.
+    private static volatile String theCompilerVersion;
+
+    private Path myDirectory;
+    private String myCompilerVersion;
+
+    /**
+     * Constructs a <code>ParseCache</code> in the given directory, for this
+     * compiler: the version in its jar's manifest, with a hash of its
+     * classes, so that any change to the compiler invalidates the entries.
+     * @param directory The directory, which is created if it doesn't exist.
+     * @throws IOException If the directory can't be created, or the
+     *     compiler's classes can't be found or read.
+     */
+    public ParseCache(Path directory) throws IOException
+    {
+        this(directory, compilerVersion());
+    }
+
+    /**
+     * Constructs a <code>ParseCache</code> in the given directory, for the
+     * given version of the compiler.
+     * @param directory The directory, which is created if it doesn't exist.
+     * @param compilerVersion The compiler version.
+     * @throws IOException If the directory can't be created.
+     */
+    public ParseCache(Path directory, String compilerVersion) throws IOException
+    {
+        myDirectory = Files.createDirectories(Objects.requireNonNull(directory));
+        myCompilerVersion = Objects.requireNonNull(compilerVersion);
+    }
+
+    /**
+     * Returns the version of the compiler in its jar's manifest, or
+     * <code>"dev"</code> if it isn't running from a jar, followed by a
+     * <code>'+'</code> and the SHA-256 hash of its jar or class files.
+     * @return The compiler version.
+     * @throws IOException If the compiler's classes can't be found or read.
+     */
+    private static String compilerVersion() throws IOException
+    {
+        String version = theCompilerVersion;
+        if (version == null)
+        {
+            String implementation = ParseCache.class.getPackage().getImplementationVersion();
+            version = ((implementation != null) ? implementation : "dev") + "+" + toHex(digestClasses());
+            theCompilerVersion = version;
+        }
+        return version;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the jar that the compiler was loaded from,
+     * or, if it was loaded from a directory, of the names and contents of
+     * the class files in it.
+     * @return The hash.
+     * @throws IOException If the compiler's classes can't be found or read.
+     */
+    private static byte[] digestClasses() throws IOException
+    {
+        CodeSource codeSource = ParseCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null)
+        {
+            throw new IOException("Can't find the compiler's classes.");
+        }
+        Path location;
+        try
+        {
+            location = Paths.get(codeSource.getLocation().toURI());
+        }
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            throw new IOException("Can't find the compiler's classes at " + codeSource.getLocation(), e);
+        }
+        MessageDigest digest = sha256();
+        if (Files.isDirectory(location))
+        {
+            List<Path> classes = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(location))
+            {
+                paths.filter(p -> p.toString().endsWith(".class")).sorted().forEach(classes::add);
+            }
+            for (Path path : classes)
+            {
+                digest.update(location.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(path));
+            }
+        }
+        else
+        {
+            byte[] chunk = new byte[8192];
+            try (InputStream in = Files.newInputStream(location))
+            {
+                for (int read = in.read(chunk); read >= 0; read = in.read(chunk))
+                {
+                    digest.update(chunk, 0, read);
+                }
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Returns the directory of the entries.
+     * @return The directory.
+     */
+    public Path getDirectory()
+    {
+        return myDirectory;
+    }
+
+    /**
+     * Returns the compiler version that entries must have been written by.
+     * @return The compiler version.
+     */
+    public String getCompilerVersion()
+    {
+        return myCompilerVersion;
+    }
+
+    /**
+     * Looks up the entry for the given source.  On a hit, the tokens, trees,
+     * and errors are read, with locations in the given source; otherwise, the
+     * returned <code>Entry</code> can be passed to <code>store</code> once
+     * the source is parsed.  An entry that can't be used is deleted.
+     * @param source The <code>SourceText</code>.
+     * @param symbols The <code>SymbolTable</code> to intern names in.
+     * @return The <code>Entry</code>.
+     */
+    public Entry load(SourceText source, SymbolTable symbols)
+    {
+        byte[] digest = digest(source);
+        Path path = myDirectory.resolve(toHex(digest) + EXTENSION);
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (NoSuchFileException e)
+        {
+            return new Entry(Status.MISS, path, digest);
+        }
+        catch (IOException e)
+        {
+            return invalidate(path, digest);
+        }
+        try
+        {
+            return read(in, path, digest, source, symbols);
+        }
+        catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e)
+        {
+            return invalidate(path, digest);
+        }
+    }
+
+    /**
+     * Deletes an entry that can't be used.
+     * @param path The entry's file.
+     * @param digest The hash of the source.
+     * @return An invalidated <code>Entry</code>.
+     */
+    private static Entry invalidate(Path path, byte[] digest)
+    {
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            // It will be replaced when stored.
+        }
+        return new Entry(Status.INVALIDATED, path, digest);
+    }
+
+    /**
+     * Reads an entry.
+     * @param in The mapped entry.
+     * @param path The entry's file.
+     * @param digest The hash of the source.
+     * @param source The <code>SourceText</code>.
+     * @param symbols The <code>SymbolTable</code>.
+     * @return A hit, or an invalidated <code>Entry</code> if it was written by
+     *     another version or for another source.
+     */
+    private Entry read(ByteBuffer in, Path path, byte[] digest, SourceText source, SymbolTable symbols)
+    {
+        byte[] storedDigest = new byte[DIGEST_LENGTH];
+        if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION || in.getInt() != ASTWriter.SCHEMA ||
+                !myCompilerVersion.equals(readString(in)) || !Arrays.equals(digest, getBytes(in, storedDigest)) ||
+                in.getInt() != source.length())
+        {
+            return invalidate(path, digest);
+        }
+        TokenBuffer tokens = TokenBuffer.readFrom(in, source, symbols);
+        int nodeCount = in.getInt();
+        if (nodeCount < 0 || nodeCount > in.remaining() / Integer.BYTES)
+        {
+            throw new IllegalArgumentException("Bad tree count " + nodeCount);
+        }
+        int[] positions = new int[nodeCount];
+        in.asIntBuffer().get(positions);
+        in.position(in.position() + nodeCount * Integer.BYTES);
+        int treesLength = in.getInt();
+        int checksum = in.getInt();
+        if (treesLength < 0 || treesLength > in.remaining())
+        {
+            throw new IllegalArgumentException("Bad trees length " + treesLength);
+        }
+        // Copied, as the file may be replaced before the trees are read.
+        ByteBuffer mapped = in.slice();
+        mapped.limit(treesLength);
+        ByteBuffer trees = ByteBuffer.allocate(treesLength);
+        trees.put(mapped).flip();
+        in.position(in.position() + treesLength);
+        // The trees are read only when needed, so damage is found up front.
+        CRC32 crc = new CRC32();
+        crc.update(trees.duplicate());
+        for (int i = 0; i < nodeCount; i++)
+        {
+            if (positions[i] < ((i > 0) ? positions[i - 1] + 1 : 0) || positions[i] >= treesLength)
+            {
+                throw new IllegalArgumentException("Bad tree position " + positions[i]);
+            }
+        }
+        if ((int) crc.getValue() != checksum)
+        {
+            return invalidate(path, digest);
+        }
+        ASTReader reader = new ASTReader(trees, source, symbols);
+        int errorCount = in.getInt();
+        List<CompileException> errors = new ArrayList<>(Math.min(errorCount, in.remaining()));
+        for (int i = 0; i < errorCount; i++)
+        {
+            Diagnostic.Severity severity = SEVERITIES[in.get()];
+            String code = readString(in);
+            String message = readString(in);
+            int offset = in.getInt();
+            int length = in.getInt();
+            Location location = (offset >= 0) ? source.getLocation(offset) : null;
+            errors.add(new CompileException(new Diagnostic(severity, code, location, length, message)));
+        }
+        return new Entry(Status.HIT, path, digest, tokens, new StoredNodes(reader, positions), errors);
+    }
+
+    /**
+     * Stores the result of parsing a source that missed.  If the trees can't
+     * be stored, e.g. because a location isn't in the source, or if there's
+     * a problem writing, nothing is stored.
+     * @param missed The <code>Entry</code> returned by <code>load</code>.
+     * @param tokens The <code>TokenBuffer</code> of the source.
+     * @param nodes The trees parsed from the source.
+     * @param errors The errors encountered parsing the source.
+     * @return Whether the entry was stored.
+     */
+    public boolean store(Entry missed, TokenBuffer tokens, List<? extends ASTNode> nodes,
+                         List<CompileException> errors)
+    {
+        Path temp = null;
+        try
+        {
+            temp = Files.createTempFile(myDirectory, "entry", ".tmp");
+            try (OutputStream stream = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream)))
+            {
+                write(out, missed.myDigest, tokens, nodes, errors);
+            }
+            try
+            {
+                Files.move(temp, missed.myPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, missed.myPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            if (temp != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch (IOException ignored)
+                {
+                    // Left for the next run to overwrite.
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Writes an entry.
+     * @param out The <code>DataOutput</code>.
+     * @param digest The hash of the source.
+     * @param tokens The <code>TokenBuffer</code> of the source.
+     * @param nodes The trees parsed from the source.
+     * @param errors The errors encountered parsing the source.
+     * @throws IOException If there is a problem writing.
+     * @throws IllegalStateException If a location isn't in the source.
+     */
+    private void write(DataOutput out, byte[] digest, TokenBuffer tokens, List<? extends ASTNode> nodes,
+                       List<CompileException> errors) throws IOException
+    {
+        SourceText source = tokens.getSource();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(ASTWriter.SCHEMA);
+        writeString(out, myCompilerVersion);
+        out.write(digest);
+        out.writeInt(source.length());
+        tokens.writeTo(out);
+        ByteArrayOutputStream trees = new ByteArrayOutputStream();
+        out.writeInt(nodes.size());
+        try (ASTWriter writer = new ASTWriter(trees, source))
+        {
+            for (ASTNode node : nodes)
+            {
+                out.writeInt((int) writer.writeStandalone(node));
+            }
+        }
+        CRC32 crc = new CRC32();
+        byte[] treeBytes = trees.toByteArray();
+        crc.update(treeBytes);
+        out.writeInt(treeBytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(treeBytes);
+        out.writeInt(errors.size());
+        for (CompileException error : errors)
+        {
+            Diagnostic diagnostic = error.toDiagnostic();
+            Location location = diagnostic.getLocation();
+            if (location != null && location.getSource() != source)
+            {
+                throw new IllegalStateException("A location isn't in the source.");
+            }
+            out.writeByte(diagnostic.getSeverity().ordinal());
+            writeString(out, diagnostic.getCode());
+            writeString(out, diagnostic.getMessage());
+            out.writeInt((location != null) ? location.getOffset() : -1);
+            out.writeInt(diagnostic.getLength());
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of the characters of the given source.
+     * @param source The <code>SourceText</code>.
+     * @return The hash.
+     */
+    private static byte[] digest(SourceText source)
+    {
+        MessageDigest digest = sha256();
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        int length = source.length();
+        for (int i = 0; i < length; i++)
+        {
+            if (!chunk.hasRemaining())
+            {
+                chunk.flip();
+                digest.update(chunk);
+                chunk.clear();
+            }
+            chunk.putChar(source.charAt(i));
+        }
+        chunk.flip();
+        digest.update(chunk);
+        return digest.digest();
+    }
+
+    /**
+     * Returns a new SHA-256 <code>MessageDigest</code>.
+     * @return The <code>MessageDigest</code>.
+     */
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform supports SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the given bytes as lowercase hexadecimal digits.
+     * @param bytes The bytes.
+     * @return The hexadecimal string.
+     */
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder buf = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+            buf.append(Character.forDigit(b & 0xF, 16));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Fills the given array from the buffer.
+     * @param in The <code>ByteBuffer</code>.
+     * @param bytes The array.
+     * @return The array.
+     */
+    private static byte[] getBytes(ByteBuffer in, byte[] bytes)
+    {
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a string as its length, then its UTF-8 bytes.
+     * @param out The <code>DataOutput</code>.
+     * @param value The string.
+     * @throws IOException If there is a problem writing.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by <code>writeString</code>.
+     * @param in The <code>ByteBuffer</code>.
+     * @return The string.
+     */
+    private static String readString(ByteBuffer in)
+    {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining())
+        {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        return new String(getBytes(in, new byte[length]), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a source was found in the cache.
+     */
+    public enum Status
+    {
+        /**
+         * The source's entry was read.
+         */
+        HIT,
+        /**
+         * The source had no entry.
+         */
+        MISS,
+        /**
+         * The source had an entry from another compiler version or format, or
+         * a damaged one, which was deleted.
+         */
+        INVALIDATED
+    }
+
+    /**
+     * An <code>Entry</code> is the outcome of looking up a source: on a hit,
+     * its tokens, trees, and errors.
+     */
+    public static class Entry
+    {
+        private final Status myStatus;
+        private final Path myPath;
+        private final byte[] myDigest;
+        private final TokenBuffer myTokens;
+        private final List<ASTNode> myNodes;
+        private final List<CompileException> myErrors;
+
+        /**
+         * Constructs an <code>Entry</code> for a source that wasn't found.
+         * @param status The <code>Status</code>.
+         * @param path The entry's file.
+         * @param digest The hash of the source.
+         */
+        private Entry(Status status, Path path, byte[] digest)
+        {
+            this(status, path, digest, null, Collections.emptyList(), Collections.emptyList());
+        }
+
+        /**
+         * Constructs an <code>Entry</code>.
+         * @param status The <code>Status</code>.
+         * @param path The entry's file.
+         * @param digest The hash of the source.
+         * @param tokens The tokens, or <code>null</code> if not a hit.
+         * @param nodes The trees.
+         * @param errors The errors.
+         */
+        private Entry(Status status, Path path, byte[] digest, TokenBuffer tokens, List<ASTNode> nodes,
+                      List<CompileException> errors)
+        {
+            myStatus = status;
+            myPath = path;
+            myDigest = digest;
+            myTokens = tokens;
+            myNodes = Collections.unmodifiableList(nodes);
+            myErrors = Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Returns whether the source was found.
+         * @return The <code>Status</code>.
+         */
+        public Status getStatus()
+        {
+            return myStatus;
+        }
+
+        /**
+         * Returns the file that holds, or will hold, the entry.
+         * @return The entry's file.
+         */
+        public Path getPath()
+        {
+            return myPath;
+        }
+
+        /**
+         * Returns the tokens of the source.
+         * @return The <code>TokenBuffer</code>, or <code>null</code> if not a
+         *     hit.
+         */
+        public TokenBuffer getTokens()
+        {
+            return myTokens;
+        }
+
+        /**
+         * Returns the trees parsed from the source.  On a hit, each tree is
+         * created from the entry when it is first read.
+         * @return An unmodifiable <code>List</code> of trees, empty if not a
+         *     hit.
+         */
+        public List<ASTNode> getNodes()
+        {
+            return myNodes;
+        }
+
+        /**
+         * Returns the errors encountered parsing the source.
+         * @return An unmodifiable <code>List</code> of errors, empty if not a
+         *     hit.
+         */
+        public List<CompileException> getErrors()
+        {
+            return myErrors;
+        }
+    }
+
+    /**
+     * A <code>List</code> of the trees of an entry, each read from the entry
+     * when first needed, and the same tree after that.
+     */
+    private static class StoredNodes extends AbstractList<ASTNode>
+    {
+        private ASTReader myReader;
+        private int[] myPositions;
+        private ASTNode[] myNodes;
+        private int myUnread;
+
+        /**
+         * Constructs a <code>StoredNodes</code>.
+         * @param reader The <code>ASTReader</code> of the entry's trees.
+         * @param positions The positions of the trees, in order.
+         */
+        StoredNodes(ASTReader reader, int[] positions)
+        {
+            myReader = reader;
+            myPositions = positions;
+            myNodes = new ASTNode[positions.length];
+            myUnread = positions.length;
+        }
+
+        /**
+         * Returns the tree at the given index, reading it if it hasn't been
+         * read yet.
+         * @param index The 0-based index.
+         * @return The tree.
+         */
+        @Override
+        public synchronized ASTNode get(int index)
+        {
+            if (myNodes[index] == null)
+            {
+                myReader.seek(myPositions[index]);
+                myNodes[index] = myReader.next();
+                if (--myUnread == 0)
+                {
+                    // Only the trees refer to the entry's bytes from here on.
+                    myReader = null;
+                }
+            }
+            return myNodes[index];
+        }
+
+        /**
+         * Returns the number of trees.
+         * @return The number of trees.
+         */
+        @Override
+        public int size()
+        {
+            return myNodes.length;
+        }
+    }
+}
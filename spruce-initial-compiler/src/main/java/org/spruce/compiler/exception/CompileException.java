@@ -1,18 +1,28 @@
 package org.spruce.compiler.exception;
 
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.scanner.Location;
+
 /**
- * A <code>CompileException</code> is thrown when an unrecoverable error occurs
- * while scanning or parsing the Spruce source code.  Compilation stops with this
- * error message.
+ * <p>A <code>CompileException</code> is thrown when an unrecoverable error
+ * occurs while scanning or parsing the Spruce source code.  Compilation stops
+ * with this error message.</p>
+ *
+ * <p>The parser throws these to unwind from deep in its recursive descent,
+ * and a recovering parser catches them again, so they don't fill in a stack
+ * trace.  The message and the <code>Diagnostic</code>, if any, say where the
+ * error is; a cause keeps its own stack trace.</p>
  */
 public class CompileException extends RuntimeException
 {
+    private Diagnostic myDiagnostic;
+
     /**
      * Create a <code>CompileException</code>.
      */
     public CompileException()
     {
-        super();
+        super(null, null, false, false);
     }
 
     /**
@@ -21,7 +31,7 @@ public class CompileException extends RuntimeException
      */
     public CompileException(String message)
     {
-        super(message);
+        super(message, null, false, false);
     }
 
     /**
@@ -30,7 +40,7 @@ public class CompileException extends RuntimeException
      */
     public CompileException(Throwable cause)
     {
-        super(cause);
+        super((cause == null) ? null : cause.toString(), cause, false, false);
     }
 
     /**
@@ -40,6 +50,60 @@ public class CompileException extends RuntimeException
      */
     public CompileException(String message, Throwable cause)
     {
-        super(message, cause);
+        super(message, cause, false, false);
+    }
+
+    /**
+     * Create a <code>CompileException</code> for the given
+     * <code>Diagnostic</code>, with its message.
+     * @param diagnostic The <code>Diagnostic</code>.
+     */
+    public CompileException(Diagnostic diagnostic)
+    {
+        super(diagnostic.getMessage(), null, false, false);
+        myDiagnostic = diagnostic;
+    }
+
+    /**
+     * Create a <code>CompileException</code> for the given
+     * <code>Diagnostic</code>, with its message.
+     * @param diagnostic The <code>Diagnostic</code>.
+     * @param cause The cause.
+     */
+    public CompileException(Diagnostic diagnostic, Throwable cause)
+    {
+        super(diagnostic.getMessage(), cause, false, false);
+        myDiagnostic = diagnostic;
+    }
+
+    /**
+     * Returns the <code>Location</code> of the error.
+     * @return The <code>Location</code>, or <code>null</code> if it isn't
+     *     known.
+     */
+    public Location getLocation()
+    {
+        return (myDiagnostic != null) ? myDiagnostic.getLocation() : null;
+    }
+
+    /**
+     * Returns the <code>Diagnostic</code> this exception was created for.
+     * @return The <code>Diagnostic</code>, or <code>null</code> if there
+     *     isn't one.
+     */
+    public Diagnostic getDiagnostic()
+    {
+        return myDiagnostic;
+    }
+
+    /**
+     * Returns the <code>Diagnostic</code> for this exception.  An exception
+     * created without one is a syntax error at an unknown location.
+     * @return The <code>Diagnostic</code>.
+     */
+    public Diagnostic toDiagnostic()
+    {
+        return (myDiagnostic != null) ? myDiagnostic
+                : Diagnostic.error(Diagnostic.SYNTAX_ERROR, null, 0, getMessage());
     }
 }
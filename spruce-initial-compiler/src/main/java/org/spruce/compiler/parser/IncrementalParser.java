@@ -0,0 +1,288 @@
+package org.spruce.compiler.parser;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spruce.compiler.ast.ASTStatement;
+import org.spruce.compiler.ast.ASTTraversal;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.TokenBuffer;
+import org.spruce.compiler.scanner.TokenStream;
+
+/**
+ * <p>An <code>IncrementalParser</code> keeps the statements parsed from a
+ * <code>TokenBuffer</code> and, after an edit, parses again only the
+ * statements that the edit could have changed.  The other statements are
+ * kept by identity.</p>
+ *
+ * <p>Each statement is parsed from its first token, and the
+ * <code>TokenStream</code> reads the first token of the next statement and
+ * the one after it before the statement is done.  A statement is kept if
+ * none of those tokens were lexed again.  Parsing after the edit stops as
+ * soon as it reaches an old statement's first token past the re-lexed
+ * tokens, because from there on the tokens, and so the statements, are the
+ * same as before.</p>
+ *
+ * <p>Syntax errors are recovered from, so a half-typed statement becomes a
+ * statement holding an <code>ASTError</code>.  Kept statements are moved to
+ * the edited source only when they are next read from
+ * <code>getStatements()</code>, so that an edit doesn't visit the nodes of
+ * every statement after it.</p>
+ */
+public class IncrementalParser
+{
+    // The stream reads this many tokens past the end of a statement.
+    private static final int LOOKAHEAD = 2;
+
+    private TokenBuffer myTokens;
+    private boolean amCollapsing;
+    private List<ASTStatement> myStatements;
+    // The index of the first token of each statement, then of EOF.
+    private int[] myStarts;
+    // For each statement, the number of characters its nodes have yet to be
+    // moved by, and the edit after which they were last moved.
+    private int[] myDeltas;
+    private int[] myMoved;
+    private int myEditCount;
+    private int myReparsedCount;
+
+    /**
+     * Constructs an <code>IncrementalParser</code> and parses all of the
+     * statements of the given <code>TokenBuffer</code>.  It builds full,
+     * uncollapsed trees.
+     * @param tokens The <code>TokenBuffer</code>.
+     */
+    public IncrementalParser(TokenBuffer tokens)
+    {
+        this(tokens, false);
+    }
+
+    /**
+     * Constructs an <code>IncrementalParser</code> and parses all of the
+     * statements of the given <code>TokenBuffer</code>.
+     * @param tokens The <code>TokenBuffer</code>.
+     * @param collapsing Whether to build collapsed trees.
+     */
+    public IncrementalParser(TokenBuffer tokens, boolean collapsing)
+    {
+        myTokens = tokens;
+        amCollapsing = collapsing;
+        myStatements = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        parse(0, myStatements, starts, 0, 0);
+        myStarts = new int[starts.size()];
+        for (int i = 0; i < myStarts.length; i++)
+        {
+            myStarts[i] = starts.get(i);
+        }
+        myDeltas = new int[myStatements.size()];
+        myMoved = new int[myStatements.size()];
+        myReparsedCount = myStatements.size();
+    }
+
+    /**
+     * Returns whether this parser builds collapsed trees.
+     * @return Whether this parser builds collapsed trees.
+     */
+    public boolean isCollapsing()
+    {
+        return amCollapsing;
+    }
+
+    /**
+     * Returns the <code>TokenBuffer</code> of the current source.
+     * @return The <code>TokenBuffer</code>.
+     */
+    public TokenBuffer getTokens()
+    {
+        return myTokens;
+    }
+
+    /**
+     * Returns the statements of the current source, in order.  The list is a
+     * view; after an edit, call this method again.
+     * @return An unmodifiable <code>List</code> of statements.
+     */
+    public List<ASTStatement> getStatements()
+    {
+        return new AbstractList<ASTStatement>()
+        {
+            @Override
+            public ASTStatement get(int index)
+            {
+                return getStatement(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return myStatements.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the statement at the given index, first moving its nodes to the
+     * current source if an edit was made since they were last moved.
+     * @param index The 0-based index of the statement.
+     * @return The statement.
+     */
+    private ASTStatement getStatement(int index)
+    {
+        ASTStatement statement = myStatements.get(index);
+        if (myMoved[index] != myEditCount)
+        {
+            relocate(statement, myTokens.getSource(), myDeltas[index]);
+            myDeltas[index] = 0;
+            myMoved[index] = myEditCount;
+        }
+        return statement;
+    }
+
+    /**
+     * Returns the number of statements parsed by the last edit, or by the
+     * constructor if there hasn't been an edit.
+     * @return The number of statements parsed.
+     */
+    public int getReparsedCount()
+    {
+        return myReparsedCount;
+    }
+
+    /**
+     * Applies an edit to the source: <code>removedLength</code> characters
+     * starting at <code>offset</code> are replaced by <code>inserted</code>.
+     * The tokens around the edit are lexed again, and the statements that
+     * read any of them are parsed again.  If the edited source can't be
+     * lexed, nothing changes.
+     * @param offset The 0-based offset of the edit.
+     * @param removedLength The number of characters removed.
+     * @param inserted The characters inserted.
+     * @throws IndexOutOfBoundsException If the removed characters aren't all
+     *     in the source.
+     * @throws org.spruce.compiler.exception.CompileException If the edited
+     *     source contains an illegal token.
+     */
+    public void edit(int offset, int removedLength, CharSequence inserted)
+    {
+        TokenBuffer tokens = myTokens.edit(offset, removedLength, inserted);
+        int relexStart = tokens.getRelexStart();
+        // Old tokens from getRelexEnd() - shift on are now at getRelexEnd() on.
+        int shift = tokens.size() - myTokens.size();
+        int oldCount = myStatements.size();
+
+        // The first statement that read a re-lexed token.
+        int first = 0;
+        while (first < oldCount && myStarts[first + 1] + LOOKAHEAD <= relexStart)
+        {
+            first++;
+        }
+
+        myTokens = tokens;
+        List<ASTStatement> statements = new ArrayList<>(oldCount + 1);
+        statements.addAll(myStatements.subList(0, first));
+        List<Integer> parsedStarts = new ArrayList<>();
+        int resume = parse(myStarts[first], statements, parsedStarts, tokens.getRelexEnd(), shift);
+        int parsed = parsedStarts.size() - 1;
+        int kept = (resume >= 0) ? oldCount - resume : 0;
+
+        int count = first + parsed + kept;
+        int[] starts = new int[count + 1];
+        int[] deltas = new int[count];
+        int[] moved = new int[count];
+        System.arraycopy(myStarts, 0, starts, 0, first);
+        System.arraycopy(myDeltas, 0, deltas, 0, first);
+        System.arraycopy(myMoved, 0, moved, 0, first);
+        for (int i = 0; i <= parsed; i++)
+        {
+            starts[first + i] = parsedStarts.get(i);
+        }
+        // Parsed statements are already in the edited source.
+        myEditCount++;
+        Arrays.fill(moved, first, first + parsed, myEditCount);
+        if (resume >= 0)
+        {
+            statements.addAll(myStatements.subList(resume, oldCount));
+            int delta = inserted.length() - removedLength;
+            for (int i = 0; i <= kept; i++)
+            {
+                starts[first + parsed + i] = myStarts[resume + i] + shift;
+            }
+            for (int i = 0; i < kept; i++)
+            {
+                deltas[first + parsed + i] = myDeltas[resume + i] + delta;
+                moved[first + parsed + i] = myMoved[resume + i];
+            }
+        }
+
+        myStatements = statements;
+        myStarts = starts;
+        myDeltas = deltas;
+        myMoved = moved;
+        myReparsedCount = parsed;
+    }
+
+    /**
+     * Parses statements from the given token until the end of the file, or
+     * until a statement would start at an old statement's first token at or
+     * after <code>relexEnd</code>.
+     * @param start The index of the first token to parse.
+     * @param statements Where to add the statements.
+     * @param starts Where to add the first token of each statement, then the
+     *     token that parsing stopped at.
+     * @param relexEnd The index after the last re-lexed token, or
+     *     <code>0</code> when there are no old statements.
+     * @param shift The change in the number of tokens.
+     * @return The index of the old statement that parsing stopped at, or
+     *     <code>-1</code> if it reached the end of the file.
+     */
+    private int parse(int start, List<ASTStatement> statements, List<Integer> starts, int relexEnd, int shift)
+    {
+        TokenStream stream = myTokens.stream(start);
+        Parser parser = new Parser(stream, amCollapsing);
+        parser.setRecovering(true);
+        int idx = start;
+        while (true)
+        {
+            starts.add(idx);
+            if (parser.isAtEnd())
+            {
+                return -1;
+            }
+            if (myStarts != null && idx >= relexEnd)
+            {
+                int resume = Arrays.binarySearch(myStarts, 0, myStatements.size(), idx - shift);
+                if (resume >= 0)
+                {
+                    return resume;
+                }
+            }
+            statements.add(parser.parseStatement());
+            idx = myTokens.indexOf(stream.getCurrToken().getOffset());
+        }
+    }
+
+    /**
+     * Moves the nodes of the given statement to the given source.
+     * @param statement The statement.
+     * @param source The current <code>SourceText</code>.
+     * @param delta The number of characters to move each node by.
+     */
+    private static void relocate(ASTStatement statement, SourceText source, int delta)
+    {
+        // Nodes built at the same token share a Location; so do the moved ones.
+        Location[] last = new Location[2];
+        ASTTraversal.preOrder(statement, node -> {
+            Location loc = node.getLocation();
+            if (loc != last[0])
+            {
+                last[0] = loc;
+                last[1] = (loc != null && loc.getSource() != null) ? source.getLocation(loc.getOffset() + delta) : loc;
+            }
+            node.setLocation(last[1]);
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package org.spruce.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.TokenType;
+
+/**
+ * <p>The levels of binary operators, from lowest precedence to highest, with
+ * the <code>TokenType</code>s of their operators and the node that each level
+ * builds.  A <code>Parser</code> climbs these levels to parse an expression
+ * without descending through one method per level.</p>
+ *
+ * <p>All levels are left-associative, except that comparisons are not
+ * associative with each other.</p>
+ */
+enum OperatorPrecedence
+{
+    LOGICAL_OR(ASTLogicalOrExpression.class, ASTLogicalOrExpression::new, true, true, TokenType.LOGICAL_OR, TokenType.CONDITIONAL_OR),
+    LOGICAL_XOR(ASTLogicalXorExpression.class, ASTLogicalXorExpression::new, true, true, TokenType.LOGICAL_XOR),
+    LOGICAL_AND(ASTLogicalAndExpression.class, ASTLogicalAndExpression::new, true, true, TokenType.LOGICAL_AND, TokenType.CONDITIONAL_AND),
+    RELATIONAL(ASTRelationalExpression.class, ASTRelationalExpression::new, true, false, TokenType.LESS_THAN, TokenType.LESS_THAN_OR_EQUAL,
+            TokenType.GREATER_THAN, TokenType.GREATER_THAN_OR_EQUAL, TokenType.EQUAL, TokenType.NOT_EQUAL,
+            TokenType.INSTANCEOF, TokenType.IS),
+    COMPARE(ASTCompareExpression.class, ASTCompareExpression::new, false, false, TokenType.COMPARISON),
+    BITWISE_OR(ASTBitwiseOrExpression.class, ASTBitwiseOrExpression::new, true, true, TokenType.BITWISE_OR),
+    BITWISE_XOR(ASTBitwiseXorExpression.class, ASTBitwiseXorExpression::new, true, true, TokenType.BITWISE_XOR),
+    BITWISE_AND(ASTBitwiseAndExpression.class, ASTBitwiseAndExpression::new, true, true, TokenType.BITWISE_AND),
+    SHIFT(ASTShiftExpression.class, ASTShiftExpression::new, true, true, TokenType.SHIFT_LEFT, TokenType.SHIFT_RIGHT,
+            TokenType.UNSIGNED_SHIFT_RIGHT),
+    ADDITIVE(ASTAdditiveExpression.class, ASTAdditiveExpression::new, true, true, TokenType.PLUS, TokenType.MINUS),
+    MULTIPLICATIVE(ASTMultiplicativeExpression.class, ASTMultiplicativeExpression::new, true, true, TokenType.STAR, TokenType.SLASH,
+            TokenType.PERCENT),
+    CAST(ASTCastExpression.class, ASTCastExpression::new, true, false, TokenType.AS);
+
+    private static final OperatorPrecedence[] LEVELS = values();
+    private static final OperatorPrecedence[] BY_TOKEN_TYPE = new OperatorPrecedence[TokenType.values().length];
+
+    static
+    {
+        for (OperatorPrecedence level : LEVELS)
+        {
+            for (TokenType operator : level.myOperators)
+            {
+                BY_TOKEN_TYPE[operator.ordinal()] = level;
+            }
+        }
+    }
+
+    private Class<? extends ASTParentNode> myNodeClass;
+    private BiFunction<Location, List<ASTNode>, ? extends ASTParentNode> myNodeSupplier;
+    private boolean amAssociative;
+    private boolean amOperandRequired;
+    private TokenType[] myOperators;
+
+    /**
+     * Constructs an <code>OperatorPrecedence</code>.
+     * @param nodeClass The class of the node for an operator at this level.
+     * @param nodeSupplier Creates the node for an operator at this level,
+     *     given a <code>Location</code> and the two operands.
+     * @param associative Whether operators at this level are associative with
+     *     each other.
+     * @param operandRequired Whether an operator at this level is only
+     *     accepted if the token after it can start a Primary.
+     * @param operators The operators at this level.
+     */
+    OperatorPrecedence(Class<? extends ASTParentNode> nodeClass,
+                       BiFunction<Location, List<ASTNode>, ? extends ASTParentNode> nodeSupplier,
+                       boolean associative, boolean operandRequired, TokenType... operators)
+    {
+        myNodeClass = nodeClass;
+        myNodeSupplier = nodeSupplier;
+        amAssociative = associative;
+        amOperandRequired = operandRequired;
+        myOperators = operators;
+    }
+
+    /**
+     * Returns the level of the given binary operator.
+     * @param operator A <code>TokenType</code>.
+     * @return The level of the operator, or <code>null</code> if it isn't a
+     *     binary operator.
+     */
+    static OperatorPrecedence of(TokenType operator)
+    {
+        return BY_TOKEN_TYPE[operator.ordinal()];
+    }
+
+    /**
+     * Returns the level that built the given node.
+     * @param node An <code>ASTNode</code>.
+     * @return The level whose node has the class of the given node, or
+     *     <code>null</code> if there is none.
+     */
+    static OperatorPrecedence ofNode(ASTNode node)
+    {
+        for (OperatorPrecedence level : LEVELS)
+        {
+            if (level.myNodeClass == node.getClass())
+            {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the level with the given ordinal.
+     * @param ordinal The ordinal.
+     * @return The level.
+     */
+    static OperatorPrecedence ofOrdinal(int ordinal)
+    {
+        return LEVELS[ordinal];
+    }
+
+    /**
+     * Returns the number of levels.
+     * @return The number of levels.
+     */
+    static int count()
+    {
+        return LEVELS.length;
+    }
+
+    /**
+     * Returns the next higher level.
+     * @return The next higher level, or <code>null</code> if this is the
+     *     highest.
+     */
+    OperatorPrecedence higher()
+    {
+        int next = ordinal() + 1;
+        return next < LEVELS.length ? LEVELS[next] : null;
+    }
+
+    /**
+     * Returns whether operators at this level are associative with each other.
+     * @return Whether operators at this level are associative with each other.
+     */
+    boolean isAssociative()
+    {
+        return amAssociative;
+    }
+
+    /**
+     * Returns whether an operator at this level is only accepted if the token
+     * after it can start a Primary.
+     * @return Whether the token after the operator must start a Primary.
+     */
+    boolean isOperandRequired()
+    {
+        return amOperandRequired;
+    }
+
+    /**
+     * Creates the node for an operator at this level.
+     * @param loc The <code>Location</code> of the left operand.
+     * @param children The two operands.
+     * @param operator The operator.
+     * @return The node.
+     */
+    ASTParentNode createNode(Location loc, List<ASTNode> children, TokenType operator)
+    {
+        ASTParentNode node = myNodeSupplier.apply(loc, children);
+        node.setOperation(operator);
+        return node;
+    }
+
+    /**
+     * Creates the node for this level that has only the given operand and no
+     * operator, as a full tree has between lower and higher levels.
+     * @param loc The <code>Location</code> of the operand.
+     * @param operand The operand.
+     * @return The node.
+     */
+    ASTParentNode createWrapper(Location loc, ASTNode operand)
+    {
+        List<ASTNode> children = new ArrayList<>(1);
+        children.add(operand);
+        return myNodeSupplier.apply(loc, children);
+    }
+}
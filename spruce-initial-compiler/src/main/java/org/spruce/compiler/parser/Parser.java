@@ -1,18 +1,22 @@
 package org.spruce.compiler.parser;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.spruce.compiler.ast.*;
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.diagnostic.DiagnosticSink;
 import org.spruce.compiler.exception.CompileException;
 import org.spruce.compiler.scanner.Location;
-import org.spruce.compiler.scanner.Scanner;
 import org.spruce.compiler.scanner.Token;
+import org.spruce.compiler.scanner.TokenStream;
 import org.spruce.compiler.scanner.TokenType;
 
 import static org.spruce.compiler.scanner.TokenType.*;
@@ -22,18 +26,103 @@ import static org.spruce.compiler.scanner.TokenType.*;
  */
 public class Parser
 {
-    private Scanner myScanner;
+    private TokenStream myTokens;
+    private boolean amCollapsing;
+    private boolean amRecovering;
+    private List<CompileException> myErrors;
+    private DiagnosticSink mySink;
+    // The last error thrown by myTokens, which is never recovered from.
+    private CompileException myStreamError;
 
     /**
-     * Constructs a <code>Parser</code> using a <code>Scanner</code>.
-     * @param scanner A <code>Scanner</code>.
+     * Constructs a <code>Parser</code> using a <code>TokenStream</code>, such
+     * as a <code>Scanner</code>.  It builds full, uncollapsed trees.
+     * @param tokens A <code>TokenStream</code>.
      */
-    public Parser(Scanner scanner)
+    public Parser(TokenStream tokens)
     {
-        myScanner = scanner;
+        this(tokens, false);
+    }
+
+    /**
+     * Constructs a <code>Parser</code> using a <code>TokenStream</code>, such
+     * as a <code>Scanner</code>.  If <code>collapsing</code>, each parse
+     * method returns the tree that <code>collapse()</code> would make of its
+     * uncollapsed tree, and the single-child nodes that collapsing would
+     * remove from expressions are never created.
+     * @param tokens A <code>TokenStream</code>.
+     * @param collapsing Whether to build collapsed trees.
+     */
+    public Parser(TokenStream tokens, boolean collapsing)
+    {
+        myTokens = tokens;
+        amCollapsing = collapsing;
         advance();
     }
 
+    /**
+     * Returns whether this parser builds collapsed trees.
+     * @return Whether this parser builds collapsed trees.
+     */
+    public boolean isCollapsing()
+    {
+        return amCollapsing;
+    }
+
+    /**
+     * Sets whether this parser recovers from syntax errors in statements.
+     * When recovering, <code>parseStatement</code> records a syntax error
+     * instead of throwing it, skips to the end of the statement, and returns
+     * a statement holding an <code>ASTError</code>, so that one run reports
+     * every syntax error.  Errors thrown by the <code>TokenStream</code>
+     * itself, such as an unterminated string, are still thrown.
+     * @param recovering Whether to recover from syntax errors.
+     */
+    public void setRecovering(boolean recovering)
+    {
+        amRecovering = recovering;
+    }
+
+    /**
+     * Returns whether this parser recovers from syntax errors in statements.
+     * @return Whether this parser recovers from syntax errors in statements.
+     */
+    public boolean isRecovering()
+    {
+        return amRecovering;
+    }
+
+    /**
+     * Sets the <code>DiagnosticSink</code> that receives each syntax error as
+     * it is recovered from.
+     * @param sink The <code>DiagnosticSink</code>, or <code>null</code> for
+     *     none.
+     */
+    public void setDiagnosticSink(DiagnosticSink sink)
+    {
+        mySink = sink;
+    }
+
+    /**
+     * Returns the syntax errors recovered from so far, in order.  Each has a
+     * <code>Diagnostic</code> spanning the token at which it was found.
+     * @return An unmodifiable <code>List</code> of errors.
+     */
+    public List<CompileException> getErrors()
+    {
+        return (myErrors == null) ? Collections.emptyList() : Collections.unmodifiableList(myErrors);
+    }
+
+    /**
+     * Returns whether all of the tokens have been parsed, i.e. the current
+     * token is the end of the file.
+     * @return Whether the current token is the end of the file.
+     */
+    public boolean isAtEnd()
+    {
+        return test(curr(), EOF);
+    }
+
     /**
      * If the current token's type is the given type, then advance to the next
      * token, returning the original token.  If it doesn't match, don't advance,
@@ -45,7 +134,7 @@ public class Parser
     {
         if (test(curr(), tokenType))
         {
-            Token t = myScanner.getCurrToken();
+            Token t = myTokens.getCurrToken();
             advance();
             return t;
         }
@@ -53,21 +142,64 @@ public class Parser
     }
 
     /**
-     * Returns the current <code>Token</code> from the <code>Scanner</code>.
-     * @return The current <code>Token</code> from the <code>Scanner</code>.
+     * Returns the current <code>Token</code> from the <code>TokenStream</code>.
+     * @return The current <code>Token</code> from the <code>TokenStream</code>.
      */
     private Token curr()
     {
-        return myScanner.getCurrToken();
+        return myTokens.getCurrToken();
     }
 
     /**
-     * Returns the next <code>Token</code> from the <code>Scanner</code>.
-     * @return The next <code>Token</code> from the <code>Scanner</code>.
+     * Returns the next <code>Token</code> from the <code>TokenStream</code>.
+     * @return The next <code>Token</code> from the <code>TokenStream</code>.
      */
     private Token peek()
     {
-        return myScanner.peekNextToken();
+        try
+        {
+            return myTokens.peekNextToken();
+        }
+        catch (CompileException e)
+        {
+            myStreamError = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the type of the token <code>n</code> tokens ahead of the
+     * current token from the <code>TokenStream</code>.
+     * @param n How many tokens ahead of the current token to look.
+     * @return The type of that token.
+     */
+    private TokenType peek(int n)
+    {
+        try
+        {
+            return myTokens.peek(n);
+        }
+        catch (CompileException e)
+        {
+            myStreamError = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Looks past a dotted name, e.g. <code>a.b.c</code>, starting at the
+     * current token, without advancing.
+     * @return How many tokens ahead of the current token the first token
+     *     after the name is.
+     */
+    private int peekPastName()
+    {
+        int n = 1;
+        while (peek(n) == DOT && peek(n + 1) == IDENTIFIER)
+        {
+            n += 2;
+        }
+        return n;
     }
 
     /**
@@ -82,11 +214,58 @@ public class Parser
     }
 
     /**
-     * Advance the <code>Scanner</code> to the next token.
+     * Creates a <code>CompileException</code> for a syntax error at the
+     * current token.
+     * @param message The message.
+     * @return The <code>CompileException</code>, to be thrown.
+     */
+    private CompileException syntaxError(String message)
+    {
+        Token t = myTokens.getCurrToken();
+        return new CompileException(Diagnostic.error(Diagnostic.SYNTAX_ERROR, t.getLocation(), t.getLength(), message));
+    }
+
+    /**
+     * Advance the <code>TokenStream</code> to the next token.
      */
     private void advance()
     {
-        myScanner.next();
+        try
+        {
+            myTokens.next();
+        }
+        catch (CompileException e)
+        {
+            myStreamError = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Finishes a newly built node.  When collapsing, each child is replaced by
+     * its non-collapsible descendant, if the node is collapsible.  The
+     * children were finished the same way when they were built, so this never
+     * looks further down than the single-child chain below each child.
+     * @param node A newly built node, with all of its children.
+     * @param <T> The type of node.
+     * @return The node.
+     */
+    private <T extends ASTParentNode> T built(T node)
+    {
+        if (amCollapsing && node.isCollapsible())
+        {
+            List<ASTNode> children = node.getChildren();
+            for (int i = 0; i < children.size(); i++)
+            {
+                ASTNode child = children.get(i);
+                ASTNode descendant = ASTParentNode.findNonCollapsibleDescendant(child);
+                if (descendant != child)
+                {
+                    children.set(i, descendant);
+                }
+            }
+        }
+        return node;
     }
 
     /**
@@ -170,35 +349,101 @@ public class Parser
     //**************************************
 
     /**
-     * Parses an <code>ASTStatement</code>.
+     * Parses an <code>ASTStatement</code>.  When recovering, a syntax error
+     * yields a statement holding an <code>ASTError</code>, after skipping
+     * past the next semicolon, or up to the next closing brace.
      * @return An <code>ASTStatement</code>.
      */
     public ASTStatement parseStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        if (!amRecovering)
+        {
+            return parseStatementOrThrow();
+        }
+        Token start = curr();
+        try
+        {
+            return parseStatementOrThrow();
+        }
+        catch (CompileException e)
+        {
+            if (e == myStreamError)
+            {
+                throw e;
+            }
+            Diagnostic diagnostic = e.getDiagnostic();
+            if (myErrors == null)
+            {
+                myErrors = new ArrayList<>();
+            }
+            myErrors.add(e);
+            if (mySink != null)
+            {
+                mySink.report(diagnostic);
+            }
+            synchronize(start);
+            return new ASTStatement(start.getLocation(),
+                    Arrays.asList(new ASTError(diagnostic.getLocation(), diagnostic.getMessage())));
+        }
+    }
+
+    /**
+     * Skips tokens after a syntax error, past the next semicolon, or up to
+     * the next closing brace or the end of the file.  A closing brace that
+     * starts the statement is skipped, so that parsing always moves forward.
+     * @param start The first token of the statement.
+     */
+    private void synchronize(Token start)
+    {
+        while (!isAtEnd())
+        {
+            switch(curr().getType())
+            {
+            case SEMICOLON:
+                advance();
+                return;
+            case CLOSE_BRACE:
+                if (curr() == start)
+                {
+                    advance();
+                }
+                return;
+            default:
+                advance();
+            }
+        }
+    }
+
+    /**
+     * Parses an <code>ASTStatement</code>, throwing any syntax error.
+     * @return An <code>ASTStatement</code>.
+     */
+    private ASTStatement parseStatementOrThrow()
+    {
+        Location loc = myTokens.getCurrToken().getLocation();
         switch(curr().getType())
         {
         case RETURN:
             ASTReturnStatement retnStmt = parseReturnStatement();
-            return new ASTStatement(loc, Arrays.asList(retnStmt));
+            return built(new ASTStatement(loc, Arrays.asList(retnStmt)));
         case THROW:
             ASTThrowStatement throwStmt = parseThrowStatement();
-            return new ASTStatement(loc, Arrays.asList(throwStmt));
+            return built(new ASTStatement(loc, Arrays.asList(throwStmt)));
         case BREAK:
             ASTBreakStatement breakStmt = parseBreakStatement();
-            return new ASTStatement(loc, Arrays.asList(breakStmt));
+            return built(new ASTStatement(loc, Arrays.asList(breakStmt)));
         case CONTINUE:
             ASTContinueStatement contStmt = parseContinueStatement();
-            return new ASTStatement(loc, Arrays.asList(contStmt));
+            return built(new ASTStatement(loc, Arrays.asList(contStmt)));
         case FALLTHROUGH:
             ASTFallthroughStatement ftStmt = parseFallthroughStatement();
-            return new ASTStatement(loc, Arrays.asList(ftStmt));
+            return built(new ASTStatement(loc, Arrays.asList(ftStmt)));
         case ASSERT:
             ASTAssertStatement assertStmt = parseAssertStatement();
-            return new ASTStatement(loc, Arrays.asList(assertStmt));
+            return built(new ASTStatement(loc, Arrays.asList(assertStmt)));
         default:
             ASTExpressionStatement exprStmt = parseExpressionStatement();
-            return new ASTStatement(loc, Arrays.asList(exprStmt));
+            return built(new ASTStatement(loc, Arrays.asList(exprStmt)));
         }
     }
 
@@ -208,18 +453,18 @@ public class Parser
      */
     public ASTThrowStatement parseThrowStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(THROW) == null)
         {
-            throw new CompileException("Expected throw.");
+            throw syntaxError("Expected throw.");
         }
         List<ASTNode> children = new ArrayList<>(1);
         children.add(parseExpression());
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
-        ASTThrowStatement node = new ASTThrowStatement(loc, children);
+        ASTThrowStatement node = built(new ASTThrowStatement(loc, children));
         node.setOperation(THROW);
         return node;
     }
@@ -230,10 +475,10 @@ public class Parser
      */
     public ASTReturnStatement parseReturnStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(RETURN) == null)
         {
-            throw new CompileException("Expected return.");
+            throw syntaxError("Expected return.");
         }
         List<ASTNode> children = new ArrayList<>(1);
         if (!test(curr(), SEMICOLON))
@@ -242,9 +487,9 @@ public class Parser
         }
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
-        ASTReturnStatement node = new ASTReturnStatement(loc, children);
+        ASTReturnStatement node = built(new ASTReturnStatement(loc, children));
         node.setOperation(RETURN);
         return node;
     }
@@ -255,14 +500,14 @@ public class Parser
      */
     public ASTBreakStatement parseBreakStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(BREAK) == null)
         {
-            throw new CompileException("Expected break.");
+            throw syntaxError("Expected break.");
         }
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
         ASTBreakStatement node = new ASTBreakStatement(loc, Collections.emptyList());
         node.setOperation(BREAK);
@@ -275,14 +520,14 @@ public class Parser
      */
     public ASTContinueStatement parseContinueStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(CONTINUE) == null)
         {
-            throw new CompileException("Expected continue.");
+            throw syntaxError("Expected continue.");
         }
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
         ASTContinueStatement node = new ASTContinueStatement(loc, Collections.emptyList());
         node.setOperation(CONTINUE);
@@ -295,14 +540,14 @@ public class Parser
      */
     public ASTFallthroughStatement parseFallthroughStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(FALLTHROUGH) == null)
         {
-            throw new CompileException("Expected fallthrough.");
+            throw syntaxError("Expected fallthrough.");
         }
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
         ASTFallthroughStatement node = new ASTFallthroughStatement(loc, Collections.emptyList());
         node.setOperation(FALLTHROUGH);
@@ -315,10 +560,10 @@ public class Parser
      */
     public ASTAssertStatement parseAssertStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(ASSERT) == null)
         {
-            throw new CompileException("Expected assert.");
+            throw syntaxError("Expected assert.");
         }
         List<ASTNode> children = new ArrayList<>(2);
         children.add(parseExpression());
@@ -329,9 +574,9 @@ public class Parser
         }
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Missing semicolon.");
+            throw syntaxError("Missing semicolon.");
         }
-        ASTAssertStatement node = new ASTAssertStatement(loc, children);
+        ASTAssertStatement node = built(new ASTAssertStatement(loc, children));
         node.setOperation(ASSERT);
         return node;
     }
@@ -342,14 +587,14 @@ public class Parser
      */
     public ASTExpressionStatement parseExpressionStatement()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
 
-        ASTStatementExpression stmtExpr = parseStatementExpression();
+        ASTNode stmtExpr = parseStatementExpressionNode();
         if (accept(SEMICOLON) == null)
         {
-            throw new CompileException("Semicolon expected.");
+            throw syntaxError("Semicolon expected.");
         }
-        ASTExpressionStatement exprStmt = new ASTExpressionStatement(loc, Arrays.asList(stmtExpr));
+        ASTExpressionStatement exprStmt = built(new ASTExpressionStatement(loc, Arrays.asList(stmtExpr)));
         exprStmt.setOperation(SEMICOLON);
         return exprStmt;
     }
@@ -360,39 +605,73 @@ public class Parser
      */
     public ASTStatementExpression parseStatementExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
+        ASTNode node = parseStatementExpressionNode();
+        return amCollapsing ? new ASTStatementExpression(loc, Arrays.asList(node)) : (ASTStatementExpression) node;
+    }
+
+    /**
+     * Parses a statement expression.  When collapsing, the
+     * <code>ASTStatementExpression</code> would only be dropped by its
+     * parent, so it isn't created, and what it collapses to is returned.
+     * @return An <code>ASTStatementExpression</code>, or when collapsing,
+     *     what it collapses to.
+     */
+    private ASTNode parseStatementExpressionNode()
+    {
+        Location loc = myTokens.getCurrToken().getLocation();
         if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
         {
             ASTPrefixExpression prefixExpression = parsePrefixExpression();
-            return new ASTStatementExpression(loc, Arrays.asList(prefixExpression));
+            return statementExpression(loc, prefixExpression);
         }
         if (isPrimary(curr()))
         {
-            ASTPrimary primary = parsePrimary();
+            ASTNode primary = parsePrimaryNode();
             if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
             {
-                return new ASTStatementExpression(loc, Arrays.asList(parsePostfixExpression(loc, primary.getLeftHandSide())));
+                return statementExpression(loc, parsePostfixExpression(loc, leftHandSide(loc, primary)));
             }
             else
             {
                 // Primary may already be a method invocation or class instance creation expression.
-                // If so, retrieve and use it.
-                ASTNode child = primary.getChildren().get(0);
-                if (child instanceof ASTMethodInvocation || child instanceof ASTClassInstanceCreationExpression)
+                // If so, retrieve and use it.  When collapsing, the primary
+                // has already been replaced by it, and an unqualified one has
+                // already replaced its class instance creation expression.
+                ASTNode child = (primary instanceof ASTPrimary) ? ((ASTPrimary) primary).getChildren().get(0) : primary;
+                if (child instanceof ASTMethodInvocation || child instanceof ASTClassInstanceCreationExpression
+                        || child instanceof ASTUnqualifiedClassInstanceCreationExpression)
                 {
-                    return new ASTStatementExpression(loc, Arrays.asList(child));
+                    return statementExpression(loc, child);
                 }
                 else
                 {
                     // Assume assignment.
-                    return new ASTStatementExpression(loc, Arrays.asList(parseAssignment(loc, primary.getLeftHandSide())));
+                    return statementExpression(loc, parseAssignment(loc, leftHandSide(loc, primary)));
                 }
             }
         }
         else
         {
-            throw new CompileException("Expected assignment, post/pre increment/decrement, or method invocation.");
+            throw syntaxError("Expected assignment, post/pre increment/decrement, or method invocation.");
+        }
+    }
+
+    /**
+     * Makes an <code>ASTStatementExpression</code> of the given child, or when
+     * collapsing, returns what it would collapse to without creating it.
+     * @param loc The <code>Location</code>.
+     * @param child The child, already built.
+     * @return The <code>ASTStatementExpression</code>, or what it collapses
+     *     to.
+     */
+    private ASTNode statementExpression(Location loc, ASTNode child)
+    {
+        if (amCollapsing)
+        {
+            return ASTParentNode.findNonCollapsibleDescendant(child);
         }
+        return new ASTStatementExpression(loc, Arrays.asList(child));
     }
 
     //**************************************
@@ -416,29 +695,25 @@ public class Parser
     }
 
     /**
-     * Parses an <code>ASTTypeArguments</code>.  This sets the type context in
-     * the <code>Scanner</code> for the duration parsing this node.
+     * Parses an <code>ASTTypeArguments</code>.  Each <code>&gt;</code> is its
+     * own token, so nested type arguments can each be closed.
      * @return An <code>ASTTypeArguments</code>.
      */
     public ASTTypeArguments parseTypeArguments()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
-        // TODO: Move this higher up in the parsing, to prevent nested type
-        // arguments from turning this off too early.
-        myScanner.setInTypeContext(true);
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(LESS_THAN) != null)
         {
             ASTTypeArgumentList typeArgList = parseTypeArgumentList();
             if (accept(GREATER_THAN) == null)
             {
-                throw new CompileException("Expected \">\".");
+                throw syntaxError("Expected \">\".");
             }
-            myScanner.setInTypeContext(false);
-            return new ASTTypeArguments(loc, Arrays.asList(typeArgList));
+            return built(new ASTTypeArguments(loc, Arrays.asList(typeArgList)));
         }
         else
         {
-            throw new CompileException("Expected \"<\".");
+            throw syntaxError("Expected \"<\".");
         }
     }
 
@@ -464,20 +739,20 @@ public class Parser
      */
     public ASTTypeArgument parseTypeArgument()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (test(curr(), QUESTION_MARK))
         {
             ASTWildcard wildcard = parseWildcard();
-            return new ASTTypeArgument(loc, Arrays.asList(wildcard));
+            return built(new ASTTypeArgument(loc, Arrays.asList(wildcard)));
         }
         else if (test(curr(), IDENTIFIER))
         {
             ASTDataType dt = parseDataType();
-            return new ASTTypeArgument(loc, Arrays.asList(dt));
+            return built(new ASTTypeArgument(loc, Arrays.asList(dt)));
         }
         else
         {
-            throw new CompileException("Expected wildcard or data type.");
+            throw syntaxError("Expected wildcard or data type.");
         }
     }
 
@@ -487,10 +762,10 @@ public class Parser
      */
     public ASTWildcard parseWildcard()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(QUESTION_MARK) == null)
         {
-            throw new CompileException("Wildcard expected.");
+            throw syntaxError("Wildcard expected.");
         }
         ASTWildcard node = new ASTWildcard(loc, new ArrayList<>(1));
         if (test(curr(), SUBTYPE) || test(curr(), SUPERTYPE))
@@ -498,7 +773,7 @@ public class Parser
             ASTWildcardBounds wb = parseWildcardBounds();
             node.getChildren().add(wb);
         }
-        return node;
+        return built(node);
     }
 
     /**
@@ -507,7 +782,7 @@ public class Parser
      */
     public ASTWildcardBounds parseWildcardBounds()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         TokenType curr;
         if (test(curr(), SUBTYPE))
         {
@@ -521,9 +796,9 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected \"<:\" or \":>\".");
+            throw syntaxError("Expected \"<:\" or \":>\".");
         }
-        ASTWildcardBounds node = new ASTWildcardBounds(loc, Arrays.asList(parseDataType()));
+        ASTWildcardBounds node = built(new ASTWildcardBounds(loc, Arrays.asList(parseDataType())));
         node.setOperation(curr);
         return node;
     }
@@ -538,7 +813,11 @@ public class Parser
      */
     public ASTExpression parseExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        if (amCollapsing)
+        {
+            return parseCollapsedExpression();
+        }
+        Location loc = myTokens.getCurrToken().getLocation();
         if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
         {
             ASTPrefixExpression prefixExpr = parsePrefixExpression();
@@ -549,7 +828,7 @@ public class Parser
             ASTExpressionNoIncrDecr exprNoIncrDecr = parseExpressionNoIncrDecr();
             if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
             {
-                return new ASTExpression(loc, Arrays.asList(parsePostfixExpression(loc, exprNoIncrDecr.getLeftHandSide())));
+                return new ASTExpression(loc, Arrays.asList(parsePostfixExpression(loc, convertLeftHandSide(exprNoIncrDecr::getLeftHandSide))));
             }
             else
             {
@@ -558,7 +837,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected primary, identifier, ++, or --");
+            throw syntaxError("Expected primary, identifier, ++, or --");
         }
     }
 
@@ -568,9 +847,8 @@ public class Parser
      */
     public ASTExpressionNoIncrDecr parseExpressionNoIncrDecr()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
-        ASTAssignmentExpression assignExpr = parseAssignmentExpression();
-        return new ASTExpressionNoIncrDecr(loc, Arrays.asList(assignExpr));
+        Location loc = myTokens.getCurrToken().getLocation();
+        return new ASTExpressionNoIncrDecr(loc, Arrays.asList(climbAssignmentExpression()));
     }
 
     /**
@@ -580,40 +858,12 @@ public class Parser
      */
     public ASTAssignmentExpression parseAssignmentExpression()
     {
-        if (isPrimary(curr()))
-        {
-            Token curr = myScanner.getCurrToken();
-            Location loc = curr.getLocation();
-            List<ASTNode> children = new ArrayList<>(2);
-            ASTConditionalExpression condExpr = parseConditionalExpression();
-
-            TokenType currToken = myScanner.getCurrToken().getType();
-            switch(currToken)
-            {
-            case ASSIGNMENT:
-            case PLUS_EQUALS:
-            case MINUS_EQUALS:
-            case STAR_EQUALS:
-            case SLASH_EQUALS:
-            case PERCENT_EQUALS:
-            case SHIFT_LEFT_EQUALS:
-            case SHIFT_RIGHT_EQUALS:
-            case UNSIGNED_SHIFT_RIGHT_EQUALS:
-            case AND_EQUALS:
-            case OR_EQUALS:
-            case XOR_EQUALS:
-                ASTAssignment assignment = parseAssignment(loc,
-                        condExpr.getLeftHandSide());
-                return new ASTAssignmentExpression(loc, Arrays.asList(assignment));
-            default:
-                children.add(condExpr);
-                return new ASTAssignmentExpression(loc, children);
-            }
-        }
-        else
+        if (amCollapsing)
         {
-            throw new CompileException("Expected a variable name or element access.");
+            Location loc = myTokens.getCurrToken().getLocation();
+            return new ASTAssignmentExpression(loc, Arrays.asList(climbAssignmentExpression()));
         }
+        return (ASTAssignmentExpression) climbAssignmentExpression();
     }
 
     /**
@@ -625,7 +875,7 @@ public class Parser
      */
     public ASTAssignment parseAssignment(Location loc, ASTLeftHandSide lhs)
     {
-        TokenType currToken = myScanner.getCurrToken().getType();
+        TokenType currToken = operator();
         switch(currToken)
         {
         case ASSIGNMENT:
@@ -642,13 +892,13 @@ public class Parser
         case XOR_EQUALS:
             List<ASTNode> children = new ArrayList<>(2);
             children.add(lhs);
-            accept(currToken);
-            children.add(parseAssignmentExpression());
-            ASTAssignment node = new ASTAssignment(loc, children);
+            acceptOperator(currToken);
+            children.add(amCollapsing ? climbAssignmentExpression() : parseAssignmentExpression());
+            ASTAssignment node = built(new ASTAssignment(loc, children));
             node.setOperation(currToken);
             return node;
         default:
-            throw new CompileException("Expected assignment operator.");
+            throw syntaxError("Expected assignment operator.");
         }
     }
 
@@ -660,21 +910,21 @@ public class Parser
     {
         if (test(curr(), INCREMENT))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             accept(INCREMENT);
             ASTLeftHandSide lhs = parseLeftHandSide();
-            return new ASTPrefixExpression(loc, lhs, INCREMENT);
+            return built(new ASTPrefixExpression(loc, lhs, INCREMENT));
         }
         else if (test(curr(), DECREMENT))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             accept(DECREMENT);
             ASTLeftHandSide lhs = parseLeftHandSide();
-            return new ASTPrefixExpression(loc, lhs, DECREMENT);
+            return built(new ASTPrefixExpression(loc, lhs, DECREMENT));
         }
         else
         {
-            throw new CompileException("Operator ++ or -- expected.");
+            throw syntaxError("Operator ++ or -- expected.");
         }
     }
 
@@ -689,16 +939,16 @@ public class Parser
         if (test(curr(), INCREMENT))
         {
             accept(INCREMENT);
-            return new ASTPostfixExpression(loc, lhs, INCREMENT);
+            return built(new ASTPostfixExpression(loc, lhs, INCREMENT));
         }
         else if (test(curr(), DECREMENT))
         {
             accept(DECREMENT);
-            return new ASTPostfixExpression(loc, lhs, DECREMENT);
+            return built(new ASTPostfixExpression(loc, lhs, DECREMENT));
         }
         else
         {
-            throw new CompileException("Operator ++ or -- expected.");
+            throw syntaxError("Operator ++ or -- expected.");
         }
     }
 
@@ -710,20 +960,20 @@ public class Parser
     {
         if (isPrimary(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
-            ASTPrimary primary = parsePrimary();
+            Location loc = myTokens.getCurrToken().getLocation();
+            ASTNode primary = parsePrimaryNode();
             if (test(curr(), OPEN_BRACKET))
             {
-                return new ASTLeftHandSide(loc, Arrays.asList(parseElementAccess(loc, primary)));
+                return built(new ASTLeftHandSide(loc, Arrays.asList(parseElementAccess(loc, primary))));
             }
             else
             {
-                return primary.getLeftHandSide();
+                return leftHandSide(loc, primary);
             }
         }
         else
         {
-            throw new CompileException("Element access or identifier expected.");
+            throw syntaxError("Element access or identifier expected.");
         }
     }
 
@@ -736,7 +986,7 @@ public class Parser
     {
         if (isPrimary(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(3);
             children.add(parseLogicalOrExpression());
             ASTConditionalExpression node = new ASTConditionalExpression(loc, children);
@@ -754,14 +1004,14 @@ public class Parser
                 }
                 else
                 {
-                    throw new CompileException("Expected colon.");
+                    throw syntaxError("Expected colon.");
                 }
             }
-            return node;
+            return built(node);
         }
         else
         {
-            throw new CompileException("Expected a literal or expression name.");
+            throw syntaxError("Expected a literal or expression name.");
         }
     }
 
@@ -822,15 +1072,15 @@ public class Parser
     {
         if (isPrimary(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(2);
             children.add(parseCompareExpression());
-            ASTRelationalExpression node = new ASTRelationalExpression(loc, children);
+            ASTRelationalExpression node = built(new ASTRelationalExpression(loc, children));
 
             TokenType curr;
             while ( (curr = isAcceptedOperator(Arrays.asList(LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL, EQUAL, NOT_EQUAL, INSTANCEOF, IS)) ) != null)
             {
-                accept(curr);
+                acceptOperator(curr);
                 children = new ArrayList<>(2);
                 children.add(node);
                 if (curr == INSTANCEOF)
@@ -841,14 +1091,14 @@ public class Parser
                 {
                     children.add(parseCompareExpression());
                 }
-                node = new ASTRelationalExpression(loc, children);
+                node = built(new ASTRelationalExpression(loc, children));
                 node.setOperation(curr);
             }
             return node;
         }
         else
         {
-            throw new CompileException("Expected a literal or expression name.");
+            throw syntaxError("Expected a literal or expression name.");
         }
     }
 
@@ -861,7 +1111,7 @@ public class Parser
     {
         if (isPrimary(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(2);
             children.add(parseBitwiseOrExpression());
             ASTCompareExpression node = new ASTCompareExpression(loc, children);
@@ -872,11 +1122,11 @@ public class Parser
                 children.add(parseBitwiseOrExpression());
                 node.setOperation(COMPARISON);
             }
-            return node;
+            return built(node);
         }
         else
         {
-            throw new CompileException("Expected a literal or expression name.");
+            throw syntaxError("Expected a literal or expression name.");
         }
     }
 
@@ -985,7 +1235,7 @@ public class Parser
     {
         if (isPrimary(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(2);
             children.add(parseUnaryExpression());
             ASTCastExpression node = new ASTCastExpression(loc, children);
@@ -1001,17 +1251,17 @@ public class Parser
                 else
                 {
                     List<ASTNode> siblings = new ArrayList<>(2);
-                    siblings.add(node);
+                    siblings.add(built(node));
                     siblings.add(parseIntersectionType());
                     node = new ASTCastExpression(loc, siblings);
                     node.setOperation(AS);
                 }
             }
-            return node;
+            return built(node);
         }
         else
         {
-            throw new CompileException("Expected a literal or expression name.");
+            throw syntaxError("Expected a literal or expression name.");
         }
     }
 
@@ -1021,25 +1271,530 @@ public class Parser
      */
     public ASTUnaryExpression parseUnaryExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (test(curr(), LOGICAL_COMPLEMENT))
         {
             accept(LOGICAL_COMPLEMENT);
-            return new ASTUnaryExpression(loc, parseUnaryExpression(), LOGICAL_COMPLEMENT);
+            return built(new ASTUnaryExpression(loc, parseUnaryExpression(), LOGICAL_COMPLEMENT));
         }
         else if (test(curr(), BITWISE_COMPLEMENT))
         {
             accept(BITWISE_COMPLEMENT);
-            return new ASTUnaryExpression(loc, parseUnaryExpression(), BITWISE_COMPLEMENT);
+            return built(new ASTUnaryExpression(loc, parseUnaryExpression(), BITWISE_COMPLEMENT));
         }
         else if (test(curr(), MINUS))
         {
             accept(MINUS);
-            return new ASTUnaryExpression(loc, parseUnaryExpression(), MINUS);
+            return built(new ASTUnaryExpression(loc, parseUnaryExpression(), MINUS));
+        }
+        else
+        {
+            return built(new ASTUnaryExpression(loc, parsePrimary()));
+        }
+    }
+
+    //**************************************
+    // COLLAPSED EXPRESSIONS
+    //**************************************
+
+    /**
+     * <p>Parses an <code>ASTExpression</code> that is already collapsed: the
+     * result is the same as that of <code>parseExpression()</code> followed
+     * by <code>collapse()</code>, but the single-child nodes that collapsing
+     * would remove are never created.</p>
+     *
+     * <p>Binary operators are parsed by precedence climbing over the levels
+     * in <code>OperatorPrecedence</code>, instead of by one method per level;
+     * a chain of operators at the same level is parsed in a loop, and
+     * parenthesized operands are parsed from an explicit stack, so that
+     * nesting depth is limited by the heap, not the call stack.  While this
+     * runs, expressions nested in primaries, such as arguments and indexes,
+     * are parsed collapsed too.  A collapsing <code>Parser</code> parses
+     * every expression this way.</p>
+     * @return An <code>ASTExpression</code> whose child is already collapsed.
+     */
+    public ASTExpression parseCollapsedExpression()
+    {
+        boolean wasCollapsing = amCollapsing;
+        amCollapsing = true;
+        try
+        {
+            Location loc = myTokens.getCurrToken().getLocation();
+            ASTNode child;
+            if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
+            {
+                child = ASTParentNode.findNonCollapsibleDescendant(parsePrefixExpression());
+            }
+            else if (isPrimary(curr()))
+            {
+                child = climbAssignmentExpression();
+                if (test(curr(), INCREMENT) || test(curr(), DECREMENT))
+                {
+                    ASTPostfixExpression postfix = parsePostfixExpression(loc, toLeftHandSide(loc, child));
+                    child = ASTParentNode.findNonCollapsibleDescendant(postfix);
+                }
+            }
+            else
+            {
+                throw syntaxError("Expected primary, identifier, ++, or --");
+            }
+            return new ASTExpression(loc, Arrays.asList(child));
+        }
+        finally
+        {
+            amCollapsing = wasCollapsing;
+        }
+    }
+
+    /**
+     * <p>Parses an assignment expression by precedence climbing.  When
+     * collapsing, the result is collapsed; otherwise it is the full
+     * <code>ASTAssignmentExpression</code>, with every single-child node that
+     * descending through one method per level would create.</p>
+     *
+     * <p>Nothing here recurses on the call stack: each level being parsed is
+     * a <code>ClimbFrame</code> on an explicit stack, so that operands nested
+     * in parentheses, and chains of assignments and conditionals, can nest as
+     * deeply as the heap allows.  Each step of a frame either finishes it or
+     * pushes the frame for an operand, which gets the operand's node when it
+     * finishes.</p>
+     * @return The node.
+     */
+    private ASTNode climbAssignmentExpression()
+    {
+        Deque<ClimbFrame> stack = new ArrayDeque<>();
+        stack.push(new ClimbFrame(ClimbFrame.ASSIGNMENT, null));
+        ASTNode operand = null;
+        while (!stack.isEmpty())
+        {
+            ClimbFrame frame = stack.peek();
+            ClimbFrame next;
+            switch(frame.myKind)
+            {
+            case ClimbFrame.ASSIGNMENT:
+                next = climbAssignment(frame, operand);
+                break;
+            case ClimbFrame.CONDITIONAL:
+                next = climbConditional(frame, operand);
+                break;
+            case ClimbFrame.BINARY:
+                next = climbBinary(frame, operand);
+                break;
+            default:
+                next = climbUnary(frame, operand);
+                break;
+            }
+            if (next != null)
+            {
+                stack.push(next);
+            }
+            else
+            {
+                stack.pop();
+                operand = frame.myNode;
+            }
+        }
+        return amCollapsing ? operand : expanded(operand);
+    }
+
+    /**
+     * Takes a step in parsing an assignment expression; assignments are
+     * right-associative with each other.
+     * @param frame The frame of the assignment expression.
+     * @param operand The node of the operand that just finished, if any.
+     * @return The frame of the next operand, or <code>null</code> if the
+     *     assignment expression is done.
+     */
+    private ClimbFrame climbAssignment(ClimbFrame frame, ASTNode operand)
+    {
+        switch(frame.myState)
+        {
+        case 0:
+            if (!isPrimary(curr()))
+            {
+                throw syntaxError("Expected a variable name or element access.");
+            }
+            frame.myLoc = myTokens.getCurrToken().getLocation();
+            frame.myState = 1;
+            return new ClimbFrame(ClimbFrame.CONDITIONAL, null);
+        case 1:
+            TokenType currToken = operator();
+            switch(currToken)
+            {
+            case ASSIGNMENT:
+            case PLUS_EQUALS:
+            case MINUS_EQUALS:
+            case STAR_EQUALS:
+            case SLASH_EQUALS:
+            case PERCENT_EQUALS:
+            case SHIFT_LEFT_EQUALS:
+            case SHIFT_RIGHT_EQUALS:
+            case UNSIGNED_SHIFT_RIGHT_EQUALS:
+            case AND_EQUALS:
+            case OR_EQUALS:
+            case XOR_EQUALS:
+                ASTNode lhs = amCollapsing ? toLeftHandSide(frame.myLoc, operand).getChildren().get(0)
+                        : leftHandSide(frame.myLoc, operand);
+                acceptOperator(currToken);
+                frame.myChildren = new ArrayList<>(2);
+                frame.myChildren.add(lhs);
+                frame.myOperator = currToken;
+                frame.myState = 2;
+                return new ClimbFrame(ClimbFrame.ASSIGNMENT, null);
+            default:
+                frame.myNode = operand;
+                return null;
+            }
+        default:
+            frame.myChildren.add(operand);
+            ASTAssignment node = new ASTAssignment(frame.myLoc, frame.myChildren);
+            node.setOperation(frame.myOperator);
+            frame.myNode = node;
+            return null;
+        }
+    }
+
+    /**
+     * Takes a step in parsing a conditional expression; they are right-
+     * associative with each other.
+     * @param frame The frame of the conditional expression.
+     * @param operand The node of the operand that just finished, if any.
+     * @return The frame of the next operand, or <code>null</code> if the
+     *     conditional expression is done.
+     */
+    private ClimbFrame climbConditional(ClimbFrame frame, ASTNode operand)
+    {
+        switch(frame.myState)
+        {
+        case 0:
+            frame.myLoc = myTokens.getCurrToken().getLocation();
+            frame.myState = 1;
+            return new ClimbFrame(ClimbFrame.BINARY, OperatorPrecedence.LOGICAL_OR);
+        case 1:
+            if (accept(QUESTION_MARK) == null)
+            {
+                frame.myNode = operand;
+                return null;
+            }
+            frame.myChildren = new ArrayList<>(3);
+            frame.myChildren.add(operand);
+            frame.myState = 2;
+            return new ClimbFrame(ClimbFrame.BINARY, OperatorPrecedence.LOGICAL_OR);
+        case 2:
+            frame.myChildren.add(operand);
+            if (accept(COLON) == null)
+            {
+                throw syntaxError("Expected colon.");
+            }
+            frame.myState = 3;
+            return new ClimbFrame(ClimbFrame.CONDITIONAL, null);
+        default:
+            frame.myChildren.add(operand);
+            ASTConditionalExpression node = new ASTConditionalExpression(frame.myLoc, frame.myChildren);
+            node.setOperation(QUESTION_MARK);
+            frame.myNode = node;
+            return null;
+        }
+    }
+
+    /**
+     * Takes a step in parsing a binary expression whose operators are all at
+     * the frame's level or higher.  Operators at higher levels than the
+     * previous operator are parsed by climbing to those levels for the right
+     * operand.
+     * @param frame The frame of the binary expression.
+     * @param operand The node of the operand that just finished, if any.
+     * @return The frame of the next operand, or <code>null</code> if the
+     *     binary expression is done.
+     */
+    private ClimbFrame climbBinary(ClimbFrame frame, ASTNode operand)
+    {
+        switch(frame.myState)
+        {
+        case 0:
+            if (!isPrimary(curr()))
+            {
+                throw syntaxError("Expected a literal or expression name.");
+            }
+            frame.myLoc = myTokens.getCurrToken().getLocation();
+            switch(curr().getType())
+            {
+            case LOGICAL_COMPLEMENT:
+            case BITWISE_COMPLEMENT:
+            case MINUS:
+            case OPEN_PARENTHESIS:
+                frame.myState = 1;
+                return new ClimbFrame(ClimbFrame.UNARY, null);
+            default:
+                // Most operands are plain primaries; they need no frame.
+                frame.myNode = parsePrimaryNode();
+                break;
+            }
+            break;
+        case 1:
+            frame.myNode = operand;
+            break;
+        default:
+            frame.myNode = combined(frame, operand);
+            break;
+        }
+        while (true)
+        {
+            TokenType operator = operator();
+            OperatorPrecedence level = OperatorPrecedence.of(operator);
+            if (level == null || level.compareTo(frame.myMinLevel) < 0)
+            {
+                return null;
+            }
+            // A higher level than the previous operator's was already parsed
+            // into the right operand, unless it stopped at a non-associative
+            // operator.
+            OperatorPrecedence previous = frame.myPrevious;
+            if (previous != null && (level.compareTo(previous) > 0 || (level == previous && !level.isAssociative())))
+            {
+                return null;
+            }
+            if (level.isOperandRequired() && !isPrimary(peekPastOperator(operator)))
+            {
+                return null;
+            }
+            acceptOperator(operator);
+            frame.myOperator = operator;
+            if (operator == INSTANCEOF)
+            {
+                frame.myNode = combined(frame, parseDataType());
+            }
+            else if (operator == AS)
+            {
+                ASTIntersectionType type = parseIntersectionType();
+                frame.myNode = combined(frame, amCollapsing ? ASTParentNode.findNonCollapsibleDescendant(type) : type);
+            }
+            else
+            {
+                frame.myState = 2;
+                return new ClimbFrame(ClimbFrame.BINARY, level.higher());
+            }
+        }
+    }
+
+    /**
+     * Combines the frame's node so far with the given right operand, using the
+     * frame's operator.
+     * @param frame The frame of the binary expression.
+     * @param right The right operand.
+     * @return The node for the operator.
+     */
+    private static ASTNode combined(ClimbFrame frame, ASTNode right)
+    {
+        OperatorPrecedence level = OperatorPrecedence.of(frame.myOperator);
+        List<ASTNode> children = new ArrayList<>(2);
+        children.add(frame.myNode);
+        children.add(right);
+        frame.myPrevious = level;
+        return level.createNode(frame.myLoc, children, frame.myOperator);
+    }
+
+    /**
+     * Takes a step in parsing a unary expression.  Consecutive unary operators
+     * are parsed in a loop; a parenthesized operand is parsed in a frame of
+     * its own.
+     * @param frame The frame of the unary expression.
+     * @param operand The node of the parenthesized expression that just
+     *     finished, if any.
+     * @return The frame of the parenthesized expression, or <code>null</code>
+     *     if the unary expression is done.
+     */
+    private ClimbFrame climbUnary(ClimbFrame frame, ASTNode operand)
+    {
+        if (frame.myState == 0)
+        {
+            ASTUnaryExpression bottom = null;
+            TokenType operator;
+            while ( (operator = myTokens.getCurrToken().getType()) == LOGICAL_COMPLEMENT ||
+                    operator == BITWISE_COMPLEMENT || operator == MINUS)
+            {
+                Location loc = myTokens.getCurrToken().getLocation();
+                accept(operator);
+                ASTUnaryExpression node = new ASTUnaryExpression(loc, new ArrayList<>(1), operator);
+                if (bottom == null)
+                {
+                    frame.myNode = node;
+                }
+                else
+                {
+                    bottom.getChildren().add(node);
+                }
+                bottom = node;
+            }
+            frame.myBottom = bottom;
+            if (!test(curr(), OPEN_PARENTHESIS))
+            {
+                withOperand(frame, parsePrimaryNode());
+                return null;
+            }
+            frame.myLoc = myTokens.getCurrToken().getLocation();
+            accept(OPEN_PARENTHESIS);
+            frame.myInnerLoc = myTokens.getCurrToken().getLocation();
+            frame.myState = 1;
+            return new ClimbFrame(ClimbFrame.ASSIGNMENT, null);
+        }
+        if (accept(CLOSE_PARENTHESIS) == null)
+        {
+            throw syntaxError("Expected close parenthesis \")\".");
+        }
+        ASTNode expression = amCollapsing ? operand
+                : new ASTExpressionNoIncrDecr(frame.myInnerLoc, Arrays.asList(expanded(operand)));
+        ASTPrimary primary = new ASTPrimary(frame.myLoc, Arrays.asList(expression));
+        primary.setOperation(OPEN_PARENTHESIS);
+        withOperand(frame, parsePrimarySuffix(frame.myLoc, primary));
+        return null;
+    }
+
+    /**
+     * Gives the unary operators of the frame, if any, their operand.
+     * @param frame The frame of the unary expression.
+     * @param operand The operand.
+     */
+    private static void withOperand(ClimbFrame frame, ASTNode operand)
+    {
+        if (frame.myBottom == null)
+        {
+            frame.myNode = operand;
         }
         else
         {
-            return new ASTUnaryExpression(loc, parsePrimary());
+            frame.myBottom.getChildren().add(operand);
+        }
+    }
+
+    /**
+     * <p>Expands a node made by climbing into the full
+     * <code>ASTAssignmentExpression</code> that descending through one method
+     * per level makes: every operand gets the single-child nodes of the levels
+     * between it and its operator.  Those are exactly the nodes that
+     * <code>collapse()</code> removes.</p>
+     *
+     * <p>Only nodes made by climbing are expanded; primaries, including
+     * parenthesized ones, already are full.  The nodes are visited from an
+     * explicit stack.</p>
+     * @param node The node made by climbing.
+     * @return The <code>ASTAssignmentExpression</code>.
+     */
+    private static ASTNode expanded(ASTNode node)
+    {
+        List<ASTNode> root = new ArrayList<>(1);
+        root.add(node);
+        Deque<PendingExpansion> pending = new ArrayDeque<>();
+        pending.push(new PendingExpansion(root, 0, PendingExpansion.ASSIGNMENT_EXPRESSION));
+        while (!pending.isEmpty())
+        {
+            PendingExpansion expansion = pending.pop();
+            ASTNode child = expansion.myChildren.get(expansion.myIdx);
+            int level = PendingExpansion.levelOf(child);
+            ASTNode wrapped = child;
+            for (int l = level - 1; l >= expansion.myLevel; l--)
+            {
+                wrapped = PendingExpansion.wrapper(l, child.getLocation(), wrapped);
+            }
+            if (wrapped != child)
+            {
+                expansion.myChildren.set(expansion.myIdx, wrapped);
+            }
+            if (level == PendingExpansion.PRIMARY)
+            {
+                continue;
+            }
+            List<ASTNode> children = ((ASTParentNode) child).getChildren();
+            if (child instanceof ASTAssignment)
+            {
+                pending.push(new PendingExpansion(children, 1, PendingExpansion.ASSIGNMENT_EXPRESSION));
+            }
+            else if (level == PendingExpansion.CONDITIONAL)
+            {
+                pending.push(new PendingExpansion(children, 0, PendingExpansion.CONDITIONAL + 1));
+                pending.push(new PendingExpansion(children, 1, PendingExpansion.CONDITIONAL + 1));
+                pending.push(new PendingExpansion(children, 2, PendingExpansion.CONDITIONAL));
+            }
+            else if (level == PendingExpansion.UNARY)
+            {
+                pending.push(new PendingExpansion(children, 0, PendingExpansion.UNARY));
+            }
+            else
+            {
+                OperatorPrecedence precedence = PendingExpansion.precedenceOf(level);
+                // A comparison's operands, and the first operand of a cast,
+                // come from the next higher level; other left operands come
+                // from the operator's own level.
+                boolean ownLevel = (precedence == OperatorPrecedence.CAST)
+                        ? PendingExpansion.levelOf(children.get(0)) == level
+                        : precedence != OperatorPrecedence.COMPARE;
+                pending.push(new PendingExpansion(children, 0, ownLevel ? level : level + 1));
+                // The type of an instanceof or a cast isn't an expression.
+                if (precedence != OperatorPrecedence.CAST && ((ASTParentNode) child).getOperation() != INSTANCEOF)
+                {
+                    pending.push(new PendingExpansion(children, 1, level + 1));
+                }
+            }
+        }
+        return root.get(0);
+    }
+
+    /**
+     * Makes an <code>ASTLeftHandSide</code> of the given collapsed node, which
+     * must be a variable or an element access.
+     * @param loc The <code>Location</code>.
+     * @param node The collapsed node.
+     * @return The <code>ASTLeftHandSide</code>.
+     * @throws CompileException If the node isn't a variable or an element
+     *     access.
+     */
+    private ASTLeftHandSide toLeftHandSide(Location loc, ASTNode node)
+    {
+        if (node.getClass() != ASTExpressionName.class && node.getClass() != ASTElementAccess.class)
+        {
+            throw syntaxError("Expected variable or element access.");
+        }
+        return new ASTLeftHandSide(loc, Arrays.asList(node));
+    }
+
+    /**
+     * Makes an <code>ASTLeftHandSide</code> of the given primary, which is an
+     * <code>ASTPrimary</code>, or when collapsing, may be what it collapses
+     * to.
+     * @param loc The <code>Location</code> of the primary.
+     * @param primary The primary.
+     * @return The <code>ASTLeftHandSide</code>.
+     * @throws CompileException If the primary isn't a variable or an element
+     *     access.
+     */
+    private ASTLeftHandSide leftHandSide(Location loc, ASTNode primary)
+    {
+        if (primary instanceof ASTPrimary)
+        {
+            return convertLeftHandSide(((ASTPrimary) primary)::getLeftHandSide);
+        }
+        return toLeftHandSide(loc, primary);
+    }
+
+    /**
+     * Makes an <code>ASTLeftHandSide</code> with a conversion of an already
+     * parsed node, which fails with no location; the syntax error is at the
+     * current token.
+     * @param conversion Converts the node, e.g.
+     *     <code>ASTPrimary.getLeftHandSide</code>.
+     * @return The <code>ASTLeftHandSide</code>.
+     * @throws CompileException If the node isn't a variable or an element
+     *     access.
+     */
+    private ASTLeftHandSide convertLeftHandSide(Supplier<ASTLeftHandSide> conversion)
+    {
+        try
+        {
+            return conversion.get();
+        }
+        catch (CompileException e)
+        {
+            throw syntaxError(e.getMessage());
         }
     }
 
@@ -1064,7 +1819,7 @@ public class Parser
         }
         else
         {
-            return new ASTArgumentList(myScanner.getCurrToken().getLocation(), Arrays.asList());
+            return new ASTArgumentList(myTokens.getCurrToken().getLocation(), Arrays.asList());
         }
     }
 
@@ -1072,14 +1827,15 @@ public class Parser
      * Parses an <code>ASTMethodInvocation</code>, given an <code>ASTPrimary</code>
      * that has already been parsed and its <code>Location</code>.
      * @param loc The <code>Location</code> of <code>primary</code>.
-     * @param primary An already parsed <code>ASTPrimary</code>.
+     * @param primary An already parsed <code>ASTPrimary</code>, or when
+     *     collapsing, what it collapses to.
      * @return An <code>ASTMethodInvocation</code>.
      */
-    public ASTMethodInvocation parseMethodInvocation(Location loc, ASTPrimary primary)
+    public ASTMethodInvocation parseMethodInvocation(Location loc, ASTNode primary)
     {
         if (accept(OPEN_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected '('.");
+            throw syntaxError("Expected '('.");
         }
         List<ASTNode> children = new ArrayList<>(2);
         children.add(primary);
@@ -1089,34 +1845,35 @@ public class Parser
         }
         if (accept(CLOSE_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected ')'.");
+            throw syntaxError("Expected ')'.");
         }
 
-        return new ASTMethodInvocation(loc, children);
+        return built(new ASTMethodInvocation(loc, children));
     }
 
     /**
      * Parses an <code>ASTElementAccess</code>, given an <code>ASTPrimary</code>
      * that has already been parsed and its <code>Location</code>.
      * @param loc The <code>Location</code> of <code>primary</code>.
-     * @param primary An already parsed <code>ASTPrimary</code>.
+     * @param primary An already parsed <code>ASTPrimary</code>, or when
+     *     collapsing, what it collapses to.
      * @return An <code>ASTElementAccess</code>.
      */
-    public ASTElementAccess parseElementAccess(Location loc, ASTPrimary primary)
+    public ASTElementAccess parseElementAccess(Location loc, ASTNode primary)
     {
         if (accept(OPEN_BRACKET) == null)
         {
-            throw new CompileException("Expected '['.");
+            throw syntaxError("Expected '['.");
         }
         List<ASTNode> children = new ArrayList<>(2);
         children.add(primary);
         children.add(parseExpression());
         if (accept(CLOSE_BRACKET) == null)
         {
-            throw new CompileException("Expected ']'.");
+            throw syntaxError("Expected ']'.");
         }
 
-        ASTElementAccess ea = new ASTElementAccess(loc, children);
+        ASTElementAccess ea = built(new ASTElementAccess(loc, children));
         while(test(curr(), OPEN_BRACKET))
         {
             accept(OPEN_BRACKET);
@@ -1125,9 +1882,9 @@ public class Parser
             children.add(parseExpression());
             if (accept(CLOSE_BRACKET) == null)
             {
-                throw new CompileException("Expected ']'.");
+                throw syntaxError("Expected ']'.");
             }
-            ea = new ASTElementAccess(loc, children);
+            ea = built(new ASTElementAccess(loc, children));
         }
         return ea;
     }
@@ -1138,41 +1895,58 @@ public class Parser
      */
     public ASTPrimary parsePrimary()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
-        ASTPrimary primary;
+        Location loc = myTokens.getCurrToken().getLocation();
+        ASTNode node = parsePrimaryNode();
+        // When collapsing, only an ASTPrimary with an operation is kept.
+        return (node instanceof ASTPrimary) ? (ASTPrimary) node : new ASTPrimary(loc, Arrays.asList(node));
+    }
+
+    /**
+     * Parses a primary.  When collapsing, an <code>ASTPrimary</code> with a
+     * single child would only be dropped by its parent, so it isn't created,
+     * and what it collapses to is returned.
+     * @return An <code>ASTPrimary</code>, or when collapsing, what it
+     *     collapses to.
+     */
+    private ASTNode parsePrimaryNode()
+    {
+        Location loc = myTokens.getCurrToken().getLocation();
+        ASTNode primary;
         if (isLiteral(curr()))
         {
             ASTLiteral literal = parseLiteral();
-            primary = new ASTPrimary(loc, Arrays.asList(literal));
+            primary = primary(loc, literal);
         }
         else if (test(curr(), IDENTIFIER))
         {
-            ASTExpressionName expressionName = parseExpressionName();
-
-            if ( (test(curr(), DOT) && test(peek(), CLASS)) || test(curr(), OPEN_CLOSE_BRACKET))
+            // Look past the name to decide whether it's a type name or an
+            // expression name before parsing it.
+            int afterName = peekPastName();
+            TokenType next = peek(afterName);
+            if ( (next == DOT && peek(afterName + 1) == CLASS) || next == OPEN_CLOSE_BRACKET)
             {
-                // exprName.class OR exprName[]
+                // typeName.class OR typeName[]
                 // Get the class literal and get out.
-                ASTTypeName tn = expressionName.convertToTypeName();
-                return new ASTPrimary(loc, Arrays.asList(parseClassLiteral(tn)));
+                ASTTypeName tn = parseTypeName();
+                return primary(loc, parseClassLiteral(tn));
             }
-            else if (test(curr(), DOT) && test(peek(), THIS))
+            else if (next == DOT && peek(afterName + 1) == THIS)
             {
-                ASTTypeName tn = expressionName.convertToTypeName();
+                ASTTypeName tn = parseTypeName();
                 accept(DOT);
-                primary = new ASTPrimary(loc, Arrays.asList(tn, parseThis()));
-                primary.setOperation(DOT);
-                return primary;
+                ASTPrimary qualifiedThis = built(new ASTPrimary(loc, Arrays.asList(tn, parseThis())));
+                qualifiedThis.setOperation(DOT);
+                return qualifiedThis;
             }
             else
             {
-                primary = new ASTPrimary(loc, Arrays.asList(expressionName));
+                primary = primary(loc, parseExpressionName());
             }
         }
         else if (test(curr(), THIS))
         {
             ASTThis keywordThis = parseThis();
-            primary = new ASTPrimary(loc, Arrays.asList(keywordThis));
+            primary = primary(loc, keywordThis);
         }
         else if (test(curr(), OPEN_PARENTHESIS))
         {
@@ -1181,17 +1955,18 @@ public class Parser
             Token closeParen = accept(CLOSE_PARENTHESIS);
             if (closeParen == null)
             {
-                throw new CompileException("Expected close parenthesis \")\".");
+                throw syntaxError("Expected close parenthesis \")\".");
             }
-            primary = new ASTPrimary(loc, Arrays.asList(expression));
-            primary.setOperation(OPEN_PARENTHESIS);
+            ASTPrimary parenthesized = built(new ASTPrimary(loc, Arrays.asList(expression)));
+            parenthesized.setOperation(OPEN_PARENTHESIS);
+            primary = parenthesized;
         }
         else if (test(curr(), NEW))
         {
             if (test(peek(), LESS_THAN))
             {
                 ASTClassInstanceCreationExpression cice = parseClassInstanceCreationExpression();
-                primary = new ASTPrimary(loc, Arrays.asList(cice));
+                primary = primary(loc, cice);
             }
             else if (test(peek(), IDENTIFIER))
             {
@@ -1199,42 +1974,72 @@ public class Parser
                 ASTTypeToInstantiate tti = parseTypeToInstantiate();
                 if (test(curr(), OPEN_BRACKET) || test(curr(), OPEN_CLOSE_BRACKET))
                 {
-                    primary = new ASTPrimary(loc, Arrays.asList(parseArrayCreationExpression(tti)));
+                    primary = primary(loc, parseArrayCreationExpression(tti));
                 }
                 else if (test(curr(), OPEN_PARENTHESIS))
                 {
-                    primary = new ASTPrimary(loc, Arrays.asList(parseClassInstanceCreationExpression(tti)));
+                    primary = primary(loc, parseClassInstanceCreationExpression(tti));
                 }
                 else
                 {
-                    throw new CompileException("Malformed array or class instance creation expression.");
+                    throw syntaxError("Malformed array or class instance creation expression.");
                 }
             }
             else
             {
-                throw new CompileException("Type arguments or type to instantiate expected after new.");
+                throw syntaxError("Type arguments or type to instantiate expected after new.");
             }
         }
         else
         {
-            throw new CompileException("Expected: literal, expression name, or array or class instance creation expression.");
+            throw syntaxError("Expected: literal, expression name, or array or class instance creation expression.");
+        }
+
+        return parsePrimarySuffix(loc, primary);
+    }
+
+    /**
+     * Makes an <code>ASTPrimary</code> of the given child, or when collapsing,
+     * returns what it would collapse to without creating it.
+     * @param loc The <code>Location</code>.
+     * @param child The child, already built.
+     * @return The <code>ASTPrimary</code>, or what it collapses to.
+     */
+    private ASTNode primary(Location loc, ASTNode child)
+    {
+        if (amCollapsing)
+        {
+            return ASTParentNode.findNonCollapsibleDescendant(child);
         }
+        return new ASTPrimary(loc, Arrays.asList(child));
+    }
 
+    /**
+     * Parses what may follow an already parsed primary: a qualified class
+     * instance creation, a method invocation, and element access.
+     * @param loc The <code>Location</code> of <code>primary</code>.
+     * @param primary An already parsed <code>ASTPrimary</code>, or when
+     *     collapsing, what it collapses to.
+     * @return An <code>ASTPrimary</code>, or when collapsing, what it
+     *     collapses to; <code>primary</code> itself if nothing follows it.
+     */
+    private ASTNode parsePrimarySuffix(Location loc, ASTNode primary)
+    {
         if (test(curr(), DOT) && test(peek(), NEW))
         {
-            ASTClassInstanceCreationExpression cice = parseClassInstanceCreationExpression(primary);
-            return new ASTPrimary(loc, Arrays.asList(cice));
+            ASTClassInstanceCreationExpression cice = parseClassInstanceCreationExpression(loc, primary);
+            return primary(loc, cice);
         }
 
         if (test(curr(), OPEN_PARENTHESIS))
         {
             ASTMethodInvocation mi = parseMethodInvocation(loc, primary);
-            primary = new ASTPrimary(loc, Arrays.asList(mi));
+            primary = primary(loc, mi);
         }
         if (test(curr(), OPEN_BRACKET))
         {
             ASTElementAccess ea = parseElementAccess(loc, primary);
-            primary = new ASTPrimary(loc, Arrays.asList(ea));
+            primary = primary(loc, ea);
         }
 
         return primary;
@@ -1246,7 +2051,7 @@ public class Parser
      */
     public ASTClassInstanceCreationExpression parseClassInstanceCreationExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         List<ASTNode> children = new ArrayList<>(2);
         if (test(curr(), NEW))
         {
@@ -1254,10 +2059,10 @@ public class Parser
         }
         else
         {
-            ASTPrimary primary = parsePrimary();
-            return parseClassInstanceCreationExpression(primary);
+            ASTNode primary = parsePrimaryNode();
+            return parseClassInstanceCreationExpression(loc, primary);
         }
-        return new ASTClassInstanceCreationExpression(loc, children);
+        return built(new ASTClassInstanceCreationExpression(loc, children));
     }
 
     /**
@@ -1269,7 +2074,20 @@ public class Parser
      */
     public ASTClassInstanceCreationExpression parseClassInstanceCreationExpression(ASTPrimary alreadyParsed)
     {
-        Location loc = alreadyParsed.getLocation();
+        return parseClassInstanceCreationExpression(alreadyParsed.getLocation(), alreadyParsed);
+    }
+
+    /**
+     * Parses an <code>ASTClassInstanceCreationExpression</code>, using an
+     * already parsed primary.  It is expected that the parser is at ". new"
+     * in the Scanner.
+     * @param loc The <code>Location</code> of the primary.
+     * @param alreadyParsed An already parsed <code>ASTPrimary</code>, or when
+     *     collapsing, what it collapses to.
+     * @return An <code>ASTClassInstanceCreationExpression</code>.
+     */
+    private ASTClassInstanceCreationExpression parseClassInstanceCreationExpression(Location loc, ASTNode alreadyParsed)
+    {
         List<ASTNode> children = new ArrayList<>(2);
         children.add(alreadyParsed);
         if (test(curr(), DOT) && test(peek(), NEW))
@@ -1279,9 +2097,9 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected . new");
+            throw syntaxError("Expected . new");
         }
-        return new ASTClassInstanceCreationExpression(loc, children);
+        return built(new ASTClassInstanceCreationExpression(loc, children));
     }
 
     /**
@@ -1294,9 +2112,9 @@ public class Parser
      */
     public ASTClassInstanceCreationExpression parseClassInstanceCreationExpression(ASTTypeToInstantiate alreadyParsed)
     {
-        return new ASTClassInstanceCreationExpression(alreadyParsed.getLocation(), Arrays.asList(
+        return built(new ASTClassInstanceCreationExpression(alreadyParsed.getLocation(), Arrays.asList(
                 parseUnqualifiedClassInstanceCreationExpression(alreadyParsed)
-        ));
+        )));
     }
 
     /**
@@ -1305,10 +2123,10 @@ public class Parser
      */
     public ASTUnqualifiedClassInstanceCreationExpression parseUnqualifiedClassInstanceCreationExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(NEW) == null)
         {
-            throw new CompileException("Expected new.");
+            throw syntaxError("Expected new.");
         }
         List<ASTNode> children = new ArrayList<>(4);
         if (test(curr(), LESS_THAN))
@@ -1318,7 +2136,7 @@ public class Parser
         children.add(parseTypeToInstantiate());
         if (accept(OPEN_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected \"(\".");
+            throw syntaxError("Expected \"(\".");
         }
         if (!test(curr(), CLOSE_PARENTHESIS))
         {
@@ -1326,9 +2144,9 @@ public class Parser
         }
         if (accept(CLOSE_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected \")\".");
+            throw syntaxError("Expected \")\".");
         }
-        ASTUnqualifiedClassInstanceCreationExpression node = new ASTUnqualifiedClassInstanceCreationExpression(loc, children);
+        ASTUnqualifiedClassInstanceCreationExpression node = built(new ASTUnqualifiedClassInstanceCreationExpression(loc, children));
         node.setOperation(NEW);
         return node;
     }
@@ -1347,7 +2165,7 @@ public class Parser
         children.add(alreadyParsed);
         if (accept(OPEN_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected \"(\".");
+            throw syntaxError("Expected \"(\".");
         }
         if (!test(curr(), CLOSE_PARENTHESIS))
         {
@@ -1355,9 +2173,9 @@ public class Parser
         }
         if (accept(CLOSE_PARENTHESIS) == null)
         {
-            throw new CompileException("Expected \")\".");
+            throw syntaxError("Expected \")\".");
         }
-        ASTUnqualifiedClassInstanceCreationExpression node = new ASTUnqualifiedClassInstanceCreationExpression(alreadyParsed.getLocation(), children);
+        ASTUnqualifiedClassInstanceCreationExpression node = built(new ASTUnqualifiedClassInstanceCreationExpression(alreadyParsed.getLocation(), children));
         node.setOperation(NEW);
         return node;
     }
@@ -1368,27 +2186,23 @@ public class Parser
      */
     public ASTTypeToInstantiate parseTypeToInstantiate()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         List<ASTNode> children = new ArrayList<>(2);
         children.add(parseTypeName());
         if (test(curr(), LESS_THAN))
         {
             children.add(parseTypeArgumentsOrDiamond());
         }
-        return new ASTTypeToInstantiate(loc, children);
+        return built(new ASTTypeToInstantiate(loc, children));
     }
 
     /**
-     * Parses an <code>ASTTypeArgumentsOrDiamond</code>.  This sets the type context in
-     * the <code>Scanner</code> for the duration parsing this node.
+     * Parses an <code>ASTTypeArgumentsOrDiamond</code>.
      * @return An <code>ASTTypeArgumentsOrDiamond</code>.
      */
     public ASTTypeArgumentsOrDiamond parseTypeArgumentsOrDiamond()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
-        // TODO: Move this higher up in the parsing, to prevent nested type
-        // arguments from turning this off too early.
-        myScanner.setInTypeContext(true);
+        Location loc = myTokens.getCurrToken().getLocation();
         ASTTypeArgumentsOrDiamond node;
         if (test(curr(), LESS_THAN) && test(peek(), GREATER_THAN))
         {
@@ -1400,7 +2214,7 @@ public class Parser
         else
         {
             ASTTypeArguments ta = parseTypeArguments();
-            node = new ASTTypeArgumentsOrDiamond(loc, Collections.singletonList(ta));
+            node = built(new ASTTypeArgumentsOrDiamond(loc, Arrays.asList(ta)));
         }
         return node;
     }
@@ -1411,10 +2225,10 @@ public class Parser
      */
     public ASTArrayCreationExpression parseArrayCreationExpression()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(NEW) == null)
         {
-            throw new CompileException("Expected new.");
+            throw syntaxError("Expected new.");
         }
         List<ASTNode> children = new ArrayList<>(3);
         children.add(parseTypeToInstantiate());
@@ -1430,17 +2244,17 @@ public class Parser
         }
         if (children.size() == 0)
         {
-            throw new CompileException("Expected \"[\".");
+            throw syntaxError("Expected \"[\".");
         }
         if (test(curr(), OPEN_BRACE))
         {
             if (dimExprsPresent)
             {
-                throw new CompileException("Array initializer not expected with dimension expressions.");
+                throw syntaxError("Array initializer not expected with dimension expressions.");
             }
             children.add(parseArrayInitializer());
         }
-        ASTArrayCreationExpression node = new ASTArrayCreationExpression(loc, children);
+        ASTArrayCreationExpression node = built(new ASTArrayCreationExpression(loc, children));
         node.setOperation(NEW);
         return node;
     }
@@ -1455,7 +2269,7 @@ public class Parser
      */
     public ASTArrayCreationExpression parseArrayCreationExpression(ASTTypeToInstantiate alreadyParsed)
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         List<ASTNode> children = new ArrayList<>(3);
         children.add(alreadyParsed);
         boolean dimExprsPresent = false;
@@ -1470,17 +2284,17 @@ public class Parser
         }
         if (children.size() == 0)
         {
-            throw new CompileException("Expected \"[\".");
+            throw syntaxError("Expected \"[\".");
         }
         if (test(curr(), OPEN_BRACE))
         {
             if (dimExprsPresent)
             {
-                throw new CompileException("Array initializer not expected with dimension expressions.");
+                throw syntaxError("Array initializer not expected with dimension expressions.");
             }
             children.add(parseArrayInitializer());
         }
-        ASTArrayCreationExpression node = new ASTArrayCreationExpression(loc, children);
+        ASTArrayCreationExpression node = built(new ASTArrayCreationExpression(loc, children));
         node.setOperation(NEW);
         return node;
     }
@@ -1494,23 +2308,23 @@ public class Parser
     {
         if (test(curr(), OPEN_BRACKET))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(2);
             children.add(parseDimExpr());
-            ASTDimExprs node = new ASTDimExprs(loc, children);
+            ASTDimExprs node = built(new ASTDimExprs(loc, children));
 
             while (test(curr(), OPEN_BRACKET))
             {
                 children = new ArrayList<>(2);
                 children.add(node);
                 children.add(parseDimExpr());
-                node = new ASTDimExprs(loc, children);
+                node = built(new ASTDimExprs(loc, children));
             }
             return node;
         }
         else
         {
-            throw new CompileException("Expected \"[\".");
+            throw syntaxError("Expected \"[\".");
         }
     }
 
@@ -1520,17 +2334,17 @@ public class Parser
      */
     public ASTDimExpr parseDimExpr()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(OPEN_BRACKET) == null)
         {
-            throw new CompileException("Expected \"[\".");
+            throw syntaxError("Expected \"[\".");
         }
         ASTExpression expr = parseExpression();
         if (accept(CLOSE_BRACKET) == null)
         {
-            throw new CompileException("Expected \"]\".");
+            throw syntaxError("Expected \"]\".");
         }
-        ASTDimExpr node = new ASTDimExpr(loc, Arrays.asList(expr));
+        ASTDimExpr node = built(new ASTDimExpr(loc, Arrays.asList(expr)));
         node.setOperation(OPEN_BRACKET);
         return node;
     }
@@ -1541,16 +2355,16 @@ public class Parser
      */
     public ASTArrayInitializer parseArrayInitializer()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (accept(OPEN_BRACE) == null)
         {
-            throw new CompileException("Expected \"{\".");
+            throw syntaxError("Expected \"{\".");
         }
         ASTArrayInitializer node;
         if (isPrimary(curr()) || test(curr(), OPEN_BRACE))
         {
             ASTVariableInitializerList vil = parseVariableInitializerList();
-            node = new ASTArrayInitializer(loc, Collections.singletonList(vil));
+            node = built(new ASTArrayInitializer(loc, Arrays.asList(vil)));
         }
         else
         {
@@ -1558,7 +2372,7 @@ public class Parser
         }
         if (accept(CLOSE_BRACE) == null)
         {
-            throw new CompileException("Expected \"}\".");
+            throw syntaxError("Expected \"}\".");
         }
         node.setOperation(OPEN_BRACE);
         return node;
@@ -1585,15 +2399,15 @@ public class Parser
      */
     public ASTVariableInitializer parseVariableInitializer()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (isPrimary(curr()))
         {
             ASTExpressionNoIncrDecr exprNoIncrDecr = parseExpressionNoIncrDecr();
-            return new ASTVariableInitializer(loc, Arrays.asList(exprNoIncrDecr));
+            return built(new ASTVariableInitializer(loc, Arrays.asList(exprNoIncrDecr)));
         }
         else
         {
-            throw new CompileException("Expected expression (no incr/decr) or array initializer.");
+            throw syntaxError("Expected expression (no incr/decr) or array initializer.");
         }
     }
 
@@ -1611,7 +2425,7 @@ public class Parser
         List<ASTNode> children = null;
         while (test(curr(), OPEN_CLOSE_BRACKET))
         {
-            Location dimsLoc = myScanner.getCurrToken().getLocation();
+            Location dimsLoc = myTokens.getCurrToken().getLocation();
             accept(OPEN_CLOSE_BRACKET);
             if (dims == null)
             {
@@ -1630,7 +2444,7 @@ public class Parser
 
         if (accept(DOT) == null || accept(CLASS) == null)
         {
-            throw new CompileException("Expected .class");
+            throw syntaxError("Expected .class");
         }
 
         children = new ArrayList<>(2);
@@ -1639,7 +2453,7 @@ public class Parser
         {
             children.add(dims);
         }
-        ASTClassLiteral node = new ASTClassLiteral(loc, children);
+        ASTClassLiteral node = built(new ASTClassLiteral(loc, children));
         node.setOperation(CLASS);
         return node;
     }
@@ -1677,26 +2491,26 @@ public class Parser
     {
         if (isOnInitialToken.test(curr()))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             List<ASTNode> children = new ArrayList<>(2);
             children.add(childParser.get());
-            T node = nodeSupplier.apply(loc, children);
+            T node = built(nodeSupplier.apply(loc, children));
 
             TokenType curr;
-            while ( (curr = isAcceptedOperator(acceptedTokens) ) != null && isOnInitialToken.test(peek()))
+            while ( (curr = isAcceptedOperator(acceptedTokens) ) != null && isOnInitialToken.test(peekPastOperator(curr)))
             {
-                accept(curr);
+                acceptOperator(curr);
                 children = new ArrayList<>(2);
                 children.add(node);
                 children.add(childParser.get());
-                node = nodeSupplier.apply(loc, children);
+                node = built(nodeSupplier.apply(loc, children));
                 node.setOperation(curr);
             }
             return node;
         }
         else
         {
-            throw new CompileException(initialErrorMessage);
+            throw syntaxError(initialErrorMessage);
         }
     }
 
@@ -1708,7 +2522,7 @@ public class Parser
      */
     private TokenType isAcceptedOperator(List<TokenType> acceptedTokens)
     {
-        TokenType type = myScanner.getCurrToken().getType();
+        TokenType type = operator();
         if (acceptedTokens.indexOf(type) >= 0)
         {
             return type;
@@ -1716,6 +2530,108 @@ public class Parser
         return null;
     }
 
+    /**
+     * Returns the type of the operator at the current token.  Adjacent
+     * <code>&gt;</code> tokens are joined into <code>&gt;&gt;</code>,
+     * <code>&gt;&gt;&gt;</code>, <code>&gt;&gt;=</code>, or
+     * <code>&gt;&gt;&gt;=</code>, which the scanner never produces itself.
+     * @return The type of the operator, or of the current token if it isn't
+     *     an operator.
+     */
+    private TokenType operator()
+    {
+        Token t = curr();
+        if (!test(t, GREATER_THAN) || !t.isAdjacentToNext())
+        {
+            return t.getType();
+        }
+        Token next = peek();
+        switch(next.getType())
+        {
+        case GREATER_THAN_OR_EQUAL:
+            return SHIFT_RIGHT_EQUALS;
+        case GREATER_THAN:
+            if (next.isAdjacentToNext())
+            {
+                switch(peek(2))
+                {
+                case GREATER_THAN:
+                    return UNSIGNED_SHIFT_RIGHT;
+                case GREATER_THAN_OR_EQUAL:
+                    return UNSIGNED_SHIFT_RIGHT_EQUALS;
+                default:
+                    break;
+                }
+            }
+            return SHIFT_RIGHT;
+        default:
+            return GREATER_THAN;
+        }
+    }
+
+    /**
+     * Returns the number of tokens that the given operator is made of.
+     * @param operator The type of the operator, as returned by
+     *     <code>operator()</code>.
+     * @return The number of tokens.
+     */
+    private static int operatorLength(TokenType operator)
+    {
+        switch(operator)
+        {
+        case SHIFT_RIGHT:
+        case SHIFT_RIGHT_EQUALS:
+            return 2;
+        case UNSIGNED_SHIFT_RIGHT:
+        case UNSIGNED_SHIFT_RIGHT_EQUALS:
+            return 3;
+        default:
+            return 1;
+        }
+    }
+
+    /**
+     * Advances past the given operator, which is at the current token.
+     * @param operator The type of the operator, as returned by
+     *     <code>operator()</code>.
+     */
+    private void acceptOperator(TokenType operator)
+    {
+        for (int i = operatorLength(operator); i > 0; i--)
+        {
+            advance();
+        }
+    }
+
+    /**
+     * Returns the token after the given operator, which is at the current
+     * token, without advancing.
+     * @param operator The type of the operator, as returned by
+     *     <code>operator()</code>.
+     * @return The <code>Token</code> after the operator.
+     */
+    private Token peekPastOperator(TokenType operator)
+    {
+        int length = operatorLength(operator);
+        if (length == 1)
+        {
+            return peek();
+        }
+        int mark = myTokens.mark();
+        try
+        {
+            for (int i = 0; i < length; i++)
+            {
+                advance();
+            }
+            return curr();
+        }
+        finally
+        {
+            myTokens.reset(mark);
+        }
+    }
+
     //**************************************
     // NAMES
     //**************************************
@@ -1726,7 +2642,7 @@ public class Parser
      */
     public ASTDataType parseDataType()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         ASTDataTypeNoArray dtna = parseDataTypeNoArray();
         if (test(curr(), OPEN_CLOSE_BRACKET))
         {
@@ -1746,7 +2662,7 @@ public class Parser
      */
     public ASTArrayType parseArrayType()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         if (test(curr(), IDENTIFIER))
         {
             ASTDataTypeNoArray dtna = parseDataTypeNoArray();
@@ -1757,12 +2673,12 @@ public class Parser
             }
             else
             {
-                throw new CompileException("Expected [].");
+                throw syntaxError("Expected [].");
             }
         }
         else
         {
-            throw new CompileException("Identifier expected.");
+            throw syntaxError("Identifier expected.");
         }
     }
 
@@ -1774,13 +2690,13 @@ public class Parser
     {
         if (!test(curr(), OPEN_CLOSE_BRACKET))
         {
-            throw new CompileException("Expected [].");
+            throw syntaxError("Expected [].");
         }
         ASTDims node = null;
         List<ASTNode> children = null;
         while (test(curr(), OPEN_CLOSE_BRACKET))
         {
-            Location loc = myScanner.getCurrToken().getLocation();
+            Location loc = myTokens.getCurrToken().getLocation();
             accept(OPEN_CLOSE_BRACKET);
             if (node == null)
             {
@@ -1821,12 +2737,23 @@ public class Parser
      */
     public ASTSimpleType parseSimpleType()
     {
-        Location loc = myScanner.getCurrToken().getLocation();
+        Location loc = myTokens.getCurrToken().getLocation();
         List<ASTNode> children = new ArrayList<>(2);
         children.add(parseIdentifier());
         if (test(curr(), LESS_THAN))
         {
-            children.add(parseTypeArguments());
+            // collapse() doesn't look inside an ASTSimpleType, so neither
+            // does collapsing.
+            boolean wasCollapsing = amCollapsing;
+            amCollapsing = false;
+            try
+            {
+                children.add(parseTypeArguments());
+            }
+            finally
+            {
+                amCollapsing = wasCollapsing;
+            }
         }
         return new ASTSimpleType(loc, children);
     }
@@ -1902,7 +2829,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected an identifier.");
+            throw syntaxError("Expected an identifier.");
         }
     }
 
@@ -1919,7 +2846,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected 'this'.");
+            throw syntaxError("Expected 'this'.");
         }
     }
 
@@ -1933,7 +2860,7 @@ public class Parser
      */
     public ASTLiteral parseLiteral()
     {
-        Token curr = myScanner.getCurrToken();
+        Token curr = myTokens.getCurrToken();
         if (test(curr(), INT_LITERAL))
         {
             return new ASTLiteral(curr.getLocation(), parseIntegerLiteral());
@@ -1964,7 +2891,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected a literal.");
+            throw syntaxError("Expected a literal.");
         }
     }
 
@@ -1981,7 +2908,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected an integer.");
+            throw syntaxError("Expected an integer.");
         }
     }
 
@@ -1998,7 +2925,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected a floating point number.");
+            throw syntaxError("Expected a floating point number.");
         }
     }
 
@@ -2015,7 +2942,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected a string.");
+            throw syntaxError("Expected a string.");
         }
     }
 
@@ -2032,7 +2959,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected a character.");
+            throw syntaxError("Expected a character.");
         }
     }
 
@@ -2053,7 +2980,7 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected true or false.");
+            throw syntaxError("Expected true or false.");
         }
     }
 
@@ -2070,7 +2997,135 @@ public class Parser
         }
         else
         {
-            throw new CompileException("Expected null.");
+            throw syntaxError("Expected null.");
+        }
+    }
+
+    /**
+     * A level of an expression being parsed by
+     * <code>climbAssignmentExpression</code>, with how far it has got.
+     */
+    private static class ClimbFrame
+    {
+        private static final int ASSIGNMENT = 0;
+        private static final int CONDITIONAL = 1;
+        private static final int BINARY = 2;
+        private static final int UNARY = 3;
+
+        private int myKind;
+        private int myState;
+        private OperatorPrecedence myMinLevel;
+        private OperatorPrecedence myPrevious;
+        private Location myLoc;
+        private Location myInnerLoc;
+        private List<ASTNode> myChildren;
+        private TokenType myOperator;
+        private ASTNode myNode;
+        private ASTUnaryExpression myBottom;
+
+        /**
+         * Constructs a <code>ClimbFrame</code>.
+         * @param kind The kind of expression: <code>ASSIGNMENT</code>,
+         *     <code>CONDITIONAL</code>, <code>BINARY</code>, or
+         *     <code>UNARY</code>.
+         * @param minLevel For a binary expression, the lowest level of
+         *     operator to accept.
+         */
+        private ClimbFrame(int kind, OperatorPrecedence minLevel)
+        {
+            myKind = kind;
+            myMinLevel = minLevel;
+        }
+    }
+
+    /**
+     * A child waiting on the explicit stack in <code>expanded</code>, with
+     * the level of the expression that its parent expects.  Levels are those
+     * of a full tree, from <code>ASSIGNMENT_EXPRESSION</code> down to
+     * <code>PRIMARY</code>; the levels of <code>OperatorPrecedence</code> are
+     * between <code>CONDITIONAL</code> and <code>UNARY</code>.
+     */
+    private static class PendingExpansion
+    {
+        private static final int ASSIGNMENT_EXPRESSION = 0;
+        private static final int CONDITIONAL = 1;
+        private static final int UNARY = CONDITIONAL + OperatorPrecedence.count() + 1;
+        private static final int PRIMARY = UNARY + 1;
+
+        private List<ASTNode> myChildren;
+        private int myIdx;
+        private int myLevel;
+
+        /**
+         * Constructs a <code>PendingExpansion</code>.
+         * @param children The children of the parent.
+         * @param idx The index of the child in the children.
+         * @param level The level of the expression that the parent expects.
+         */
+        private PendingExpansion(List<ASTNode> children, int idx, int level)
+        {
+            myChildren = children;
+            myIdx = idx;
+            myLevel = level;
+        }
+
+        /**
+         * Returns the level of the given node made by climbing.  An
+         * assignment is at the level of a conditional, because it is wrapped
+         * only by an <code>ASTAssignmentExpression</code>.
+         * @param node The node.
+         * @return The level.
+         */
+        private static int levelOf(ASTNode node)
+        {
+            if (node instanceof ASTAssignment || node instanceof ASTConditionalExpression)
+            {
+                return CONDITIONAL;
+            }
+            if (node instanceof ASTUnaryExpression)
+            {
+                return UNARY;
+            }
+            OperatorPrecedence precedence = OperatorPrecedence.ofNode(node);
+            return (precedence == null) ? PRIMARY : CONDITIONAL + 1 + precedence.ordinal();
+        }
+
+        /**
+         * Returns the <code>OperatorPrecedence</code> at the given level.
+         * @param level A level between <code>CONDITIONAL</code> and
+         *     <code>UNARY</code>.
+         * @return The <code>OperatorPrecedence</code>.
+         */
+        private static OperatorPrecedence precedenceOf(int level)
+        {
+            return OperatorPrecedence.ofOrdinal(level - CONDITIONAL - 1);
+        }
+
+        /**
+         * Creates the node at the given level that has only the given
+         * operand and no operator.
+         * @param level The level.
+         * @param loc The <code>Location</code> of the operand.
+         * @param operand The operand.
+         * @return The node.
+         */
+        private static ASTNode wrapper(int level, Location loc, ASTNode operand)
+        {
+            if (level > CONDITIONAL && level < UNARY)
+            {
+                return precedenceOf(level).createWrapper(loc, operand);
+            }
+            List<ASTNode> children = new ArrayList<>(1);
+            children.add(operand);
+            switch(level)
+            {
+            case ASSIGNMENT_EXPRESSION:
+                return new ASTAssignmentExpression(loc, children);
+            case CONDITIONAL:
+                return new ASTConditionalExpression(loc, children);
+            default:
+                return new ASTUnaryExpression(loc, children, null);
+            }
         }
     }
 }
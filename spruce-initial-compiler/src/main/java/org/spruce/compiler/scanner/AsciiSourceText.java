@@ -0,0 +1,152 @@
+package org.spruce.compiler.scanner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An <code>AsciiSourceText</code> is a <code>SourceText</code> that reads its
+ * characters straight from a <code>ByteBuffer</code> of ASCII bytes, usually a
+ * memory-mapped file, so that the source is never copied onto the heap.
+ *
+ * <p>Runs of identifier characters, digits, and whitespace are found eight
+ * bytes at a time: each byte of a <code>long</code> is classified at once
+ * with carry-free arithmetic, which works because no byte has its high bit
+ * set.</p>
+ */
+class AsciiSourceText extends SourceText
+{
+    // The high bit of each byte of a long.
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // Multiplied by a byte, a long with that byte in each of its bytes.
+    private static final long ONES = 0x0101010101010101L;
+
+    private ByteBuffer myBytes;
+
+    /**
+     * Constructs an <code>AsciiSourceText</code> for the given filename,
+     * backed by the given buffer, from index 0 to its limit.  Every byte must
+     * be less than <code>0x80</code>.
+     * @param filename The filename.
+     * @param bytes The ASCII bytes of the source.
+     */
+    AsciiSourceText(String filename, ByteBuffer bytes)
+    {
+        super(filename, bytes.limit());
+        // The first byte must be the highest, to find the first non-matching
+        // byte of a long.
+        myBytes = bytes.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Returns the character at the given offset.
+     * @param offset The 0-based offset.
+     * @return The character at the given offset.
+     */
+    @Override
+    public char charAt(int offset)
+    {
+        return (char) myBytes.get(offset);
+    }
+
+    /**
+     * Returns the text between the given offsets.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The text between the given offsets.
+     */
+    @Override
+    public String substring(int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer slice = myBytes.duplicate();
+        slice.position(start);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't an ASCII identifier part: a letter, digit, <code>_</code>,
+     * <code>$</code>, or an identifier-ignorable control character.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    @Override
+    int asciiIdentifierPartEnd(int pos)
+    {
+        int last = length() - Long.BYTES;
+        for (; pos <= last; pos += Long.BYTES)
+        {
+            long w = myBytes.getLong(pos);
+            long others = ~(inRange(w, 'a', 'z') | inRange(w, 'A', 'Z') | inRange(w, '0', '9') |
+                    inRange(w, '_', '_') | inRange(w, '$', '$') | inRange(w, '\u0000', '\u0008') |
+                    inRange(w, '\u000E', '\u001B') | inRange(w, '\u007F', '\u007F')) & HIGH_BITS;
+            if (others != 0)
+            {
+                return pos + (Long.numberOfLeadingZeros(others) >>> 3);
+            }
+        }
+        return super.asciiIdentifierPartEnd(pos);
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't an ASCII digit.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    @Override
+    int asciiDigitEnd(int pos)
+    {
+        int last = length() - Long.BYTES;
+        for (; pos <= last; pos += Long.BYTES)
+        {
+            long others = ~inRange(myBytes.getLong(pos), '0', '9') & HIGH_BITS;
+            if (others != 0)
+            {
+                return pos + (Long.numberOfLeadingZeros(others) >>> 3);
+            }
+        }
+        return super.asciiDigitEnd(pos);
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't ASCII whitespace: a space, or U+0009 through U+000D or U+001C
+     * through U+001F.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    @Override
+    int asciiWhitespaceEnd(int pos)
+    {
+        int last = length() - Long.BYTES;
+        for (; pos <= last; pos += Long.BYTES)
+        {
+            long w = myBytes.getLong(pos);
+            long others = ~(inRange(w, ' ', ' ') | inRange(w, '\t', '\r') | inRange(w, '\u001C', '\u001F')) & HIGH_BITS;
+            if (others != 0)
+            {
+                return pos + (Long.numberOfLeadingZeros(others) >>> 3);
+            }
+        }
+        return super.asciiWhitespaceEnd(pos);
+    }
+
+    /**
+     * Returns the high bit of each byte of the given word that is between the
+     * given bounds, inclusive.  Every byte must be less than
+     * <code>0x80</code>, so that no sum carries into the next byte.
+     * @param w Eight ASCII bytes.
+     * @param low The lowest matching byte.
+     * @param high The highest matching byte.
+     * @return The high bits of the matching bytes.
+     */
+    private static long inRange(long w, char low, char high)
+    {
+        // The high bit of a byte of the first sum is set if it is at least
+        // low; of the second, if it is more than high.
+        return (w + ONES * (0x80 - low)) & ~(w + ONES * (0x7F - high)) & HIGH_BITS;
+    }
+}
@@ -0,0 +1,232 @@
+package org.spruce.compiler.scanner;
+
+/**
+ * <p>Classifies characters for the scanner.  ASCII characters are looked up in
+ * a precomputed 128-entry table, so that the scanner takes one branch to
+ * classify the first character of a token, instead of a chain of
+ * <code>Character</code> predicates followed by a <code>switch</code> on the
+ * character.  Characters from <code>0x80</code> up follow the Unicode rules of
+ * <code>Character</code>.</p>
+ *
+ * <p>Each entry holds the classes of its character in its low bits and, above
+ * them, the index of the handler that scans a token starting with it.  The
+ * classes are computed from the <code>Character</code> predicates, so that
+ * they agree with them exactly.</p>
+ */
+final class CharClasses
+{
+    /**
+     * Characters below this are in the table.
+     */
+    static final char ASCII_LIMIT = 0x80;
+
+    /**
+     * Whitespace, counting every line terminator as whitespace.
+     */
+    static final int WHITESPACE = 1;
+    /**
+     * A digit.
+     */
+    static final int DIGIT = 1 << 1;
+    /**
+     * A character that can start an identifier.
+     */
+    static final int IDENTIFIER_START = 1 << 2;
+    /**
+     * A character that can be part of an identifier.
+     */
+    static final int IDENTIFIER_PART = 1 << 3;
+
+    private static final int HANDLER_SHIFT = 4;
+
+    // Handlers of the first character of a token.
+    static final int OTHER = 0;
+    static final int IDENTIFIER = 1;
+    static final int NUMBER = 2;
+    static final int SINGLE = 3;
+    static final int STRING = 4;
+    static final int CHARACTER = 5;
+    static final int OPEN_BRACKET = 6;
+    static final int COLON = 7;
+    static final int EQUALS = 8;
+    static final int DOT = 9;
+    static final int EXCLAMATION = 10;
+    static final int LESS_THAN = 11;
+    static final int GREATER_THAN = 12;
+    static final int PLUS = 13;
+    static final int MINUS = 14;
+    static final int STAR = 15;
+    static final int SLASH = 16;
+    static final int PERCENT = 17;
+    static final int AMPERSAND = 18;
+    static final int PIPE = 19;
+    static final int CARET = 20;
+
+    private static final short[] CLASSES = new short[ASCII_LIMIT];
+    // The token of each character that is a token by itself.
+    private static final TokenType[] SINGLE_TOKENS = new TokenType[ASCII_LIMIT];
+
+    static
+    {
+        for (char c = 0; c < ASCII_LIMIT; c++)
+        {
+            int classes = 0;
+            if (Character.isWhitespace(c) || SourceText.isLineTerminator(c))
+            {
+                classes |= WHITESPACE;
+            }
+            if (Character.isDigit(c))
+            {
+                classes |= DIGIT;
+            }
+            if (Character.isJavaIdentifierStart(c))
+            {
+                classes |= IDENTIFIER_START;
+            }
+            if (Character.isJavaIdentifierPart(c))
+            {
+                classes |= IDENTIFIER_PART;
+            }
+            int handler = OTHER;
+            if ((classes & DIGIT) != 0)
+            {
+                handler = NUMBER;
+            }
+            else if ((classes & IDENTIFIER_START) != 0)
+            {
+                handler = IDENTIFIER;
+            }
+            CLASSES[c] = (short) (classes | handler << HANDLER_SHIFT);
+        }
+
+        single('@', TokenType.AT_SIGN);
+        single('{', TokenType.OPEN_BRACE);
+        single('}', TokenType.CLOSE_BRACE);
+        single(']', TokenType.CLOSE_BRACKET);
+        single('(', TokenType.OPEN_PARENTHESIS);
+        single(')', TokenType.CLOSE_PARENTHESIS);
+        single(',', TokenType.COMMA);
+        single(';', TokenType.SEMICOLON);
+        single('?', TokenType.QUESTION_MARK);
+        single('~', TokenType.BITWISE_COMPLEMENT);
+
+        handle('"', STRING);
+        handle('\'', CHARACTER);
+        handle('[', OPEN_BRACKET);
+        handle(':', COLON);
+        handle('=', EQUALS);
+        handle('.', DOT);
+        handle('!', EXCLAMATION);
+        handle('<', LESS_THAN);
+        handle('>', GREATER_THAN);
+        handle('+', PLUS);
+        handle('-', MINUS);
+        handle('*', STAR);
+        handle('/', SLASH);
+        handle('%', PERCENT);
+        handle('&', AMPERSAND);
+        handle('|', PIPE);
+        handle('^', CARET);
+    }
+
+    /**
+     * Don't instantiate.
+     */
+    private CharClasses() {}
+
+    /**
+     * Sets the handler of the given character, keeping its classes.
+     * @param c The ASCII character.
+     * @param handler The handler.
+     */
+    private static void handle(char c, int handler)
+    {
+        CLASSES[c] = (short) ((CLASSES[c] & ((1 << HANDLER_SHIFT) - 1)) | handler << HANDLER_SHIFT);
+    }
+
+    /**
+     * Makes the given character a token by itself.
+     * @param c The ASCII character.
+     * @param type The type of its token.
+     */
+    private static void single(char c, TokenType type)
+    {
+        handle(c, SINGLE);
+        SINGLE_TOKENS[c] = type;
+    }
+
+    /**
+     * Returns the handler of a token starting with the given character.
+     * @param c A character less than <code>ASCII_LIMIT</code>.
+     * @return The handler.
+     */
+    static int handler(char c)
+    {
+        return CLASSES[c] >> HANDLER_SHIFT;
+    }
+
+    /**
+     * Returns the type of the token that the given character is by itself.
+     * @param c A character whose handler is <code>SINGLE</code>.
+     * @return The token type.
+     */
+    static TokenType singleToken(char c)
+    {
+        return SINGLE_TOKENS[c];
+    }
+
+    /**
+     * Returns whether the given character is ASCII and in any of the given
+     * classes.
+     * @param c The character.
+     * @param classes The classes, or'd together.
+     * @return Whether it is.
+     */
+    static boolean isAscii(char c, int classes)
+    {
+        return c < ASCII_LIMIT && (CLASSES[c] & classes) != 0;
+    }
+
+    /**
+     * Returns whether the given character is whitespace, counting every line
+     * terminator as whitespace.
+     * @param c The character.
+     * @return Whether it is whitespace.
+     */
+    static boolean isWhitespace(char c)
+    {
+        if (c < ASCII_LIMIT)
+        {
+            return (CLASSES[c] & WHITESPACE) != 0;
+        }
+        return c >= '\u0085' && (Character.isWhitespace(c) || SourceText.isLineTerminator(c));
+    }
+
+    /**
+     * Returns whether the given character is a digit.
+     * @param c The character.
+     * @return Whether it is a digit.
+     */
+    static boolean isDigit(char c)
+    {
+        if (c < ASCII_LIMIT)
+        {
+            return (CLASSES[c] & DIGIT) != 0;
+        }
+        return Character.isDigit(c);
+    }
+
+    /**
+     * Returns whether the given character can be part of an identifier.
+     * @param c The character.
+     * @return Whether it can be part of an identifier.
+     */
+    static boolean isIdentifierPart(char c)
+    {
+        if (c < ASCII_LIMIT)
+        {
+            return (CLASSES[c] & IDENTIFIER_PART) != 0;
+        }
+        return Character.isJavaIdentifierPart(c);
+    }
+}
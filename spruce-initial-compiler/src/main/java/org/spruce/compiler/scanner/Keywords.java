@@ -0,0 +1,107 @@
+package org.spruce.compiler.scanner;
+
+/**
+ * <p>Recognizes keywords directly from a range of a <code>SourceText</code>,
+ * without creating a <code>String</code> first.  Keywords are bucketed by
+ * length and first character; a range is only compared against the few
+ * keywords in its bucket, character by character.</p>
+ *
+ * <p>Only keywords are recognized.  Representations of other token types, such
+ * as <code>"id"</code> or <code>"int"</code> for literals, are not.</p>
+ */
+public final class Keywords
+{
+    private static final int MAX_LENGTH;
+    private static final TokenType[][][] BUCKETS;
+
+    static
+    {
+        int maxLength = 0;
+        for (TokenType t : TokenType.values())
+        {
+            if (isKeyword(t))
+            {
+                maxLength = Math.max(maxLength, t.getRepresentation().length());
+            }
+        }
+        MAX_LENGTH = maxLength;
+        BUCKETS = new TokenType[maxLength + 1][26][];
+        for (TokenType t : TokenType.values())
+        {
+            if (isKeyword(t))
+            {
+                String rep = t.getRepresentation();
+                TokenType[][] byFirst = BUCKETS[rep.length()];
+                int first = rep.charAt(0) - 'a';
+                TokenType[] bucket = byFirst[first];
+                if (bucket == null)
+                {
+                    byFirst[first] = new TokenType[] {t};
+                }
+                else
+                {
+                    TokenType[] larger = new TokenType[bucket.length + 1];
+                    System.arraycopy(bucket, 0, larger, 0, bucket.length);
+                    larger[bucket.length] = t;
+                    byFirst[first] = larger;
+                }
+            }
+        }
+    }
+
+    /**
+     * Don't instantiate.
+     */
+    private Keywords() {}
+
+    /**
+     * Returns whether the given token type is a keyword.  Keywords are the
+     * token types from <code>RECOGNIZE</code> through <code>NULL</code>.
+     * @param t The token type.
+     * @return Whether the given token type is a keyword.
+     */
+    public static boolean isKeyword(TokenType t)
+    {
+        return t.ordinal() >= TokenType.RECOGNIZE.ordinal();
+    }
+
+    /**
+     * Finds the keyword spelled by the given range of the source.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based offset of the start of the range.
+     * @param length The length of the range.
+     * @return The keyword's <code>TokenType</code>, or <code>null</code> if the
+     *     range doesn't spell a keyword.
+     */
+    public static TokenType lookup(SourceText source, int start, int length)
+    {
+        if (length < 2 || length > MAX_LENGTH)
+        {
+            return null;
+        }
+        int first = source.charAt(start) - 'a';
+        if (first < 0 || first >= 26)
+        {
+            return null;
+        }
+        TokenType[] bucket = BUCKETS[length][first];
+        if (bucket == null)
+        {
+            return null;
+        }
+        for (TokenType t : bucket)
+        {
+            String rep = t.getRepresentation();
+            int i = 1;
+            while (i < length && source.charAt(start + i) == rep.charAt(i))
+            {
+                i++;
+            }
+            if (i == length)
+            {
+                return t;
+            }
+        }
+        return null;
+    }
+}
@@ -4,14 +4,21 @@ package org.spruce.compiler.scanner;
  * A <code>Location</code> describes where a <code>Token</code> can be found in
  * source code.  It consists of a filename, a line number (1-based), a
  * character position (1-based), and the line on which the token starts.
+ * A <code>Location</code> created from a <code>SourceText</code> and an offset
+ * doesn't determine its line number, character position, or line until one of
+ * them is requested.
  */
 public class Location
 {
     private String myFilename;
-    private int myLineNbr;
-    private int myCharPos;
+    // The line number in the high 32 bits and the character position in the
+    // low 32 bits, published together, or 0 if not determined yet.
+    private volatile long myLineAndPos;
     private String myLine;
 
+    private SourceText mySource;
+    private int myOffset;
+
     /**
      * Constructs a <code>Location</code> based on the given attributes.
      * @param filename The filename.
@@ -22,9 +29,72 @@ public class Location
     public Location(String filename, int zeroBasedLineNbr, int zeroBasedCharPos, String line)
     {
         myFilename = filename;
-        myLineNbr = zeroBasedLineNbr + 1;
-        myCharPos = zeroBasedCharPos + 1;
+        myLineAndPos = pack(zeroBasedLineNbr + 1, zeroBasedCharPos + 1);
         myLine = line;
+        myOffset = -1;
+    }
+
+    /**
+     * Constructs a <code>Location</code> at the given offset in the given
+     * <code>SourceText</code>.  The line number, character position, and line
+     * are determined when first requested.
+     * @param source The <code>SourceText</code>.
+     * @param offset The 0-based offset in the source.
+     */
+    public Location(SourceText source, int offset)
+    {
+        myFilename = source.getFilename();
+        mySource = source;
+        myOffset = offset;
+    }
+
+    /**
+     * Packs a line number and character position into one <code>long</code>.
+     * @param lineNbr The one-based line number.
+     * @param charPos The one-based character position.
+     * @return The line number and character position.
+     */
+    private static long pack(int lineNbr, int charPos)
+    {
+        return ((long) lineNbr << 32) | (charPos & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the line number and character position, determining them from
+     * the source and offset if not already determined.  Both are published
+     * at once, so another thread never sees just one of them.
+     * @return The packed line number and character position.
+     */
+    private long resolve()
+    {
+        long lineAndPos = myLineAndPos;
+        if (lineAndPos == 0 && mySource != null)
+        {
+            int lineIdx = mySource.getLineIdx(myOffset);
+            lineAndPos = pack(lineIdx + 1, myOffset - mySource.getLineStart(lineIdx) + 1);
+            myLineAndPos = lineAndPos;
+        }
+        return lineAndPos;
+    }
+
+    /**
+     * Returns the 0-based offset in the source, or <code>-1</code> if this
+     * <code>Location</code> wasn't created from a <code>SourceText</code>.
+     * @return The 0-based offset in the source, or <code>-1</code>.
+     */
+    public int getOffset()
+    {
+        return myOffset;
+    }
+
+    /**
+     * Returns the <code>SourceText</code>, or <code>null</code> if this
+     * <code>Location</code> wasn't created from a <code>SourceText</code>.
+     * @return The <code>SourceText</code>, or <code>null</code>.
+     */
+    public SourceText getSource()
+    {
+        return mySource;
     }
 
     /**
@@ -42,7 +112,7 @@ public class Location
      */
     public int getLineNbr()
     {
-        return myLineNbr;
+        return (int) (resolve() >>> 32);
     }
 
     /**
@@ -51,7 +121,7 @@ public class Location
      */
     public int getCharPos()
     {
-        return myCharPos;
+        return (int) resolve();
     }
 
     /**
@@ -60,6 +130,10 @@ public class Location
      */
     public String getLine()
     {
+        if (myLine == null && mySource != null)
+        {
+            myLine = mySource.getLine(getLineNbr() - 1);
+        }
         return myLine;
     }
 
@@ -70,7 +144,7 @@ public class Location
     @Override
     public String toString()
     {
-        return "Location{" + myFilename + ":" + myLineNbr + ", pos " + myCharPos + ", line \"" + myLine + "\"}";
+        return "Location{" + myFilename + ":" + getLineNbr() + ", pos " + getCharPos() + ", line \"" + getLine() + "\"}";
     }
 
     /**
@@ -79,7 +153,7 @@ public class Location
      */
     public String getFileAndLineNbr()
     {
-        return myFilename + ":" + myLineNbr;
+        return myFilename + ":" + getLineNbr();
     }
 
     /**
@@ -94,7 +168,8 @@ public class Location
     public String getPosIndicator()
     {
         StringBuilder buf = new StringBuilder();
-        for (int i = 0; i < myCharPos - 1; i++)
+        int charPos = getCharPos();
+        for (int i = 0; i < charPos - 1; i++)
         {
             buf.append(' ');
         }
@@ -5,41 +5,52 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 
+import org.spruce.compiler.diagnostic.Diagnostic;
 import org.spruce.compiler.exception.CompileException;
 
 /**
- * Reads input from a Reader representing a compilation unit.
- * Scans tokens from the text read from the Reader.
+ * Reads input from a <code>SourceText</code> representing a compilation unit.
+ * Scans tokens from the text, keeping an absolute offset into it.  Tokens
+ * peeked at past the next token are kept, as types and spans, until
+ * <code>next</code> reaches them, so each token is scanned once; returning to
+ * a mark scans the text again.  A <code>TokenBuffer</code> never does.
+ * The tokens depend only on the text, never on what is parsing them.
  */
-public class Scanner
+public class Scanner implements TokenStream
 {
-    private boolean amInTypeContext;
-    private List<String> myLines;
+    private SourceText mySource;
+    private SymbolTable mySymbols;
+    private int myLength;
 
-    private String myFilename;
-    private int myLineNbr;
-    private int myCharPos;
-
-    private int myTokenLineNbr;
-    private int myTokenCharPos;
+    private int myPos;
+    private int myTokenStart;
 
     private Token myCurrToken;
     private Token myNextToken;
 
+    // The tokens scanned past the next token by peek, oldest first, from
+    // myAheadFirst; myPos is just past the last of them.
+    private TokenType[] myAheadTypes;
+    private int[] myAheadStarts;
+    private int[] myAheadLengths;
+    private int myAheadFirst;
+    private int myAheadCount;
+
+    private int[] myMarkPositions;
+    private Token[] myMarkTokens;
+    private int myMarkCount;
+
+    private Trivia myTrivia;
+
     /**
      * Constructs a <code>Scanner</code> based on a <code>String</code>.
      * @param contents The contents of the code to scan.
      */
     public Scanner(String contents)
     {
-        Objects.requireNonNull(contents);
-
-        myFilename = "<no file>";
-        myLines = Arrays.asList(contents.split("\\R", -1));
-        init();
+        this(new SourceText("<no file>", Objects.requireNonNull(contents)));
     }
 
     /**
@@ -62,41 +73,69 @@ public class Scanner
      */
     public Scanner(Path path, Charset charset) throws IOException
     {
-        Objects.requireNonNull(path);
-        Objects.requireNonNull(charset);
+        this(new SourceText(Objects.requireNonNull(path).toString(),
+                new String(Files.readAllBytes(path), Objects.requireNonNull(charset))));
+    }
 
-        myFilename = path.toString();
-        myLines = Files.readAllLines(path);
-        init();
+    /**
+     * Constructs a <code>Scanner</code> that will scan the given
+     * <code>SourceText</code>, interning names in a new
+     * <code>SymbolTable</code>.
+     * @param source The <code>SourceText</code> to scan.
+     */
+    public Scanner(SourceText source)
+    {
+        this(source, new SymbolTable());
     }
 
     /**
-     * Sets the line number and char pos to 0, with the current token being
-     * unknown.
+     * Constructs a <code>Scanner</code> that will scan the given
+     * <code>SourceText</code>, interning identifiers and string literal values
+     * in the given <code>SymbolTable</code>, which may be shared with other
+     * scanners.
+     * @param source The <code>SourceText</code> to scan.
+     * @param symbols The <code>SymbolTable</code>.
      */
-    private void init()
+    public Scanner(SourceText source, SymbolTable symbols)
     {
-        myLineNbr = 0;
-        myCharPos = 0;
-        amInTypeContext = false;
+        mySource = Objects.requireNonNull(source);
+        mySymbols = Objects.requireNonNull(symbols);
+        myLength = source.length();
+        myPos = 0;
     }
 
     /**
-     * Returns whether a type context is active.
-     * @return Whether a type context is active.
+     * Creates a <code>Scanner</code> that will scan the contents of the file
+     * specified by the given filename, in the given character set, by
+     * memory-mapping the file.  ASCII-only files are scanned straight from
+     * the mapped bytes.
+     * @param path The path of the file to read.
+     * @param charset The <code>Charset</code> of the file.
+     * @return A <code>Scanner</code> over the mapped file.
+     * @throws IOException If there is a problem reading or decoding the file.
+     * @see SourceLoader
+     */
+    public static Scanner map(Path path, Charset charset) throws IOException
+    {
+        return new Scanner(SourceText.map(path, charset));
+    }
+
+    /**
+     * Returns the <code>SourceText</code> being scanned.
+     * @return The <code>SourceText</code> being scanned.
      */
-    public boolean isInTypeContext()
+    public SourceText getSource()
     {
-        return amInTypeContext;
+        return mySource;
     }
 
     /**
-     * Sets whether a type context is active.
-     * @param inTypeContext Whether a type context is active.
+     * Returns the <code>SymbolTable</code> that names are interned in.
+     * @return The <code>SymbolTable</code>.
      */
-    public void setInTypeContext(boolean inTypeContext)
+    public SymbolTable getSymbolTable()
     {
-        amInTypeContext = inTypeContext;
+        return mySymbols;
     }
 
     /**
@@ -105,6 +144,7 @@ public class Scanner
      * @return The current <code>Token</code>, or <code>null</code> if there
      * isn't one yet.
      */
+    @Override
     public Token getCurrToken()
     {
         return myCurrToken;
@@ -117,38 +157,63 @@ public class Scanner
      * @return The next <code>Token</code>, or <code>null</code> if there
      * isn't one yet.
      */
+    @Override
     public Token peekNextToken()
     {
         return myNextToken;
     }
 
     /**
-     * Returns a new current token type/value.
+     * Returns a new <code>Token</code> of the given type, spanning from the
+     * start of the token just scanned to the current position.
+     * @param t The token type.
+     * @return A new <code>Token</code>.
+     */
+    private Token createToken(TokenType t)
+    {
+        return createToken(t, myTokenStart, myPos - myTokenStart);
+    }
+
+    /**
+     * Returns a new <code>Token</code> of the given type and span.
      * @param t The token type.
-     * @param value The string value.
+     * @param start The 0-based offset of the start of the token.
+     * @param length The length of the token.
      * @return A new <code>Token</code>.
      */
-    private Token createToken(TokenType t, String value)
+    private Token createToken(TokenType t, int start, int length)
     {
-        Location loc = new Location(myFilename, myTokenLineNbr, myTokenCharPos, myLines.get(myTokenLineNbr));
-        return new Token(loc, t, value);
+        return new Token(mySource, start, length, t, TokenValues.valueOf(mySource, t, start, length, mySymbols));
+    }
+
+    /**
+     * Returns a new <code>CompileException</code> for a lexical error in the
+     * token being scanned, spanning from its start to the current position.
+     * @param message The message.
+     * @return A new <code>CompileException</code>.
+     */
+    private CompileException lexicalError(String message)
+    {
+        return new CompileException(Diagnostic.error(Diagnostic.LEXICAL_ERROR, new Location(mySource, myTokenStart),
+                myPos - myTokenStart, message));
     }
 
     /**
      * Advances to the next token.  Skips whitespace and comments.
      * @return Whether there is another token before EOF to be read.
      */
+    @Override
     public boolean next()
     {
         if (myCurrToken == null)
         {
-            myCurrToken = advanceSkippingWhitespaceComments();
-            myNextToken = advanceSkippingWhitespaceComments();
+            myCurrToken = nextToken();
+            myNextToken = nextToken();
         }
         else if (myNextToken.getType() != TokenType.EOF)
         {
             myCurrToken = myNextToken;
-            myNextToken = advanceSkippingWhitespaceComments();
+            myNextToken = nextToken();
         }
         else if (myCurrToken.getType() != TokenType.EOF)
         {
@@ -159,268 +224,482 @@ public class Scanner
     }
 
     /**
-     * Helper method to scan for the next token, skipping whitespace and comments.
-     * @return The next non-whitespace, non-comment token.
+     * Returns the type of the token <code>n</code> tokens ahead of the current
+     * token.  Tokens further ahead than the next token are scanned once, and
+     * kept until <code>next</code> reaches them.
+     * @param n How many tokens ahead of the current token to look, at least 0.
+     * @return The type of that token.
      */
-    private Token advanceSkippingWhitespaceComments()
+    @Override
+    public TokenType peek(int n)
     {
-        Token t;
-        do
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("Can't peek behind the current token: " + n);
+        }
+        if (n == 0)
         {
-            t = advance();
+            return myCurrToken.getType();
         }
-        while (t.getType() == TokenType.WHITESPACE || t.getType() == TokenType.COMMENT);
-        return t;
+        if (n == 1 || myNextToken.getType() == TokenType.EOF)
+        {
+            return myNextToken.getType();
+        }
+        while (myAheadCount < n - 1)
+        {
+            if (myAheadCount > 0 && myAheadTypes[myAheadFirst + myAheadCount - 1] == TokenType.EOF)
+            {
+                return TokenType.EOF;
+            }
+            scanAhead();
+        }
+        return myAheadTypes[myAheadFirst + n - 2];
     }
 
     /**
-     * Advances to the next token.
-     * @return The next token.
+     * Scans one more token past the next token and those already kept, and
+     * keeps it.  If it can't be scanned, the position is left just past the
+     * tokens already kept.
      */
-    private Token advance()
+    private void scanAhead()
     {
-        // Note down start of token position.
-        myTokenLineNbr = myLineNbr;
-        myTokenCharPos = myCharPos;
-
-        Token t;
-
-        char first = peek();
-        if (first == (char) -1)
+        if (myAheadTypes == null)
         {
-            t = createToken(TokenType.EOF, null);
+            myAheadTypes = new TokenType[8];
+            myAheadStarts = new int[8];
+            myAheadLengths = new int[8];
         }
-        else if (Character.isWhitespace(first))
+        else if (myAheadFirst + myAheadCount == myAheadTypes.length)
         {
-            readWhitespace();
-            t = createToken(TokenType.WHITESPACE, null);
+            if (myAheadFirst > 0)
+            {
+                System.arraycopy(myAheadTypes, myAheadFirst, myAheadTypes, 0, myAheadCount);
+                System.arraycopy(myAheadStarts, myAheadFirst, myAheadStarts, 0, myAheadCount);
+                System.arraycopy(myAheadLengths, myAheadFirst, myAheadLengths, 0, myAheadCount);
+                myAheadFirst = 0;
+            }
+            else
+            {
+                myAheadTypes = Arrays.copyOf(myAheadTypes, myAheadCount * 2);
+                myAheadStarts = Arrays.copyOf(myAheadStarts, myAheadCount * 2);
+                myAheadLengths = Arrays.copyOf(myAheadLengths, myAheadCount * 2);
+            }
         }
-        // numeric literal: int/long/float/double/BigInteger/BigDecimal
-        else if (Character.isDigit(first))
+        int pos = myPos;
+        int tokenStart = myTokenStart;
+        TokenType t;
+        try
         {
-            t = readNumericLiteral();
+            t = scanSkippingWhitespaceComments();
         }
-        else if (Character.isJavaIdentifierStart(first))
+        catch (CompileException e)
         {
-            t = readIdentifierOrKeyword();
+            myPos = pos;
+            myTokenStart = tokenStart;
+            throw e;
         }
-        else
-        {
-            switch(first)
-            {
-            case '"':
-                t = readStringLiteral();
-                break;
-            case '\'':
-                t = readCharacterLiteral();
-                break;
-            case '@':
-                t = createToken(TokenType.AT_SIGN, String.valueOf(read()));
-                break;
-            case '{':
-                t = createToken(TokenType.OPEN_BRACE, String.valueOf(read()));
-                break;
-            case '}':
-                t = createToken(TokenType.CLOSE_BRACE, String.valueOf(read()));
-                break;
-            case '[':
-                t = readStartingWithOpenBracket();
-                break;
-            case ']':
-                t = createToken(TokenType.CLOSE_BRACKET, String.valueOf(read()));
-                break;
-            case '(':
-                t = createToken(TokenType.OPEN_PARENTHESIS, String.valueOf(read()));
-                break;
-            case ')':
-                t = createToken(TokenType.CLOSE_PARENTHESIS, String.valueOf(read()));
-                break;
-            case ',':
-                t = createToken(TokenType.COMMA, String.valueOf(read()));
-                break;
-            case ':':
-                t = readStartingWithColon();
-                break;
-            case ';':
-                t = createToken(TokenType.SEMICOLON, String.valueOf(read()));
-                break;
-            case '?':
-                t = createToken(TokenType.QUESTION_MARK, String.valueOf(read()));
-                break;
-            case '=':
-                t = readStartingWithEquals();
-                break;
-            case '.':
-                t = readStartingWithDot();
-                break;
-            case '!':
-                t = readStartingWithExclamation();
-                break;
-            case '<':
-                t = readStartingWithLessThan();
-                break;
-            case '>':
-                t = readStartingWithGreaterThan();
-                break;
-            case '+':
-                t = readStartingWithPlus();
-                break;
-            case '-':
-                t = readStartingWithMinus();
-                break;
-            case '*':
-                t = readStartingWithStar();
-                break;
-            case '/':
-                t = readStartingWithSlash();
-                break;
-            case '%':
-                t = readStartingWithPercent();
-                break;
-            case '&':
-                t = readStartingWithAmpersand();
-                break;
-            case '|':
-                t = readStartingWithPipe();
-                break;
-            case '^':
-                t = readStartingWithCaret();
-                break;
-            case '~':
-                t = createToken(TokenType.BITWISE_COMPLEMENT, String.valueOf(read()));
-                break;
-            default:
-                t = createToken(TokenType.UNKNOWN, String.valueOf(read()));
-            }
-        }
-        return t;
+        int idx = myAheadFirst + myAheadCount++;
+        myAheadTypes[idx] = t;
+        myAheadStarts[idx] = myTokenStart;
+        myAheadLengths[idx] = myPos - myTokenStart;
     }
 
     /**
-     * Scans whitespace until we encounter a non-whitespace character.
+     * Returns the token after the next token: the first kept by
+     * <code>peek</code>, if any, else a newly scanned one.
+     * @return The token after the next token.
      */
-    private void readWhitespace()
+    private Token nextToken()
     {
-        while (Character.isWhitespace(peek()))
+        if (myAheadCount == 0)
         {
-            read();
+            return advanceSkippingWhitespaceComments();
         }
+        int idx = myAheadFirst;
+        Token token = createToken(myAheadTypes[idx], myAheadStarts[idx], myAheadLengths[idx]);
+        myAheadTypes[idx] = null;
+        myAheadCount--;
+        myAheadFirst = (myAheadCount == 0) ? 0 : idx + 1;
+        return token;
     }
 
     /**
-     * Reads an identifier or keyword.
-     * @return The <code>Token</code> associated with the identifier or keyword.
+     * Marks the current position, so that <code>reset</code> can return to it.
+     * @return A handle for the mark.
      */
-    private Token readIdentifierOrKeyword()
+    @Override
+    public int mark()
     {
-        StringBuilder buf = new StringBuilder();
-        buf.append(read());
-        while (Character.isJavaIdentifierPart(peek()))
+        if (myMarkPositions == null)
         {
-            buf.append(read());
+            myMarkPositions = new int[4];
+            myMarkTokens = new Token[8];
         }
-        String result = buf.toString();
-        TokenType keyword = TokenType.forRepresentation(result);
-        if (keyword != null)
+        else if (myMarkCount == myMarkPositions.length)
         {
-            return createToken(keyword, result);
+            myMarkPositions = Arrays.copyOf(myMarkPositions, myMarkCount * 2);
+            myMarkTokens = Arrays.copyOf(myMarkTokens, myMarkCount * 4);
         }
-        else
+        // Tokens kept past the next token are scanned again after a reset.
+        myMarkPositions[myMarkCount] = (myAheadCount == 0) ? myPos : myAheadStarts[myAheadFirst];
+        myMarkTokens[2 * myMarkCount] = myCurrToken;
+        myMarkTokens[2 * myMarkCount + 1] = myNextToken;
+        return myMarkCount++;
+    }
+
+    /**
+     * Returns to the position of the given mark, and releases it and any
+     * marks made after it.  Tokens after the mark will be scanned again.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    @Override
+    public void reset(int mark)
+    {
+        release(mark);
+        myPos = myMarkPositions[mark];
+        clearAhead();
+        myCurrToken = myMarkTokens[2 * mark];
+        myNextToken = myMarkTokens[2 * mark + 1];
+        myMarkTokens[2 * mark] = null;
+        myMarkTokens[2 * mark + 1] = null;
+    }
+
+    /**
+     * Releases the given mark, and any marks made after it, without changing
+     * the position.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    @Override
+    public void release(int mark)
+    {
+        if (mark < 0 || mark >= myMarkCount)
         {
-            return createToken(TokenType.IDENTIFIER, result);
+            throw new IllegalStateException("Mark " + mark + " isn't active; there are " + myMarkCount + " marks.");
         }
+        myMarkCount = mark;
     }
 
     /**
-     * Reads until the end of a traditional comment, "&#42;/".
-     * @return The comment text.
-     * @throws CompileException If the end of the file was reached before the
-     *     end of the traditional comment.
+     * Helper method to scan for the next token, skipping whitespace and comments.
+     * @return The next non-whitespace, non-comment token.
      */
-    private String readCommentUntilEndComment()
+    private Token advanceSkippingWhitespaceComments()
     {
-        StringBuilder buf = new StringBuilder();
-        char c;
-        boolean endCommentReached = false;
-        while ( (c = read()) != (char) -1)
+        return createToken(scanSkippingWhitespaceComments());
+    }
+
+    /**
+     * Scans the next token, skipping whitespace and comments, without
+     * creating a <code>Token</code>.  The token spans from
+     * <code>getTokenStart()</code> to <code>getPosition()</code>.
+     * @return The type of the next non-whitespace, non-comment token.
+     */
+    TokenType scanSkippingWhitespaceComments()
+    {
+        skipTrivia();
+        return advance();
+    }
+
+    /**
+     * Skips whitespace and comments in place, straight from the source, so
+     * that they are never scanned as tokens, and nothing is allocated for
+     * them, unless they are being recorded in a <code>Trivia</code> table.
+     * @throws CompileException If the end of the file is reached before the
+     *     end of a traditional comment.
+     */
+    private void skipTrivia()
+    {
+        while (myPos < myLength)
         {
-            if (c == '*')
+            int start = myPos;
+            char c = mySource.charAt(myPos);
+            TokenType kind;
+            if (CharClasses.isWhitespace(c))
             {
-                if (peek() == '/')
+                do
                 {
-                    read();
-                    endCommentReached = true;
-                    break;
+                    myPos = mySource.asciiWhitespaceEnd(myPos + 1);
                 }
+                while (myPos < myLength && CharClasses.isWhitespace(mySource.charAt(myPos)));
+                kind = TokenType.WHITESPACE;
+            }
+            else if (c == '/' && myPos + 1 < myLength && mySource.charAt(myPos + 1) == '/')
+            {
+                myPos = endOfLineComment(myPos + 2);
+                kind = TokenType.COMMENT;
             }
-            buf.append(c);
+            else if (c == '/' && myPos + 1 < myLength && mySource.charAt(myPos + 1) == '*')
+            {
+                myPos = endOfTraditionalComment(myPos);
+                kind = TokenType.COMMENT;
+            }
+            else
+            {
+                return;
+            }
+            if (myTrivia != null)
+            {
+                myTrivia.add(kind, start, myPos - start);
+            }
+        }
+    }
+
+    /**
+     * Returns whether whitespace or a comment starts at the given offset.
+     * @param source The <code>SourceText</code>.
+     * @param pos The 0-based offset, less than the length of the source.
+     * @return Whether whitespace or a comment starts there.
+     */
+    static boolean startsTrivia(SourceText source, int pos)
+    {
+        char c = source.charAt(pos);
+        if (c == '/' && pos + 1 < source.length())
+        {
+            char next = source.charAt(pos + 1);
+            return next == '/' || next == '*';
         }
-        if (!endCommentReached)
+        return CharClasses.isWhitespace(c);
+    }
+
+    /**
+     * Finds the end of an end-of-line comment, just past its line terminator,
+     * or the end of the file.
+     * @param pos The offset just past the "//".
+     * @return The offset just past the comment.
+     */
+    private int endOfLineComment(int pos)
+    {
+        while (pos < myLength)
         {
-            throw new CompileException("End of file reached before end of traditional comment!");
+            char c = mySource.charAt(pos++);
+            if (c < '\u0085' && c > '\r')
+            {
+                continue;
+            }
+            if (SourceText.isLineTerminator(c))
+            {
+                if (c == '\r' && pos < myLength && mySource.charAt(pos) == '\n')
+                {
+                    pos++;
+                }
+                break;
+            }
         }
-        return buf.toString();
+        return pos;
     }
 
     /**
-     * Reads until the end of the line or file.
-     * @return The comment text.
+     * Finds the end of a traditional comment, "&#42;/".
+     * @param start The offset of the "/&#42;".
+     * @return The offset just past the comment.
      * @throws CompileException If the end of the file was reached before the
      *     end of the traditional comment.
      */
-    private String readCommentUntilEndOfLine()
+    private int endOfTraditionalComment(int start)
     {
-        StringBuilder buf = new StringBuilder();
-        char c;
-        while (true)
+        for (int pos = start + 2; pos + 1 < myLength; pos++)
         {
-            c = peek();
-            // '\n' by itself
-            if (c == '\n')
+            if (mySource.charAt(pos) == '*' && mySource.charAt(pos + 1) == '/')
             {
-                read();
-                break;
+                return pos + 2;
             }
-            else if (c == (char) -1)
+        }
+        myTokenStart = start;
+        myPos = myLength;
+        throw lexicalError("End of file reached before end of traditional comment!");
+    }
+
+    /**
+     * Returns the 0-based offset of the start of the token just scanned.
+     * @return The 0-based offset of the start of the token just scanned.
+     */
+    int getTokenStart()
+    {
+        return myTokenStart;
+    }
+
+    /**
+     * Returns the 0-based offset of the next character to be scanned, which is
+     * just past the end of the token just scanned.
+     * @return The 0-based offset of the next character to be scanned.
+     */
+    int getPosition()
+    {
+        return myPos;
+    }
+
+    /**
+     * Sets the <code>Trivia</code> table that skipped whitespace and comments
+     * are added to, unattached, or <code>null</code> to not record them.
+     * @param trivia The <code>Trivia</code>, or <code>null</code>.
+     */
+    void setTrivia(Trivia trivia)
+    {
+        myTrivia = trivia;
+    }
+
+    /**
+     * Moves to the given offset, which must be between tokens, to scan with
+     * <code>scanSkippingWhitespaceComments</code> from there.  No characters
+     * before the offset are looked at again.
+     * @param pos The 0-based offset of the next character to be scanned.
+     */
+    void setPosition(int pos)
+    {
+        myPos = pos;
+        myTokenStart = pos;
+        clearAhead();
+    }
+
+    /**
+     * Discards the tokens kept past the next token.
+     */
+    private void clearAhead()
+    {
+        if (myAheadCount > 0)
+        {
+            Arrays.fill(myAheadTypes, myAheadFirst, myAheadFirst + myAheadCount, null);
+            myAheadFirst = 0;
+            myAheadCount = 0;
+        }
+    }
+
+    /**
+     * Advances to the next token.  The first character of an ASCII token is
+     * classified with one lookup in <code>CharClasses</code>; any other
+     * character follows the Unicode rules.
+     * @return The type of the next token.
+     */
+    private TokenType advance()
+    {
+        // Note down start of token position.
+        myTokenStart = myPos;
+
+        char first = peek();
+        if (first < CharClasses.ASCII_LIMIT)
+        {
+            switch(CharClasses.handler(first))
             {
-                break;
+            case CharClasses.IDENTIFIER:
+                return readIdentifierOrKeyword();
+            // numeric literal: int/long/float/double/BigInteger/BigDecimal
+            case CharClasses.NUMBER:
+                return readNumericLiteral();
+            case CharClasses.SINGLE:
+                myPos++;
+                return CharClasses.singleToken(first);
+            case CharClasses.STRING:
+                return readStringLiteral();
+            case CharClasses.CHARACTER:
+                return readCharacterLiteral();
+            case CharClasses.OPEN_BRACKET:
+                return readStartingWithOpenBracket();
+            case CharClasses.COLON:
+                return readStartingWithColon();
+            case CharClasses.EQUALS:
+                return readStartingWithEquals();
+            case CharClasses.DOT:
+                return readStartingWithDot();
+            case CharClasses.EXCLAMATION:
+                return readStartingWithExclamation();
+            case CharClasses.LESS_THAN:
+                return readStartingWithLessThan();
+            case CharClasses.GREATER_THAN:
+                return readStartingWithGreaterThan();
+            case CharClasses.PLUS:
+                return readStartingWithPlus();
+            case CharClasses.MINUS:
+                return readStartingWithMinus();
+            case CharClasses.STAR:
+                return readStartingWithStar();
+            case CharClasses.SLASH:
+                return readStartingWithSlash();
+            case CharClasses.PERCENT:
+                return readStartingWithPercent();
+            case CharClasses.AMPERSAND:
+                return readStartingWithAmpersand();
+            case CharClasses.PIPE:
+                return readStartingWithPipe();
+            case CharClasses.CARET:
+                return readStartingWithCaret();
+            default:
+                read();
+                return TokenType.UNKNOWN;
             }
+        }
+        else if (first == (char) -1)
+        {
+            return TokenType.EOF;
+        }
+        else if (Character.isDigit(first))
+        {
+            return readNumericLiteral();
+        }
+        else if (Character.isJavaIdentifierStart(first))
+        {
+            return readIdentifierOrKeyword();
+        }
+        else
+        {
             read();
-            buf.append(c);
+            return TokenType.UNKNOWN;
+        }
+    }
+
+    /**
+     * Reads an identifier or keyword.
+     * @return The type of the identifier or keyword.
+     */
+    private TokenType readIdentifierOrKeyword()
+    {
+        read();
+        // ASCII runs are skipped in bulk; any other character is checked on
+        // its own.
+        myPos = mySource.asciiIdentifierPartEnd(myPos);
+        while (CharClasses.isIdentifierPart(peek()))
+        {
+            read();
+            myPos = mySource.asciiIdentifierPartEnd(myPos);
+        }
+        TokenType keyword = Keywords.lookup(mySource, myTokenStart, myPos - myTokenStart);
+        if (keyword != null)
+        {
+            return keyword;
+        }
+        else
+        {
+            return TokenType.IDENTIFIER;
         }
-        return buf.toString();
     }
 
     /**
      * Reads a character literal, which must be exactly one character enclosed
      * in single quotes.  Escape characters are respected.
-     * @return The <code>Token</code> associated with the character literal.
+     * @return The type of the character literal.
      */
-    private Token readCharacterLiteral()
+    private TokenType readCharacterLiteral()
     {
         read();
         if (peek() == '\'')
         {
-            throw new CompileException("Illegal empty character literal.");
+            throw lexicalError("Illegal empty character literal.");
         }
 
-        Token t;
-
         switch(peek())
         {
         case '\\':
             read();
-            t = createToken(TokenType.CHARACTER_LITERAL, String.valueOf(applyEscape()));
+            applyEscape();
             break;
         default:
-            t = createToken(TokenType.CHARACTER_LITERAL, String.valueOf(read()));
+            read();
             break;
         }
         if (read() != '\'')
         {
-            throw new CompileException("Illegal unclosed character literal.");
+            throw lexicalError("Illegal unclosed character literal.");
         }
-        return t;
+        return TokenType.CHARACTER_LITERAL;
     }
 
     /**
@@ -428,11 +707,11 @@ public class Scanner
      * two more additional double-quote characters are read, making three
      * consecutive, then the string is read without escapes and possibly with
      * newlines.
-     * @return The <code>Token</code> associated with the string literal.
+     * @return The type of the string literal.
      * @throws CompileException If end-of-line or end-of-file occurs before the
      *     next double-quote character.
      */
-    private Token readStringLiteral()
+    private TokenType readStringLiteral()
     {
         read();
         if (peek() == '"')
@@ -444,7 +723,6 @@ public class Scanner
                 return readUnescapedMultilineStringLiteral();
             }
         }
-        StringBuilder buf = new StringBuilder();
         while (peek() != '"')
         {
             // Escapes
@@ -452,21 +730,21 @@ public class Scanner
             {
             case '\\':
                 read();
-                buf.append(applyEscape());
+                applyEscape();
                 break;
             case '\n':
             case '\r':
-                throw new CompileException("String not terminated before end of line.");
+                throw lexicalError("String not terminated before end of line.");
             case (char) -1:
-                throw new CompileException("String not terminated before end of file.");
+                throw lexicalError("String not terminated before end of file.");
             default:
-                buf.append(read());
+                read();
                 break;
             }
         }
         // Advance past closing double-quote.
         read();
-        return createToken(TokenType.STRING_LITERAL, buf.toString());
+        return TokenType.STRING_LITERAL;
     }
 
     /**
@@ -477,27 +755,13 @@ public class Scanner
      */
     private char applyEscape()
     {
-        switch (read())
-        {
-        case 'b':
-            return '\b';
-        case 'f':
-            return '\f';
-        case 'n':
-            return '\n';
-        case 'r':
-            return '\r';
-        case 't':
-            return '\t';
-        case '"':
-            return '"';
-        case '\'':
-            return '\'';
-        case '\\':
-            return '\\';
-        default:
-            throw new CompileException("Illegal escape sequence: \\" + peek());
+        char c = read();
+        char escaped = TokenValues.escape(c);
+        if (escaped == (char) -1)
+        {
+            throw lexicalError("Illegal escape sequence: \\" + peek());
         }
+        return escaped;
     }
 
     /**
@@ -505,11 +769,10 @@ public class Scanner
      * literal is ended by 3 consecutive double-quote characters in the source.
      * More than 3 consecutive means that additional double-quote characters
      * are appended to the literal.
-     * @return The <code>Token</code> associated with the string literal.
+     * @return The type of the string literal.
      */
-    private Token readUnescapedMultilineStringLiteral()
+    private TokenType readUnescapedMultilineStringLiteral()
     {
-        StringBuilder buf = new StringBuilder();
         boolean terminated = false;
         while (!terminated)
         {
@@ -526,20 +789,12 @@ public class Scanner
                         terminated = true;
                         break;
                     }
-                    else
-                    {
-                        buf.append("\"\"");
-                    }
-                }
-                else
-                {
-                    buf.append("\"");
                 }
                 break;
             case (char) -1:
-                throw new CompileException("String not terminated before end of file.");
+                throw lexicalError("String not terminated before end of file.");
             default:
-                buf.append(read());
+                read();
                 break;
             }
         }
@@ -550,33 +805,29 @@ public class Scanner
         // Here we've read 3 double-quote characters already.
         while (peek() == '"')
         {
-            buf.append(read());
+            read();
         }
 
-        return createToken(TokenType.STRING_LITERAL, buf.toString());
+        return TokenType.STRING_LITERAL;
     }
 
     /**
      * Reads an integer literal.  This will also read long literals, float
      * literals, double literals, <code>BigInteger</code> literals, and
      * <code>BigDecimal</code> literals.
-     * @return The <code>Token</code> associated with the numeric literal.
+     * @return The type of the numeric literal.
      */
-    private Token readNumericLiteral()
+    private TokenType readNumericLiteral()
     {
-        StringBuilder buf = new StringBuilder();
-        while (Character.isDigit(peek()))
-        {
-            buf.append(read());
-        }
+        readDigits();
         char c = peek();
         if (c == 'e' || c == 'E' || c == '.')
         {
-            return readFloatingPointLiteral(buf, c == '.');
+            return readFloatingPointLiteral(c == '.');
         }
         else
         {
-            return createToken(TokenType.INT_LITERAL, buf.toString());
+            return TokenType.INT_LITERAL;
         }
     }
 
@@ -587,103 +838,110 @@ public class Scanner
      *     <li>Digits have been read, and one of <code>e E .</code> is next.</li>
      *     <li>A decimal point has been read, and a digit is next.</li>
      * </ul>
-     * @param soFar What has been read so far into the token.
      * @param dotIsNext Whether a <code>.</code> is next to be read.
-     * @return The <code>Token</code> associated with the floating point literal.
+     * @return The type of the floating point literal.
      */
-    private Token readFloatingPointLiteral(StringBuilder soFar, boolean dotIsNext)
+    private TokenType readFloatingPointLiteral(boolean dotIsNext)
     {
         if (dotIsNext)
         {
-            soFar.append(read());
-        }
-        while (Character.isDigit(peek()))
-        {
-            soFar.append(read());
+            read();
         }
+        readDigits();
         char expPart = peek();
         // Exponent part.
         if (expPart == 'e' || expPart == 'E')
         {
-            soFar.append(read());
+            read();
             char next = peek();
             if (next == '+' || next == '-')
             {
-                soFar.append(read());
-            }
-            if (!Character.isDigit(peek()))
-            {
-                throw new CompileException("Invalid floating point literal; missing exponent");
+                read();
             }
-            while (Character.isDigit(peek()))
+            if (!CharClasses.isDigit(peek()))
             {
-                soFar.append(read());
+                throw lexicalError("Invalid floating point literal; missing exponent");
             }
+            readDigits();
+        }
+        return TokenType.FLOATING_POINT_LITERAL;
+    }
+
+    /**
+     * Reads any digits.  ASCII runs are skipped in bulk; any other digit is
+     * checked on its own.
+     */
+    private void readDigits()
+    {
+        myPos = mySource.asciiDigitEnd(myPos);
+        while (CharClasses.isDigit(peek()))
+        {
+            read();
+            myPos = mySource.asciiDigitEnd(myPos);
         }
-        return createToken(TokenType.FLOATING_POINT_LITERAL, soFar.toString());
     }
 
     /**
      * Scans "[" and "[]".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithOpenBracket()
+    private TokenType readStartingWithOpenBracket()
     {
         read();
         if (peek() == ']')
         {
             read();
-            return createToken(TokenType.OPEN_CLOSE_BRACKET, "[]");
+            return TokenType.OPEN_CLOSE_BRACKET;
         }
         else
         {
-            return createToken(TokenType.OPEN_BRACKET, "[");
+            return TokenType.OPEN_BRACKET;
         }
     }
 
     /**
      * Scans "::", ":=", ":&gt;", and ":".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithColon()
+    private TokenType readStartingWithColon()
     {
         read();
         switch (peek())
         {
         case ':':
             read();
-            return createToken(TokenType.DOUBLE_COLON, "::");
+            return TokenType.DOUBLE_COLON;
         case '=':
             read();
-            return createToken(TokenType.ASSIGNMENT, ":=");
+            return TokenType.ASSIGNMENT;
         case '>':
             read();
-            return createToken(TokenType.SUPERTYPE, ":>");
+            return TokenType.SUPERTYPE;
         default:
-            return createToken(TokenType.COLON, ":");
+            return TokenType.COLON;
         }
     }
 
     /**
      * Scans "=".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithEquals()
+    private TokenType readStartingWithEquals()
     {
         read();
-        return createToken(TokenType.EQUAL, "=");
+        return TokenType.EQUAL;
     }
 
     /**
      * Scans "...", ".", and floating point literals that start with ".".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithDot()
+    private TokenType readStartingWithDot()
     {
         read();
-        if (Character.isDigit(peek()))
+        if (CharClasses.isDigit(peek()))
         {
-            return readFloatingPointLiteral(new StringBuilder("."), true);
+            return readFloatingPointLiteral(false);
         }
         switch (peek())
         {
@@ -692,7 +950,7 @@ public class Scanner
             if (peek() == '.')
             {
                 read();
-                return createToken(TokenType.ELLIPSIS, "...");
+                return TokenType.ELLIPSIS;
             }
             else
             {
@@ -700,32 +958,32 @@ public class Scanner
             }
             // FALLTHROUGH!
         default:
-            return createToken(TokenType.DOT, ".");
+            return TokenType.DOT;
         }
     }
 
     /**
      * Scans "!=" and "!".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithExclamation()
+    private TokenType readStartingWithExclamation()
     {
         read();
         switch (peek())
         {
         case '=':
             read();
-            return createToken(TokenType.NOT_EQUAL, "!=");
+            return TokenType.NOT_EQUAL;
         default:
-            return createToken(TokenType.LOGICAL_COMPLEMENT, "!");
+            return TokenType.LOGICAL_COMPLEMENT;
         }
     }
 
     /**
      * Scans "&lt;&lt;", "&lt;&lt;=", "&lt;=", "&lt;=&gt;", "&lt;:", and "&lt;".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithLessThan()
+    private TokenType readStartingWithLessThan()
     {
         read();
         switch (peek())
@@ -735,288 +993,265 @@ public class Scanner
             if (peek() == '>')
             {
                 read();
-                return createToken(TokenType.COMPARISON, "<=>");
+                return TokenType.COMPARISON;
             }
             else
             {
-                return createToken(TokenType.LESS_THAN_OR_EQUAL, "<=");
+                return TokenType.LESS_THAN_OR_EQUAL;
             }
         case '<':
             read();
             if (peek() == '=')
             {
                 read();
-                return createToken(TokenType.SHIFT_LEFT_EQUALS, "<<=");
+                return TokenType.SHIFT_LEFT_EQUALS;
             }
             else
             {
-                return createToken(TokenType.SHIFT_LEFT, "<<");
+                return TokenType.SHIFT_LEFT;
             }
         case ':':
             read();
-            return createToken(TokenType.SUBTYPE, "<:");
+            return TokenType.SUBTYPE;
         default:
-            return createToken(TokenType.LESS_THAN, "<");
+            return TokenType.LESS_THAN;
         }
     }
 
     /**
-     * Scans "&gt;&gt;", "&gt;&gt;=", "&gt;=", "&gt;&gt;&gt;", "&gt;&gt;&gt;=", and "&gt;".
-     * @return The appropriate <code>Token</code>.
+     * Scans "&gt;=" and "&gt;".  Each "&gt;" of a shift operator is its own
+     * token, whether it closes type arguments or not; the <code>Parser</code>
+     * joins adjacent ones into shift operators where an operator is expected.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithGreaterThan()
+    private TokenType readStartingWithGreaterThan()
     {
         read();
         switch (peek())
         {
         case '=':
             read();
-            return createToken(TokenType.GREATER_THAN_OR_EQUAL, ">=");
-        case '>':
-            if (!amInTypeContext)
-            {
-                read();
-                switch (peek())
-                {
-                case '>':
-                    read();
-                    if (peek() == '=')
-                    {
-                        read();
-                        return createToken(TokenType.UNSIGNED_SHIFT_RIGHT_EQUALS, ">>>=");
-                    } else
-                    {
-                        return createToken(TokenType.UNSIGNED_SHIFT_RIGHT, ">>>");
-                    }
-                case '=':
-                    read();
-                    return createToken(TokenType.SHIFT_RIGHT_EQUALS, ">>=");
-                default:
-                    return createToken(TokenType.SHIFT_RIGHT, ">>");
-                }
-            }
-            /* FALLTHROUGH */
+            return TokenType.GREATER_THAN_OR_EQUAL;
         default:
-            return createToken(TokenType.GREATER_THAN, ">");
+            return TokenType.GREATER_THAN;
         }
     }
 
     /**
      * Scans "++", "+=", and "+".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithPlus()
+    private TokenType readStartingWithPlus()
     {
         read();
         switch(peek())
         {
         case '+':
             read();
-            return createToken(TokenType.INCREMENT, "++");
+            return TokenType.INCREMENT;
         case '=':
             read();
-            return createToken(TokenType.PLUS_EQUALS, "+=");
+            return TokenType.PLUS_EQUALS;
         default:
-            return createToken(TokenType.PLUS, "+");
+            return TokenType.PLUS;
         }
     }
 
     /**
      * Scans "--", "-=", "->", and "-".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithMinus()
+    private TokenType readStartingWithMinus()
     {
         read();
         switch(peek())
         {
         case '-':
             read();
-            return createToken(TokenType.DECREMENT, "--");
+            return TokenType.DECREMENT;
         case '=':
             read();
-            return createToken(TokenType.MINUS_EQUALS, "-=");
+            return TokenType.MINUS_EQUALS;
         case '>':
             read();
-            return createToken(TokenType.LAMBDA_MAPS_TO, "->");
+            return TokenType.LAMBDA_MAPS_TO;
         default:
-            return createToken(TokenType.MINUS, "-");
+            return TokenType.MINUS;
         }
     }
 
     /**
      * Scans "*=" and "*".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithStar()
+    private TokenType readStartingWithStar()
     {
         read();
         if (peek() == '=')
         {
             read();
-            return createToken(TokenType.STAR_EQUALS, "*=");
+            return TokenType.STAR_EQUALS;
         }
         else
         {
-            return createToken(TokenType.STAR, "*");
+            return TokenType.STAR;
         }
     }
 
     /**
-     * Scans "/=" and "/".  Also scans "traditional" comment start/comment/end
-     * comment, e.g. <code>/&#42; comment &#42;/</code>.  Also scans "end of
-     * line" comment, e.g. <code>// comment &lt;end-of-line&gt;</code>
-     * @return The appropriate <code>Token</code>.
+     * Scans "/=" and "/".  Comments were already skipped by
+     * <code>skipTrivia</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithSlash()
+    private TokenType readStartingWithSlash()
     {
         read();
         switch(peek())
         {
         case '=':
             read();
-            return createToken(TokenType.SLASH_EQUALS, "/=");
-        case '*':
-            read();
-            return createToken(TokenType.COMMENT, readCommentUntilEndComment());
-        case '/':
-            read();
-            return createToken(TokenType.COMMENT, readCommentUntilEndOfLine());
+            return TokenType.SLASH_EQUALS;
         default:
-            return createToken(TokenType.SLASH, "/");
+            return TokenType.SLASH;
         }
     }
 
     /**
      * Scans "%=" and "%".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithPercent()
+    private TokenType readStartingWithPercent()
     {
         read();
         switch(peek())
         {
         case '=':
             read();
-            return createToken(TokenType.PERCENT_EQUALS, "%=");
+            return TokenType.PERCENT_EQUALS;
         default:
-            return createToken(TokenType.PERCENT, "%");
+            return TokenType.PERCENT;
         }
     }
 
     /**
      * Scans "&=", "&&", "&:", and "&".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithAmpersand()
+    private TokenType readStartingWithAmpersand()
     {
         read();
         switch(peek())
         {
         case '=':
             read();
-            return createToken(TokenType.AND_EQUALS, "&=");
+            return TokenType.AND_EQUALS;
         case '&':
             read();
-            return createToken(TokenType.CONDITIONAL_AND, "&&");
+            return TokenType.CONDITIONAL_AND;
         case ':':
             read();
-            return createToken(TokenType.LOGICAL_AND, "&:");
+            return TokenType.LOGICAL_AND;
         default:
-            return createToken(TokenType.BITWISE_AND, "&");
+            return TokenType.BITWISE_AND;
         }
     }
 
     /**
      * Scans "|=", "||", "|:", and "|".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithPipe()
+    private TokenType readStartingWithPipe()
     {
         read();
         switch(peek())
         {
         case '=':
             read();
-            return createToken(TokenType.OR_EQUALS, "|=");
+            return TokenType.OR_EQUALS;
         case '|':
             read();
-            return createToken(TokenType.CONDITIONAL_OR, "||");
+            return TokenType.CONDITIONAL_OR;
         case ':':
             read();
-            return createToken(TokenType.LOGICAL_OR, "|:");
+            return TokenType.LOGICAL_OR;
         default:
-            return createToken(TokenType.BITWISE_OR, "|");
+            return TokenType.BITWISE_OR;
         }
     }
 
     /**
      * Scans "^=" and "^".
-     * @return The appropriate <code>Token</code>.
+     * @return The appropriate <code>TokenType</code>.
      */
-    private Token readStartingWithCaret()
+    private TokenType readStartingWithCaret()
     {
         read();
         switch(peek())
         {
         case '=':
             read();
-            return createToken(TokenType.XOR_EQUALS, "^=");
+            return TokenType.XOR_EQUALS;
         case ':':
             read();
-            return createToken(TokenType.LOGICAL_XOR, "^:");
+            return TokenType.LOGICAL_XOR;
         default:
-            return createToken(TokenType.BITWISE_XOR, "^");
+            return TokenType.BITWISE_XOR;
         }
     }
 
     /**
-     * Reads the next character, advancing to it.
+     * Reads the next character, advancing to it.  A line terminator is read
+     * as <code>'\n'</code>, including the two-character <code>\r\n</code>.
      * @return The next character, or <code>(char) -1</code> if EOF.
      */
     private char read()
     {
-        char c = peek();
-        myCharPos++;
-        if (c == '\n')
+        if (myPos >= myLength)
+        {
+            return (char) -1; // EOF
+        }
+        char c = mySource.charAt(myPos++);
+        if (c > '\r' && c < '\u0085')
+        {
+            return c;
+        }
+        if (c == '\r' && myPos < myLength && mySource.charAt(myPos) == '\n')
         {
-            myCharPos = 0;
-            myLineNbr++;
+            myPos++;
         }
-        return c;
+        return SourceText.isLineTerminator(c) ? '\n' : c;
     }
 
     /**
-     * Peeks at the next character, not advancing to it.
+     * Peeks at the next character, not advancing to it.  A line terminator is
+     * seen as <code>'\n'</code>.
      * @return The next character, or <code>(char) -1</code> if EOF.
      */
     private char peek()
     {
-        String currLine = myLines.get(myLineNbr);
-        if (myCharPos >= currLine.length())
+        if (myPos >= myLength)
         {
-            if (myLineNbr == myLines.size() - 1)
-            {
-                return (char) -1; // EOF
-            }
-            else
-            {
-                return '\n';
-            }
+            return (char) -1; // EOF
+        }
+        char c = mySource.charAt(myPos);
+        if (c > '\r' && c < '\u0085')
+        {
+            return c;
         }
-        return currLine.charAt(myCharPos);
+        return SourceText.isLineTerminator(c) ? '\n' : c;
     }
 
     /**
      * Effectively "puts back" the most recent character read.  It just backs
-     * up the counter.
+     * up the counter.  This is only called after a character that isn't a
+     * line terminator has been read.
      */
     private void putBack()
     {
-        if (myCharPos == 0)
+        if (myPos == 0)
         {
-            throw new IllegalStateException("Internal error: Attempted to put back before beginning of line!");
+            throw new IllegalStateException("Internal error: Attempted to put back before beginning of source!");
         }
-        myCharPos--;
+        myPos--;
     }
 }
@@ -0,0 +1,166 @@
+package org.spruce.compiler.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * <p>A <code>SourceLoader</code> loads source files into <code>SourceText</code>s
+ * by memory-mapping them with <code>FileChannel.map</code>, so that the file
+ * contents are never read into a heap <code>byte[]</code>.</p>
+ *
+ * <p>If the character set encodes ASCII as single bytes (UTF-8, US-ASCII,
+ * ISO-8859-1) and the file contains only ASCII, then the returned
+ * <code>SourceText</code> scans straight from the mapped bytes.  Otherwise,
+ * the file is decoded into a <code>char[]</code> buffer that this loader keeps
+ * and reuses for the next file.  Because of that reuse, a
+ * <code>SourceText</code> that was decoded is only valid until the next call
+ * to <code>load</code>; use a separate <code>SourceLoader</code> for each file
+ * whose tokens or <code>Location</code>s must outlive the next load.</p>
+ *
+ * <p>A <code>SourceLoader</code> is not thread-safe.</p>
+ */
+public class SourceLoader
+{
+    private Charset myCharset;
+    private CharsetDecoder myDecoder;
+    private boolean amAsciiCompatible;
+    private CharBuffer myBuffer;
+
+    /**
+     * Constructs a <code>SourceLoader</code> that decodes files in the given
+     * character set.
+     * @param charset The <code>Charset</code> of the files.
+     */
+    public SourceLoader(Charset charset)
+    {
+        myCharset = Objects.requireNonNull(charset);
+        myDecoder = charset.newDecoder();
+        amAsciiCompatible = charset.equals(StandardCharsets.UTF_8) ||
+                charset.equals(StandardCharsets.US_ASCII) ||
+                charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Returns the <code>Charset</code> used to decode files.
+     * @return The <code>Charset</code> used to decode files.
+     */
+    public Charset getCharset()
+    {
+        return myCharset;
+    }
+
+    /**
+     * Memory-maps the given file and returns its contents as a
+     * <code>SourceText</code>.
+     * @param path The path of the file to read.
+     * @return A <code>SourceText</code>.
+     * @throws IOException If there is a problem reading the file, if the file
+     *     is too large, or if the file is not valid in the character set.
+     */
+    public SourceText load(Path path) throws IOException
+    {
+        Objects.requireNonNull(path);
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("File too large to scan: " + path);
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        String filename = path.toString();
+        if (amAsciiCompatible && isAscii(bytes))
+        {
+            return new AsciiSourceText(filename, bytes);
+        }
+        CharBuffer chars = decode(bytes);
+        return new SourceText(filename, chars.array(), chars.position());
+    }
+
+    /**
+     * Decodes all of the given bytes into the reusable buffer, growing it if
+     * necessary.
+     * @param bytes The bytes to decode.
+     * @return The buffer, with its position after the last decoded character.
+     * @throws IOException If the bytes are not valid in the character set.
+     */
+    private CharBuffer decode(ByteBuffer bytes) throws IOException
+    {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(bytes.remaining() * (double) myDecoder.maxCharsPerByte()));
+        if (myBuffer == null || myBuffer.capacity() < capacity)
+        {
+            myBuffer = CharBuffer.allocate(Math.max(capacity, 16));
+        }
+        else
+        {
+            myBuffer.clear();
+        }
+        myDecoder.reset();
+        CoderResult result;
+        while ((result = myDecoder.decode(bytes, myBuffer, true)).isOverflow())
+        {
+            grow();
+        }
+        if (result.isError())
+        {
+            result.throwException();
+        }
+        while (myDecoder.flush(myBuffer).isOverflow())
+        {
+            grow();
+        }
+        return myBuffer;
+    }
+
+    /**
+     * Doubles the capacity of the reusable buffer, keeping the characters
+     * already decoded.
+     */
+    private void grow()
+    {
+        CharBuffer larger = CharBuffer.allocate(myBuffer.capacity() * 2);
+        myBuffer.flip();
+        larger.put(myBuffer);
+        myBuffer = larger;
+    }
+
+    /**
+     * Determines whether every byte in the given buffer is ASCII.  Checks
+     * eight bytes at a time.
+     * @param bytes The bytes.
+     * @return Whether every byte is less than <code>0x80</code>.
+     */
+    private static boolean isAscii(ByteBuffer bytes)
+    {
+        int limit = bytes.limit();
+        int i = 0;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES)
+        {
+            if ((bytes.getLong(i) & 0x8080808080808080L) != 0)
+            {
+                return false;
+            }
+        }
+        for (; i < limit; i++)
+        {
+            if (bytes.get(i) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,434 @@
+package org.spruce.compiler.scanner;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A <code>SourceText</code> is the entire text of a compilation unit, held in
+ * one contiguous <code>char[]</code> and addressed by absolute offsets.  Line
+ * numbers are computed from a table of line-start offsets that is only built
+ * the first time a line number is requested.
+ *
+ * <p>Files can be loaded into a <code>SourceText</code> with a
+ * <code>SourceLoader</code>, which memory-maps them.</p>
+ *
+ * <p>Line terminators are the same as those matched by the regular expression
+ * <code>\R</code>: <code>\r\n</code>, or any one of <code>\n</code>,
+ * U+000B, <code>\f</code>, <code>\r</code>, U+0085, U+2028, and U+2029.</p>
+ *
+ * <p>Line lookups are safe from many threads at once, as the
+ * <code>Location</code>s of one source are shared by cached trees,
+ * diagnostics, and driver results.  The line table is built whole and
+ * published through one volatile field; two threads may both build it, but
+ * each sees a complete table.</p>
+ */
+public class SourceText
+{
+    private String myFilename;
+    private char[] myChars;
+    private int myLength;
+
+    private volatile LineTable myLineTable;
+    // The line of the last lookup; only a hint, so races on it are harmless.
+    private int myLastLineIdx;
+
+    /**
+     * Constructs a <code>SourceText</code> for the given filename, backed by
+     * the first <code>length</code> characters of the given array.  The array
+     * is not copied.
+     * @param filename The filename.
+     * @param chars The characters of the source.
+     * @param length The number of characters used in <code>chars</code>.
+     */
+    public SourceText(String filename, char[] chars, int length)
+    {
+        Objects.requireNonNull(filename);
+        Objects.requireNonNull(chars);
+        if (length < 0 || length > chars.length)
+        {
+            throw new IndexOutOfBoundsException("length " + length + ", array length " + chars.length);
+        }
+        myFilename = filename;
+        myChars = chars;
+        myLength = length;
+    }
+
+    /**
+     * Constructs a <code>SourceText</code> for the given filename and length,
+     * for subclasses that supply their own characters by overriding
+     * <code>charAt</code> and <code>substring</code>.
+     * @param filename The filename.
+     * @param length The number of characters in the source.
+     */
+    protected SourceText(String filename, int length)
+    {
+        myFilename = Objects.requireNonNull(filename);
+        myLength = length;
+    }
+
+    /**
+     * Constructs a <code>SourceText</code> for the given filename, with the
+     * contents of the given <code>String</code>.
+     * @param filename The filename.
+     * @param contents The contents of the source.
+     */
+    public SourceText(String filename, String contents)
+    {
+        this(filename, contents.toCharArray(), contents.length());
+    }
+
+    /**
+     * Constructs a <code>SourceText</code> for the given filename, with the
+     * remaining contents of the given <code>CharBuffer</code>.  If the buffer
+     * is backed by an array starting at index 0, then the array is used
+     * directly, else the remaining characters are copied.
+     * @param filename The filename.
+     * @param contents The contents of the source.
+     * @return A <code>SourceText</code>.
+     */
+    public static SourceText of(String filename, CharBuffer contents)
+    {
+        if (contents.hasArray() && contents.arrayOffset() == 0 && contents.position() == 0)
+        {
+            return new SourceText(filename, contents.array(), contents.limit());
+        }
+        char[] chars = new char[contents.remaining()];
+        contents.duplicate().get(chars);
+        return new SourceText(filename, chars, chars.length);
+    }
+
+    /**
+     * Memory-maps the given file and returns its contents as a
+     * <code>SourceText</code>, decoded with the given character set.
+     * @param path The path of the file to read.
+     * @param charset The <code>Charset</code> of the file.
+     * @return A <code>SourceText</code>.
+     * @throws IOException If there is a problem reading or decoding the file.
+     * @see SourceLoader
+     */
+    public static SourceText map(Path path, Charset charset) throws IOException
+    {
+        return new SourceLoader(charset).load(path);
+    }
+
+    /**
+     * Returns the filename.
+     * @return The filename.
+     */
+    public String getFilename()
+    {
+        return myFilename;
+    }
+
+    /**
+     * Returns the number of characters in the source.
+     * @return The number of characters in the source.
+     */
+    public int length()
+    {
+        return myLength;
+    }
+
+    /**
+     * Returns the character at the given offset.
+     * @param offset The 0-based offset.
+     * @return The character at the given offset.
+     */
+    public char charAt(int offset)
+    {
+        return myChars[offset];
+    }
+
+    /**
+     * Returns the text between the given offsets.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The text between the given offsets.
+     */
+    public String substring(int start, int end)
+    {
+        return new String(myChars, start, end - start);
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't an ASCII identifier part, as
+     * <code>Character.isJavaIdentifierPart</code> defines it, so that a
+     * scanner can skip the rest of an identifier in one call.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    int asciiIdentifierPartEnd(int pos)
+    {
+        while (pos < myLength && CharClasses.isAscii(charAt(pos), CharClasses.IDENTIFIER_PART))
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't an ASCII digit.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    int asciiDigitEnd(int pos)
+    {
+        while (pos < myLength && CharClasses.isAscii(charAt(pos), CharClasses.DIGIT))
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the offset of the first character at or after the given offset
+     * that isn't ASCII whitespace, counting every line terminator as
+     * whitespace.
+     * @param pos The 0-based offset to start at.
+     * @return The offset of the first other character, or the length.
+     */
+    int asciiWhitespaceEnd(int pos)
+    {
+        while (pos < myLength && CharClasses.isAscii(charAt(pos), CharClasses.WHITESPACE))
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns a new <code>SourceText</code> with the same filename and the
+     * given edit applied: <code>removedLength</code> characters starting at
+     * <code>offset</code> are replaced by <code>inserted</code>.  This
+     * <code>SourceText</code> is unchanged.
+     * @param offset The 0-based offset of the edit.
+     * @param removedLength The number of characters removed.
+     * @param inserted The characters inserted.
+     * @return A new <code>SourceText</code> with the edit applied.
+     * @throws IndexOutOfBoundsException If the removed characters aren't all
+     *     in the source.
+     */
+    public SourceText edit(int offset, int removedLength, CharSequence inserted)
+    {
+        if (offset < 0 || removedLength < 0 || offset > myLength - removedLength)
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", removed " + removedLength +
+                    ", length " + myLength);
+        }
+        int insertedLength = inserted.length();
+        int tail = myLength - offset - removedLength;
+        char[] chars = new char[offset + insertedLength + tail];
+        if (myChars != null)
+        {
+            System.arraycopy(myChars, 0, chars, 0, offset);
+            System.arraycopy(myChars, offset + removedLength, chars, offset + insertedLength, tail);
+        }
+        else
+        {
+            for (int i = 0; i < offset; i++)
+            {
+                chars[i] = charAt(i);
+            }
+            for (int i = 0; i < tail; i++)
+            {
+                chars[offset + insertedLength + i] = charAt(offset + removedLength + i);
+            }
+        }
+        for (int i = 0; i < insertedLength; i++)
+        {
+            chars[offset + i] = inserted.charAt(i);
+        }
+        return new SourceText(myFilename, chars, chars.length);
+    }
+
+    /**
+     * Returns the number of lines.  A source that ends with a line terminator
+     * has an empty last line.
+     * @return The number of lines.
+     */
+    public int getLineCount()
+    {
+        return lineTable().myCount;
+    }
+
+    /**
+     * Returns the 0-based line number that contains the given offset.  An
+     * offset of a line terminator belongs to the line it terminates.
+     * Consecutive lookups of nearby offsets, as a scanner does, don't need to
+     * search the table.
+     * @param offset The 0-based offset, from 0 through <code>length()</code>.
+     * @return The 0-based line number.
+     */
+    public int getLineIdx(int offset)
+    {
+        LineTable table = lineTable();
+        int[] starts = table.myStarts;
+        int count = table.myCount;
+        int idx = myLastLineIdx;
+        if (offset >= starts[idx])
+        {
+            if (idx == count - 1 || offset < starts[idx + 1])
+            {
+                return idx;
+            }
+            if (idx + 1 == count - 1 || offset < starts[idx + 2])
+            {
+                myLastLineIdx = idx + 1;
+                return idx + 1;
+            }
+        }
+        idx = Arrays.binarySearch(starts, 0, count, offset);
+        if (idx < 0)
+        {
+            // Insertion point is the next line; the offset is in the previous one.
+            idx = -idx - 2;
+        }
+        myLastLineIdx = idx;
+        return idx;
+    }
+
+    /**
+     * Returns the offset of the first character of the given line.
+     * @param lineIdx The 0-based line number.
+     * @return The offset of the first character of the given line.
+     */
+    public int getLineStart(int lineIdx)
+    {
+        return lineTable().myStarts[lineIdx];
+    }
+
+    /**
+     * Returns the text of the given line, without its line terminator.
+     * @param lineIdx The 0-based line number.
+     * @return The text of the given line.
+     */
+    public String getLine(int lineIdx)
+    {
+        LineTable table = lineTable();
+        String line = table.myLines[lineIdx];
+        if (line == null)
+        {
+            int start = table.myStarts[lineIdx];
+            int end = start;
+            while (end < myLength && !isLineTerminator(charAt(end)))
+            {
+                end++;
+            }
+            line = substring(start, end);
+            // Strings are immutable, so a racing thread sees either null or
+            // the whole line.
+            table.myLines[lineIdx] = line;
+        }
+        return line;
+    }
+
+    /**
+     * Returns the <code>Location</code> of the given offset.  Its line number,
+     * character position, and line aren't determined until requested.
+     * @param offset The 0-based offset, from 0 through <code>length()</code>.
+     * @return The <code>Location</code> of the given offset.
+     */
+    public Location getLocation(int offset)
+    {
+        return new Location(this, offset);
+    }
+
+    /**
+     * Returns whether the given character terminates a line by itself.  The
+     * two-character sequence <code>\r\n</code> is also one line terminator.
+     * @param c The character.
+     * @return Whether the given character is a line terminator.
+     */
+    public static boolean isLineTerminator(char c)
+    {
+        switch (c)
+        {
+        case '\n':
+        case '\u000B':
+        case '\f':
+        case '\r':
+        case '\u0085':
+        case '\u2028':
+        case '\u2029':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the line table, building it if it hasn't been built yet.
+     * @return The <code>LineTable</code>.
+     */
+    private LineTable lineTable()
+    {
+        LineTable table = myLineTable;
+        if (table == null)
+        {
+            table = buildLineTable();
+            myLineTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Builds the line-start offset table.
+     * @return A new <code>LineTable</code>.
+     */
+    private LineTable buildLineTable()
+    {
+        int[] starts = new int[Math.max(16, myLength / 32)];
+        int count = 1;
+        for (int i = 0; i < myLength; i++)
+        {
+            char c = charAt(i);
+            if (c > '\r' && c < '\u0085')
+            {
+                continue;
+            }
+            if (isLineTerminator(c))
+            {
+                if (c == '\r' && i + 1 < myLength && charAt(i + 1) == '\n')
+                {
+                    i++;
+                }
+                if (count == starts.length)
+                {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        return new LineTable(starts, count);
+    }
+
+    /**
+     * The offsets where lines start, and the text of each line once
+     * requested.  It is immutable but for that cache of lines.
+     */
+    private static final class LineTable
+    {
+        private final int[] myStarts;
+        private final int myCount;
+        private final String[] myLines;
+
+        /**
+         * Constructs a <code>LineTable</code>.
+         * @param starts The line-start offsets, in the first <code>count</code>
+         *     elements.
+         * @param count The number of lines.
+         */
+        private LineTable(int[] starts, int count)
+        {
+            myStarts = starts;
+            myCount = count;
+            myLines = new String[count];
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package org.spruce.compiler.scanner;
+
+import java.util.Arrays;
+
+/**
+ * <p>A <code>SymbolTable</code> interns identifiers and string literal values,
+ * handing back one canonical <code>String</code> per distinct name, and a
+ * small <code>int</code> symbol ID for it.  Names from the same table can be
+ * compared by identity or by ID instead of with <code>equals</code>.</p>
+ *
+ * <p>Names are looked up straight from a range of a <code>SourceText</code>;
+ * a <code>String</code> is only created the first time a name is seen.</p>
+ *
+ * <p>A <code>SymbolTable</code> is thread-safe, so that one table can be shared
+ * by all of the files of a compilation.  It is split into segments by hash,
+ * each with its own lock.</p>
+ */
+public class SymbolTable
+{
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Segment[] mySegments;
+
+    /**
+     * Constructs an empty <code>SymbolTable</code>.
+     */
+    public SymbolTable()
+    {
+        mySegments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++)
+        {
+            mySegments[i] = new Segment(i);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of the name spelled by the given range.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The canonical <code>String</code> for the name.
+     */
+    public String intern(SourceText source, int start, int end)
+    {
+        int hash = hash(source, start, end);
+        Segment segment = segmentFor(hash);
+        return segment.getName(segment.find(hash, source, start, end));
+    }
+
+    /**
+     * Returns the canonical instance of the given name.
+     * @param name The name.
+     * @return The canonical <code>String</code> for the name.
+     */
+    public String intern(String name)
+    {
+        int hash = name.hashCode();
+        Segment segment = segmentFor(hash);
+        return segment.getName(segment.find(hash, name));
+    }
+
+    /**
+     * Returns the symbol ID of the name spelled by the given range, assigning
+     * one if the name hasn't been seen yet.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The symbol ID, which is at least 0.
+     */
+    public int getId(SourceText source, int start, int end)
+    {
+        int hash = hash(source, start, end);
+        return segmentFor(hash).find(hash, source, start, end);
+    }
+
+    /**
+     * Returns the symbol ID of the given name, assigning one if the name
+     * hasn't been seen yet.
+     * @param name The name.
+     * @return The symbol ID, which is at least 0.
+     */
+    public int getId(String name)
+    {
+        int hash = name.hashCode();
+        return segmentFor(hash).find(hash, name);
+    }
+
+    /**
+     * Returns the canonical name for the given symbol ID.
+     * @param id A symbol ID returned by this table.
+     * @return The canonical <code>String</code> for the name.
+     */
+    public String getName(int id)
+    {
+        return mySegments[id & (SEGMENTS - 1)].getName(id);
+    }
+
+    /**
+     * Returns the number of distinct names in this table.
+     * @return The number of distinct names.
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : mySegments)
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the segment responsible for the given hash.
+     * @param hash The hash of a name.
+     * @return The segment.
+     */
+    private Segment segmentFor(int hash)
+    {
+        return mySegments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Computes the same hash that <code>String.hashCode</code> would for the
+     * given range.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The hash.
+     */
+    private static int hash(SourceText source, int start, int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * One lock's worth of the table: an open-addressing hash table of indexes
+     * into an array of names.  Symbol IDs are the index shifted left, with the
+     * segment number in the low bits.
+     */
+    private static class Segment
+    {
+        private final int myNumber;
+        private int[] mySlots;
+        private int[] myHashes;
+        private String[] myNames;
+        private int mySize;
+
+        /**
+         * Constructs an empty <code>Segment</code>.
+         * @param number The segment number.
+         */
+        Segment(int number)
+        {
+            myNumber = number;
+            mySlots = new int[INITIAL_CAPACITY];
+            Arrays.fill(mySlots, -1);
+            myHashes = new int[INITIAL_CAPACITY / 2];
+            myNames = new String[INITIAL_CAPACITY / 2];
+        }
+
+        /**
+         * Finds or adds the name spelled by the given range.
+         * @param hash The hash of the name.
+         * @param source The <code>SourceText</code>.
+         * @param start The 0-based start offset, inclusive.
+         * @param end The 0-based end offset, exclusive.
+         * @return The symbol ID.
+         */
+        synchronized int find(int hash, SourceText source, int start, int end)
+        {
+            int mask = mySlots.length - 1;
+            int length = end - start;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask)
+            {
+                int idx = mySlots[slot];
+                if (idx < 0)
+                {
+                    return add(slot, hash, source.substring(start, end));
+                }
+                if (myHashes[idx] == hash && matches(myNames[idx], source, start, length))
+                {
+                    return toId(idx);
+                }
+            }
+        }
+
+        /**
+         * Finds or adds the given name.
+         * @param hash The hash of the name.
+         * @param name The name.
+         * @return The symbol ID.
+         */
+        synchronized int find(int hash, String name)
+        {
+            int mask = mySlots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask)
+            {
+                int idx = mySlots[slot];
+                if (idx < 0)
+                {
+                    return add(slot, hash, name);
+                }
+                if (myHashes[idx] == hash && myNames[idx].equals(name))
+                {
+                    return toId(idx);
+                }
+            }
+        }
+
+        /**
+         * Returns the name for the given symbol ID.
+         * @param id The symbol ID.
+         * @return The name.
+         */
+        synchronized String getName(int id)
+        {
+            return myNames[id >>> SEGMENT_BITS];
+        }
+
+        /**
+         * Returns the number of names in this segment.
+         * @return The number of names in this segment.
+         */
+        synchronized int size()
+        {
+            return mySize;
+        }
+
+        /**
+         * Adds a name in the given empty slot, growing the table if it gets
+         * half full.
+         * @param slot The empty slot.
+         * @param hash The hash of the name.
+         * @param name The name.
+         * @return The new symbol ID.
+         */
+        private int add(int slot, int hash, String name)
+        {
+            int idx = mySize++;
+            if (idx == myNames.length)
+            {
+                myNames = Arrays.copyOf(myNames, idx * 2);
+                myHashes = Arrays.copyOf(myHashes, idx * 2);
+            }
+            myNames[idx] = name;
+            myHashes[idx] = hash;
+            mySlots[slot] = idx;
+            if (mySize * 2 > mySlots.length)
+            {
+                rehash();
+            }
+            return toId(idx);
+        }
+
+        /**
+         * Doubles the number of slots, re-inserting every name.
+         */
+        private void rehash()
+        {
+            int[] slots = new int[mySlots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int idx = 0; idx < mySize; idx++)
+            {
+                int slot = mix(myHashes[idx]) & mask;
+                while (slots[slot] >= 0)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = idx;
+            }
+            mySlots = slots;
+        }
+
+        /**
+         * Converts an index in this segment to a symbol ID.
+         * @param idx The index.
+         * @return The symbol ID.
+         */
+        private int toId(int idx)
+        {
+            return (idx << SEGMENT_BITS) | myNumber;
+        }
+
+        /**
+         * Spreads the hash bits that didn't choose the segment into the low
+         * bits used to choose a slot.
+         * @param hash The hash.
+         * @return The mixed hash.
+         */
+        private static int mix(int hash)
+        {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Returns whether the given name is spelled by the given range.
+         * @param name The name.
+         * @param source The <code>SourceText</code>.
+         * @param start The 0-based start offset.
+         * @param length The length of the range.
+         * @return Whether they match.
+         */
+        private static boolean matches(String name, SourceText source, int start, int length)
+        {
+            if (name.length() != length)
+            {
+                return false;
+            }
+            for (int i = 0; i < length; i++)
+            {
+                if (name.charAt(i) != source.charAt(start + i))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -4,12 +4,17 @@ import java.util.Objects;
 
 /**
  * A <code>Token</code> consists of a <code>Type</code>, the string value,
- * and its <code>Location</code>.
+ * and its position.  A <code>Token</code> created by a <code>Scanner</code>
+ * knows its position as an offset and length in the <code>SourceText</code>;
+ * its <code>Location</code> is only created when requested.
  */
 public class Token
 {
     private TokenType myType;
     private String myValue;
+    private SourceText mySource;
+    private int myOffset;
+    private int myLength;
     private Location myLocation;
 
     /**
@@ -35,6 +40,26 @@ public class Token
         myLocation = location;
         myType = type;
         myValue = value;
+        myOffset = -1;
+    }
+
+    /**
+     * Constructs a <code>Token</code> with the given <code>TokenType</code>,
+     * and the given value, that spans the given range of the given
+     * <code>SourceText</code>.
+     * @param source The <code>SourceText</code> containing the token.
+     * @param offset The 0-based offset of the start of the token.
+     * @param length The number of characters in the token.
+     * @param type The <code>TokenType</code>.
+     * @param value The string value of the token.
+     */
+    public Token(SourceText source, int offset, int length, TokenType type, String value)
+    {
+        mySource = source;
+        myOffset = offset;
+        myLength = length;
+        myType = type;
+        myValue = value;
     }
 
     /**
@@ -56,14 +81,56 @@ public class Token
     }
 
     /**
-     * Returns the <code>Location</code> of the token.
+     * Returns the 0-based offset of the start of the token in its source, or
+     * <code>-1</code> if the token wasn't created from a source.
+     * @return The 0-based offset of the token, or <code>-1</code>.
+     */
+    public int getOffset()
+    {
+        return myOffset;
+    }
+
+    /**
+     * Returns the number of source characters in the token.
+     * @return The number of source characters in the token.
+     */
+    public int getLength()
+    {
+        return myLength;
+    }
+
+    /**
+     * Returns the <code>Location</code> of the token.  It is created on the
+     * first call if the token was created from a source.
      * @return The <code>Location</code> of the token.
      */
     public Location getLocation()
     {
+        if (myLocation == null && mySource != null)
+        {
+            myLocation = mySource.getLocation(myOffset);
+        }
         return myLocation;
     }
 
+    /**
+     * Returns whether the next token starts right where this one ends, with
+     * no whitespace or comment between them.  The <code>Parser</code> joins
+     * adjacent <code>&gt;</code> tokens into shift operators this way.  It is
+     * determined from the source, so it is <code>false</code> for a token
+     * that wasn't scanned from one.
+     * @return Whether the next token is adjacent to this one.
+     */
+    public boolean isAdjacentToNext()
+    {
+        if (mySource == null)
+        {
+            return false;
+        }
+        int end = myOffset + myLength;
+        return end < mySource.length() && !Scanner.startsTrivia(mySource, end);
+    }
+
     /**
      * Returns a string of the format <code>Token{type, value}</code>.
      * @return A string representation of this <code>Token</code>.
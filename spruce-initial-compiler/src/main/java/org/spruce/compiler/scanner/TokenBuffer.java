@@ -0,0 +1,584 @@
+package org.spruce.compiler.scanner;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A <code>TokenBuffer</code> holds all of the tokens of a
+ * <code>SourceText</code>, lexed up front, in parallel primitive arrays: the
+ * ordinal of each token's type, its start offset, and its length.  No
+ * <code>Token</code> objects are created to fill it.  Whitespace and comments
+ * are skipped; the last token is always <code>EOF</code>.</p>
+ *
+ * <p>Token values are sliced from the source only when requested.  A
+ * <code>Parser</code> can read a <code>TokenBuffer</code> through the
+ * <code>TokenStream</code> returned by <code>stream()</code>.</p>
+ *
+ * <p>A buffer constructed to keep trivia also records the whitespace and
+ * comments it skips in a <code>Trivia</code> side table, each attached to
+ * the index of the token after it, for tools that need comments.  Other
+ * buffers make no table.</p>
+ *
+ * <p>Lexing depends only on the text: each <code>&gt;</code> of
+ * <code>&gt;&gt;</code>, <code>&gt;&gt;=</code>, <code>&gt;&gt;&gt;</code>, and
+ * <code>&gt;&gt;&gt;=</code> is stored as its own token, and the
+ * <code>Parser</code> joins adjacent ones into shift operators.  So a buffer
+ * can be lexed, cached, or edited without knowing how it will be parsed.</p>
+ *
+ * <p>Lexing is the same from any token boundary, so after an edit,
+ * <code>edit</code> keeps the tokens before the edit, re-lexes from the last
+ * of them until a token starts where an old token started after the edit,
+ * and shifts the rest of the old tokens.  Comments and multiline string
+ * literals that the edit opens, closes, or falls into are lexed whole
+ * again.</p>
+ */
+public class TokenBuffer
+{
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+    // The scanner looks at most this many characters past the end of a
+    // token to decide where it ends, e.g. the second '.' in "..x".
+    private static final int LOOKAHEAD = 2;
+
+    static
+    {
+        // Types are stored in unsigned bytes.
+        if (TYPES.length > 256)
+        {
+            throw new IllegalStateException("Too many token types for a byte: " + TYPES.length);
+        }
+    }
+
+    private SourceText mySource;
+    private SymbolTable mySymbols;
+    private byte[] myTypes;
+    private int[] myStarts;
+    private int[] myLengths;
+    private int mySize;
+    private int myRelexStart;
+    private int myRelexEnd;
+    private Trivia myTrivia;
+
+    /**
+     * Constructs a <code>TokenBuffer</code> by lexing all of the given
+     * <code>SourceText</code>, interning names in a new
+     * <code>SymbolTable</code>.
+     * @param source The <code>SourceText</code> to lex.
+     * @throws org.spruce.compiler.exception.CompileException If the source
+     *     contains an illegal token.
+     */
+    public TokenBuffer(SourceText source)
+    {
+        this(source, new SymbolTable());
+    }
+
+    /**
+     * Constructs a <code>TokenBuffer</code> by lexing all of the given
+     * <code>SourceText</code>, interning identifiers and string literal
+     * values in the given <code>SymbolTable</code>, which may be shared with
+     * other buffers.
+     * @param source The <code>SourceText</code> to lex.
+     * @param symbols The <code>SymbolTable</code>.
+     * @throws org.spruce.compiler.exception.CompileException If the source
+     *     contains an illegal token.
+     */
+    public TokenBuffer(SourceText source, SymbolTable symbols)
+    {
+        this(source, symbols, false);
+    }
+
+    /**
+     * Constructs a <code>TokenBuffer</code> by lexing all of the given
+     * <code>SourceText</code>, interning identifiers and string literal
+     * values in the given <code>SymbolTable</code>, and optionally keeping
+     * the whitespace and comments skipped in a <code>Trivia</code> table.
+     * @param source The <code>SourceText</code> to lex.
+     * @param symbols The <code>SymbolTable</code>.
+     * @param keepingTrivia Whether to keep whitespace and comments.
+     * @throws org.spruce.compiler.exception.CompileException If the source
+     *     contains an illegal token.
+     */
+    public TokenBuffer(SourceText source, SymbolTable symbols, boolean keepingTrivia)
+    {
+        mySource = Objects.requireNonNull(source);
+        mySymbols = Objects.requireNonNull(symbols);
+        int capacity = Math.max(INITIAL_CAPACITY, source.length() / 4);
+        myTypes = new byte[capacity];
+        myStarts = new int[capacity];
+        myLengths = new int[capacity];
+        if (keepingTrivia)
+        {
+            myTrivia = new Trivia(source, capacity);
+        }
+        lex();
+    }
+
+    /**
+     * Constructs a <code>TokenBuffer</code> for an edited source by re-lexing
+     * only around the edit.
+     * @param old The <code>TokenBuffer</code> of the source before the edit.
+     * @param source The <code>SourceText</code> after the edit.
+     * @param offset The 0-based offset of the edit.
+     * @param removedLength The number of characters removed.
+     * @param insertedLength The number of characters inserted.
+     */
+    private TokenBuffer(TokenBuffer old, SourceText source, int offset, int removedLength, int insertedLength)
+    {
+        mySource = source;
+        mySymbols = old.mySymbols;
+        int capacity = old.mySize + INITIAL_CAPACITY;
+        myTypes = new byte[capacity];
+        myStarts = new int[capacity];
+        myLengths = new int[capacity];
+        if (old.myTrivia != null)
+        {
+            myTrivia = new Trivia(source, old.myTrivia.size() + INITIAL_CAPACITY);
+        }
+        relex(old, offset, removedLength, insertedLength);
+    }
+
+    /**
+     * Constructs a <code>TokenBuffer</code> from tokens that were already
+     * lexed from the given source.
+     * @param source The <code>SourceText</code> that was lexed.
+     * @param symbols The <code>SymbolTable</code>.
+     * @param types The ordinals of the token types.
+     * @param starts The start offsets.
+     * @param lengths The lengths.
+     */
+    private TokenBuffer(SourceText source, SymbolTable symbols, byte[] types, int[] starts, int[] lengths)
+    {
+        mySource = source;
+        mySymbols = symbols;
+        myTypes = types;
+        myStarts = starts;
+        myLengths = lengths;
+        mySize = types.length;
+        myRelexStart = 0;
+        myRelexEnd = mySize;
+    }
+
+    /**
+     * Constructs a <code>TokenBuffer</code> by lexing the given
+     * <code>String</code>.
+     * @param contents The contents of the code to lex.
+     */
+    public TokenBuffer(String contents)
+    {
+        this(new SourceText("<no file>", Objects.requireNonNull(contents)));
+    }
+
+    /**
+     * Lexes the whole source into the arrays.
+     */
+    private void lex()
+    {
+        Scanner scanner = new Scanner(mySource, mySymbols);
+        scanner.setTrivia(myTrivia);
+        TokenType type;
+        do
+        {
+            type = scanner.scanSkippingWhitespaceComments();
+            int start = scanner.getTokenStart();
+            if (myTrivia != null)
+            {
+                myTrivia.attach(mySize);
+            }
+            add(type, start, scanner.getPosition() - start);
+        }
+        while (type != TokenType.EOF);
+        myRelexStart = 0;
+        myRelexEnd = mySize;
+    }
+
+    /**
+     * Fills the arrays from the old buffer's tokens, re-lexing only from the
+     * last token that the scanner was done with before the edit until the
+     * tokens are the same as the old ones again.
+     * @param old The <code>TokenBuffer</code> of the source before the edit.
+     * @param offset The 0-based offset of the edit.
+     * @param removedLength The number of characters removed.
+     * @param insertedLength The number of characters inserted.
+     */
+    private void relex(TokenBuffer old, int offset, int removedLength, int insertedLength)
+    {
+        // Keep the tokens that the scanner stopped looking at before the
+        // edit.  Token ends never decrease, so search for the first one that
+        // the edit could have changed.  EOF is never kept.
+        int low = 0;
+        int high = old.mySize - 1;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (old.myStarts[mid] + old.myLengths[mid] + LOOKAHEAD <= offset)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        int kept = low;
+        System.arraycopy(old.myTypes, 0, myTypes, 0, kept);
+        System.arraycopy(old.myStarts, 0, myStarts, 0, kept);
+        System.arraycopy(old.myLengths, 0, myLengths, 0, kept);
+        mySize = kept;
+        myRelexStart = kept;
+        if (myTrivia != null)
+        {
+            // The trivia before the first re-lexed token is scanned again.
+            myTrivia.addShifted(old.myTrivia, 0, old.myTrivia.first(kept), 0, 0);
+        }
+
+        int delta = insertedLength - removedLength;
+        int newEditEnd = offset + insertedLength;
+        Scanner scanner = new Scanner(mySource, mySymbols);
+        scanner.setPosition(kept > 0 ? myStarts[kept - 1] + myLengths[kept - 1] : 0);
+        scanner.setTrivia(myTrivia);
+        int oldIdx = kept;
+        TokenType type;
+        do
+        {
+            type = scanner.scanSkippingWhitespaceComments();
+            int start = scanner.getTokenStart();
+            if (start >= newEditEnd && type != TokenType.EOF)
+            {
+                // The rest of the text is the same as before the edit, so if
+                // an old token started here, the rest of the old tokens are
+                // the same too.
+                int oldStart = start - delta;
+                while (oldIdx < old.mySize && old.myStarts[oldIdx] < oldStart)
+                {
+                    oldIdx++;
+                }
+                if (old.myStarts[oldIdx] == oldStart)
+                {
+                    myRelexEnd = mySize;
+                    if (myTrivia != null)
+                    {
+                        // The trivia just scanned replaces the old token's.
+                        myTrivia.attach(mySize);
+                        myTrivia.addShifted(old.myTrivia, old.myTrivia.first(oldIdx + 1), old.myTrivia.size(),
+                                delta, mySize - oldIdx);
+                    }
+                    addShifted(old, oldIdx, delta);
+                    return;
+                }
+            }
+            if (myTrivia != null)
+            {
+                myTrivia.attach(mySize);
+            }
+            add(type, start, scanner.getPosition() - start);
+        }
+        while (type != TokenType.EOF);
+        myRelexEnd = mySize;
+    }
+
+    /**
+     * Appends the old buffer's tokens from the given index on, shifted by the
+     * given number of characters.
+     * @param old The old <code>TokenBuffer</code>.
+     * @param from The index of the first old token to append.
+     * @param delta The number of characters to shift each token by.
+     */
+    private void addShifted(TokenBuffer old, int from, int delta)
+    {
+        int count = old.mySize - from;
+        if (mySize + count > myTypes.length)
+        {
+            int capacity = mySize + count;
+            myTypes = Arrays.copyOf(myTypes, capacity);
+            myStarts = Arrays.copyOf(myStarts, capacity);
+            myLengths = Arrays.copyOf(myLengths, capacity);
+        }
+        System.arraycopy(old.myTypes, from, myTypes, mySize, count);
+        System.arraycopy(old.myLengths, from, myLengths, mySize, count);
+        for (int i = 0; i < count; i++)
+        {
+            myStarts[mySize + i] = old.myStarts[from + i] + delta;
+        }
+        mySize += count;
+    }
+
+    /**
+     * Returns a <code>TokenBuffer</code> for this buffer's source with the
+     * given edit applied: <code>removedLength</code> characters starting at
+     * <code>offset</code> are replaced by <code>inserted</code>.  Only the
+     * tokens around the edit are lexed again; this buffer is unchanged, and
+     * its <code>SymbolTable</code> is shared.
+     * @param offset The 0-based offset of the edit.
+     * @param removedLength The number of characters removed.
+     * @param inserted The characters inserted.
+     * @return A new <code>TokenBuffer</code> for the edited source.
+     * @throws IndexOutOfBoundsException If the removed characters aren't all
+     *     in the source.
+     * @throws org.spruce.compiler.exception.CompileException If the edited
+     *     source contains an illegal token.
+     */
+    public TokenBuffer edit(int offset, int removedLength, CharSequence inserted)
+    {
+        SourceText source = mySource.edit(offset, removedLength, inserted);
+        return new TokenBuffer(this, source, offset, removedLength, inserted.length());
+    }
+
+    /**
+     * Returns the index of the first token that was lexed again when this
+     * buffer was made by <code>edit</code>.  The tokens before it are the
+     * same as the old buffer's.  For a buffer lexed from scratch, this is
+     * <code>0</code>.
+     * @return The index of the first re-lexed token.
+     */
+    public int getRelexStart()
+    {
+        return myRelexStart;
+    }
+
+    /**
+     * Returns the index after the last token that was lexed again when this
+     * buffer was made by <code>edit</code>.  The tokens from it on are the
+     * old buffer's last <code>size() - getRelexEnd()</code> tokens, shifted
+     * by the change in length.  For a buffer lexed from scratch, this is
+     * <code>size()</code>.
+     * @return The index after the last re-lexed token.
+     */
+    public int getRelexEnd()
+    {
+        return myRelexEnd;
+    }
+
+    /**
+     * Appends a token, growing the arrays if necessary.
+     * @param type The token type.
+     * @param start The 0-based offset of the start of the token.
+     * @param length The length of the token.
+     */
+    private void add(TokenType type, int start, int length)
+    {
+        if (mySize == myTypes.length)
+        {
+            int capacity = mySize * 2;
+            myTypes = Arrays.copyOf(myTypes, capacity);
+            myStarts = Arrays.copyOf(myStarts, capacity);
+            myLengths = Arrays.copyOf(myLengths, capacity);
+        }
+        myTypes[mySize] = (byte) type.ordinal();
+        myStarts[mySize] = start;
+        myLengths[mySize] = length;
+        mySize++;
+    }
+
+    /**
+     * Returns the <code>SourceText</code> that was lexed.
+     * @return The <code>SourceText</code> that was lexed.
+     */
+    public SourceText getSource()
+    {
+        return mySource;
+    }
+
+    /**
+     * Returns the <code>SymbolTable</code> that names are interned in.
+     * @return The <code>SymbolTable</code>.
+     */
+    public SymbolTable getSymbolTable()
+    {
+        return mySymbols;
+    }
+
+    /**
+     * Returns the <code>Trivia</code> table of the whitespace and comments
+     * skipped, if this buffer was constructed to keep them.  A buffer made by
+     * <code>edit</code> keeps them if the old one did; one read by
+     * <code>readFrom</code> doesn't.
+     * @return The <code>Trivia</code>, or <code>null</code>.
+     */
+    public Trivia getTrivia()
+    {
+        return myTrivia;
+    }
+
+    /**
+     * Returns the number of tokens, including the final <code>EOF</code>.
+     * @return The number of tokens.
+     */
+    public int size()
+    {
+        return mySize;
+    }
+
+    /**
+     * Returns the type of the given token.
+     * @param idx The 0-based token index.
+     * @return The type of the given token.
+     */
+    public TokenType getType(int idx)
+    {
+        return TYPES[myTypes[checkIndex(idx)] & 0xFF];
+    }
+
+    /**
+     * Returns the 0-based offset of the start of the given token.
+     * @param idx The 0-based token index.
+     * @return The 0-based offset of the start of the given token.
+     */
+    public int getStart(int idx)
+    {
+        return myStarts[checkIndex(idx)];
+    }
+
+    /**
+     * Returns the length of the given token.
+     * @param idx The 0-based token index.
+     * @return The length of the given token.
+     */
+    public int getLength(int idx)
+    {
+        return myLengths[checkIndex(idx)];
+    }
+
+    /**
+     * Returns the value of the given token, sliced from the source.
+     * @param idx The 0-based token index.
+     * @return The value of the given token, or <code>null</code> for
+     *     <code>EOF</code>.
+     */
+    public String getValue(int idx)
+    {
+        return TokenValues.valueOf(mySource, getType(idx), myStarts[idx], myLengths[idx], mySymbols);
+    }
+
+    /**
+     * Returns the <code>Location</code> of the start of the given token.
+     * @param idx The 0-based token index.
+     * @return The <code>Location</code> of the start of the given token.
+     */
+    public Location getLocation(int idx)
+    {
+        return mySource.getLocation(getStart(idx));
+    }
+
+    /**
+     * Creates a <code>Token</code> for the given token.
+     * @param idx The 0-based token index.
+     * @return A new <code>Token</code>.
+     */
+    public Token getToken(int idx)
+    {
+        return new Token(mySource, getStart(idx), myLengths[idx], TYPES[myTypes[idx] & 0xFF], getValue(idx));
+    }
+
+    /**
+     * Returns a new <code>TokenStream</code> over this buffer, positioned
+     * before the first token.
+     * @return A new <code>TokenStream</code>.
+     */
+    public TokenStream stream()
+    {
+        return new TokenBufferStream(this, 0);
+    }
+
+    /**
+     * Returns a new <code>TokenStream</code> over this buffer, positioned
+     * before the given token, so that parsing can start in the middle.
+     * @param idx The 0-based index of the first token to stream.
+     * @return A new <code>TokenStream</code>.
+     */
+    public TokenStream stream(int idx)
+    {
+        return new TokenBufferStream(this, checkIndex(idx));
+    }
+
+    /**
+     * Returns the index of the token that starts at the given offset.
+     * @param offset The 0-based offset.
+     * @return The 0-based index of the token, or <code>-1</code> if no token
+     *     starts there.
+     */
+    public int indexOf(int offset)
+    {
+        // Starts only increase, since only EOF is empty.
+        int idx = Arrays.binarySearch(myStarts, 0, mySize, offset);
+        return (idx >= 0) ? idx : -1;
+    }
+
+    /**
+     * Writes the tokens, but not the source, to the given output: the number
+     * of tokens, then the ordinals of their types, their start offsets, and
+     * their lengths.  <code>readFrom</code> reads them back.
+     * @param out The <code>DataOutput</code>.
+     * @throws IOException If there is a problem writing.
+     */
+    public void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(mySize);
+        out.write(myTypes, 0, mySize);
+        for (int i = 0; i < mySize; i++)
+        {
+            out.writeInt(myStarts[i]);
+        }
+        for (int i = 0; i < mySize; i++)
+        {
+            out.writeInt(myLengths[i]);
+        }
+    }
+
+    /**
+     * Reads tokens written by <code>writeTo</code> for the given source,
+     * without lexing it.  The buffer's position is moved past them.
+     * @param in The <code>ByteBuffer</code>, in big-endian order.
+     * @param source The <code>SourceText</code> that the tokens were lexed
+     *     from.
+     * @param symbols The <code>SymbolTable</code> to intern names in.
+     * @return A new <code>TokenBuffer</code>.
+     * @throws IllegalArgumentException If the tokens don't fit the source.
+     * @throws java.nio.BufferUnderflowException If the buffer ends early.
+     */
+    public static TokenBuffer readFrom(ByteBuffer in, SourceText source, SymbolTable symbols)
+    {
+        int size = in.getInt();
+        if (size <= 0 || size > source.length() + 1)
+        {
+            throw new IllegalArgumentException("Bad token count " + size);
+        }
+        byte[] types = new byte[size];
+        int[] starts = new int[size];
+        int[] lengths = new int[size];
+        in.get(types);
+        in.asIntBuffer().get(starts);
+        in.position(in.position() + size * Integer.BYTES);
+        in.asIntBuffer().get(lengths);
+        in.position(in.position() + size * Integer.BYTES);
+        for (int i = 0; i < size; i++)
+        {
+            if ((types[i] & 0xFF) >= TYPES.length || starts[i] < 0 || lengths[i] < 0 ||
+                    starts[i] + lengths[i] > source.length())
+            {
+                throw new IllegalArgumentException("Bad token " + i);
+            }
+        }
+        if (TYPES[types[size - 1] & 0xFF] != TokenType.EOF)
+        {
+            throw new IllegalArgumentException("Missing EOF");
+        }
+        return new TokenBuffer(Objects.requireNonNull(source), Objects.requireNonNull(symbols), types, starts, lengths);
+    }
+
+    /**
+     * Ensures that the given index is within this buffer.
+     * @param idx The 0-based token index.
+     * @return The index.
+     */
+    private int checkIndex(int idx)
+    {
+        if (idx < 0 || idx >= mySize)
+        {
+            throw new IndexOutOfBoundsException("Token index " + idx + ", size " + mySize);
+        }
+        return idx;
+    }
+}
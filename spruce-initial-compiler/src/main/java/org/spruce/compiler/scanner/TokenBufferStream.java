@@ -0,0 +1,256 @@
+package org.spruce.compiler.scanner;
+
+import java.util.Arrays;
+
+/**
+ * A <code>TokenBufferStream</code> is a <code>TokenStream</code> over a
+ * <code>TokenBuffer</code>.  The current and next tokens are kept as
+ * primitives; a <code>Token</code> is only created when one is requested.
+ * Peeking ahead reads the type straight from the buffer, and returning to a
+ * mark only moves an index into the buffer; nothing is scanned again.
+ */
+class TokenBufferStream implements TokenStream
+{
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int MARK_STRIDE = 8;
+
+    private TokenBuffer myBuffer;
+    private SourceText mySource;
+    private SymbolTable mySymbols;
+    private boolean amStarted;
+
+    // The buffer index to scan next.
+    private int myIdx;
+
+    private TokenType myCurrType;
+    private int myCurrStart;
+    private int myCurrLength;
+    private Token myCurrToken;
+
+    private TokenType myNextType;
+    private int myNextStart;
+    private int myNextLength;
+    private Token myNextToken;
+
+    // Each mark saves MARK_STRIDE ints of state, and the current and next
+    // tokens if they were created.
+    private int[] myMarks;
+    private Token[] myMarkTokens;
+    private int myMarkCount;
+
+    /**
+     * Constructs a <code>TokenBufferStream</code> over the given buffer,
+     * positioned before the given token.
+     * @param buffer The <code>TokenBuffer</code>.
+     * @param idx The index of the first token to stream.
+     */
+    TokenBufferStream(TokenBuffer buffer, int idx)
+    {
+        myBuffer = buffer;
+        mySource = buffer.getSource();
+        mySymbols = buffer.getSymbolTable();
+        myIdx = idx;
+    }
+
+    /**
+     * Returns the current <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     * @return The current <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     */
+    @Override
+    public Token getCurrToken()
+    {
+        if (myCurrToken == null && amStarted)
+        {
+            myCurrToken = createToken(myCurrType, myCurrStart, myCurrLength);
+        }
+        return myCurrToken;
+    }
+
+    /**
+     * Returns the next <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     * @return The next <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     */
+    @Override
+    public Token peekNextToken()
+    {
+        if (myNextToken == null && amStarted)
+        {
+            myNextToken = createToken(myNextType, myNextStart, myNextLength);
+        }
+        return myNextToken;
+    }
+
+    /**
+     * Advances to the next token.
+     * @return Whether there is another token before EOF to be read.
+     */
+    @Override
+    public boolean next()
+    {
+        if (!amStarted)
+        {
+            amStarted = true;
+            scan();
+            shift();
+            scan();
+        }
+        else if (myNextType != TokenType.EOF)
+        {
+            shift();
+            scan();
+        }
+        else if (myCurrType != TokenType.EOF)
+        {
+            shift();
+        }
+        return myCurrType != TokenType.EOF;
+    }
+
+    /**
+     * Returns the type of the token <code>n</code> tokens ahead of the current
+     * token.
+     * @param n How many tokens ahead of the current token to look, at least 0.
+     * @return The type of that token.
+     */
+    @Override
+    public TokenType peek(int n)
+    {
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("Can't peek behind the current token: " + n);
+        }
+        if (n == 0)
+        {
+            return myCurrType;
+        }
+        if (n == 1 || myNextType == TokenType.EOF)
+        {
+            return myNextType;
+        }
+        // The next token is at myIdx - 1; the buffer ends with its EOF token.
+        return myBuffer.getType(Math.min(myIdx + n - 2, myBuffer.size() - 1));
+    }
+
+    /**
+     * Marks the current position, so that <code>reset</code> can return to it.
+     * @return A handle for the mark.
+     */
+    @Override
+    public int mark()
+    {
+        if (myMarks == null)
+        {
+            myMarks = new int[4 * MARK_STRIDE];
+            myMarkTokens = new Token[8];
+        }
+        else if ((myMarkCount + 1) * MARK_STRIDE > myMarks.length)
+        {
+            myMarks = Arrays.copyOf(myMarks, myMarks.length * 2);
+            myMarkTokens = Arrays.copyOf(myMarkTokens, myMarkTokens.length * 2);
+        }
+        int base = myMarkCount * MARK_STRIDE;
+        myMarks[base] = myIdx;
+        myMarks[base + 1] = myCurrType == null ? -1 : myCurrType.ordinal();
+        myMarks[base + 2] = myCurrStart;
+        myMarks[base + 3] = myCurrLength;
+        myMarks[base + 4] = myNextType == null ? -1 : myNextType.ordinal();
+        myMarks[base + 5] = myNextStart;
+        myMarks[base + 6] = myNextLength;
+        myMarks[base + 7] = amStarted ? 1 : 0;
+        myMarkTokens[2 * myMarkCount] = myCurrToken;
+        myMarkTokens[2 * myMarkCount + 1] = myNextToken;
+        return myMarkCount++;
+    }
+
+    /**
+     * Returns to the position of the given mark, and releases it and any
+     * marks made after it.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    @Override
+    public void reset(int mark)
+    {
+        release(mark);
+        int base = mark * MARK_STRIDE;
+        myIdx = myMarks[base];
+        myCurrType = typeOf(myMarks[base + 1]);
+        myCurrStart = myMarks[base + 2];
+        myCurrLength = myMarks[base + 3];
+        myNextType = typeOf(myMarks[base + 4]);
+        myNextStart = myMarks[base + 5];
+        myNextLength = myMarks[base + 6];
+        amStarted = myMarks[base + 7] != 0;
+        myCurrToken = myMarkTokens[2 * mark];
+        myNextToken = myMarkTokens[2 * mark + 1];
+        myMarkTokens[2 * mark] = null;
+        myMarkTokens[2 * mark + 1] = null;
+    }
+
+    /**
+     * Releases the given mark, and any marks made after it, without changing
+     * the position.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    @Override
+    public void release(int mark)
+    {
+        if (mark < 0 || mark >= myMarkCount)
+        {
+            throw new IllegalStateException("Mark " + mark + " isn't active; there are " + myMarkCount + " marks.");
+        }
+        myMarkCount = mark;
+    }
+
+    /**
+     * Returns the token type with the given ordinal.
+     * @param ordinal The ordinal, or -1 for none.
+     * @return The token type, or <code>null</code> for none.
+     */
+    private static TokenType typeOf(int ordinal)
+    {
+        return ordinal < 0 ? null : TYPES[ordinal];
+    }
+
+    /**
+     * Makes the next token the current token.
+     */
+    private void shift()
+    {
+        myCurrType = myNextType;
+        myCurrStart = myNextStart;
+        myCurrLength = myNextLength;
+        myCurrToken = myNextToken;
+        myNextToken = null;
+    }
+
+    /**
+     * Reads the next token from the buffer into the next token.
+     */
+    private void scan()
+    {
+        TokenType type = myBuffer.getType(myIdx);
+        myNextType = type;
+        myNextStart = myBuffer.getStart(myIdx);
+        myNextLength = myBuffer.getLength(myIdx);
+        if (type != TokenType.EOF)
+        {
+            myIdx++;
+        }
+    }
+
+    /**
+     * Creates a <code>Token</code> for the given span.
+     * @param type The token type.
+     * @param start The 0-based offset of the start of the token.
+     * @param length The length of the token.
+     * @return A new <code>Token</code>.
+     */
+    private Token createToken(TokenType type, int start, int length)
+    {
+        return new Token(mySource, start, length, type, TokenValues.valueOf(mySource, type, start, length, mySymbols));
+    }
+}
@@ -0,0 +1,66 @@
+package org.spruce.compiler.scanner;
+
+/**
+ * A <code>TokenStream</code> supplies a <code>Parser</code> with tokens, one
+ * at a time.  The next token is always available; the types of tokens further
+ * ahead can be peeked at, and a position can be marked and returned to later.
+ * Whitespace and comments are never supplied.  Each <code>&gt;</code> of a
+ * shift operator is supplied as its own token, so the tokens don't depend on
+ * whether they close type arguments; see
+ * <code>Token.isAdjacentToNext</code>.
+ */
+public interface TokenStream
+{
+    /**
+     * Returns the current <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     * @return The current <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     */
+    Token getCurrToken();
+
+    /**
+     * Returns the next <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     * @return The next <code>Token</code>, or <code>null</code> if there
+     * isn't one yet.
+     */
+    Token peekNextToken();
+
+    /**
+     * Advances to the next token.
+     * @return Whether there is another token before EOF to be read.
+     */
+    boolean next();
+
+    /**
+     * Returns the type of the token <code>n</code> tokens ahead of the current
+     * token: 0 is the current token and 1 is the next token.  Tokens past the
+     * end are <code>EOF</code>.
+     * @param n How many tokens ahead of the current token to look, at least 0.
+     * @return The type of that token.
+     */
+    TokenType peek(int n);
+
+    /**
+     * Marks the current position, so that <code>reset</code> can return to it.
+     * Marks nest: a mark must be reset or released before any mark made
+     * before it.
+     * @return A handle for the mark.
+     */
+    int mark();
+
+    /**
+     * Returns to the position of the given mark, and releases it and any
+     * marks made after it.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    void reset(int mark);
+
+    /**
+     * Releases the given mark, and any marks made after it, without changing
+     * the position.
+     * @param mark A handle returned by <code>mark</code>.
+     */
+    void release(int mark);
+}
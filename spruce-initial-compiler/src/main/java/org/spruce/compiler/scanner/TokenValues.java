@@ -0,0 +1,205 @@
+package org.spruce.compiler.scanner;
+
+/**
+ * Computes the <code>String</code> values of tokens from their type and their
+ * span in a <code>SourceText</code>.  The scanner only validates tokens and
+ * notes where they start and end; values are only built here, when asked.
+ */
+final class TokenValues
+{
+    /**
+     * Don't instantiate.
+     */
+    private TokenValues() {}
+
+    /**
+     * Returns the value of the token of the given type at the given span.
+     * <ul>
+     *     <li>End of file and whitespace have no value.</li>
+     *     <li>Identifiers and numeric literals have their source text.</li>
+     *     <li>String and character literals have their contents with escapes
+     *     applied, or for triple-quoted string literals, with no escapes.</li>
+     *     <li>Comments have their text without the comment delimiters.</li>
+     *     <li>Everything else has its representation.</li>
+     * </ul>
+     * Line terminators in values are normalized to <code>\n</code>.
+     * @param source The <code>SourceText</code>.
+     * @param type The token type.
+     * @param start The 0-based offset of the start of the token.
+     * @param length The length of the token.
+     * @return The value of the token.
+     */
+    static String valueOf(SourceText source, TokenType type, int start, int length)
+    {
+        int end = start + length;
+        switch (type)
+        {
+        case EOF:
+        case WHITESPACE:
+            return null;
+        case IDENTIFIER:
+        case INT_LITERAL:
+        case FLOATING_POINT_LITERAL:
+            return source.substring(start, end);
+        case UNKNOWN:
+            return normalize(source, start, end);
+        case STRING_LITERAL:
+            if (length >= 6 && source.charAt(start + 1) == '"' && source.charAt(start + 2) == '"')
+            {
+                return normalize(source, start + 3, end - 3);
+            }
+            if (length >= 3 && source.charAt(start + 1) == '"')
+            {
+                // Two double-quotes not followed by a third start an
+                // ordinary string literal.
+                return unescape(source, start + 2, end - 1);
+            }
+            return unescape(source, start + 1, end - 1);
+        case CHARACTER_LITERAL:
+            return unescape(source, start + 1, end - 1);
+        case COMMENT:
+            if (source.charAt(start + 1) == '*')
+            {
+                return normalize(source, start + 2, end - 2);
+            }
+            int commentEnd = end;
+            if (commentEnd > start + 2 && SourceText.isLineTerminator(source.charAt(commentEnd - 1)))
+            {
+                commentEnd--;
+                if (commentEnd > start + 2 && source.charAt(commentEnd) == '\n' && source.charAt(commentEnd - 1) == '\r')
+                {
+                    commentEnd--;
+                }
+            }
+            return source.substring(start + 2, commentEnd);
+        default:
+            return type.getRepresentation();
+        }
+    }
+
+    /**
+     * Returns the value of the token of the given type at the given span, as
+     * <code>valueOf</code> does, except that identifiers and string literal
+     * values are interned in the given <code>SymbolTable</code>.
+     * @param source The <code>SourceText</code>.
+     * @param type The token type.
+     * @param start The 0-based offset of the start of the token.
+     * @param length The length of the token.
+     * @param symbols The <code>SymbolTable</code>.
+     * @return The value of the token.
+     */
+    static String valueOf(SourceText source, TokenType type, int start, int length, SymbolTable symbols)
+    {
+        switch (type)
+        {
+        case IDENTIFIER:
+            return symbols.intern(source, start, start + length);
+        case STRING_LITERAL:
+            return symbols.intern(valueOf(source, type, start, length));
+        default:
+            return valueOf(source, type, start, length);
+        }
+    }
+
+    /**
+     * Returns the character that the escape sequence consisting of a
+     * backslash followed by the given character represents.
+     * @param c The character after the backslash.
+     * @return The character that the escape sequence represents, or
+     *     <code>(char) -1</code> if it's not a valid escape sequence.
+     */
+    static char escape(char c)
+    {
+        switch (c)
+        {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case '"':
+            return '"';
+        case '\'':
+            return '\'';
+        case '\\':
+            return '\\';
+        default:
+            return (char) -1;
+        }
+    }
+
+    /**
+     * Returns the text between the given offsets with escape sequences
+     * applied.  The text has already been validated by the scanner.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The unescaped text.
+     */
+    private static String unescape(SourceText source, int start, int end)
+    {
+        int i = start;
+        while (i < end && source.charAt(i) != '\\')
+        {
+            i++;
+        }
+        if (i == end)
+        {
+            return source.substring(start, end);
+        }
+        StringBuilder buf = new StringBuilder(end - start);
+        buf.append(source.substring(start, i));
+        for (; i < end; i++)
+        {
+            char c = source.charAt(i);
+            if (c == '\\')
+            {
+                c = escape(source.charAt(++i));
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the text between the given offsets with every line terminator
+     * replaced by <code>\n</code>.
+     * @param source The <code>SourceText</code>.
+     * @param start The 0-based start offset, inclusive.
+     * @param end The 0-based end offset, exclusive.
+     * @return The normalized text.
+     */
+    private static String normalize(SourceText source, int start, int end)
+    {
+        int i = start;
+        while (i < end && !SourceText.isLineTerminator(source.charAt(i)))
+        {
+            i++;
+        }
+        if (i == end)
+        {
+            return source.substring(start, end);
+        }
+        StringBuilder buf = new StringBuilder(end - start);
+        buf.append(source.substring(start, i));
+        for (; i < end; i++)
+        {
+            char c = source.charAt(i);
+            if (SourceText.isLineTerminator(c))
+            {
+                if (c == '\r' && i + 1 < end && source.charAt(i + 1) == '\n')
+                {
+                    i++;
+                }
+                c = '\n';
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+}
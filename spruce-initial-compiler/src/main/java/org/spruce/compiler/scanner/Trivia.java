@@ -0,0 +1,222 @@
+package org.spruce.compiler.scanner;
+
+import java.util.Arrays;
+
+/**
+ * <p>A <code>Trivia</code> side table holds the whitespace runs and comments
+ * that a <code>TokenBuffer</code> skipped, for tools such as formatters and
+ * documentation generators that need them without scanning the source again.
+ * It is filled only for a buffer constructed to keep trivia; otherwise no
+ * table is made.</p>
+ *
+ * <p>Each entry is a kind, <code>WHITESPACE</code> or <code>COMMENT</code>, a
+ * start offset, and a length, in parallel primitive arrays, in source order.
+ * Each is attached to the significant token that follows it, by that token's
+ * index; trivia at the end of the source is attached to <code>EOF</code>.
+ * Consecutive whitespace characters, including line terminators, make one
+ * entry.</p>
+ */
+public class Trivia
+{
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private SourceText mySource;
+    private byte[] myKinds;
+    private int[] myStarts;
+    private int[] myLengths;
+    private int[] myTokens;
+    private int mySize;
+    // The number of entries attached to a token so far.
+    private int myAttached;
+
+    /**
+     * Constructs an empty <code>Trivia</code> table for the given source.
+     * @param source The <code>SourceText</code>.
+     * @param capacity The number of entries to make room for.
+     */
+    Trivia(SourceText source, int capacity)
+    {
+        mySource = source;
+        capacity = Math.max(INITIAL_CAPACITY, capacity);
+        myKinds = new byte[capacity];
+        myStarts = new int[capacity];
+        myLengths = new int[capacity];
+        myTokens = new int[capacity];
+    }
+
+    /**
+     * Appends an entry that isn't attached to a token yet.
+     * @param kind <code>WHITESPACE</code> or <code>COMMENT</code>.
+     * @param start The 0-based offset of the start of the trivia.
+     * @param length The length of the trivia.
+     */
+    void add(TokenType kind, int start, int length)
+    {
+        if (mySize == myKinds.length)
+        {
+            int capacity = mySize * 2;
+            myKinds = Arrays.copyOf(myKinds, capacity);
+            myStarts = Arrays.copyOf(myStarts, capacity);
+            myLengths = Arrays.copyOf(myLengths, capacity);
+            myTokens = Arrays.copyOf(myTokens, capacity);
+        }
+        myKinds[mySize] = (byte) kind.ordinal();
+        myStarts[mySize] = start;
+        myLengths[mySize] = length;
+        mySize++;
+    }
+
+    /**
+     * Attaches the entries added since the last call to the given token.
+     * @param tokenIdx The 0-based index of the token that follows them.
+     */
+    void attach(int tokenIdx)
+    {
+        Arrays.fill(myTokens, myAttached, mySize, tokenIdx);
+        myAttached = mySize;
+    }
+
+    /**
+     * Appends some of the given table's entries, shifted by the given number
+     * of characters and tokens.
+     * @param old The other <code>Trivia</code>.
+     * @param from The index of the first entry to append.
+     * @param to The index after the last entry to append.
+     * @param delta The number of characters to shift each entry by.
+     * @param tokenDelta The number of tokens to shift each entry by.
+     */
+    void addShifted(Trivia old, int from, int to, int delta, int tokenDelta)
+    {
+        for (int i = from; i < to; i++)
+        {
+            add(TYPES[old.myKinds[i]], old.myStarts[i] + delta, old.myLengths[i]);
+            myTokens[mySize - 1] = old.myTokens[i] + tokenDelta;
+        }
+        myAttached = mySize;
+    }
+
+    /**
+     * Returns the <code>SourceText</code> that the trivia is in.
+     * @return The <code>SourceText</code>.
+     */
+    public SourceText getSource()
+    {
+        return mySource;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return The number of entries.
+     */
+    public int size()
+    {
+        return mySize;
+    }
+
+    /**
+     * Returns the kind of the given entry.
+     * @param idx The 0-based entry index.
+     * @return <code>WHITESPACE</code> or <code>COMMENT</code>.
+     */
+    public TokenType getKind(int idx)
+    {
+        return TYPES[myKinds[checkIndex(idx)]];
+    }
+
+    /**
+     * Returns the 0-based offset of the start of the given entry.
+     * @param idx The 0-based entry index.
+     * @return The 0-based offset of the start of the given entry.
+     */
+    public int getStart(int idx)
+    {
+        return myStarts[checkIndex(idx)];
+    }
+
+    /**
+     * Returns the length of the given entry.
+     * @param idx The 0-based entry index.
+     * @return The length of the given entry.
+     */
+    public int getLength(int idx)
+    {
+        return myLengths[checkIndex(idx)];
+    }
+
+    /**
+     * Returns the index of the token that the given entry is attached to,
+     * the first significant token after it.
+     * @param idx The 0-based entry index.
+     * @return The 0-based token index.
+     */
+    public int getTokenIndex(int idx)
+    {
+        return myTokens[checkIndex(idx)];
+    }
+
+    /**
+     * Returns the text of the given entry, as it is in the source, with any
+     * comment delimiters.
+     * @param idx The 0-based entry index.
+     * @return The text of the given entry.
+     */
+    public String getText(int idx)
+    {
+        return mySource.substring(getStart(idx), myStarts[idx] + myLengths[idx]);
+    }
+
+    /**
+     * Returns the value of the given entry: the text of a comment without
+     * its delimiters or line terminator, as for a <code>COMMENT</code>
+     * <code>Token</code>.
+     * @param idx The 0-based entry index.
+     * @return The value of a comment, or <code>null</code> for whitespace.
+     */
+    public String getValue(int idx)
+    {
+        return TokenValues.valueOf(mySource, getKind(idx), myStarts[idx], myLengths[idx]);
+    }
+
+    /**
+     * Returns the index of the first entry attached to the given token.  The
+     * entries attached to it are from <code>first(tokenIdx)</code> until
+     * <code>first(tokenIdx + 1)</code>.
+     * @param tokenIdx The 0-based token index.
+     * @return The index of its first entry, or of the first entry attached to
+     *     a later token, or <code>size()</code>, if it has none.
+     */
+    public int first(int tokenIdx)
+    {
+        // Token indexes never decrease.
+        int low = 0;
+        int high = mySize;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (myTokens[mid] < tokenIdx)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Ensures that the given index is within this table.
+     * @param idx The 0-based entry index.
+     * @return The index.
+     */
+    private int checkIndex(int idx)
+    {
+        if (idx < 0 || idx >= mySize)
+        {
+            throw new IndexOutOfBoundsException("Trivia index " + idx + ", size " + mySize);
+        }
+        return idx;
+    }
+}
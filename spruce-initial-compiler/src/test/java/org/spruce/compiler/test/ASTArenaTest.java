@@ -0,0 +1,140 @@
+package org.spruce.compiler.test;
+
+import java.util.Arrays;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
+import static org.spruce.compiler.scanner.TokenType.*;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for storing trees in an <code>ASTArena</code>.
+ */
+public class ASTArenaTest
+{
+    /**
+     * Tests that trees created from an arena are the same as the trees it was
+     * made from, collapsed or not.
+     */
+    @Test
+    public void testRoundTrip()
+    {
+        for (String code : Arrays.asList("x := x + 1;", "return;", "assert result = true : \"Assertion failed!\";",
+                "--x.y;", "a[i] += f(a, 'b', 3.5) * -2;", "map := new HashMap<String, List<? <: Number>>();",
+                "ok := obj instanceof Map<String, Integer>[] && obj as List<String> != null;",
+                "c := spruce.lang.String[].class;", "x := new String[] {y, null};", "x := !false;"))
+        {
+            ASTStatement stmt = new Parser(new Scanner(code)).parseStatement();
+            assertSameTree(stmt, ASTArena.of(stmt).toNode());
+            stmt.collapse();
+            assertSameTree(stmt, ASTArena.of(stmt).toNode());
+        }
+    }
+
+    /**
+     * Tests reading nodes by index and with a cursor.
+     */
+    @Test
+    public void testNavigation()
+    {
+        ASTExpression expr = new Parser(new Scanner("a + b * c"), true).parseExpression();
+        ASTArena arena = ASTArena.of(expr);
+        assertEquals(9, arena.size());
+        assertEquals(ASTKind.EXPRESSION, arena.getKind(0));
+        assertEquals(-1, arena.getParent(0));
+        assertEquals(9, arena.getSubtreeEnd(0));
+        assertEquals(1, arena.getChildCount(0));
+
+        ASTArena.Cursor cursor = arena.cursor();
+        assertTrue(cursor.toFirstChild());
+        assertEquals(ASTKind.ADDITIVE_EXPRESSION, cursor.getKind());
+        assertEquals(PLUS, cursor.getOperation());
+        assertFalse(cursor.toNextSibling());
+        assertTrue(cursor.toFirstChild());
+        assertEquals(ASTKind.EXPRESSION_NAME, cursor.getKind());
+        assertTrue(cursor.toFirstChild());
+        assertEquals("a", cursor.getValue());
+        assertEquals(0, cursor.getLocation().getOffset());
+        assertFalse(cursor.toFirstChild());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toNextSibling());
+        assertEquals(ASTKind.MULTIPLICATIVE_EXPRESSION, cursor.getKind());
+        assertEquals(STAR, cursor.getOperation());
+        assertEquals(4, cursor.getLocation().getOffset());
+        assertEquals(2, arena.getChildCount(cursor.getIndex()));
+        assertTrue(cursor.toNode() instanceof ASTMultiplicativeExpression);
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toParent());
+        assertFalse(cursor.toParent());
+        assertEquals(0, cursor.getIndex());
+    }
+
+    /**
+     * Tests that a <code>Location</code> that wasn't created from a
+     * <code>SourceText</code> is kept as it is.
+     */
+    @Test
+    public void testLocationWithoutSource()
+    {
+        Location loc = new Location("<test>", 2, 3, "line");
+        ASTExpressionName name = new ASTExpressionName(loc, Arrays.asList(new ASTIdentifier(loc, "x")));
+        ASTArena arena = ASTArena.of(name);
+        assertNull(arena.getSource());
+        assertEquals(-1, arena.getOffset(1));
+        assertSame(loc, arena.getLocation(1));
+        assertSameTree(name, arena.toNode());
+    }
+
+    /**
+     * Tests that a root without a <code>Location</code>, as an
+     * <code>ASTReader</code> may read, is stored without one.
+     */
+    @Test
+    public void testRootWithoutLocation()
+    {
+        Location loc = new Location(new SourceText("<test>", "x"), 0);
+        ASTExpressionName name = new ASTExpressionName(null, Arrays.asList(new ASTIdentifier(loc, "x")));
+        ASTArena arena = ASTArena.of(name);
+        assertNull(arena.getSource());
+        assertNull(arena.getLocation(0));
+        assertSame(loc, arena.getLocation(1));
+        ASTNode node = arena.toNode();
+        assertTrue(node instanceof ASTExpressionName);
+        assertNull(node.getLocation());
+        ASTIdentifier identifier = (ASTIdentifier) ((ASTParentNode) node).getChildren().get(0);
+        assertEquals("x", identifier.getValue());
+        assertSame(loc, identifier.getLocation());
+    }
+
+    /**
+     * Tests that a tree tens of thousands of levels deep can be stored and
+     * created again.
+     */
+    @Test
+    public void testDeepTree()
+    {
+        int depth = 100000;
+        Location loc = new Location("<test>", 0, 0, "");
+        ASTNode node = new ASTIdentifier(loc, "a");
+        for (int i = 0; i < depth; i++)
+        {
+            node = new ASTUnaryExpression(loc, Arrays.asList(node), MINUS);
+        }
+        ASTArena arena = ASTArena.of(node);
+        assertEquals(depth + 1, arena.size());
+        ASTNode created = arena.toNode();
+        assertEquals(depth + 1, ASTTraversal.depth(created));
+        for (int i = 0; i < depth; i++)
+        {
+            assertEquals(MINUS, ((ASTParentNode) created).getOperation());
+            created = ((ASTParentNode) created).getChildren().get(0);
+        }
+        assertEquals("a", ((ASTIdentifier) created).getValue());
+    }
+}
@@ -0,0 +1,311 @@
+package org.spruce.compiler.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+import static org.spruce.compiler.scanner.TokenType.*;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for writing trees with an <code>ASTWriter</code> and reading them
+ * with an <code>ASTReader</code>.
+ */
+public class ASTSerializationTest
+{
+    /**
+     * Tests that trees read back are the same as the trees written, collapsed
+     * or not, and that nodes that shared a <code>Location</code> share one
+     * again.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        String code = "x := x + 1;\nreturn;\nassert result = true : \"Assertion failed!\";\n--x.y;\n" +
+                "a[i] += f(a, 'b', 3.5) * -2;\nmap := new HashMap<String, List<? <: Number>>();\n" +
+                "ok := obj instanceof Map<String, Integer>[] && obj as List<String> != null;\n" +
+                "c := spruce.lang.String[].class;\nx := new String[] {y, null};\nx := !false;\n";
+        for (boolean collapsing : Arrays.asList(false, true))
+        {
+            TokenBuffer tokens = new TokenBuffer(code);
+            List<ASTNode> stmts = parseAll(tokens, collapsing);
+            SourceText source = tokens.getSource();
+            List<ASTNode> read = new ASTReader(ByteBuffer.wrap(write(source, stmts)), source).readAll();
+            assertEquals(stmts.size(), read.size());
+            for (int i = 0; i < stmts.size(); i++)
+            {
+                assertSameTree(stmts.get(i), read.get(i));
+            }
+            ASTStatement first = (ASTStatement) read.get(0);
+            assertSame(first.getLocation(), first.getChildren().get(0).getLocation());
+            assertSame(source, first.getLocation().getSource());
+        }
+    }
+
+    /**
+     * Tests that a reader reads trees one at a time from a direct buffer, and
+     * that the end of the trees is found.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testStreaming() throws IOException
+    {
+        TokenBuffer tokens = new TokenBuffer("a := 1; b := a; c := b;");
+        List<ASTNode> stmts = parseAll(tokens, false);
+        byte[] bytes = write(tokens.getSource(), stmts);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        ASTReader reader = new ASTReader(direct, tokens.getSource());
+        for (ASTNode stmt : stmts)
+        {
+            assertTrue(reader.hasNext());
+            assertSameTree(stmt, reader.next());
+        }
+        assertFalse(reader.hasNext());
+        assertThrows(NoSuchElementException.class, reader::next);
+        assertFalse(direct.hasRemaining());
+    }
+
+    /**
+     * Tests that names are written once, and that the format is much smaller
+     * than the printed tree.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testCompact() throws IOException
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            buf.append("counter := counter + 1;\n");
+        }
+        TokenBuffer tokens = new TokenBuffer(buf.toString());
+        List<ASTNode> stmts = parseAll(tokens, false);
+        byte[] first = write(tokens.getSource(), stmts.subList(0, 1));
+        byte[] all = write(tokens.getSource(), stmts);
+        int perStatement = (all.length - first.length) / 99;
+        int[] nodes = new int[1];
+        ASTTraversal.preOrder(stmts.get(1), node -> nodes[0]++);
+        // A node is its kind, its operation, and its number of children.
+        assertTrue(perStatement <= 3 * nodes[0], perStatement + " bytes for " + nodes[0] + " nodes");
+        assertEquals(1, count(all, "counter".getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(printed, true, "UTF-8"));
+        try
+        {
+            stmts.get(1).print();
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        assertTrue(perStatement * 10 < printed.size(), perStatement + " vs " + printed.size());
+    }
+
+    /**
+     * Tests that locations that aren't in a source, or are missing, are
+     * written in full, and trees written without a source.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testDetachedLocations() throws IOException
+    {
+        Location loc = new Location("<test>", 2, 3, "line");
+        ASTExpressionName name = new ASTExpressionName(loc, Arrays.asList(new ASTIdentifier(loc, "x")));
+        ASTIdentifier unlocated = new ASTIdentifier(null, "y");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ASTWriter writer = new ASTWriter(bytes, null))
+        {
+            writer.write(name);
+            writer.write(unlocated);
+        }
+        ASTReader reader = new ASTReader(ByteBuffer.wrap(bytes.toByteArray()), null);
+        ASTNode read = reader.next();
+        assertSameTree(name, read);
+        Location readLoc = read.getLocation();
+        assertEquals("<test>", readLoc.getFilename());
+        assertEquals(3, readLoc.getLineNbr());
+        assertEquals(4, readLoc.getCharPos());
+        assertEquals("line", readLoc.getLine());
+        ASTIdentifier readUnlocated = (ASTIdentifier) reader.next();
+        assertNull(readUnlocated.getLocation());
+        assertEquals("y", readUnlocated.getValue());
+    }
+
+    /**
+     * Tests that a tree tens of thousands of levels deep can be written and
+     * read.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testDeepTree() throws IOException
+    {
+        int depth = 100000;
+        SourceText source = new SourceText("<deep>", "-a");
+        ASTNode node = new ASTIdentifier(source.getLocation(1), "a");
+        for (int i = 0; i < depth; i++)
+        {
+            node = new ASTUnaryExpression(source.getLocation(0), Arrays.asList(node), MINUS);
+        }
+        ASTNode read = new ASTReader(ByteBuffer.wrap(write(source, Arrays.asList(node))), source).next();
+        assertEquals(depth + 1, ASTTraversal.depth(read));
+    }
+
+    /**
+     * Tests that a reader seeks to standalone trees in any order, with a
+     * mapped buffer's offset, that they share no strings with the trees
+     * before them, and that their strings are interned.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testStandalone() throws IOException
+    {
+        TokenBuffer tokens = new TokenBuffer("counter := 1; counter := counter + 1; x := counter;");
+        List<ASTNode> stmts = parseAll(tokens, false);
+        SourceText source = tokens.getSource();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[] {7, 7, 7});
+        long[] positions = new long[stmts.size()];
+        try (ASTWriter writer = new ASTWriter(bytes, source))
+        {
+            writer.write(stmts.get(0));
+            for (int i = 1; i < stmts.size(); i++)
+            {
+                positions[i] = writer.writeStandalone(stmts.get(i));
+            }
+        }
+        byte[] all = bytes.toByteArray();
+        assertEquals(stmts.size(), count(all, "counter".getBytes(StandardCharsets.UTF_8)));
+
+        ByteBuffer in = ByteBuffer.wrap(all);
+        in.position(3);
+        SymbolTable symbols = new SymbolTable();
+        ASTReader reader = new ASTReader(in, source, symbols);
+        for (int i = stmts.size() - 1; i >= 1; i--)
+        {
+            reader.seek(positions[i]);
+            assertSameTree(stmts.get(i), reader.next());
+        }
+        ASTStatement last = (ASTStatement) reader.next();
+        assertSame(source, last.getLocation().getSource());
+        reader.seek(positions[1]);
+        reader.next();
+        assertTrue(reader.hasNext());
+        reader.seek(positions[stmts.size() - 1]);
+        reader.next();
+        assertFalse(reader.hasNext());
+
+        assertThrows(IllegalArgumentException.class, () -> reader.seek(positions[1] + 1));
+        assertThrows(IllegalArgumentException.class, () -> reader.seek(all.length));
+        ASTReader interning = new ASTReader(ByteBuffer.wrap(all, 3, all.length - 3).slice(), source, symbols);
+        interning.seek(positions[2]);
+        ASTNode read = interning.next();
+        List<String> values = new ArrayList<>();
+        ASTTraversal.preOrder(read, node -> {
+            if (node instanceof ASTValueNode)
+            {
+                values.add(((ASTValueNode) node).getValue());
+            }
+        });
+        assertTrue(values.contains("counter"));
+        for (String value : values)
+        {
+            assertSame(symbols.intern(value), value);
+        }
+    }
+
+    /**
+     * Tests that streams of another version, for another source, or cut short
+     * are rejected.
+     * @throws IOException If writing fails.
+     */
+    @Test
+    public void testBadStreams() throws IOException
+    {
+        TokenBuffer tokens = new TokenBuffer("x := f(y);");
+        byte[] bytes = write(tokens.getSource(), parseAll(tokens, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ASTReader(ByteBuffer.wrap(bytes), new SourceText("<other>", "x := f(yy);")));
+        byte[] version = bytes.clone();
+        version[4] = (byte) (ASTWriter.FORMAT_VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> new ASTReader(ByteBuffer.wrap(version), tokens.getSource()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ASTReader(ByteBuffer.wrap(new byte[] {1, 2}), tokens.getSource()));
+        ASTReader cut = new ASTReader(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 4)), tokens.getSource());
+        assertThrows(IllegalArgumentException.class, cut::next);
+    }
+
+    /**
+     * Helper method to parse all statements of a buffer.
+     * @param tokens The <code>TokenBuffer</code>.
+     * @param collapsing Whether to collapse the trees.
+     * @return The statements.
+     */
+    private static List<ASTNode> parseAll(TokenBuffer tokens, boolean collapsing)
+    {
+        Parser parser = new Parser(tokens.stream(), collapsing);
+        List<ASTNode> stmts = new ArrayList<>();
+        while (!parser.isAtEnd())
+        {
+            stmts.add(parser.parseStatement());
+        }
+        return stmts;
+    }
+
+    /**
+     * Helper method to write trees.
+     * @param source The <code>SourceText</code> of their locations.
+     * @param roots The trees.
+     * @return The bytes written.
+     * @throws IOException If writing fails.
+     */
+    private static byte[] write(SourceText source, List<ASTNode> roots) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ASTWriter writer = new ASTWriter(bytes, source))
+        {
+            for (ASTNode root : roots)
+            {
+                writer.write(root);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Helper method to count the occurrences of some bytes in others.
+     * @param bytes The bytes to search.
+     * @param pattern The bytes to find.
+     * @return The number of occurrences.
+     */
+    private static int count(byte[] bytes, byte[] pattern)
+    {
+        int count = 0;
+        for (int i = 0; i + pattern.length <= bytes.length; i++)
+        {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,194 @@
+package org.spruce.compiler.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.Scanner;
+import static org.spruce.compiler.scanner.TokenType.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for traversing, collapsing, and printing trees without
+ * recursion.
+ */
+public class ASTTraversalTest
+{
+    private static final int DEPTH = 100000;
+    private static final Location LOCATION = new Location("<test>", 0, 0, "");
+
+    /**
+     * Tests that pre-order visits each node before its children, and
+     * post-order after, in the same order of siblings.
+     */
+    @Test
+    public void testOrder()
+    {
+        ASTExpression expr = new Parser(new Scanner("a + b * c")).parseExpression();
+        expr.collapse();
+        List<String> preOrder = new ArrayList<>();
+        ASTTraversal.preOrder(expr, node -> preOrder.add(name(node)));
+        assertEquals(Arrays.asList("ASTExpression", "ASTAdditiveExpression", "ASTExpressionName", "a",
+                "ASTMultiplicativeExpression", "ASTExpressionName", "b", "ASTExpressionName", "c"), preOrder);
+        List<String> postOrder = new ArrayList<>();
+        ASTTraversal.postOrder(expr, node -> postOrder.add(name(node)));
+        assertEquals(Arrays.asList("a", "ASTExpressionName", "b", "ASTExpressionName", "c", "ASTExpressionName",
+                "ASTMultiplicativeExpression", "ASTAdditiveExpression", "ASTExpression"), postOrder);
+        assertEquals(5, ASTTraversal.depth(expr));
+    }
+
+    /**
+     * Tests that a pre-order visitor sees the children that an earlier visit
+     * put in place.
+     */
+    @Test
+    public void testPreOrderSeesReplacedChildren()
+    {
+        ASTExpression expr = new Parser(new Scanner("a + b")).parseExpression();
+        List<ASTNode> visited = new ArrayList<>();
+        ASTTraversal.preOrder(expr, node -> {
+            visited.add(node);
+            if (node instanceof ASTParentNode)
+            {
+                ((ASTParentNode) node).collapse();
+            }
+        });
+        assertEquals(6, visited.size());
+        assertTrue(visited.get(1) instanceof ASTAdditiveExpression);
+    }
+
+    /**
+     * Tests that traversals and collapsing handle a tree tens of thousands of
+     * levels deep.
+     */
+    @Test
+    public void testDeepTree()
+    {
+        ASTExpression expr = deepTree();
+        int[] count = new int[1];
+        ASTTraversal.preOrder(expr, node -> count[0]++);
+        assertEquals(DEPTH * 4 + 2, count[0]);
+        count[0] = 0;
+        ASTTraversal.postOrder(expr, node -> count[0]++);
+        assertEquals(DEPTH * 4 + 2, count[0]);
+        assertEquals(DEPTH * 3 + 2, ASTTraversal.depth(expr));
+
+        expr.collapse();
+        ASTNode node = expr.getChildren().get(0);
+        for (int i = 0; i < DEPTH; i++)
+        {
+            assertTrue(node instanceof ASTAdditiveExpression);
+            List<ASTNode> children = ((ASTParentNode) node).getChildren();
+            assertTrue(children.get(0) instanceof ASTIdentifier);
+            node = children.get(1);
+        }
+        assertTrue(node instanceof ASTIdentifier);
+        assertEquals(DEPTH + 2, ASTTraversal.depth(expr));
+    }
+
+    /**
+     * Tests that printing without recursion prints the same lines as printing
+     * each node with its prefix, recursively.
+     * @throws UnsupportedEncodingException If UTF-8 isn't supported.
+     */
+    @Test
+    public void testPrint() throws UnsupportedEncodingException
+    {
+        for (String code : Arrays.asList("a", "f(a, b[1]) + -c", "x ? y : z"))
+        {
+            ASTExpression expr = new Parser(new Scanner(code)).parseExpression();
+            StringBuilder expected = new StringBuilder();
+            printRecursively(expr, "", true, expected);
+            assertEquals(expected.toString(), printed(expr), "Printed differently at \"" + code + "\".");
+            expr.collapse();
+            expected.setLength(0);
+            printRecursively(expr, "", true, expected);
+            assertEquals(expected.toString(), printed(expr), "Printed differently at \"" + code + "\".");
+        }
+    }
+
+    /**
+     * Builds <code>a + (a + (a + ...))</code>, <code>DEPTH</code> additions
+     * deep, with a collapsible primary and expression around each nested
+     * addition.
+     * @return The uncollapsed tree.
+     */
+    private static ASTExpression deepTree()
+    {
+        ASTNode node = new ASTIdentifier(LOCATION, "a");
+        for (int i = 0; i < DEPTH; i++)
+        {
+            ASTPrimary primary = new ASTPrimary(LOCATION,
+                    Arrays.asList(new ASTExpression(LOCATION, Arrays.asList(node))));
+            ASTAdditiveExpression addition = new ASTAdditiveExpression(LOCATION,
+                    Arrays.asList(new ASTIdentifier(LOCATION, "a"), primary));
+            addition.setOperation(PLUS);
+            node = addition;
+        }
+        return new ASTExpression(LOCATION, Arrays.asList(node));
+    }
+
+    /**
+     * Returns the class name of a parent node, or the value of a leaf.
+     * @param node The node.
+     * @return A name for the node.
+     */
+    private static String name(ASTNode node)
+    {
+        return (node instanceof ASTValueNode) ? ((ASTValueNode) node).getValue() : node.getClass().getSimpleName();
+    }
+
+    /**
+     * Captures what the given node prints.
+     * @param node The node.
+     * @return What it printed.
+     * @throws UnsupportedEncodingException If UTF-8 isn't supported.
+     */
+    private static String printed(ASTNode node) throws UnsupportedEncodingException
+    {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            System.setOut(new PrintStream(bytes, true, "UTF-8"));
+            node.print();
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    /**
+     * Prints the way printing worked before it used an explicit stack.
+     * @param node The node.
+     * @param prefix A string to indent the printing of the node.
+     * @param isTail Whether the node is last in its siblings.
+     * @param buf Where to print.
+     */
+    private static void printRecursively(ASTNode node, String prefix, boolean isTail, StringBuilder buf)
+    {
+        buf.append(prefix).append(isTail ? "└── " : "├── ").append(node.toString()).append(System.lineSeparator());
+        if (node instanceof ASTParentNode)
+        {
+            List<ASTNode> children = ((ASTParentNode) node).getChildren();
+            for (int i = 0; i < children.size() - 1; i++)
+            {
+                printRecursively(children.get(i), prefix + (isTail ? "    " : "|   "), false, buf);
+            }
+            if (children.size() > 0)
+            {
+                printRecursively(children.get(children.size() - 1), prefix + (isTail ? "    " : "│   "), true, buf);
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.spruce.compiler.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.spruce.compiler.ast.ASTIdentifier;
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.ast.ASTParentNode;
+import org.spruce.compiler.ast.ASTStatement;
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.driver.CompilationDriver;
+import org.spruce.compiler.driver.CompilationReport;
+import org.spruce.compiler.driver.FileResult;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests related to the <code>CompilationDriver</code>.
+ */
+public class CompilationDriverTest
+{
+    private Path myRoot;
+
+    /**
+     * Creates a source root with good files, a bad file, and a non-source
+     * file.
+     */
+    @BeforeEach
+    public void createSources() throws IOException
+    {
+        myRoot = TempSources.createRoot("driver");
+        Path pkg = myRoot.resolve("spruce/test");
+        for (int i = 0; i < 20; i++)
+        {
+            TempSources.write(pkg.resolve("File" + i + ".spruce"), "count := count + " + i + ";\nreturn count;\n");
+        }
+        TempSources.write(myRoot.resolve("Bad.spruce"), "x := ;");
+        TempSources.write(myRoot.resolve("README.txt"), "not source");
+    }
+
+    /**
+     * Deletes the source root.
+     */
+    @AfterEach
+    public void deleteSources() throws IOException
+    {
+        TempSources.delete(myRoot);
+    }
+
+    /**
+     * Tests finding, scanning, and parsing every source file, in parallel.
+     */
+    @Test
+    public void testCompileRoot() throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        CompilationReport report;
+        try
+        {
+            report = new CompilationDriver(StandardCharsets.UTF_8, pool, Parser::parseStatement).compile(myRoot);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(21, report.getFileCount());
+        assertEquals(1, report.getErrorCount());
+        assertFalse(report.isSuccessful());
+        assertEquals(20 * 9 + 3, report.getTokenCount());
+        assertTrue(report.getFilesPerSecond() > 0);
+        assertTrue(report.getTokensPerSecond() > 0);
+        assertTrue(report.toString().startsWith("21 files, 183 tokens, 1 errors in "), report.toString());
+
+        FileResult bad = report.getResults().get(0);
+        assertEquals(myRoot.resolve("Bad.spruce"), bad.getPath());
+        assertFalse(bad.isSuccessful());
+        assertEquals(3, bad.getTokenCount());
+
+        String count = null;
+        for (FileResult result : report.getResults().subList(1, 21))
+        {
+            assertTrue(result.isSuccessful(), result.toString());
+            assertEquals(2, result.getNodes().size());
+            for (ASTNode node : result.getNodes())
+            {
+                assertTrue(node instanceof ASTStatement);
+            }
+            // Names are shared across files.
+            String name = firstIdentifier(result.getNodes().get(0));
+            if (count == null)
+            {
+                count = name;
+            }
+            assertSame(count, name);
+        }
+    }
+
+    /**
+     * Tests that the pipelined compile, with a queue shallower than the number
+     * of files, gets the same results in the same order as the parallel
+     * compile.
+     */
+    @Test
+    public void testCompilePipelined() throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        CompilationReport parallel;
+        CompilationReport pipelined;
+        List<Path> files = CompilationDriver.findSources(myRoot);
+        files.add(myRoot.resolve("Missing.spruce"));
+        try
+        {
+            CompilationDriver driver = new CompilationDriver(StandardCharsets.UTF_8, pool, Parser::parseStatement);
+            parallel = driver.compile(files);
+            pipelined = driver.compilePipelined(files, 2, 2);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(22, pipelined.getFileCount());
+        assertEquals(2, pipelined.getErrorCount());
+        assertEquals(parallel.getTokenCount(), pipelined.getTokenCount());
+        assertEquals(parallel.getResults().size(), pipelined.getResults().size());
+        for (int i = 0; i < files.size(); i++)
+        {
+            FileResult expected = parallel.getResults().get(i);
+            FileResult actual = pipelined.getResults().get(i);
+            assertEquals(files.get(i), actual.getPath());
+            assertEquals(expected.getPath(), actual.getPath());
+            assertEquals(expected.getNodes().size(), actual.getNodes().size());
+            assertEquals(expected.getTokenCount(), actual.getTokenCount());
+            assertEquals(expected.getErrors().size(), actual.getErrors().size());
+            for (int j = 0; j < expected.getErrors().size(); j++)
+            {
+                assertEquals(expected.getErrors().get(j).getMessage(), actual.getErrors().get(j).getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tests that an unexpected failure while parsing each file in the pipeline
+     * is recorded as that file's error, instead of killing the parser threads.
+     */
+    @Test
+    public void testCompilePipelinedUnexpectedFailure() throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        List<Path> files = CompilationDriver.findSources(myRoot);
+        CompilationReport report;
+        try
+        {
+            CompilationDriver driver = new CompilationDriver(StandardCharsets.UTF_8, pool, parser -> {
+                throw new StackOverflowError();
+            });
+            report = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> driver.compilePipelined(files, 2, 1));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        assertEquals(21, report.getFileCount());
+        assertEquals(21, report.getErrorCount());
+        for (FileResult result : report.getResults())
+        {
+            assertEquals(1, result.getErrors().size());
+            CompileException error = result.getErrors().get(0);
+            assertEquals(Diagnostic.INTERNAL_ERROR, error.toDiagnostic().getCode());
+            assertTrue(error.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    /**
+     * Tests that the pipeline throws, instead of hanging, when a parser thread
+     * dies while readers are still waiting to hand it files.
+     */
+    @Test
+    public void testCompilePipelinedDeadParser() throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        List<Path> files = CompilationDriver.findSources(myRoot);
+        try
+        {
+            CompilationDriver driver = new CompilationDriver(StandardCharsets.UTF_8, pool, Parser::parseStatement);
+            driver.setDiagnosticSink(diagnostic -> {
+                throw new IllegalStateException("sink failed");
+            });
+            CompileException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(CompileException.class, () -> driver.compilePipelined(files, 2, 1)));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that an unexpected failure while parsing one file is recorded as
+     * that file's error, and the other files' results are kept.
+     */
+    @Test
+    public void testCompileUnexpectedFailure() throws IOException
+    {
+        Path failing = myRoot.resolve("spruce/test/File3.spruce");
+        CompilationDriver driver = new CompilationDriver(StandardCharsets.UTF_8, ForkJoinPool.commonPool(), parser -> {
+            ASTStatement stmt = parser.parseStatement();
+            if (stmt.getLocation().getFilename().equals(failing.toString()))
+            {
+                throw new StackOverflowError();
+            }
+            return stmt;
+        });
+        CompilationReport report = driver.compile(myRoot);
+
+        assertEquals(21, report.getFileCount());
+        assertEquals(2, report.getErrorCount());
+        for (FileResult result : report.getResults())
+        {
+            if (result.getPath().equals(failing))
+            {
+                assertEquals(1, result.getErrors().size());
+                CompileException error = result.getErrors().get(0);
+                assertEquals(Diagnostic.INTERNAL_ERROR, error.toDiagnostic().getCode());
+                assertTrue(error.getCause() instanceof StackOverflowError);
+            }
+            else if (!result.getPath().equals(myRoot.resolve("Bad.spruce")))
+            {
+                assertTrue(result.isSuccessful());
+                assertEquals(2, result.getNodes().size());
+            }
+        }
+    }
+
+    /**
+     * Tests a custom entry point and a missing file.
+     */
+    @Test
+    public void testEntryPointAndMissingFile() throws IOException
+    {
+        CompilationDriver driver = new CompilationDriver(StandardCharsets.UTF_8, ForkJoinPool.commonPool(), Parser::parseExpression);
+        Path expr = myRoot.resolve("expr.spruce");
+        TempSources.write(expr, "a + b c * d");
+        CompilationReport report = driver.compile(Arrays.asList(expr, myRoot.resolve("Missing.spruce")));
+
+        FileResult result = report.getResults().get(0);
+        assertTrue(result.isSuccessful());
+        assertEquals(2, result.getNodes().size());
+        assertEquals(6, result.getTokenCount());
+
+        FileResult missing = report.getResults().get(1);
+        assertEquals(1, missing.getErrors().size());
+        assertEquals(0, missing.getTokenCount());
+    }
+
+    /**
+     * Tests that every syntax error in a file is reported, with its line, and
+     * that the statements around them are still parsed.
+     */
+    @Test
+    public void testAllSyntaxErrorsReported() throws IOException
+    {
+        Path errors = myRoot.resolve("Errors.spruce");
+        TempSources.write(errors, "x := ;\ny := 1;\nreturn return;\nz := y * 2;\n");
+        FileResult result = new CompilationDriver().compileFile(errors);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getLocation().getLineNbr());
+        assertEquals(3, result.getErrors().get(1).getLocation().getLineNbr());
+        assertEquals(4, result.getNodes().size());
+        assertEquals("y", firstIdentifier(result.getNodes().get(1)));
+        assertEquals("z", firstIdentifier(result.getNodes().get(3)));
+    }
+
+    /**
+     * Helper method to find the name of the first identifier in a tree.
+     * @param node The root of the tree.
+     * @return The name, or <code>null</code> if there isn't one.
+     */
+    private static String firstIdentifier(ASTNode node)
+    {
+        if (node instanceof ASTIdentifier)
+        {
+            return ((ASTIdentifier) node).getValue();
+        }
+        if (node instanceof ASTParentNode)
+        {
+            for (ASTNode child : ((ASTParentNode) node).getChildren())
+            {
+                String name = firstIdentifier(child);
+                if (name != null)
+                {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+package org.spruce.compiler.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spruce.compiler.diagnostic.Diagnostic;
+import org.spruce.compiler.diagnostic.DiagnosticCollector;
+import org.spruce.compiler.driver.CompilationDriver;
+import org.spruce.compiler.driver.CompilationReport;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Location;
+import org.spruce.compiler.scanner.Scanner;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for <code>Diagnostic</code>s and how errors are reported.
+ */
+public class DiagnosticTest
+{
+    /**
+     * Tests that a <code>CompileException</code> doesn't fill in a stack
+     * trace, and that one without a <code>Diagnostic</code> is a syntax
+     * error at an unknown location.
+     */
+    @Test
+    public void testCompileException()
+    {
+        CompileException e = new CompileException("Expected expression.");
+        assertEquals(0, e.getStackTrace().length);
+        assertNull(e.getDiagnostic());
+        assertNull(e.getLocation());
+        Diagnostic diagnostic = e.toDiagnostic();
+        assertEquals(Diagnostic.Severity.ERROR, diagnostic.getSeverity());
+        assertEquals(Diagnostic.SYNTAX_ERROR, diagnostic.getCode());
+        assertEquals("Expected expression.", diagnostic.getMessage());
+        assertEquals("error[syntax]: Expected expression.", diagnostic.toString());
+
+        CompileException thrown = assertThrows(CompileException.class,
+                () -> new Parser(new Scanner("x := ;")).parseStatement());
+        assertEquals(0, thrown.getStackTrace().length);
+        Diagnostic syntaxError = thrown.getDiagnostic();
+        assertNotNull(syntaxError);
+        assertSame(syntaxError, thrown.toDiagnostic());
+        assertEquals(Diagnostic.SYNTAX_ERROR, syntaxError.getCode());
+        assertEquals(5, syntaxError.getLocation().getOffset());
+        assertEquals(1, syntaxError.getLength());
+        assertEquals(thrown.getMessage(), syntaxError.getMessage());
+
+        IOException cause = new IOException("Disk on fire.");
+        CompileException wrapped = new CompileException("Unable to read.", cause);
+        assertSame(cause, wrapped.getCause());
+        assertTrue(cause.getStackTrace().length > 0);
+    }
+
+    /**
+     * Tests that a lexical error spans the token being scanned.
+     */
+    @Test
+    public void testLexicalError()
+    {
+        Scanner scanner = new Scanner("x := 'ab';");
+        CompileException e = assertThrows(CompileException.class, () -> {
+            while (scanner.next());
+        });
+        Diagnostic diagnostic = e.getDiagnostic();
+        assertEquals(Diagnostic.LEXICAL_ERROR, diagnostic.getCode());
+        assertEquals(5, diagnostic.getLocation().getOffset());
+        assertEquals(3, diagnostic.getLength());
+        assertSame(diagnostic.getLocation(), e.getLocation());
+        assertEquals("<no file>:1:6: error[lexical]: Illegal unclosed character literal.", diagnostic.toString());
+    }
+
+    /**
+     * Tests that a syntax error thrown by a parser that isn't recovering
+     * spans the token at which it was found, including when an already
+     * parsed expression can't be assigned or incremented.
+     */
+    @Test
+    public void testSyntaxErrorLocation()
+    {
+        for (String code : Arrays.asList("(a)++", "f() := 1", "a ? b ; c"))
+        {
+            CompileException e = assertThrows(CompileException.class,
+                    () -> new Parser(new Scanner(code)).parseExpression());
+            Diagnostic diagnostic = e.getDiagnostic();
+            assertEquals(Diagnostic.SYNTAX_ERROR, diagnostic.getCode());
+            assertSame(diagnostic.getLocation(), e.getLocation());
+            int offset = diagnostic.getLocation().getOffset();
+            assertEquals(code.substring(offset, offset + diagnostic.getLength()),
+                    code.substring(offset).split(" ")[0], "Error at code \"" + code + "\".");
+        }
+    }
+
+    /**
+     * Tests that a recovering parser sends each syntax error to its sink,
+     * spanning the token at which it was found.
+     */
+    @Test
+    public void testParserSink()
+    {
+        DiagnosticCollector collector = new DiagnosticCollector();
+        Parser parser = new Parser(new Scanner("x := ;\ny := 1;\nreturn return;"));
+        parser.setRecovering(true);
+        parser.setDiagnosticSink(collector);
+        while (!parser.isAtEnd())
+        {
+            parser.parseStatement();
+        }
+        List<Diagnostic> diagnostics = collector.getDiagnostics();
+        assertEquals(2, diagnostics.size());
+        assertEquals(2, collector.getErrorCount());
+        for (Diagnostic diagnostic : diagnostics)
+        {
+            assertEquals(Diagnostic.SYNTAX_ERROR, diagnostic.getCode());
+        }
+        assertEquals(5, diagnostics.get(0).getLocation().getOffset());
+        assertEquals(1, diagnostics.get(0).getLength());
+        assertEquals(3, diagnostics.get(1).getLocation().getLineNbr());
+        assertEquals(6, diagnostics.get(1).getLength());
+        assertSame(diagnostics.get(1), parser.getErrors().get(1).getDiagnostic());
+    }
+
+    /**
+     * Tests that the driver sends every file's errors to its sink.
+     * @throws IOException If the files can't be written.
+     */
+    @Test
+    public void testDriverSink() throws IOException
+    {
+        Path root = TempSources.createRoot("diagnostics");
+        Path bad = root.resolve("Bad.spruce");
+        Path unterminated = root.resolve("Unterminated.spruce");
+        Path missing = root.resolve("Missing.spruce");
+        try
+        {
+            TempSources.write(bad, "x := ;\nreturn return;\n");
+            TempSources.write(unterminated, "s := \"abc");
+            CompilationDriver driver = new CompilationDriver();
+            DiagnosticCollector collector = new DiagnosticCollector();
+            driver.setDiagnosticSink(collector);
+            CompilationReport report = driver.compile(Arrays.asList(bad, unterminated, missing));
+
+            assertEquals(4, report.getErrorCount());
+            assertEquals(4, collector.getErrorCount());
+            long syntax = collector.getDiagnostics().stream()
+                    .filter(d -> Diagnostic.SYNTAX_ERROR.equals(d.getCode())).count();
+            assertEquals(2, syntax);
+            Diagnostic lexical = report.getResults().get(1).getErrors().get(0).toDiagnostic();
+            assertEquals(Diagnostic.LEXICAL_ERROR, lexical.getCode());
+            Location loc = lexical.getLocation();
+            assertEquals(unterminated.toString() + ":1", loc.getFileAndLineNbr());
+            assertEquals(6, loc.getCharPos());
+            Diagnostic read = report.getResults().get(2).getErrors().get(0).toDiagnostic();
+            assertEquals(Diagnostic.READ_ERROR, read.getCode());
+            assertNull(read.getLocation());
+        }
+        finally
+        {
+            TempSources.delete(root);
+        }
+    }
+}
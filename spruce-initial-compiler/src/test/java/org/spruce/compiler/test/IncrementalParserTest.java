@@ -0,0 +1,164 @@
+package org.spruce.compiler.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.IncrementalParser;
+import org.spruce.compiler.scanner.TokenBuffer;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for reparsing only the statements that an edit changed.
+ */
+public class IncrementalParserTest
+{
+    /**
+     * Tests that the statements around an edit are kept by identity, and
+     * only the edited one is parsed again.
+     */
+    @Test
+    public void testStatementsKept()
+    {
+        String code = "x := 1;\ny := x + 2;\nreturn y;\n";
+        IncrementalParser parser = new IncrementalParser(new TokenBuffer(code));
+        assertEquals(3, parser.getReparsedCount());
+        List<ASTStatement> before = new ArrayList<>(parser.getStatements());
+
+        parser.edit(code.indexOf("2"), 1, "20 * x");
+        List<ASTStatement> after = parser.getStatements();
+        assertEquals(1, parser.getReparsedCount());
+        assertEquals(3, after.size());
+        assertSame(before.get(0), after.get(0));
+        assertNotSame(before.get(1), after.get(1));
+        assertSame(before.get(2), after.get(2));
+        assertEquals(3, after.get(2).getLocation().getLineNbr());
+        assertEquals(code.indexOf("return") + 5, after.get(2).getLocation().getOffset());
+        checkSameAsFresh(parser);
+
+        // Statements not read between edits are moved by all of them at once.
+        parser.edit(0, 0, "\n\n");
+        parser.edit(2, 1, "xy");
+        assertSame(before.get(2), parser.getStatements().get(2));
+        assertEquals(5, before.get(2).getLocation().getLineNbr());
+        checkSameAsFresh(parser);
+    }
+
+    /**
+     * Tests edits that add, join, split, and break statements.
+     */
+    @Test
+    public void testStatementBoundariesChange()
+    {
+        IncrementalParser parser = new IncrementalParser(new TokenBuffer("a := 1;\nb := 2;\nc := 3;\n"));
+        // Split the second statement in two.
+        parser.edit(parser.getTokens().getSource().substring(0, 15).indexOf("2") + 1, 0, "; d := 4");
+        assertEquals(4, parser.getStatements().size());
+        checkSameAsFresh(parser);
+        // Join the first two statements into a broken one.
+        parser.edit(6, 1, "");
+        checkSameAsFresh(parser);
+        assertTrue(parser.getStatements().get(0).getChildren().get(0) instanceof ASTError);
+        // Fix it again.
+        parser.edit(6, 0, ";");
+        assertEquals(4, parser.getStatements().size());
+        checkSameAsFresh(parser);
+        // Comment out everything after the first statement.
+        parser.edit(parser.getTokens().getSource().length(), 0, "*/");
+        checkSameAsFresh(parser);
+        parser.edit(7, 0, "/*");
+        assertEquals(1, parser.getStatements().size());
+        checkSameAsFresh(parser);
+        // Delete everything.
+        parser.edit(0, parser.getTokens().getSource().length(), "");
+        assertEquals(0, parser.getStatements().size());
+        checkSameAsFresh(parser);
+    }
+
+    /**
+     * Tests many random edits, each applied to the result of the last,
+     * against parsing the edited source from scratch, collapsing or not.
+     */
+    @Test
+    public void testEditRandomly()
+    {
+        String[] fragments = {"", " ", "\n", "x", "1", ";", "+", "(", ")", ":=", "return ", "/*", "*/", "y.z",
+            "a[0]", ", "};
+        for (boolean collapsing : new boolean[] {false, true})
+        {
+            Random random = new Random(7);
+            String code = "x := 1;\ny := f(x, 2) * 3;\nreturn x + y;\nz := a.b[c];\nthrow e;\n";
+            IncrementalParser parser = new IncrementalParser(new TokenBuffer(code), collapsing);
+            for (int i = 0; i < 1000; i++)
+            {
+                int offset = random.nextInt(code.length() + 1);
+                int removed = random.nextInt(Math.min(3, code.length() - offset) + 1);
+                String inserted = fragments[random.nextInt(fragments.length)];
+                try
+                {
+                    parser.edit(offset, removed, inserted);
+                }
+                catch (CompileException e)
+                {
+                    // An unterminated comment; the edit isn't applied.
+                    continue;
+                }
+                code = code.substring(0, offset) + inserted + code.substring(offset + removed);
+                checkSameAsFresh(parser);
+            }
+        }
+    }
+
+    /**
+     * Tests that editing one statement of a large source parses only that
+     * statement again.
+     */
+    @Test
+    public void testLargeSource()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+        {
+            buf.append("x").append(i).append(" := f(x").append(i).append(", \"s\") + 1;\n");
+        }
+        String code = buf.toString();
+        IncrementalParser parser = new IncrementalParser(new TokenBuffer(code));
+        List<ASTStatement> before = new ArrayList<>(parser.getStatements());
+        int offset = code.indexOf("f(x10000") + 2;
+        int lastOffset = before.get(19999).getLocation().getOffset();
+
+        parser.edit(offset, 0, "y");
+
+        assertEquals(1, parser.getReparsedCount());
+        List<ASTStatement> after = parser.getStatements();
+        assertEquals(20000, after.size());
+        assertSame(before.get(9999), after.get(9999));
+        assertSame(before.get(10001), after.get(10001));
+        assertEquals(10002, after.get(10001).getLocation().getLineNbr());
+        assertEquals(lastOffset + 1, after.get(19999).getLocation().getOffset());
+    }
+
+    /**
+     * Helper method to check that the parser's statements are the same as
+     * those parsed from its source from scratch.
+     * @param parser The <code>IncrementalParser</code>.
+     */
+    private static void checkSameAsFresh(IncrementalParser parser)
+    {
+        TokenBuffer tokens = parser.getTokens();
+        String code = tokens.getSource().substring(0, tokens.getSource().length());
+        List<ASTStatement> expected = new IncrementalParser(new TokenBuffer(code), parser.isCollapsing()).getStatements();
+        List<ASTStatement> actual = parser.getStatements();
+        assertEquals(expected.size(), actual.size(), code);
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertSameTree(expected.get(i), actual.get(i));
+            assertSame(tokens.getSource(), actual.get(i).getLocation().getSource());
+        }
+    }
+}
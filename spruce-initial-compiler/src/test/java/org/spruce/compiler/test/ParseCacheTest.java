@@ -0,0 +1,233 @@
+package org.spruce.compiler.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.ast.ASTStatement;
+import org.spruce.compiler.driver.CompilationDriver;
+import org.spruce.compiler.driver.CompilationReport;
+import org.spruce.compiler.driver.FileResult;
+import org.spruce.compiler.driver.ParseCache;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for the <code>ParseCache</code>.
+ */
+public class ParseCacheTest
+{
+    private Path myRoot;
+    private Path myCacheDir;
+
+    /**
+     * Creates a source root with good files and a bad file, and an empty
+     * cache directory.
+     */
+    @BeforeEach
+    public void createSources() throws IOException
+    {
+        myRoot = TempSources.createRoot("cache");
+        Path src = myRoot.resolve("src");
+        for (int i = 0; i < 5; i++)
+        {
+            TempSources.write(src.resolve("File" + i + ".spruce"),
+                    "count := count + " + i + ";\ns := \"a\" + 'b';\nreturn count;\n");
+        }
+        TempSources.write(src.resolve("Bad.spruce"), "x := ;\ny := 1;");
+        myCacheDir = myRoot.resolve("cache");
+    }
+
+    /**
+     * Deletes the source root and the cache.
+     */
+    @AfterEach
+    public void deleteSources() throws IOException
+    {
+        TempSources.delete(myRoot);
+    }
+
+    /**
+     * Tests that the first run misses and stores every file, and that a second
+     * run reads every file from the cache, with the same trees and errors.
+     */
+    @Test
+    public void testHitsAfterMisses() throws IOException
+    {
+        Path src = myRoot.resolve("src");
+        CompilationReport first = compile(new ParseCache(myCacheDir, "1"), src);
+        assertEquals(6, first.getCacheMisses());
+        assertEquals(0, first.getCacheHits());
+        assertEquals(6, entries().size());
+
+        CompilationReport second = compile(new ParseCache(myCacheDir, "1"), src);
+        assertEquals(6, second.getCacheHits());
+        assertEquals(0, second.getCacheMisses());
+        assertEquals(0, second.getCacheInvalidations());
+        assertTrue(second.toString().endsWith("cache: 6 hits, 0 misses, 0 invalidations"), second.toString());
+        assertEquals(first.getTokenCount(), second.getTokenCount());
+        assertEquals(first.getErrorCount(), second.getErrorCount());
+        for (int i = 0; i < first.getFileCount(); i++)
+        {
+            FileResult expected = first.getResults().get(i);
+            FileResult actual = second.getResults().get(i);
+            assertEquals(ParseCache.Status.HIT, actual.getCacheStatus());
+            assertEquals(expected.getNodes().size(), actual.getNodes().size());
+            for (int j = 0; j < expected.getNodes().size(); j++)
+            {
+                assertSameTree(expected.getNodes().get(j), actual.getNodes().get(j));
+            }
+            assertEquals(expected.getErrors().size(), actual.getErrors().size());
+            for (int j = 0; j < expected.getErrors().size(); j++)
+            {
+                assertEquals(expected.getErrors().get(j).toDiagnostic().toString(),
+                        actual.getErrors().get(j).toDiagnostic().toString());
+            }
+        }
+
+        CompilationDriver uncached = new CompilationDriver();
+        assertNull(uncached.compile(src).getResults().get(0).getCacheStatus());
+    }
+
+    /**
+     * Tests that a changed file misses, and that entries from another compiler
+     * version or that are damaged are invalidated and replaced.
+     */
+    @Test
+    public void testMissesAndInvalidations() throws IOException
+    {
+        Path src = myRoot.resolve("src");
+        compile(new ParseCache(myCacheDir, "1"), src);
+        TempSources.write(src.resolve("File0.spruce"), "changed := true;");
+        CompilationReport changed = compile(new ParseCache(myCacheDir, "1"), src);
+        assertEquals(1, changed.getCacheMisses());
+        assertEquals(5, changed.getCacheHits());
+
+        CompilationReport upgraded = compile(new ParseCache(myCacheDir, "2"), src);
+        assertEquals(6, upgraded.getCacheInvalidations());
+        assertEquals(6, compile(new ParseCache(myCacheDir, "2"), src).getCacheHits());
+
+        for (Path entry : entries())
+        {
+            byte[] bytes = Files.readAllBytes(entry);
+            Files.write(entry, Arrays.copyOf(bytes, bytes.length / 2));
+        }
+        CompilationReport damaged = compile(new ParseCache(myCacheDir, "2"), src);
+        assertEquals(6, damaged.getCacheInvalidations());
+        assertEquals(1, damaged.getErrorCount());
+        assertEquals(6, compile(new ParseCache(myCacheDir, "2"), src).getCacheHits());
+    }
+
+    /**
+     * Tests storing and loading tokens and trees directly.
+     */
+    @Test
+    public void testStoreAndLoad() throws IOException
+    {
+        ParseCache cache = new ParseCache(myCacheDir, "1");
+        String code = "map := new HashMap<String, List<? <: Number>>();\nx := a[i] >>> 2;\nreturn;";
+        SourceText source = new SourceText("<stored>", code);
+        ParseCache.Entry missed = cache.load(source, new SymbolTable());
+        assertEquals(ParseCache.Status.MISS, missed.getStatus());
+        assertNull(missed.getTokens());
+
+        TokenBuffer tokens = new TokenBuffer(source);
+        Parser parser = new Parser(tokens.stream());
+        List<ASTStatement> stmts = new ArrayList<>();
+        while (!parser.isAtEnd())
+        {
+            stmts.add(parser.parseStatement());
+        }
+        assertTrue(cache.store(missed, tokens, stmts, new ArrayList<CompileException>()));
+        assertTrue(Files.exists(missed.getPath()));
+
+        SourceText same = new SourceText("<loaded>", code);
+        SymbolTable symbols = new SymbolTable();
+        ParseCache.Entry hit = cache.load(same, symbols);
+        assertEquals(ParseCache.Status.HIT, hit.getStatus());
+        TokenBuffer loaded = hit.getTokens();
+        assertSame(same, loaded.getSource());
+        assertEquals(tokens.size(), loaded.size());
+        for (int i = 0; i < tokens.size(); i++)
+        {
+            assertEquals(tokens.getType(i), loaded.getType(i));
+            assertEquals(tokens.getStart(i), loaded.getStart(i));
+            assertEquals(tokens.getLength(i), loaded.getLength(i));
+        }
+        List<ASTNode> nodes = hit.getNodes();
+        assertEquals(stmts.size(), nodes.size());
+        for (int i = 0; i < stmts.size(); i++)
+        {
+            assertSameTree(stmts.get(i), nodes.get(i));
+            assertSame(same, nodes.get(i).getLocation().getSource());
+            assertSame(nodes.get(i), nodes.get(i));
+        }
+        assertSame(symbols.intern("HashMap"), loaded.getValue(loaded.indexOf(code.indexOf("HashMap"))));
+
+        // The trees are read lazily, so damage to them is found on loading.
+        byte[] bytes = Files.readAllBytes(missed.getPath());
+        // The trees come just before the error count.
+        bytes[bytes.length - Integer.BYTES - 6] ^= 1;
+        Files.write(missed.getPath(), bytes);
+        assertEquals(ParseCache.Status.INVALIDATED, cache.load(same, symbols).getStatus());
+        assertFalse(Files.exists(missed.getPath()));
+    }
+
+    /**
+     * Tests that a cache for this compiler is keyed by a hash of its classes,
+     * and not just a fixed version.
+     */
+    @Test
+    public void testDefaultCompilerVersion() throws IOException
+    {
+        String version = new ParseCache(myCacheDir).getCompilerVersion();
+        assertTrue(version.matches(".+\\+[0-9a-f]{64}"), version);
+        assertEquals(version, new ParseCache(myCacheDir).getCompilerVersion());
+
+        Path src = myRoot.resolve("src");
+        compile(new ParseCache(myCacheDir), src);
+        assertEquals(6, compile(new ParseCache(myCacheDir), src).getCacheHits());
+        assertEquals(6, compile(new ParseCache(myCacheDir, "dev"), src).getCacheInvalidations());
+    }
+
+    /**
+     * Helper method to compile a directory with a cache.
+     * @param cache The <code>ParseCache</code>.
+     * @param src The directory.
+     * @return The <code>CompilationReport</code>.
+     */
+    private static CompilationReport compile(ParseCache cache, Path src) throws IOException
+    {
+        CompilationDriver driver = new CompilationDriver();
+        driver.setParseCache(cache);
+        return driver.compile(src);
+    }
+
+    /**
+     * Helper method to list the cache's entries.
+     * @return The entry files.
+     */
+    private List<Path> entries() throws IOException
+    {
+        try (Stream<Path> paths = Files.list(myCacheDir))
+        {
+            List<Path> entries = new ArrayList<>();
+            paths.forEach(entries::add);
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.spruce.compiler.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.TokenBuffer;
+import static org.spruce.compiler.scanner.TokenType.*;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for parsing expressions that are already collapsed.
+ */
+public class ParserCollapsedExpressionsTest
+{
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "count := 1", "i.j++", "--i.j", "a[1][2]--", "a := b += c -= d",
+            "a ? b : c", "a || b ? \"one\" : c || d ? \"two\" : e || f ? \"three\" : \"four\"",
+            "a && b |: c ^: d || e &: f", "a && b ^: c &: d ^: e && f",
+            "a < b &: c <= d && e > f", "a < b <=> c <= d", "a.value <=> b.value",
+            "node instanceof ASTRelationalExpression", "obj is other", "test != FAILURE",
+            "red | blue | yellow ^ green", "red ^ blue & yellow ^ green", "red + blue & blueGreenMask & greenRedMask",
+            "-2 << 3 + 4 >> 5 >>> 1", "-2 + 3 * 4 - 5", "5 * 6 / 3 % 7", "i / -1", "!false", "- ~ !x",
+            "\"2\" as Object as String & Serializable", "d as Double * 2",
+            "(x + 1)*(x - 1)", "(a + b)", "((a))", "(a)[0]", "(getList())[i + 1]",
+            "methodName(helperMethod(i), (a + b), ++j)", "getArray()[1]", "a[i * 2][j + k]",
+            "new MyClass(1, \"one\")", "new String[] {\"one\", \"two\", \"three\"}", "new String[n + 1][]",
+            "league.new Team(25, \"Dodgers\")", "qualified.type.this", "spruce.lang.String[][].class",
+            "this", "3.14", "'c'", "null"
+    );
+
+    /**
+     * Tests that each expression parses collapsed to the same tree as parsing
+     * it and then collapsing it, and stops at the same token.
+     */
+    @Test
+    public void testSameAsCollapsed()
+    {
+        for (String code : EXPRESSIONS)
+        {
+            checkSameAsCollapsed(code);
+        }
+    }
+
+    /**
+     * Tests that operators that aren't consumed are left in the same place.
+     */
+    @Test
+    public void testStopsAtSameToken()
+    {
+        for (String code : Arrays.asList("a <=> b <=> c", "a + b +", "a instanceof T + 1", "a < b <=> c <=> d", "a b"))
+        {
+            checkSameAsCollapsed(code);
+        }
+    }
+
+    /**
+     * Tests that an expression nested hundreds of parentheses deep parses
+     * collapsed, with a parenthesized primary at each level.
+     */
+    @Test
+    public void testDeeplyParenthesized()
+    {
+        int depth = 500;
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append("a + (");
+        }
+        buf.append('a');
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append(')');
+        }
+        ASTExpression expr = new Parser(new TokenBuffer(buf.toString()).stream()).parseCollapsedExpression();
+        ASTNode node = expr.getChildren().get(0);
+        for (int i = 0; i < depth; i++)
+        {
+            assertTrue(node instanceof ASTAdditiveExpression);
+            ASTParentNode primary = (ASTParentNode) ((ASTParentNode) node).getChildren().get(1);
+            assertEquals(OPEN_PARENTHESIS, primary.getOperation());
+            node = primary.getChildren().get(0);
+        }
+        assertTrue(node instanceof ASTExpressionName);
+    }
+
+    /**
+     * Tests that an expression nested ten thousand parentheses deep, through
+     * binary and unary operators and conditionals, parses with
+     * <code>parseExpression</code>, both collapsing and not.
+     */
+    @Test
+    public void testDeeplyNestedParseExpression()
+    {
+        int depth = 10000;
+        List<String> openers = Arrays.asList("a + (", "-(", "b ? c : (", "d := (");
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append(openers.get(i % openers.size()));
+        }
+        buf.append('a');
+        for (int i = 0; i < depth; i++)
+        {
+            buf.append(')');
+        }
+        String code = buf.toString();
+        for (boolean collapsing : Arrays.asList(false, true))
+        {
+            ASTExpression expr = new Parser(new TokenBuffer(code).stream(), collapsing).parseExpression();
+            expr.collapse();
+            ASTNode node = expr.getChildren().get(0);
+            for (int i = 0; i < depth; i++)
+            {
+                ASTParentNode parent = (ASTParentNode) node;
+                List<ASTNode> children = parent.getChildren();
+                switch(i % openers.size())
+                {
+                case 0:
+                    assertTrue(parent instanceof ASTAdditiveExpression);
+                    break;
+                case 1:
+                    assertTrue(parent instanceof ASTUnaryExpression);
+                    break;
+                case 2:
+                    assertTrue(parent instanceof ASTConditionalExpression);
+                    break;
+                default:
+                    assertTrue(parent instanceof ASTAssignment);
+                    break;
+                }
+                ASTParentNode primary = (ASTParentNode) children.get(children.size() - 1);
+                assertEquals(OPEN_PARENTHESIS, primary.getOperation());
+                node = primary.getChildren().get(0);
+            }
+            assertTrue(node instanceof ASTExpressionName);
+        }
+    }
+
+    /**
+     * Tests that errors are still errors.
+     */
+    @Test
+    public void testErrors()
+    {
+        for (String code : Arrays.asList("(a + b", "a + b := 1", "(a) := 1", "f()++", "1++", "a ? b", "+", "a as",
+                "a instanceof T == b", "x := y ? z : w := v"))
+        {
+            Parser parser = new Parser(new Scanner(code));
+            assertThrows(CompileException.class, parser::parseExpression, "Error at code \"" + code + "\".");
+            Parser collapsing = new Parser(new Scanner(code));
+            assertThrows(CompileException.class, collapsing::parseCollapsedExpression, "Error at code \"" + code + "\".");
+        }
+    }
+
+    /**
+     * Tests that a collapsing parser parses each statement to the same tree
+     * as parsing it and then collapsing it.
+     */
+    @Test
+    public void testCollapsingStatements()
+    {
+        for (String code : Arrays.asList("x := x + 1;", "return true;", "return;", "return x.y + 2;",
+                "throw new CompileException(\"Error message\");", "break;", "continue;", "fallthrough;",
+                "assert status = true;", "assert result = true : \"Assertion failed!\";", "x++;", "--x.y;",
+                "x.y(2);", "new SideEffect();", "a[i] += f(a, b) * 2;", "x := y := (z);", "x := new String[] {y};",
+                "map := new HashMap<String, List<? <: Number>>();", "list := new <T>ArrayList<>(other);",
+                "ok := obj instanceof Map<String, Integer>[] && obj as List<String> != null;",
+                "c := spruce.lang.String[].class;", "n := new Item[count][];"))
+        {
+            checkCollapsing(code, Parser::parseStatement);
+        }
+    }
+
+    /**
+     * Tests that a collapsing parser returns, from each parse method, the
+     * same tree as parsing and then collapsing.
+     */
+    @Test
+    public void testCollapsingParseMethods()
+    {
+        checkCollapsing("a * b + c", Parser::parseAdditiveExpression);
+        checkCollapsing("a < b <=> c", Parser::parseRelationalExpression);
+        checkCollapsing("a <=> b", Parser::parseCompareExpression);
+        checkCollapsing("x as A as B & C", Parser::parseCastExpression);
+        checkCollapsing("a ? b : c", Parser::parseConditionalExpression);
+        checkCollapsing("x := y", Parser::parseAssignmentExpression);
+        checkCollapsing("- ~ a", Parser::parseUnaryExpression);
+        checkCollapsing("f(a + b, c)[1]", Parser::parsePrimary);
+        checkCollapsing("a", Parser::parsePrimary);
+        checkCollapsing("(a + b)", Parser::parsePrimary);
+        checkCollapsing("(a).f()", Parser::parsePrimary);
+        checkCollapsing("Outer.this", Parser::parsePrimary);
+        checkCollapsing("x.new Inner()", Parser::parsePrimary);
+        checkCollapsing("x.y(2)", Parser::parseStatementExpression);
+        checkCollapsing("x := 1", Parser::parseStatementExpression);
+        checkCollapsing("a[i]++", Parser::parseStatementExpression);
+        checkCollapsing("x.y(2);", Parser::parseExpressionStatement);
+        checkCollapsing("a[i][j]", Parser::parseLeftHandSide);
+        checkCollapsing("a, b, c", Parser::parseArgumentList);
+        checkCollapsing("{a, b + 1}", Parser::parseArrayInitializer);
+        checkCollapsing("new <T>Inner<B, C>(x)", Parser::parseClassInstanceCreationExpression);
+        checkCollapsing("<Employee, ?, ? <: Number>", Parser::parseTypeArguments);
+        checkCollapsing("Map<K, List<V>>[]", Parser::parseDataType);
+        checkCollapsing("Student & Person", Parser::parseIntersectionType);
+        checkCollapsing("? :> Employee", Parser::parseWildcard);
+        checkCollapsing("x.y", Parser::parseLeftHandSide);
+    }
+
+    /**
+     * Tests that a parser builds the full tree unless told to collapse.
+     */
+    @Test
+    public void testUncollapsedByDefault()
+    {
+        Parser parser = new Parser(new Scanner("a"));
+        assertFalse(parser.isCollapsing());
+        ASTExpression expr = parser.parseExpression();
+        assertTrue(expr.getChildren().get(0) instanceof ASTExpressionNoIncrDecr);
+        Parser collapsing = new Parser(new Scanner("a"), true);
+        assertTrue(collapsing.isCollapsing());
+        expr = collapsing.parseExpression();
+        assertTrue(expr.getChildren().get(0) instanceof ASTExpressionName);
+    }
+
+    /**
+     * Parses the given code with a parser, then collapses it, and with a
+     * collapsing parser, and compares the trees.
+     * @param code The code.
+     * @param parseMethod The parse method.
+     */
+    private static void checkCollapsing(String code, Function<Parser, ? extends ASTParentNode> parseMethod)
+    {
+        ASTParentNode expected = parseMethod.apply(new Parser(new Scanner(code)));
+        expected.collapse();
+        ASTParentNode actual = parseMethod.apply(new Parser(new Scanner(code), true));
+        assertSameTree(expected, actual);
+    }
+
+    /**
+     * Parses the given code both ways and compares the trees.
+     * @param code The code.
+     */
+    private static void checkSameAsCollapsed(String code)
+    {
+        Scanner scanner = new Scanner(code);
+        ASTExpression expected = new Parser(scanner).parseExpression();
+        expected.collapse();
+        Scanner collapsingScanner = new Scanner(code);
+        ASTExpression actual = new Parser(collapsingScanner).parseCollapsedExpression();
+        assertSameTree(expected, actual);
+        assertEquals(scanner.getCurrToken().getOffset(), collapsingScanner.getCurrToken().getOffset(),
+                "Stopped in a different place at \"" + code + "\".");
+    }
+}
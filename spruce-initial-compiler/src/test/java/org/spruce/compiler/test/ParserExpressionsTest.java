@@ -1,5 +1,6 @@
 package org.spruce.compiler.test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -7,6 +8,7 @@ import org.spruce.compiler.ast.*;
 import org.spruce.compiler.exception.CompileException;
 import org.spruce.compiler.parser.Parser;
 import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.TokenType;
 import static org.spruce.compiler.scanner.TokenType.*;
 import static org.spruce.compiler.test.ParserTestUtility.*;
 
@@ -944,6 +946,42 @@ public class ParserExpressionsTest
         checkBinaryLeftAssociative(node, Arrays.asList(UNSIGNED_SHIFT_RIGHT, SHIFT_RIGHT, SHIFT_LEFT), ASTShiftExpression.class, ASTAdditiveExpression.class);
     }
 
+    /**
+     * Tests that "&gt;" tokens separated by whitespace don't make a shift, so
+     * the second one is rejected as the start of an operand.
+     */
+    @Test
+    public void testShiftExpressionSeparatedGreaterThans()
+    {
+        Parser parser = new Parser(new Scanner("a > > b"));
+        ASTShiftExpression node = parser.parseShiftExpression();
+        assertNull(node.getOperation());
+
+        CompileException e = assertThrows(CompileException.class,
+                () -> new Parser(new Scanner("a > > b")).parseExpression());
+        assertEquals(4, e.getLocation().getOffset());
+        assertEquals("Expected a literal or expression name.", e.getMessage());
+    }
+
+    /**
+     * Tests that a shift right after a diamond is still a shift.
+     */
+    @Test
+    public void testShiftExpressionAfterDiamond()
+    {
+        Parser parser = new Parser(new Scanner("new ArrayList<>(a >> 1) >>> b"));
+        ASTShiftExpression node = parser.parseShiftExpression();
+        assertEquals(UNSIGNED_SHIFT_RIGHT, node.getOperation());
+        List<TokenType> operations = new ArrayList<>();
+        ASTTraversal.preOrder(node, n -> {
+            if (n instanceof ASTShiftExpression && ((ASTShiftExpression) n).getOperation() != null)
+            {
+                operations.add(((ASTShiftExpression) n).getOperation());
+            }
+        });
+        assertEquals(Arrays.asList(UNSIGNED_SHIFT_RIGHT, SHIFT_RIGHT), operations);
+    }
+
     /**
      * Tests additive expression of multiplicative expression.
      */
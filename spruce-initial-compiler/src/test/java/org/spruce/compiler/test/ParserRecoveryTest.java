@@ -0,0 +1,175 @@
+package org.spruce.compiler.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spruce.compiler.ast.*;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.TokenBuffer;
+import org.spruce.compiler.scanner.TokenType;
+import static org.spruce.compiler.scanner.TokenType.*;
+import static org.spruce.compiler.test.ParserTestUtility.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests for the parser recovering from syntax errors in statements.
+ */
+public class ParserRecoveryTest
+{
+    /**
+     * Tests that one run reports every syntax error, each at its token, and
+     * parses the statements between them.
+     */
+    @Test
+    public void testAllErrorsReported()
+    {
+        Parser parser = recovering("x := ;\ny := 1;\nreturn return;\nz := (y + ;\nw := 2;");
+        List<ASTStatement> stmts = parseAll(parser);
+        assertEquals(5, stmts.size());
+        checkError(stmts.get(0));
+        checkSimple(stmts.get(1), ASTExpressionStatement.class);
+        checkError(stmts.get(2));
+        checkError(stmts.get(3));
+        checkSimple(stmts.get(4), ASTExpressionStatement.class);
+
+        List<CompileException> errors = parser.getErrors();
+        assertEquals(3, errors.size());
+        assertEquals(1, errors.get(0).getLocation().getLineNbr());
+        assertEquals(6, errors.get(0).getLocation().getCharPos());
+        assertEquals(3, errors.get(1).getLocation().getLineNbr());
+        assertEquals(8, errors.get(1).getLocation().getCharPos());
+        assertEquals(4, errors.get(2).getLocation().getLineNbr());
+        for (int i = 0; i < errors.size(); i++)
+        {
+            ASTError error = (ASTError) stmts.get(i == 0 ? 0 : i + 1).getChildren().get(0);
+            assertEquals(errors.get(i).getMessage(), error.getValue());
+            assertSame(errors.get(i).getLocation(), error.getLocation());
+        }
+    }
+
+    /**
+     * Tests that recovery stops before a closing brace, and skips one that
+     * starts a statement, so that parsing always moves forward.
+     */
+    @Test
+    public void testSynchronizeOnCloseBrace()
+    {
+        Parser parser = recovering("x := } y := 1; }");
+        List<ASTStatement> stmts = parseAll(parser);
+        assertEquals(4, stmts.size());
+        checkError(stmts.get(0));
+        checkError(stmts.get(1));
+        checkSimple(stmts.get(2), ASTExpressionStatement.class);
+        checkError(stmts.get(3));
+        assertEquals(3, parser.getErrors().size());
+        assertTrue(parser.isAtEnd());
+    }
+
+    /**
+     * Tests recovering from an error at the end of the file, and in a type
+     * context, whose <code>&gt;</code> tokens must not leak into the next
+     * statement.
+     */
+    @Test
+    public void testEndOfFileAndTypeContext()
+    {
+        Parser parser = recovering("x := new Map<List<String>;\ny := a >> 1;\nz := 1 +");
+        List<ASTStatement> stmts = parseAll(parser);
+        assertEquals(3, stmts.size());
+        checkError(stmts.get(0));
+        List<TokenType> operations = new ArrayList<>();
+        ASTTraversal.preOrder(stmts.get(1), node -> {
+            if (node instanceof ASTShiftExpression && ((ASTShiftExpression) node).getOperation() != null)
+            {
+                operations.add(((ASTShiftExpression) node).getOperation());
+            }
+        });
+        assertEquals(Arrays.asList(SHIFT_RIGHT), operations);
+        checkError(stmts.get(2));
+        assertEquals(2, parser.getErrors().size());
+    }
+
+    /**
+     * Tests that a clean parse gives the same trees with or without recovery,
+     * collapsing or not, and reports no errors.
+     */
+    @Test
+    public void testCleanParseUnchanged()
+    {
+        String code = "x := x + 1; return; assert result = true : \"Assertion failed!\"; a[i] += f(a, 'b', 3.5);";
+        TokenBuffer tokens = new TokenBuffer(code);
+        for (boolean collapsing : Arrays.asList(false, true))
+        {
+            List<ASTStatement> expected = parseAll(new Parser(tokens.stream(), collapsing));
+            Parser parser = new Parser(tokens.stream(), collapsing);
+            parser.setRecovering(true);
+            List<ASTStatement> actual = parseAll(parser);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertSameTree(expected.get(i), actual.get(i));
+            }
+            assertTrue(parser.getErrors().isEmpty());
+        }
+    }
+
+    /**
+     * Tests that recovery is off by default, and that errors from the
+     * <code>TokenStream</code> are thrown even when recovering.
+     */
+    @Test
+    public void testErrorsThrown()
+    {
+        Parser parser = new Parser(new Scanner("x := ;"));
+        assertFalse(parser.isRecovering());
+        assertThrows(CompileException.class, parser::parseStatement);
+
+        Parser lexing = recovering("x := 1;\ny := \"unterminated;");
+        lexing.parseStatement();
+        assertThrows(CompileException.class, lexing::parseStatement);
+        assertTrue(lexing.getErrors().isEmpty());
+    }
+
+    /**
+     * Helper method to create a recovering parser.
+     * @param code The code to parse.
+     * @return A <code>Parser</code> that recovers from syntax errors.
+     */
+    private static Parser recovering(String code)
+    {
+        Parser parser = new Parser(new Scanner(code));
+        parser.setRecovering(true);
+        assertTrue(parser.isRecovering());
+        return parser;
+    }
+
+    /**
+     * Helper method to parse statements until the end of the file.
+     * @param parser The <code>Parser</code>.
+     * @return The statements.
+     */
+    private static List<ASTStatement> parseAll(Parser parser)
+    {
+        List<ASTStatement> stmts = new ArrayList<>();
+        while (!parser.isAtEnd())
+        {
+            stmts.add(parser.parseStatement());
+        }
+        return stmts;
+    }
+
+    /**
+     * Helper method to check that a statement holds only an
+     * <code>ASTError</code>.
+     * @param stmt The statement.
+     */
+    private static void checkError(ASTStatement stmt)
+    {
+        checkSimple(stmt, ASTError.class);
+    }
+}
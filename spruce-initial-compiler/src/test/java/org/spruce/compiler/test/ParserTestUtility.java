@@ -247,4 +247,35 @@ public class ParserTestUtility
         node.collapse();
         node.print();
     }
+
+    /**
+     * Helper method to test that two trees are the same: the same classes,
+     * operations, values, and locations, with the same children in the same
+     * order.
+     * @param expected The expected tree.
+     * @param actual The actual tree.
+     */
+    static void assertSameTree(ASTNode expected, ASTNode actual)
+    {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getLocation().getOffset(), actual.getLocation().getOffset(),
+                "Location of " + actual);
+        if (expected instanceof ASTValueNode)
+        {
+            assertEquals(((ASTValueNode) expected).getValue(), ((ASTValueNode) actual).getValue());
+        }
+        if (expected instanceof ASTParentNode)
+        {
+            ASTParentNode expectedParent = (ASTParentNode) expected;
+            ASTParentNode actualParent = (ASTParentNode) actual;
+            assertEquals(expectedParent.getOperation(), actualParent.getOperation(), "Operation of " + actual);
+            List<ASTNode> expectedChildren = expectedParent.getChildren();
+            List<ASTNode> actualChildren = actualParent.getChildren();
+            assertEquals(expectedChildren.size(), actualChildren.size(), "Children of " + actual);
+            for (int i = 0; i < expectedChildren.size(); i++)
+            {
+                assertSameTree(expectedChildren.get(i), actualChildren.get(i));
+            }
+        }
+    }
 }
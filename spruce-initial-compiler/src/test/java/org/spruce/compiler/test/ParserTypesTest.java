@@ -162,6 +162,28 @@ public class ParserTypesTest
         assertTrue(child instanceof ASTTypeArguments);
     }
 
+    /**
+     * Tests simple types whose nested type arguments end with "&gt;&gt;" and
+     * "&gt;&gt;&gt;".
+     */
+    @Test
+    public void testSimpleTypeNestedTypeArguments()
+    {
+        for (String code : Arrays.asList("Map<K, List<V>>", "A<B<C<D>>>", "A<B<C<D<E>>>>[]"))
+        {
+            Parser parser = new Parser(new Scanner(code));
+            ASTDataType node = parser.parseDataType();
+            int[] typeArguments = new int[1];
+            ASTTraversal.preOrder(node, n -> {
+                if (n instanceof ASTTypeArguments)
+                {
+                    typeArguments[0]++;
+                }
+            });
+            assertEquals(code.length() - code.replace(">", "").length(), typeArguments[0], code);
+        }
+    }
+
     /**
      * Tests intersection type of data type.
      */
@@ -1,14 +1,24 @@
 package org.spruce.compiler.test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Keywords;
 import org.spruce.compiler.scanner.Location;
 import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
 import org.spruce.compiler.scanner.Token;
+import org.spruce.compiler.scanner.TokenBuffer;
+import org.spruce.compiler.scanner.TokenType;
 import static org.spruce.compiler.scanner.TokenType.*;
 
 import org.junit.jupiter.api.Test;
@@ -34,6 +44,97 @@ public class ScannerTest
         }
     }
 
+    /**
+     * Tests that scanning a memory-mapped file, both ASCII-only and not,
+     * yields the same tokens and locations as scanning the file's contents.
+     */
+    @Test
+    public void testMappedFile() throws IOException
+    {
+        Path ascii = Paths.get("src-spruce/Tokens.spruce");
+        compareScanners(new Scanner(ascii, StandardCharsets.UTF_8), Scanner.map(ascii, StandardCharsets.UTF_8));
+
+        Path nonAscii = Files.createTempFile("scanner", ".spruce");
+        try
+        {
+            Files.write(nonAscii, "String na\u00efve := \"caf\u00e9\";\r\nna\u00efve++;\u2003x\u0663 := 12\u0663;".getBytes(StandardCharsets.UTF_8));
+            compareScanners(new Scanner(nonAscii, StandardCharsets.UTF_8), Scanner.map(nonAscii, StandardCharsets.UTF_8));
+        }
+        finally
+        {
+            Files.delete(nonAscii);
+        }
+    }
+
+    /**
+     * Tests that runs of identifier characters, digits, and whitespace of every
+     * length, next to the bytes just outside each class, scan the same from a
+     * memory-mapped ASCII file, found eight bytes at a time, as from its
+     * contents.
+     */
+    @Test
+    public void testMappedFileRuns() throws IOException
+    {
+        StringBuilder buf = new StringBuilder();
+        String identifierChars = "azAZ09_$";
+        String neighbors = "`{@[/:#%^!\u0001\u0008\u000E\u001B";
+        String whitespace = " \t\n\u000B\f\r\u001C\u001F";
+        for (int length = 1; length <= 20; length++)
+        {
+            for (int i = 0; i < neighbors.length(); i++)
+            {
+                buf.append('q');
+                for (int j = 1; j < length; j++)
+                {
+                    buf.append(identifierChars.charAt((i + j) % identifierChars.length()));
+                }
+                buf.append(neighbors.charAt(i));
+                for (int j = 0; j < length; j++)
+                {
+                    buf.append((char) ('0' + (i + j) % 10));
+                }
+                buf.append(neighbors.charAt(i));
+                for (int j = 0; j < length; j++)
+                {
+                    buf.append(whitespace.charAt((i + j) % whitespace.length()));
+                }
+                buf.append(neighbors.charAt(i));
+            }
+        }
+        String contents = buf.toString();
+
+        Path ascii = Files.createTempFile("scanner", ".spruce");
+        try
+        {
+            Files.write(ascii, contents.getBytes(StandardCharsets.UTF_8));
+            compareScanners(new Scanner(ascii, StandardCharsets.UTF_8), Scanner.map(ascii, StandardCharsets.UTF_8));
+        }
+        finally
+        {
+            Files.delete(ascii);
+        }
+    }
+
+    /**
+     * Helper method to compare the tokens and locations of two scanners.
+     * @param expected A <code>Scanner</code> that produces the expected <code>Tokens</code>.
+     * @param actual A <code>Scanner</code> that produces <code>Tokens</code> to check.
+     */
+    private void compareScanners(Scanner expected, Scanner actual)
+    {
+        boolean more;
+        do
+        {
+            more = expected.next();
+            assertEquals(more, actual.next());
+            Token expectedToken = expected.getCurrToken();
+            Token actualToken = actual.getCurrToken();
+            assertEquals(expectedToken, actualToken);
+            assertEquals(expectedToken.getLocation().toString(), actualToken.getLocation().toString());
+        }
+        while (more);
+    }
+
     /**
      * Helper method to compare a list of expected tokens against tokens
      * generated from the given <code>Scanner</code>.
@@ -63,15 +164,15 @@ public class ScannerTest
     }
 
     /**
-     * Tests type context, so that "&gt;&gt;" parses as two separate "&gt;"
-     * tokens instead of one "&gt;&gt;" token.
+     * Tests that "&gt;&gt;" scans as two separate "&gt;" tokens, the same
+     * whether they close type arguments or make a shift, each adjacent to the
+     * next token only where nothing comes between them.
      */
     @Test
-    public void testTypeContext()
+    public void testGreaterThanSequences()
     {
-        String line = "Map<Class<?>, List<Integer>>";
+        String line = "Map<Class<?>, List<Integer>> a >> b > >c";
         Scanner scanner = new Scanner(line);
-        scanner.setInTypeContext(true);
 
         List<Token> expectedTokens = Arrays.asList(
                 new Token(IDENTIFIER, "Map"), new Token(LESS_THAN, "<"),
@@ -79,9 +180,24 @@ public class ScannerTest
                 new Token(QUESTION_MARK, "?"), new Token(GREATER_THAN, ">"),
                 new Token(COMMA, ","), new Token(IDENTIFIER, "List"),
                 new Token(LESS_THAN, "<"), new Token(IDENTIFIER, "Integer"),
-                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">")
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"),
+                new Token(IDENTIFIER, "a"), new Token(GREATER_THAN, ">"),
+                new Token(GREATER_THAN, ">"), new Token(IDENTIFIER, "b"),
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"),
+                new Token(IDENTIFIER, "c")
         );
         compareToExpected(expectedTokens, scanner);
+
+        List<Boolean> adjacent = new ArrayList<>();
+        scanner = new Scanner(line);
+        while (scanner.next())
+        {
+            if (scanner.getCurrToken().getType() == GREATER_THAN)
+            {
+                adjacent.add(scanner.getCurrToken().isAdjacentToNext());
+            }
+        }
+        assertEquals(Arrays.asList(true, true, false, true, false, false, true), adjacent);
     }
 
     /**
@@ -539,6 +655,33 @@ public class ScannerTest
         compareToExpected(expectedTokens, scanner);
     }
 
+    /**
+     * Tests that whitespace and comments are skipped in place, with any line
+     * terminator, and that a slash that doesn't start a comment is scanned.
+     */
+    @Test
+    public void testSkippingTrivia()
+    {
+        String line = "\t a \u2028// comment\r\n  b/**/c / d /= e\u0085/* *\n*/f\u000B\u001F// no line terminator";
+        Scanner scanner = new Scanner(line);
+        String[] expected = {"a", "b", "c", "/", "d", "/=", "e", "f"};
+        int[] offsets = {2, 19, 24, 26, 28, 30, 33, 42};
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertTrue(scanner.next());
+            assertEquals(expected[i], scanner.getCurrToken().getValue());
+            assertEquals(offsets[i], scanner.getCurrToken().getOffset());
+        }
+        assertFalse(scanner.next());
+        assertEquals(EOF, scanner.getCurrToken().getType());
+        TokenBuffer buffer = new TokenBuffer(line);
+        assertEquals(expected.length + 1, buffer.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(offsets[i], buffer.getStart(i));
+        }
+    }
+
     /**
      * Tests remaining operators, question mark, ellipsis
      */
@@ -559,8 +702,10 @@ public class ScannerTest
                 new Token(LOGICAL_AND, "&:"), new Token(LOGICAL_XOR, "^:"),
                 new Token(LOGICAL_OR, "|:"), new Token(LOGICAL_COMPLEMENT, "!"),
                 new Token(SHIFT_LEFT, "<<"), new Token(SHIFT_LEFT_EQUALS, "<<="),
-                new Token(SHIFT_RIGHT, ">>"), new Token(SHIFT_RIGHT_EQUALS, ">>="),
-                new Token(UNSIGNED_SHIFT_RIGHT, ">>>"), new Token(UNSIGNED_SHIFT_RIGHT_EQUALS, ">>>="),
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"),
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN_OR_EQUAL, ">="),
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"),
+                new Token(GREATER_THAN, ">"), new Token(GREATER_THAN, ">"), new Token(GREATER_THAN_OR_EQUAL, ">="),
                 new Token(PLUS, "+"), new Token(PLUS_EQUALS, "+="),
                 new Token(MINUS, "-"), new Token(MINUS_EQUALS, "-="),
                 new Token(STAR, "*"), new Token(STAR_EQUALS, "*="),
@@ -650,6 +795,229 @@ public class ScannerTest
         compareToExpected(expectedTokens, scanner);
     }
 
+    /**
+     * Tests that all line terminators are scanned as one newline each,
+     * including "\r\n" inside a triple-double-quoted string literal.
+     */
+    @Test
+    public void testLineTerminators()
+    {
+        String line = "a\r\nb\rc\u2028\"\"\"x\r\ny\"\"\" d";
+
+        List<Token> expectedTokens = Arrays.asList(
+                new Token(IDENTIFIER, "a"), new Token(IDENTIFIER, "b"),
+                new Token(IDENTIFIER, "c"), new Token(STRING_LITERAL, "x\ny"),
+                new Token(IDENTIFIER, "d")
+        );
+
+        Scanner scanner = new Scanner(line);
+        compareToExpected(expectedTokens, scanner);
+    }
+
+    /**
+     * Tests that many threads looking up lines of the same fresh
+     * <code>SourceText</code> at once all see the complete line table.
+     */
+    @Test
+    public void testConcurrentLineLookups()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            buf.append(String.format("l%04d\n", i));
+        }
+        String code = buf.toString();
+        for (int round = 0; round < 50; round++)
+        {
+            SourceText source = new SourceText("lines", code);
+            IntStream.range(0, 1000).parallel().forEach(i -> {
+                assertEquals(i, source.getLineIdx(6 * i + 3));
+                assertEquals(6 * i, source.getLineStart(i));
+                assertEquals(String.format("l%04d", i), source.getLine(i));
+            });
+            assertEquals(1001, source.getLineCount());
+        }
+    }
+
+    /**
+     * Tests the line numbers, character positions, and lines of token
+     * <code>Locations</code>.
+     */
+    @Test
+    public void testLocations()
+    {
+        String line = "int i;\r\n  i := 1;\n\n\ti++;";
+        Scanner scanner = new Scanner(line);
+
+        int[][] expectedPositions = {
+                {1, 1}, {1, 5}, {1, 6},
+                {2, 3}, {2, 5}, {2, 8}, {2, 9},
+                {4, 2}, {4, 3}, {4, 5}
+        };
+        String[] expectedLines = {"int i;", "  i := 1;", "", "\ti++;"};
+        for (int[] expected : expectedPositions)
+        {
+            assertTrue(scanner.next());
+            Location loc = scanner.getCurrToken().getLocation();
+            assertEquals(expected[0], loc.getLineNbr());
+            assertEquals(expected[1], loc.getCharPos());
+            assertEquals(expectedLines[expected[0] - 1], loc.getLine());
+        }
+        assertFalse(scanner.next());
+        Location eof = scanner.getCurrToken().getLocation();
+        assertEquals(4, eof.getLineNbr());
+        assertEquals(6, eof.getCharPos());
+    }
+
+    /**
+     * Tests the source offsets and lengths of tokens.
+     */
+    @Test
+    public void testTokenOffsets()
+    {
+        String line = "x := '\\n' + \"bc\" /* c */ >>>= 1.5e3;";
+        Scanner scanner = new Scanner(line);
+
+        int[][] expectedSpans = {
+                {0, 1}, {2, 2}, {5, 4}, {10, 1}, {12, 4}, {25, 1}, {26, 1}, {27, 2}, {30, 5}, {35, 1}
+        };
+        for (int[] expected : expectedSpans)
+        {
+            assertTrue(scanner.next());
+            Token token = scanner.getCurrToken();
+            assertEquals(expected[0], token.getOffset(), "Offset of " + token);
+            assertEquals(expected[1], token.getLength(), "Length of " + token);
+            assertEquals(expected[0], token.getLocation().getOffset());
+            assertEquals(expected[0] + 1, token.getLocation().getCharPos());
+        }
+        assertFalse(scanner.next());
+    }
+
+    /**
+     * Tests that peeking far ahead scans each token once: parsing a long
+     * dotted name, which peeks past the whole name from its first part, reads
+     * each character of the source only a few times.
+     */
+    @Test
+    public void testPeekScansEachTokenOnce()
+    {
+        StringBuilder buf = new StringBuilder("a0");
+        for (int i = 1; i < 500; i++)
+        {
+            buf.append(".a").append(i);
+        }
+        String name = buf.toString();
+        int[] reads = new int[1];
+        SourceText source = new SourceText("<name>", name.length())
+        {
+            @Override
+            public char charAt(int offset)
+            {
+                reads[0]++;
+                return name.charAt(offset);
+            }
+
+            @Override
+            public String substring(int start, int end)
+            {
+                return name.substring(start, end);
+            }
+        };
+        Parser parser = new Parser(new Scanner(source));
+        assertNotNull(parser.parseExpression());
+        assertTrue(reads[0] < 10 * name.length(), reads[0] + " reads of " + name.length() + " characters");
+
+        // Tokens kept by peeking are the same tokens that next() supplies.
+        Scanner scanner = new Scanner(name);
+        scanner.next();
+        assertEquals(IDENTIFIER, scanner.peek(998));
+        assertEquals(EOF, scanner.peek(999));
+        int offset = 2;
+        for (int i = 1; i < 500; i++)
+        {
+            scanner.next();
+            assertEquals(DOT, scanner.getCurrToken().getType());
+            assertEquals(offset, scanner.getCurrToken().getOffset());
+            scanner.next();
+            assertEquals("a" + i, scanner.getCurrToken().getValue());
+            assertEquals(offset + 1, scanner.getCurrToken().getOffset());
+            offset += 1 + scanner.getCurrToken().getLength();
+        }
+        assertFalse(scanner.next());
+    }
+
+    /**
+     * Tests that every ASCII character, and a few others, start and continue
+     * identifiers and numbers, and separate tokens as whitespace, just as the
+     * <code>Character</code> predicates say.
+     */
+    @Test
+    public void testCharacterClasses()
+    {
+        for (char c = 0; c < 0x80; c++)
+        {
+            checkCharacterClass(c);
+        }
+        for (char c : "\u0085\u00a0\u00e9\u0663\u2003\u2028".toCharArray())
+        {
+            checkCharacterClass(c);
+        }
+    }
+
+    /**
+     * Helper method to check how one character is scanned.
+     * @param c The character.
+     */
+    private void checkCharacterClass(char c)
+    {
+        String message = "Character " + (int) c;
+        if (Character.isDigit(c) || Character.isJavaIdentifierStart(c))
+        {
+            Scanner scanner = new Scanner(c + "1");
+            assertTrue(scanner.next());
+            assertEquals(Character.isDigit(c) ? INT_LITERAL : IDENTIFIER, scanner.getCurrToken().getType(), message);
+            assertEquals(2, scanner.getCurrToken().getLength(), message);
+        }
+        boolean whitespace = Character.isWhitespace(c) || c == '\u0085';
+        if (Character.isJavaIdentifierPart(c) || whitespace)
+        {
+            Scanner scanner = new Scanner("x" + c + "y");
+            assertTrue(scanner.next());
+            assertEquals(IDENTIFIER, scanner.getCurrToken().getType(), message);
+            assertEquals(whitespace ? 1 : 3, scanner.getCurrToken().getLength(), message);
+            assertEquals(whitespace ? 2 : 3, scanner.peekNextToken().getOffset(), message);
+        }
+    }
+
+    /**
+     * Tests that every keyword is recognized, and that identifiers that are
+     * only prefixes, extensions, or other token representations are not.
+     */
+    @Test
+    public void testKeywords()
+    {
+        for (TokenType type : TokenType.values())
+        {
+            if (Keywords.isKeyword(type))
+            {
+                Scanner scanner = new Scanner(type.getRepresentation());
+                assertTrue(scanner.next());
+                assertEquals(type, scanner.getCurrToken().getType());
+                assertEquals(type.getRepresentation(), scanner.getCurrToken().getValue());
+            }
+        }
+
+        String line = "i iff in ints unknown id fl Null whiles _if $";
+        Scanner scanner = new Scanner(line);
+        for (String identifier : line.split(" "))
+        {
+            assertTrue(scanner.next());
+            assertEquals(IDENTIFIER, scanner.getCurrToken().getType(), identifier);
+            assertEquals(identifier, scanner.getCurrToken().getValue());
+        }
+        assertFalse(scanner.next());
+    }
+
     /**
      * Ensure that we catch an unended traditional/multiline comment.
      */
@@ -661,6 +1029,21 @@ public class ScannerTest
         assertThrows(CompileException.class, scanner::next);
     }
 
+    /**
+     * Ensure that the error for an unended traditional/multiline comment
+     * that doesn't start the source spans from the comment's start to the
+     * end.
+     */
+    @Test
+    public void testErrorNoEndTradCommentSpan()
+    {
+        String line = "a /* Not ended!\nEven after a newline!";
+        Scanner scanner = new Scanner(line);
+        CompileException e = assertThrows(CompileException.class, scanner::next);
+        assertEquals(2, e.getLocation().getOffset());
+        assertEquals(line.length() - 2, e.getDiagnostic().getLength());
+    }
+
     /**
      * Ensure that we catch an empty character literal.
      */
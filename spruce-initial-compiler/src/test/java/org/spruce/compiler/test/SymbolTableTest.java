@@ -0,0 +1,126 @@
+package org.spruce.compiler.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.TokenBuffer;
+import static org.spruce.compiler.scanner.TokenType.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests related to the <code>SymbolTable</code>.
+ */
+public class SymbolTableTest
+{
+    /**
+     * Tests that interning a source range and a <code>String</code> yield the
+     * same canonical instance and symbol ID.
+     */
+    @Test
+    public void testIntern()
+    {
+        SymbolTable symbols = new SymbolTable();
+        SourceText source = new SourceText("<test>", "count index count");
+        String count = symbols.intern(source, 0, 5);
+        assertEquals("count", count);
+        assertSame(count, symbols.intern(source, 12, 17));
+        assertSame(count, symbols.intern(new String("count")));
+        assertNotSame(count, symbols.intern(source, 6, 11));
+
+        int id = symbols.getId(source, 0, 5);
+        assertEquals(id, symbols.getId("count"));
+        assertNotEquals(id, symbols.getId("index"));
+        assertSame(count, symbols.getName(id));
+        assertEquals(2, symbols.size());
+    }
+
+    /**
+     * Tests that the table grows and keeps every symbol.
+     */
+    @Test
+    public void testGrowth()
+    {
+        SymbolTable symbols = new SymbolTable();
+        int[] ids = new int[10000];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = symbols.getId("name" + i);
+        }
+        assertEquals(ids.length, symbols.size());
+        for (int i = 0; i < ids.length; i++)
+        {
+            assertEquals("name" + i, symbols.getName(ids[i]));
+            assertEquals(ids[i], symbols.getId("name" + i));
+        }
+    }
+
+    /**
+     * Tests that scanners and buffers sharing a table hand out the same
+     * instances for identifiers and string literals.
+     */
+    @Test
+    public void testSharedAcrossFiles()
+    {
+        SymbolTable symbols = new SymbolTable();
+        Scanner scanner = new Scanner(new SourceText("a.spruce", "total := total + \"sum\";"), symbols);
+        TokenBuffer buffer = new TokenBuffer(new SourceText("b.spruce", "x := \"sum\" + total;"), symbols);
+
+        assertTrue(scanner.next());
+        String total = scanner.getCurrToken().getValue();
+        scanner.next();
+        scanner.next();
+        assertSame(total, scanner.getCurrToken().getValue());
+        scanner.next();
+        scanner.next();
+        assertEquals(STRING_LITERAL, scanner.getCurrToken().getType());
+        String sum = scanner.getCurrToken().getValue();
+
+        assertSame(sum, buffer.getValue(2));
+        assertSame(total, buffer.getValue(4));
+        assertSame(total, buffer.getToken(4).getValue());
+    }
+
+    /**
+     * Tests that threads interning the same names concurrently agree on the
+     * canonical instances and IDs.
+     */
+    @Test
+    public void testConcurrentIntern() throws Exception
+    {
+        SymbolTable symbols = new SymbolTable();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                futures.add(pool.submit(() -> {
+                    int[] ids = new int[2000];
+                    for (int i = 0; i < ids.length; i++)
+                    {
+                        ids[i] = symbols.getId("id" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expected = futures.get(0).get();
+            for (Future<int[]> future : futures)
+            {
+                assertArrayEquals(expected, future.get());
+            }
+            assertEquals(expected.length, symbols.size());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
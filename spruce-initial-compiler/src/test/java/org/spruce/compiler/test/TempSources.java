@@ -0,0 +1,59 @@
+package org.spruce.compiler.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Utility methods for tests that compile source files in a temporary
+ * directory.  No test entry points.
+ */
+public class TempSources
+{
+    /**
+     * Creates an empty temporary directory to write source files in.
+     * @param prefix The prefix of the directory's name.
+     * @return The directory.
+     * @throws IOException If the directory can't be created.
+     */
+    static Path createRoot(String prefix) throws IOException
+    {
+        return Files.createTempDirectory(prefix);
+    }
+
+    /**
+     * Writes a file in UTF-8, creating its parent directories if needed.
+     * @param path The path of the file.
+     * @param contents The contents.
+     * @return The path of the file.
+     * @throws IOException If the file can't be written.
+     */
+    static Path write(Path path, String contents) throws IOException
+    {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Deletes the given directory and everything in it.
+     * @param root The directory.
+     * @throws IOException If something can't be deleted.
+     */
+    static void delete(Path root) throws IOException
+    {
+        List<Path> all = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            paths.sorted(Comparator.reverseOrder()).forEach(all::add);
+        }
+        for (Path p : all)
+        {
+            Files.delete(p);
+        }
+    }
+}
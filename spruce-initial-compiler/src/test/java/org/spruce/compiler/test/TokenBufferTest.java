@@ -0,0 +1,465 @@
+package org.spruce.compiler.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.spruce.compiler.ast.ASTNode;
+import org.spruce.compiler.ast.ASTParentNode;
+import org.spruce.compiler.exception.CompileException;
+import org.spruce.compiler.parser.Parser;
+import org.spruce.compiler.scanner.Scanner;
+import org.spruce.compiler.scanner.SourceText;
+import org.spruce.compiler.scanner.SymbolTable;
+import org.spruce.compiler.scanner.Token;
+import org.spruce.compiler.scanner.TokenBuffer;
+import org.spruce.compiler.scanner.TokenStream;
+import org.spruce.compiler.scanner.Trivia;
+import static org.spruce.compiler.scanner.TokenType.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * All tests related to the <code>TokenBuffer</code>.
+ */
+public class TokenBufferTest
+{
+    /**
+     * Tests that the buffer holds the types, offsets, lengths, and values of
+     * the significant tokens, ending with EOF.
+     */
+    @Test
+    public void testColumns()
+    {
+        TokenBuffer buffer = new TokenBuffer("x := 'a'; // comment\n  \"b\\tc\" >>= 10");
+        assertEquals(9, buffer.size());
+        assertEquals(IDENTIFIER, buffer.getType(0));
+        assertEquals(ASSIGNMENT, buffer.getType(1));
+        assertEquals(2, buffer.getStart(1));
+        assertEquals(2, buffer.getLength(1));
+        assertEquals(":=", buffer.getValue(1));
+        assertEquals(CHARACTER_LITERAL, buffer.getType(2));
+        assertEquals("a", buffer.getValue(2));
+        assertEquals(SEMICOLON, buffer.getType(3));
+        assertEquals(STRING_LITERAL, buffer.getType(4));
+        assertEquals("b\tc", buffer.getValue(4));
+        assertEquals(2, buffer.getLocation(4).getLineNbr());
+        assertEquals(3, buffer.getLocation(4).getCharPos());
+        assertEquals(GREATER_THAN, buffer.getType(5));
+        assertEquals(GREATER_THAN_OR_EQUAL, buffer.getType(6));
+        assertEquals(INT_LITERAL, buffer.getType(7));
+        assertEquals("10", buffer.getToken(7).getValue());
+        assertEquals(EOF, buffer.getType(8));
+        assertNull(buffer.getValue(8));
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.getType(9));
+    }
+
+    /**
+     * Tests that a stream over a buffer yields the same tokens and locations
+     * as a <code>Scanner</code>.
+     */
+    @Test
+    public void testStreamMatchesScanner() throws IOException
+    {
+        SourceText source = SourceText.map(Paths.get("src-spruce/Tokens.spruce"), StandardCharsets.UTF_8);
+        TokenStream expected = new Scanner(source);
+        TokenStream actual = new TokenBuffer(source).stream();
+        assertNull(actual.getCurrToken());
+        boolean more;
+        do
+        {
+            more = expected.next();
+            assertEquals(more, actual.next());
+            Token expectedToken = expected.getCurrToken();
+            Token actualToken = actual.getCurrToken();
+            assertEquals(expectedToken, actualToken);
+            assertEquals(expectedToken.getOffset(), actualToken.getOffset());
+            assertEquals(expectedToken.getLength(), actualToken.getLength());
+            assertEquals(expectedToken.getLocation().toString(), actualToken.getLocation().toString());
+            assertEquals(expected.peekNextToken(), actual.peekNextToken());
+        }
+        while (more);
+        assertFalse(actual.next());
+        assertEquals(EOF, actual.getCurrToken().getType());
+    }
+
+    /**
+     * Tests that a stream supplies each <code>&gt;</code> of a shift as its own
+     * token, and that only tokens with nothing after them are adjacent to the
+     * next token.
+     */
+    @Test
+    public void testGreaterThanSequences()
+    {
+        TokenStream stream = new TokenBuffer("a >>>= b > c").stream();
+        stream.next();
+        assertEquals(GREATER_THAN, stream.peekNextToken().getType());
+        assertFalse(stream.getCurrToken().isAdjacentToNext());
+        stream.next();
+        assertEquals(2, stream.getCurrToken().getOffset());
+        assertTrue(stream.getCurrToken().isAdjacentToNext());
+        assertEquals(GREATER_THAN, stream.peekNextToken().getType());
+        assertEquals(3, stream.peekNextToken().getOffset());
+        stream.next();
+        assertTrue(stream.getCurrToken().isAdjacentToNext());
+        assertEquals(GREATER_THAN_OR_EQUAL, stream.peekNextToken().getType());
+        stream.next();
+        assertEquals(4, stream.getCurrToken().getOffset());
+        assertEquals(2, stream.getCurrToken().getLength());
+        assertFalse(stream.getCurrToken().isAdjacentToNext());
+        stream.next();
+        assertEquals(IDENTIFIER, stream.getCurrToken().getType());
+        stream.next();
+        assertEquals(GREATER_THAN, stream.getCurrToken().getType());
+        assertFalse(stream.getCurrToken().isAdjacentToNext());
+    }
+
+    /**
+     * Tests peeking ahead and returning to marks, on both a buffer's stream and
+     * a <code>Scanner</code>.
+     */
+    @Test
+    public void testPeekMarkReset()
+    {
+        String code = "a.b.C.class + x[1] >> 2";
+        checkPeekMarkReset(new TokenBuffer(code).stream());
+        checkPeekMarkReset(new Scanner(code));
+    }
+
+    /**
+     * Tests that peeking any distance from any position of a buffer's stream
+     * gives the type that many tokens later, and <code>EOF</code> past the
+     * end.
+     */
+    @Test
+    public void testPeekEveryDistance()
+    {
+        TokenBuffer buffer = new TokenBuffer("a.b.C.class + x[1] >> 2");
+        TokenStream stream = buffer.stream();
+        for (int pos = 0; pos < buffer.size(); pos++)
+        {
+            stream.next();
+            for (int n = 0; n < buffer.size() + 2; n++)
+            {
+                assertEquals(buffer.getType(Math.min(pos + n, buffer.size() - 1)), stream.peek(n),
+                        "Peeking " + n + " from token " + pos);
+            }
+        }
+    }
+
+    /**
+     * Helper method to check peeking and marks on the tokens of
+     * <code>"a.b.C.class + x[1] &gt;&gt; 2"</code>.
+     * @param stream A new <code>TokenStream</code> over those tokens.
+     */
+    private void checkPeekMarkReset(TokenStream stream)
+    {
+        stream.next();
+        assertEquals(IDENTIFIER, stream.peek(0));
+        assertEquals(DOT, stream.peek(1));
+        assertEquals(CLASS, stream.peek(6));
+        assertEquals(GREATER_THAN, stream.peek(12));
+        assertEquals(INT_LITERAL, stream.peek(14));
+        assertEquals(EOF, stream.peek(15));
+        assertEquals(EOF, stream.peek(100));
+        assertThrows(IllegalArgumentException.class, () -> stream.peek(-1));
+        // Peeking doesn't move.
+        assertEquals("a", stream.getCurrToken().getValue());
+        assertEquals(DOT, stream.peekNextToken().getType());
+
+        int outer = stream.mark();
+        for (int i = 0; i < 7; i++)
+        {
+            stream.next();
+        }
+        assertEquals(PLUS, stream.getCurrToken().getType());
+        int inner = stream.mark();
+        stream.next();
+        stream.next();
+        assertEquals(OPEN_BRACKET, stream.getCurrToken().getType());
+        stream.reset(inner);
+        assertEquals(PLUS, stream.getCurrToken().getType());
+        assertEquals(IDENTIFIER, stream.peekNextToken().getType());
+        assertThrows(IllegalStateException.class, () -> stream.reset(inner));
+
+        // Each > of the shift is its own token.
+        assertEquals(GREATER_THAN, stream.peek(5));
+        assertEquals(GREATER_THAN, stream.peek(6));
+        int shift = stream.mark();
+        for (int i = 0; i < 5; i++)
+        {
+            stream.next();
+        }
+        assertEquals(GREATER_THAN, stream.getCurrToken().getType());
+        assertTrue(stream.getCurrToken().isAdjacentToNext());
+        assertEquals(GREATER_THAN, stream.peekNextToken().getType());
+        stream.reset(shift);
+        stream.release(outer);
+        assertThrows(IllegalStateException.class, () -> stream.reset(outer));
+        assertEquals(PLUS, stream.getCurrToken().getType());
+
+        stream.reset(stream.mark());
+        assertEquals(PLUS, stream.getCurrToken().getType());
+    }
+
+    /**
+     * Tests that parsing from a buffer yields the same trees as parsing from a
+     * <code>Scanner</code>, including nested type arguments.
+     */
+    @Test
+    public void testParse()
+    {
+        compareParses("x := a >> 2 + b[i] >>> c.d(e, 'f', \"g\");", Parser::parseStatement);
+        compareParses("new Map<String, List<Integer>>()", Parser::parseExpression);
+        compareParses("Map<String, Map<String, List<Integer>>>", Parser::parseDataType);
+        compareParses("a >>= b >>> 1", Parser::parseExpression);
+        compareParses("a.b.C.class", Parser::parsePrimary);
+        compareParses("a.b.C[].class", Parser::parsePrimary);
+        compareParses("a.b.this", Parser::parsePrimary);
+        compareParses("a.b.c(d.e)", Parser::parsePrimary);
+    }
+
+    /**
+     * Tests that editing a buffer gives the same tokens as lexing the edited
+     * source from scratch, including edits that open, close, or fall into
+     * comments and multiline string literals.
+     */
+    @Test
+    public void testEdit()
+    {
+        String code = "x := a..b; /* one\n two */ y := \"\"\"line 1\nline 2\"\"\" + z;\n// end\nw := 1.5e3 >>= c;";
+        int comment = code.indexOf("/*");
+        int string = code.indexOf("\"\"\"");
+        int[][] edits = {
+            {0, 0}, {0, 1}, {1, 0}, {6, 0}, {6, 1}, {comment, 2}, {comment + 5, 0}, {code.indexOf("*/"), 2},
+            {string, 3}, {string + 6, 0}, {code.indexOf("2\"\"\"") + 1, 0}, {code.indexOf("//"), 0},
+            {code.indexOf("1.5"), 3}, {code.length(), 0}, {code.length() - 1, 1}, {0, code.length()}
+        };
+        String[] inserts = {"", "q", "/*", "*/", "\"\"\"", ".", "\n", "abc ", ">"};
+        for (int[] edit : edits)
+        {
+            for (String inserted : inserts)
+            {
+                checkEdit(code, edit[0], edit[1], inserted, false);
+                checkEdit(code, edit[0], edit[1], inserted, true);
+            }
+        }
+    }
+
+    /**
+     * Tests many random edits, each applied to the result of the last, with
+     * and without trivia.
+     */
+    @Test
+    public void testEditRandomly()
+    {
+        editRandomly(false);
+        editRandomly(true);
+    }
+
+    /**
+     * Tests that whitespace and comments are kept in a <code>Trivia</code>
+     * table only when asked for, each attached to the token after it.
+     */
+    @Test
+    public void testTrivia()
+    {
+        String code = "/** Doc. */\nx := 1; // one\r\n\t/* a */ /* b */y := 2;  \n// end";
+        assertNull(new TokenBuffer(code).getTrivia());
+        TokenBuffer buffer = lex(code, true);
+        Trivia trivia = buffer.getTrivia();
+        assertSame(buffer.getSource(), trivia.getSource());
+        String[] texts = {"/** Doc. */", "\n", " ", " ", " ", "// one\r\n", "\t", "/* a */", " ", "/* b */", " ", " ",
+            "  \n", "// end"};
+        int[] tokens = {0, 0, 1, 2, 4, 4, 4, 4, 4, 4, 5, 6, 8, 8};
+        assertEquals(texts.length, trivia.size());
+        for (int i = 0; i < texts.length; i++)
+        {
+            assertEquals(texts[i], trivia.getText(i));
+            assertTrue(i == 0 || trivia.getStart(i - 1) + trivia.getLength(i - 1) <= trivia.getStart(i));
+            assertEquals(texts[i].length(), trivia.getLength(i));
+            assertEquals(texts[i].startsWith("/") ? COMMENT : WHITESPACE, trivia.getKind(i));
+            assertEquals(tokens[i], trivia.getTokenIndex(i));
+        }
+        assertEquals(EOF, buffer.getType(8));
+        assertEquals("* Doc. ", trivia.getValue(0));
+        assertEquals(" one", trivia.getValue(5));
+        assertNull(trivia.getValue(1));
+        assertEquals(4, trivia.first(4));
+        assertEquals(10, trivia.first(5));
+        assertEquals(12, trivia.first(7));
+        assertEquals(12, trivia.first(8));
+        assertEquals(14, trivia.first(9));
+        assertThrows(IndexOutOfBoundsException.class, () -> trivia.getStart(14));
+    }
+
+    /**
+     * Helper method to apply many random edits, each to the result of the
+     * last.
+     * @param keepingTrivia Whether the buffers keep trivia.
+     */
+    private static void editRandomly(boolean keepingTrivia)
+    {
+        String[] fragments = {"", " ", "\n", "x", "1", ".", "..", "/*", "*/", "//", "\"", "\"\"\"", ";", ">", ">>", "=",
+            "'c'", "e"};
+        Random random = new Random(42);
+        String code = "count := count + 1; /* c */ s := \"\"\"a\nb\"\"\"; return a.b..c >>> 2;";
+        TokenBuffer buffer = lex(code, keepingTrivia);
+        for (int i = 0; i < 2000; i++)
+        {
+            int offset = random.nextInt(code.length() + 1);
+            int removed = random.nextInt(Math.min(4, code.length() - offset) + 1);
+            String inserted = fragments[random.nextInt(fragments.length)];
+            String edited = code.substring(0, offset) + inserted + code.substring(offset + removed);
+            TokenBuffer expected;
+            try
+            {
+                expected = lex(edited, keepingTrivia);
+            }
+            catch (CompileException e)
+            {
+                TokenBuffer last = buffer;
+                assertThrows(CompileException.class, () -> last.edit(offset, removed, inserted));
+                continue;
+            }
+            buffer = buffer.edit(offset, removed, inserted);
+            code = edited;
+            assertSameTokens(expected, buffer);
+        }
+    }
+
+    /**
+     * Tests that a one-character edit of a large source lexes only a few
+     * tokens again, and that the tokens after it are shifted.
+     */
+    @Test
+    public void testEditIsIncremental()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+        {
+            buf.append("x").append(i).append(" := x").append(i).append(" + 1; /* line\n */\n");
+        }
+        String code = buf.toString();
+        TokenBuffer buffer = new TokenBuffer(code);
+        int offset = code.indexOf("x10000 + 1") + 1;
+        TokenBuffer edited = buffer.edit(offset, 0, "9");
+        assertSameTokens(new TokenBuffer(edited.getSource().substring(0, edited.getSource().length())), edited);
+        assertTrue(edited.getRelexEnd() - edited.getRelexStart() <= 3,
+                edited.getRelexStart() + " to " + edited.getRelexEnd());
+        assertEquals("x910000", edited.getValue(edited.getRelexStart()));
+        assertEquals(buffer.size(), edited.size());
+        int last = edited.size() - 2;
+        assertEquals(buffer.getStart(last) + 1, edited.getStart(last));
+
+        TokenBuffer opened = buffer.edit(offset, 0, "/*");
+        assertEquals(buffer.size() - 3, opened.size());
+        assertEquals(0, new TokenBuffer(code).getRelexStart());
+    }
+
+    /**
+     * Helper method to check that editing a buffer gives the same tokens as
+     * lexing the edited source.
+     * @param code The source before the edit.
+     * @param offset The offset of the edit.
+     * @param removed The number of characters removed.
+     * @param inserted The characters inserted.
+     * @param keepingTrivia Whether the buffers keep trivia.
+     */
+    private static void checkEdit(String code, int offset, int removed, String inserted, boolean keepingTrivia)
+    {
+        String edited = code.substring(0, offset) + inserted + code.substring(offset + removed);
+        TokenBuffer buffer = lex(code, keepingTrivia);
+        TokenBuffer expected;
+        try
+        {
+            expected = lex(edited, keepingTrivia);
+        }
+        catch (CompileException e)
+        {
+            assertThrows(CompileException.class, () -> buffer.edit(offset, removed, inserted), edited);
+            return;
+        }
+        assertSameTokens(expected, buffer.edit(offset, removed, inserted));
+    }
+
+    /**
+     * Helper method to check that two buffers hold the same tokens.
+     * @param expected The expected buffer.
+     * @param actual The actual buffer.
+     */
+    private static void assertSameTokens(TokenBuffer expected, TokenBuffer actual)
+    {
+        String source = actual.getSource().substring(0, actual.getSource().length());
+        assertEquals(expected.getSource().substring(0, expected.getSource().length()), source);
+        assertEquals(expected.size(), actual.size(), source);
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.getType(i), actual.getType(i), source);
+            assertEquals(expected.getStart(i), actual.getStart(i), source);
+            assertEquals(expected.getLength(i), actual.getLength(i), source);
+        }
+        Trivia expectedTrivia = expected.getTrivia();
+        Trivia actualTrivia = actual.getTrivia();
+        assertEquals(expectedTrivia == null, actualTrivia == null, source);
+        if (expectedTrivia != null)
+        {
+            assertEquals(expectedTrivia.size(), actualTrivia.size(), source);
+            for (int i = 0; i < expectedTrivia.size(); i++)
+            {
+                assertEquals(expectedTrivia.getKind(i), actualTrivia.getKind(i), source);
+                assertEquals(expectedTrivia.getStart(i), actualTrivia.getStart(i), source);
+                assertEquals(expectedTrivia.getLength(i), actualTrivia.getLength(i), source);
+                assertEquals(expectedTrivia.getTokenIndex(i), actualTrivia.getTokenIndex(i), source);
+            }
+        }
+    }
+
+    /**
+     * Helper method to lex code into a buffer.
+     * @param code The code.
+     * @param keepingTrivia Whether to keep trivia.
+     * @return The <code>TokenBuffer</code>.
+     */
+    private static TokenBuffer lex(String code, boolean keepingTrivia)
+    {
+        return new TokenBuffer(new SourceText("<no file>", code), new SymbolTable(), keepingTrivia);
+    }
+
+    /**
+     * Helper method to compare the trees parsed from a <code>Scanner</code>
+     * and from a <code>TokenBuffer</code>.
+     * @param code The code to parse.
+     * @param parse The parse method to call.
+     */
+    private void compareParses(String code, Function<Parser, ? extends ASTNode> parse)
+    {
+        ASTNode expected = parse.apply(new Parser(new Scanner(code)));
+        ASTNode actual = parse.apply(new Parser(new TokenBuffer(code).stream()));
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    /**
+     * Helper method to describe a tree, including the locations of its nodes.
+     * @param node The root of the tree.
+     * @return A description of the tree.
+     */
+    private static String describe(ASTNode node)
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append(node).append('@').append(node.getLocation().getCharPos());
+        if (node instanceof ASTParentNode)
+        {
+            buf.append('[');
+            for (ASTNode child : ((ASTParentNode) node).getChildren())
+            {
+                buf.append(describe(child)).append(',');
+            }
+            buf.append(']');
+        }
+        return buf.toString();
+    }
+}